@@ -137,68 +137,6 @@ class AdjList extends FilterGraph
 
 
 
-final class AdjListNodeIterator implements Iterator<Node> {
-    protected Node[] nodes;
-    protected int idx;
-
-    public AdjListNodeIterator(Node[] nodes)
-    {
-        this.nodes = nodes;
-        this.idx = 0;
-    }
-
-    public final boolean hasNext()
-    {
-        return idx < nodes.length;
-    }
-
-    public final Node next()
-    {
-        return nodes[idx++];
-    }
-
-    public final void remove()
-    {
-        throw new UnsupportedOperationException();
-    }
-}
-
-
-final class OrderAdjListNodeIterator implements Iterator<Node> {
-    protected Node[] nodes;
-    protected int[] permutation;
-    protected boolean reverse;
-    protected int idx;
-
-    public OrderAdjListNodeIterator(Node[] nodes, final NodeOrder order)
-    {
-        this.nodes = nodes;
-        this.permutation = order.permutation();
-        this.reverse = order.reversed();
-        this.idx = reverse ? nodes.length - 1 : 0;
-    }
-
-    public final boolean hasNext()
-    {
-        return idx < nodes.length && idx >= 0;
-    }
-
-    public final Node next()
-    {
-        if (reverse) 
-            return nodes[permutation[idx--]];
-        else
-            return nodes[permutation[idx++]];
-    }
-
-    public final void remove()
-    {
-        throw new UnsupportedOperationException();
-    }
-}
-
-
-
 final class AdjListEdgeIterator implements Iterator<Edge> {
     protected Node[] nodes;
     protected int idx;
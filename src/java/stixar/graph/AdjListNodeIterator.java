@@ -0,0 +1,33 @@
+package stixar.graph;
+
+import java.util.Iterator;
+
+/*
+  Iterates over an array of nodes in identifier order, for AdjList and
+  CompactDigraph.
+ */
+final class AdjListNodeIterator implements Iterator<Node> {
+    protected Node[] nodes;
+    protected int idx;
+
+    public AdjListNodeIterator(Node[] nodes)
+    {
+        this.nodes = nodes;
+        this.idx = 0;
+    }
+
+    public final boolean hasNext()
+    {
+        return idx < nodes.length;
+    }
+
+    public final Node next()
+    {
+        return nodes[idx++];
+    }
+
+    public final void remove()
+    {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,77 @@
+package stixar.graph;
+
+/*
+  A frozen copy of the adjacency lists of a linked graph, in compressed
+  sparse row form, returned by the adjacency() methods of BasicDigraph
+  and BasicUGraph.  It does not follow later modifications of the graph.
+
+  All fields are final so a snapshot may be shared between threads once
+  it is built.
+ */
+final class AdjacencySnapshot implements IntAdjacency
+{
+    final int[] offsets;
+    final int[] targets;
+    final int[] edgeIds;
+    final Edge[] edges;
+
+    AdjacencySnapshot(Graph g)
+    {
+        int nasz = g.nodeAttrSize();
+        int m = 0;
+        for (int i=0; i<nasz; ++i) {
+            Node u = g.node(i);
+            if (u == null) continue;
+            for (Edge e = u.out(); e != null; e = e.next())
+                m++;
+        }
+        offsets = new int[nasz + 1];
+        targets = new int[m];
+        edgeIds = new int[m];
+        edges = new Edge[m];
+        int k = 0;
+        for (int i=0; i<nasz; ++i) {
+            offsets[i] = k;
+            Node u = g.node(i);
+            if (u == null) continue;
+            for (Edge e = u.out(); e != null; e = e.next()) {
+                targets[k] = e.target().nodeId();
+                edgeIds[k] = e.edgeId();
+                edges[k++] = e;
+            }
+        }
+        offsets[nasz] = k;
+    }
+
+    /*
+      Javadoc'd in IntAdjacency.
+     */
+    public int outDegree(int u)
+    {
+        return offsets[u + 1] - offsets[u];
+    }
+
+    /*
+      Javadoc'd in IntAdjacency.
+     */
+    public int outTarget(int u, int i)
+    {
+        return targets[offsets[u] + i];
+    }
+
+    /*
+      Javadoc'd in IntAdjacency.
+     */
+    public int outEdgeId(int u, int i)
+    {
+        return edgeIds[offsets[u] + i];
+    }
+
+    /*
+      Javadoc'd in IntAdjacency.
+     */
+    public Edge outEdge(int u, int i)
+    {
+        return edges[offsets[u] + i];
+    }
+}
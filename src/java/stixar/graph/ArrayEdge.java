@@ -0,0 +1,128 @@
+package stixar.graph;
+
+import stixar.graph.attr.AttributableBase;
+
+/**
+   Edges of an {@link ArrayDigraph}.
+   <p>
+   An array edge records its position in the outgoing edge array of its
+   source and in the incoming edge array of its target, which makes it its
+   own handle for constant time removal.  The positions change when other
+   edges of the same lists are removed or sorted.
+   </p>
+ */
+public final class ArrayEdge extends AttributableBase
+    implements Edge
+{
+    protected ArrayNode source;
+    protected ArrayNode target;
+    protected int eid;
+
+    int outPos;
+    int inPos;
+
+    ArrayEdge(int id, ArrayNode s, ArrayNode t)
+    {
+        super(id);
+        this.eid = id;
+        this.source = s;
+        this.target = t;
+        this.outPos = -1;
+        this.inPos = -1;
+    }
+
+    /*
+      Javadoc'd in Edge.
+     */
+    public final int edgeId()
+    {
+        return eid;
+    }
+
+    final int edgeId(int i)
+    {
+        super.setAttrIndex(i);
+        return eid = i;
+    }
+
+    /*
+      Javadoc'd in Edge.
+     */
+    public final ArrayNode source()
+    {
+        return source;
+    }
+
+    /*
+      Javadoc'd in Edge.
+     */
+    public final ArrayNode target()
+    {
+        return target;
+    }
+
+    /**
+       Return the next edge in the list of edges coming from
+       the {@link #source}, or <tt>null</tt> if there is none or
+       this edge has been removed.
+     */
+    public final ArrayEdge next()
+    {
+        int p = outPos + 1;
+        return p == 0 || p >= source.outSize ? null : source.out[p];
+    }
+
+    /**
+       Return the next edge in the list of edges leading into the target
+       of this edge.
+     */
+    public final ArrayEdge nextIn()
+    {
+        int p = inPos + 1;
+        return p == 0 || p >= target.inSize ? null : target.in[p];
+    }
+
+    /**
+       Return the position of this edge among the outgoing edges of its
+       source, or <tt>-1</tt> if it has been removed.
+     */
+    public final int outPosition()
+    {
+        return outPos;
+    }
+
+    /**
+       Return the position of this edge among the incoming edges of its
+       target, or <tt>-1</tt> if it has been removed.
+     */
+    public final int inPosition()
+    {
+        return inPos;
+    }
+
+    /**
+       Produce a human readable string representation.
+     */
+    public String toString()
+    {
+        return "ArrayEdge-" + eid + "(" + source.nodeId() + "," + target.nodeId() + ")";
+    }
+
+    /**
+       Produce a hash code for this edge.
+     */
+    public int hashCode()
+    {
+        return eid;
+    }
+
+    /**
+       Make hashing work.
+     */
+    public boolean equals(Object o)
+    {
+        if (o instanceof ArrayEdge)
+            return ((ArrayEdge) o).eid == eid;
+        return false;
+    }
+}
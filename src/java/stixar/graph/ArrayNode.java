@@ -0,0 +1,234 @@
+package stixar.graph;
+
+import stixar.graph.attr.AttributableBase;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+   Nodes of an {@link ArrayDigraph}.
+   <p>
+   An array node keeps its outgoing and incoming edges in growable arrays,
+   together with the target identifiers of its outgoing edges, rather than
+   in linked lists.  Removing an edge moves the last edge of each list into
+   its place, so the order of the lists changes under removal.
+   </p>
+ */
+public final class ArrayNode extends AttributableBase
+    implements Node
+{
+    private static final ArrayEdge[] NoEdges = new ArrayEdge[0];
+    private static final int[] NoTargets = new int[0];
+
+    protected int id;
+    protected final ArrayDigraph digraph;
+
+    ArrayEdge[] out;
+    int[] outTargets;
+    int outSize;
+    ArrayEdge[] in;
+    int inSize;
+
+    ArrayNode(ArrayDigraph dg, int id)
+    {
+        super(id);
+        this.digraph = dg;
+        this.id = id;
+        this.out = NoEdges;
+        this.outTargets = NoTargets;
+        this.in = NoEdges;
+    }
+
+    /*
+      Javadoc'd in Node.
+     */
+    public final int nodeId()
+    {
+        return id;
+    }
+
+    final int nodeId(int i)
+    {
+        super.setAttrIndex(i);
+        return id = i;
+    }
+
+    /*
+      Javadoc'd in Node.
+     */
+    public final ArrayEdge out()
+    {
+        return outSize == 0 ? null : out[0];
+    }
+
+    /**
+       Return the first incoming edge to this node.
+     */
+    public final ArrayEdge in()
+    {
+        return inSize == 0 ? null : in[0];
+    }
+
+    /**
+       Return the outgoing edge at position <tt>i</tt>.
+
+       @throws IndexOutOfBoundsException unless <tt>0 &lt;= i &lt; degree()</tt>.
+     */
+    public final ArrayEdge out(int i)
+    {
+        if (i >= outSize)
+            throw new IndexOutOfBoundsException();
+        return out[i];
+    }
+
+    /**
+       Return the incoming edge at position <tt>i</tt>.
+
+       @throws IndexOutOfBoundsException unless <tt>0 &lt;= i &lt; inDegree()</tt>.
+     */
+    public final ArrayEdge in(int i)
+    {
+        if (i >= inSize)
+            throw new IndexOutOfBoundsException();
+        return in[i];
+    }
+
+    /**
+       Return the number of edges leading from this node.
+     */
+    public final int degree()
+    {
+        return outSize;
+    }
+
+    /**
+       Return the number of edges leading to this node.
+     */
+    public final int inDegree()
+    {
+        return inSize;
+    }
+
+    /**
+       Returns the digraph to which this node belongs.
+     */
+    public final ArrayDigraph digraph()
+    {
+        return digraph;
+    }
+
+    /**
+       Human readable string.
+     */
+    public String toString()
+    {
+        return "ArrayNode(" + id + ")";
+    }
+
+    /**
+       Produce a hash code for this node.
+     */
+    public int hashCode()
+    {
+        return id;
+    }
+
+    /**
+       Implement equals so that hashing works.
+     */
+    public boolean equals(Object o)
+    {
+        if (o instanceof ArrayNode)
+            return id == ((ArrayNode) o).id;
+        return false;
+    }
+
+    /*
+      Adjacency maintenance, package local for ArrayDigraph.
+     */
+    void addOut(ArrayEdge e)
+    {
+        if (outSize == out.length) {
+            int cap = Math.max(4, outSize * 2);
+            out = copyOf(out, cap);
+            int[] tmp = new int[cap];
+            System.arraycopy(outTargets, 0, tmp, 0, outSize);
+            outTargets = tmp;
+        }
+        e.outPos = outSize;
+        out[outSize] = e;
+        outTargets[outSize++] = e.target.id;
+    }
+
+    void addIn(ArrayEdge e)
+    {
+        if (inSize == in.length)
+            in = copyOf(in, Math.max(4, inSize * 2));
+        e.inPos = inSize;
+        in[inSize++] = e;
+    }
+
+    void removeOut(ArrayEdge e)
+    {
+        int p = e.outPos;
+        int last = --outSize;
+        if (p != last) {
+            ArrayEdge f = out[last];
+            out[p] = f;
+            outTargets[p] = outTargets[last];
+            f.outPos = p;
+        }
+        out[last] = null;
+        e.outPos = -1;
+    }
+
+    void removeIn(ArrayEdge e)
+    {
+        int p = e.inPos;
+        int last = --inSize;
+        if (p != last) {
+            ArrayEdge f = in[last];
+            in[p] = f;
+            f.inPos = p;
+        }
+        in[last] = null;
+        e.inPos = -1;
+    }
+
+    void sortOut(Comparator<Edge> cmp)
+    {
+        Arrays.sort(out, 0, outSize, cmp);
+        refresh();
+    }
+
+    /*
+      Reset positions and cached targets, after sorting or
+      renumbering nodes.
+     */
+    void refresh()
+    {
+        for (int i=0; i<outSize; ++i) {
+            out[i].outPos = i;
+            outTargets[i] = out[i].target.id;
+        }
+    }
+
+    void trim()
+    {
+        if (out.length != outSize) {
+            out = outSize == 0 ? NoEdges : copyOf(out, outSize);
+            int[] tmp = outSize == 0 ? NoTargets : new int[outSize];
+            System.arraycopy(outTargets, 0, tmp, 0, outSize);
+            outTargets = tmp;
+        }
+        if (in.length != inSize)
+            in = inSize == 0 ? NoEdges : copyOf(in, inSize);
+    }
+
+    private static ArrayEdge[] copyOf(ArrayEdge[] a, int cap)
+    {
+        ArrayEdge[] tmp = new ArrayEdge[cap];
+        System.arraycopy(a, 0, tmp, 0, Math.min(a.length, cap));
+        return tmp;
+    }
+}
@@ -58,6 +58,56 @@ public class BasicDigraph extends FilterGraph
         return res;
     }
     
+    /**
+       Construct a digraph from adjacency arrays indexed by node identifier,
+       keeping the node and edge identifiers given.  The nodes are the
+       members of <tt>nodeSlots</tt>, all below <tt>nodeTop</tt>; the out
+       edges of node <tt>u</tt> are entries <tt>offsets[u]</tt> through
+       <tt>offsets[u+1]-1</tt> of <tt>targets</tt> and <tt>edgeIds</tt>, in
+       list order.  Used to restore snapshots.
+
+       @throws IllegalArgumentException if the arrays are inconsistent.
+     */
+    public static BasicDigraph fromAdjacency(int nodeTop, BitSet nodeSlots,
+                                             int[] offsets, int[] targets,
+                                             int[] edgeIds, int edgeTop)
+    {
+        if (offsets.length != nodeTop + 1 || offsets[0] != 0
+            || offsets[nodeTop] != targets.length || edgeIds.length != targets.length) {
+            throw new IllegalArgumentException("inconsistent adjacency arrays");
+        }
+        BasicDigraph res = new BasicDigraph(Math.max(nodeTop, 1), Math.max(edgeTop, 1));
+        for (int i = nodeSlots.nextSetBit(0); i >= 0; i = nodeSlots.nextSetBit(i + 1)) {
+            if (i >= nodeTop)
+                throw new IllegalArgumentException("node " + i + " out of range");
+            res.nodes[i] = new BasicNode(res, i);
+            res.nSlots.set(i, true);
+            res.nodeCount++;
+        }
+        res.nodeTop = nodeTop;
+        res.edgeTop = edgeTop;
+        for (int u=0; u<nodeTop; ++u) {
+            int start = offsets[u];
+            int end = offsets[u + 1];
+            if (end < start || (end > start && res.nodes[u] == null))
+                throw new IllegalArgumentException("bad out edges for node " + u);
+            BasicNode bu = res.nodes[u];
+            for (int i=start; i<end; ++i) {
+                int t = targets[i];
+                int eid = edgeIds[i];
+                if (t < 0 || t >= nodeTop || res.nodes[t] == null
+                    || eid < 0 || eid >= edgeTop || res.eSlots.get(eid)) {
+                    throw new IllegalArgumentException("bad edge at " + i);
+                }
+                BasicEdge be = new BasicEdge(res, eid, bu, res.nodes[t]);
+                res.eSlots.set(eid, true);
+                res.edgeCount++;
+                bu.add(be);
+            }
+        }
+        return res;
+    }
+
     /*
       Construct a new BasicDigraph with nodes specified.
 
@@ -223,6 +273,54 @@ public class BasicDigraph extends FilterGraph
         }
     }
 
+    /**
+       Renumber the nodes and edges of this digraph for locality.
+       <p>
+       Nodes are renumbered densely in the given order, see
+       {@link NodeOrder#renumbering}; edges are then renumbered densely by
+       source in the new node order, following each adjacency list, so that
+       a traversal in identifier order reads node and edge attributes
+       sequentially.  All managed attributes are permuted along with the
+       identifiers.  Like {@link #trimToSize}, this invalidates ad-hoc
+       attribute arrays and removed edges, which may not be relinked.
+       </p>
+       @param order an ordering of the nodes of this digraph, for example
+       from {@link stixar.graph.order.LocalityOrder}.
+       @throws IllegalArgumentException if the order is not for this digraph.
+     */
+    public void reorder(NodeOrder order)
+    {
+        if (order.graph() != this) {
+            throw new IllegalArgumentException();
+        }
+        int[] nodePerm = order.renumbering();
+        BasicNode[] byPos = new BasicNode[nodeCount];
+        for (int i=0; i<nodeTop; ++i) {
+            if (nodes[i] != null)
+                byPos[nodePerm[i]] = nodes[i];
+        }
+        int[] edgePerm = new int[edgeTop];
+        Arrays.fill(edgePerm, -1);
+        int k = 0;
+        for (BasicNode n : byPos) {
+            for (BasicEdge e = n.out(); e != null; e = e.next())
+                edgePerm[e.edgeId()] = k++;
+        }
+        permuteNodes(nodePerm);
+        permuteEdges(edgePerm);
+        BasicNode[] newNodes = new BasicNode[nodes.length];
+        for (int i=0; i<byPos.length; ++i) {
+            BasicNode n = byPos[i];
+            n.nodeId(i);
+            newNodes[i] = n;
+            for (BasicEdge e = n.out(); e != null; e = e.next())
+                e.edgeId(edgePerm[e.edgeId()]);
+        }
+        nodes = newNodes;
+        nMods++;
+        eMods++;
+    }
+
     public void clear()
     {
         super.clear();
@@ -369,7 +467,7 @@ public class BasicDigraph extends FilterGraph
     {
         int[] perm = order.permutation();
         ArrayList<Node> res = new ArrayList<Node>(nSlots.cardinality());
-        if (order.reversed()) {
+        if (order.isReversed()) {
             for (int i=perm.length - 1; i>=0; --i)
                 if (perm[i] != -1) {
                     Node n = nodes[perm[i]];
@@ -411,6 +509,22 @@ public class BasicDigraph extends FilterGraph
     }
 
 
+    /**
+       Return a snapshot of the adjacency lists as an {@link IntAdjacency},
+       for primitive traversals such as those of the <tt>IntVisitor</tt>s
+       of {@link stixar.graph.search.BFS} and
+       {@link stixar.graph.search.DFS}.
+       <p>
+       The snapshot is built in <tt>O(n + m)</tt> time and answers
+       without further checks, so it does not follow later modifications
+       of the digraph; take a new one after modifying it.
+       </p>
+     */
+    public IntAdjacency adjacency()
+    {
+        return new AdjacencySnapshot(this);
+    }
+
     /**
        Produces a string for the graph in a simple adjacency list 
        representation.  Each node <tt>n</tt> is listed in order (by {@link Node#nodeId}), 
@@ -291,7 +291,7 @@ public class BasicUGraph extends FilterGraph
     {
         int[] perm = order.permutation();
         ArrayList<Node> res = new ArrayList<Node>(nodeCount);
-        if (order.reversed()) {
+        if (order.isReversed()) {
             for (int i=perm.length - 1; i>=0; --i)
                 if (perm[i] != -1) {
                     Node n = nodes[perm[i]];
@@ -323,6 +323,22 @@ public class BasicUGraph extends FilterGraph
     }
 
 
+    /**
+       Return a snapshot of the adjacency lists as an {@link IntAdjacency},
+       for primitive traversals such as those of the <tt>IntVisitor</tt>s
+       of {@link stixar.graph.search.BFS} and
+       {@link stixar.graph.search.DFS}.
+       <p>
+       The snapshot is built in <tt>O(n + m)</tt> time and answers
+       without further checks, so it does not follow later modifications
+       of the graph; take a new one after modifying it.
+       </p>
+     */
+    public IntAdjacency adjacency()
+    {
+        return new AdjacencySnapshot(this);
+    }
+
     /**
        Produces a string for the graph in a simple adjacency list 
        representation.  Each node <tt>n</tt> is listed in order (by {@link Node#nodeId}), 
@@ -0,0 +1,437 @@
+package stixar.graph;
+
+import stixar.graph.order.NodeOrder;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+   An immutable digraph stored in compressed sparse row form.
+   <p>
+   The outgoing edges of node <tt>u</tt> occupy the positions
+   <tt>offsets[u] .. offsets[u+1]-1</tt> of the <tt>targets</tt> array, and
+   an edge's identifier is its position in that array.  Node and edge
+   identifiers are therefore dense: <tt>nodeAttrSize() == nodeSize()</tt>
+   and <tt>edgeAttrSize() == edgeSize()</tt>, so attribute arrays and
+   native maps created for the digraph have no holes.
+   </p>
+   <p>
+   Only the {@link CompactNode}s are kept as objects; {@link CompactEdge}s
+   are created on demand as the adjacency lists are walked.  Compared to a
+   {@link BasicDigraph}, which holds two list cells per edge, this trades
+   a short-lived handle per visited edge for a footprint of about two ints
+   per edge, which is the right trade for graphs that are built once and
+   traversed many times.
+   </p>
+   <p>
+   Compact digraphs may be produced by {@link #copy copying} any digraph,
+   from arrays of arcs by {@link #fromArcs}, or directly from the
+   offset and target arrays.  Filters may be installed as for any
+   other graph, but the topology cannot be changed.
+   </p>
+ */
+public class CompactDigraph extends FilterGraph
+    implements Digraph, IntAdjacency
+{
+    protected final int[] offsets;
+    protected final int[] targets;
+    protected final CompactNode[] nodes;
+
+    /**
+       Construct a compact copy of an arbitrary digraph.
+       <p>
+       Nodes are numbered in order of their identifiers in <tt>dg</tt>, skipping
+       holes, and edges are numbered by source and then in the order
+       in which they occur in the adjacency list of their source.  If
+       <tt>dg</tt> has no holes in its node identifiers, node identifiers
+       are preserved.
+       </p>
+
+       @param dg the digraph to copy.
+       @return a compact digraph topologically identical to <tt>dg</tt>.
+     */
+    public static CompactDigraph copy(Digraph dg)
+    {
+        return copy(dg, null, null);
+    }
+
+    /**
+       Construct a compact copy of an arbitrary digraph, recording the
+       mapping from the old identifiers to the new ones.
+       <p>
+       The permutation arrays, if not <tt>null</tt>, must have length at least
+       <tt>dg.nodeAttrSize()</tt> and <tt>dg.edgeAttrSize()</tt> respectively.
+       On return they map each old identifier to the new one, or to <tt>-1</tt>
+       if there was no node or edge with that identifier, in the same manner
+       as the permutations used to shrink attributes in
+       {@link stixar.graph.attr.AttrManager}.
+       </p>
+
+       @param dg the digraph to copy.
+       @param nodePerm if not <tt>null</tt>, filled with the node permutation.
+       @param edgePerm if not <tt>null</tt>, filled with the edge permutation.
+       @return a compact digraph topologically identical to <tt>dg</tt>.
+     */
+    public static CompactDigraph copy(Digraph dg, int[] nodePerm, int[] edgePerm)
+    {
+        int nasz = dg.nodeAttrSize();
+        if (nodePerm == null)
+            nodePerm = new int[nasz];
+        int n = 0;
+        for (int i=0; i<nasz; ++i) {
+            nodePerm[i] = dg.node(i) == null ? -1 : n++;
+        }
+        if (edgePerm != null) {
+            Arrays.fill(edgePerm, 0, dg.edgeAttrSize(), -1);
+        }
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[dg.edgeSize()];
+        int eid = 0;
+        for (int i=0; i<nasz; ++i) {
+            Node u = dg.node(i);
+            if (u == null) continue;
+            offsets[nodePerm[i]] = eid;
+            for (Edge e = u.out(); e != null; e = e.next()) {
+                if (eid == targets.length) {
+                    int[] tmp = new int[targets.length * 2 + 1];
+                    System.arraycopy(targets, 0, tmp, 0, eid);
+                    targets = tmp;
+                }
+                if (edgePerm != null)
+                    edgePerm[e.edgeId()] = eid;
+                targets[eid++] = nodePerm[e.target().nodeId()];
+            }
+        }
+        offsets[n] = eid;
+        if (eid < targets.length) {
+            int[] tmp = new int[eid];
+            System.arraycopy(targets, 0, tmp, 0, eid);
+            targets = tmp;
+        }
+        return new CompactDigraph(offsets, targets);
+    }
+
+    /**
+       Construct a compact digraph from parallel arrays of arcs.
+       <p>
+       Arc <tt>i</tt> leads from node <tt>sources[i]</tt> to node <tt>targets[i]</tt>.
+       The arcs are bucketed by source with a stable counting sort, so the
+       adjacency list of each node preserves the input order.
+       </p>
+
+       @param n the number of nodes.
+       @param sources the source node of each arc.
+       @param targets the target node of each arc, of the same length as
+       <tt>sources</tt>.
+       @param edgePerm if not <tt>null</tt>, an array of length at least
+       <tt>sources.length</tt> which is filled with the edge identifier
+       assigned to each arc.
+       @return a compact digraph with <tt>n</tt> nodes and the given arcs.
+       @throws IllegalArgumentException if the arrays differ in length or an
+       arc refers to a node outside <tt>[0,n)</tt>.
+     */
+    public static CompactDigraph fromArcs(int n, int[] sources, int[] targets, int[] edgePerm)
+    {
+        int m = sources.length;
+        if (targets.length != m) {
+            throw new IllegalArgumentException("sources and targets differ in length");
+        }
+        int[] offsets = new int[n + 1];
+        for (int i=0; i<m; ++i) {
+            int s = sources[i];
+            int t = targets[i];
+            if (s < 0 || s >= n || t < 0 || t >= n) {
+                throw new IllegalArgumentException("arc " + i + " (" + s + "," + t
+                                                   + ") out of range");
+            }
+            offsets[s + 1]++;
+        }
+        for (int i=0; i<n; ++i) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] pos = new int[n];
+        System.arraycopy(offsets, 0, pos, 0, n);
+        int[] csrTargets = new int[m];
+        for (int i=0; i<m; ++i) {
+            int eid = pos[sources[i]]++;
+            csrTargets[eid] = targets[i];
+            if (edgePerm != null)
+                edgePerm[i] = eid;
+        }
+        return new CompactDigraph(offsets, csrTargets);
+    }
+
+    /**
+       Construct a compact digraph directly from its offset and target arrays.
+       <p>
+       Neither array is copied, and neither may be modified afterwards.
+       </p>
+
+       @param offsets an array of length <tt>n+1</tt> with <tt>offsets[0] == 0</tt>,
+       non decreasing entries, and <tt>offsets[n] == targets.length</tt>.
+       @param targets the target node of each edge.
+       @throws IllegalArgumentException if the arrays are malformed.
+     */
+    public CompactDigraph(int[] offsets, int[] targets)
+    {
+        super(Math.max(offsets.length - 1, 0), targets.length);
+        int n = offsets.length - 1;
+        int m = targets.length;
+        if (n < 0 || offsets[0] != 0 || offsets[n] != m) {
+            throw new IllegalArgumentException("malformed offsets");
+        }
+        for (int i=0; i<n; ++i) {
+            if (offsets[i] > offsets[i + 1]) {
+                throw new IllegalArgumentException("offsets decrease at node " + i);
+            }
+        }
+        for (int i=0; i<m; ++i) {
+            if (targets[i] < 0 || targets[i] >= n) {
+                throw new IllegalArgumentException("edge " + i + " has target "
+                                                   + targets[i] + " out of range");
+            }
+        }
+        this.offsets = offsets;
+        this.targets = targets;
+        this.nodes = new CompactNode[n];
+        for (int i=0; i<n; ++i) {
+            nodes[i] = new CompactNode(this, i);
+        }
+        this.nodeTop = n;
+        this.edgeTop = m;
+        nSlots.set(0, n);
+        eSlots.set(0, m);
+    }
+
+    /*
+      javadoc'd in digraph, more or less.
+     */
+    public CompactNode node(int id)
+    {
+        return nodes[id];
+    }
+
+    /**
+       Return the edge with identifier <tt>eid</tt>.
+       <p>
+       This requires a binary search over the offsets to find the source
+       of the edge, and so takes time logarithmic in the number of nodes.
+       </p>
+     */
+    public CompactEdge edge(int eid)
+    {
+        if (eid < 0 || eid >= targets.length) {
+            throw new IndexOutOfBoundsException("edge " + eid);
+        }
+        return new CompactEdge(this, eid, source(eid));
+    }
+
+    /**
+       Return the identifier of the source of the edge with identifier
+       <tt>eid</tt>, found by binary search over the offsets.
+     */
+    public int source(int eid)
+    {
+        int lo = 0;
+        int hi = nodes.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (offsets[mid] <= eid)
+                lo = mid;
+            else
+                hi = mid - 1;
+        }
+        return lo;
+    }
+
+    /**
+       Return the identifier of the target of the edge with identifier
+       <tt>eid</tt>.
+     */
+    public final int target(int eid)
+    {
+        return targets[eid];
+    }
+
+    /*
+      Javadoc'd in IntAdjacency.
+     */
+    public final int outDegree(int u)
+    {
+        return offsets[u + 1] - offsets[u];
+    }
+
+    /*
+      Javadoc'd in IntAdjacency.
+     */
+    public final int outTarget(int u, int i)
+    {
+        return targets[offsets[u] + i];
+    }
+
+    /*
+      Javadoc'd in IntAdjacency.
+     */
+    public final int outEdgeId(int u, int i)
+    {
+        return offsets[u] + i;
+    }
+
+    /*
+      Javadoc'd in IntAdjacency.
+     */
+    public final CompactEdge outEdge(int u, int i)
+    {
+        return new CompactEdge(this, offsets[u] + i, u);
+    }
+
+    /**
+       Return the identifier of the first edge leading from the node with
+       identifier <tt>u</tt>.  The outgoing edges of <tt>u</tt> are numbered
+       consecutively from there up to <tt>outEnd(u) - 1</tt>.
+     */
+    public final int outStart(int u)
+    {
+        return offsets[u];
+    }
+
+    /**
+       Return one more than the identifier of the last edge leading from
+       the node with identifier <tt>u</tt>.
+     */
+    public final int outEnd(int u)
+    {
+        return offsets[u + 1];
+    }
+
+    final CompactEdge firstEdge(int u)
+    {
+        int start = offsets[u];
+        return start == offsets[u + 1] ? null : new CompactEdge(this, start, u);
+    }
+
+    final CompactEdge nextEdge(int eid, int u)
+    {
+        int next = eid + 1;
+        return next == offsets[u + 1] ? null : new CompactEdge(this, next, u);
+    }
+
+    /*
+      Javadoc'd in digraph.
+     */
+    public int nodeSize()
+    {
+        return nodes.length;
+    }
+
+    /*
+      Javadoc'd in digraph.
+     */
+    public int nodeAttrSize()
+    {
+        return nodes.length;
+    }
+
+    /*
+      Javadoc'd in digraph.
+     */
+    public int edgeSize()
+    {
+        return targets.length;
+    }
+
+    /*
+      Javadoc'd in digraph.
+     */
+    public int edgeAttrSize()
+    {
+        return targets.length;
+    }
+
+    /*
+      Javadoc'd in Graph
+     */
+    public Iterable<Node> nodes()
+    {
+        return new Iterable<Node>() {
+            public Iterator<Node> iterator() {
+                return new AdjListNodeIterator(nodes);
+            }
+        };
+    }
+
+    /*
+      Javadoc'd in Graph
+     */
+    public Iterable<Node> nodes(final NodeOrder order)
+    {
+        return new Iterable<Node>() {
+            public Iterator<Node> iterator() {
+                return new OrderAdjListNodeIterator(nodes, order);
+            }
+        };
+    }
+
+    /*
+      Javadoc'd in Graph
+     */
+    public Iterable<Edge> edges()
+    {
+        return new Iterable<Edge>() {
+            public Iterator<Edge> iterator() {
+                return new CompactEdgeIterator();
+            }
+        };
+    }
+
+    /**
+       Produces a string for the graph in a simple adjacency list
+       representation.  Each node <tt>n</tt> is listed in order (by {@link Node#nodeId}),
+       followed by  a colon ':' and a space separated list of the nodes
+       to which <tt>n</tt> is linked by an edge.
+     */
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        for (int u=0; u<nodes.length; ++u) {
+            sb.append(u + ":");
+            for (int i=offsets[u]; i<offsets[u + 1]; ++i) {
+                sb.append(" " + targets[i]);
+            }
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+
+    class CompactEdgeIterator implements Iterator<Edge>
+    {
+        protected int eid;
+        protected int src;
+
+        CompactEdgeIterator()
+        {
+            this.eid = 0;
+            this.src = 0;
+        }
+
+        public boolean hasNext()
+        {
+            return eid < targets.length;
+        }
+
+        public Edge next()
+        {
+            if (eid >= targets.length) {
+                throw new NoSuchElementException();
+            }
+            while (offsets[src + 1] <= eid) src++;
+            return new CompactEdge(CompactDigraph.this, eid++, src);
+        }
+
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
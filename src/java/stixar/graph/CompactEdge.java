@@ -0,0 +1,91 @@
+package stixar.graph;
+
+import stixar.graph.attr.AttributableBase;
+
+/**
+   Edges of a {@link CompactDigraph}.
+   <p>
+   Compact edges are lightweight handles onto a position in the
+   digraph's target array.  They are created on demand by
+   {@link Node#out} and {@link #next}, so two handles for the same
+   edge need not be the same object; use {@link #equals} or
+   {@link #edgeId} to compare them.
+   </p>
+ */
+public final class CompactEdge extends AttributableBase
+    implements Edge
+{
+    private final int eid;
+    private final int src;
+    private final CompactDigraph digraph;
+
+    CompactEdge(CompactDigraph dg, int eid, int src)
+    {
+        super(eid);
+        this.digraph = dg;
+        this.eid = eid;
+        this.src = src;
+    }
+
+    /**
+       Return the identifier for this edge, which is also its
+       position in the target array of the digraph.
+     */
+    public final int edgeId()
+    {
+        return eid;
+    }
+
+    /**
+       Return the source node of this edge.
+     */
+    public final CompactNode source()
+    {
+        return digraph.node(src);
+    }
+
+    /**
+       Return the target node of this edge.
+     */
+    public final CompactNode target()
+    {
+        return digraph.node(digraph.target(eid));
+    }
+
+    /**
+       Return the next edge in the list of edges coming from
+       the {@link #source}.
+     */
+    public final CompactEdge next()
+    {
+        return digraph.nextEdge(eid, src);
+    }
+
+    /**
+       Produce a human readable string representation.
+     */
+    public String toString()
+    {
+        return "CompactEdge-" + eid + "(" + src + "," + digraph.target(eid) + ")";
+    }
+
+    /**
+       Produce a hash code for this edge.
+     */
+    public int hashCode()
+    {
+        return eid;
+    }
+
+    /**
+       Make hashing work.
+     */
+    public boolean equals(Object o)
+    {
+        if (o instanceof CompactEdge) {
+            CompactEdge e = (CompactEdge) o;
+            return eid == e.eid && digraph == e.digraph;
+        }
+        return false;
+    }
+}
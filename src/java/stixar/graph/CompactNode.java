@@ -0,0 +1,85 @@
+package stixar.graph;
+
+import stixar.graph.attr.AttributableBase;
+
+/**
+   Nodes of a {@link CompactDigraph}.
+   <p>
+   A compact node holds nothing but its identifier and a reference to
+   its digraph; its outgoing edges live in the digraph's offset and
+   target arrays.
+   </p>
+ */
+public final class CompactNode extends AttributableBase
+    implements Node
+{
+    private final int id;
+    private final CompactDigraph digraph;
+
+    CompactNode(CompactDigraph dg, int id)
+    {
+        super(id);
+        this.digraph = dg;
+        this.id = id;
+    }
+
+    /*
+      Javadoc'd in Node.
+     */
+    public final int nodeId()
+    {
+        return id;
+    }
+
+    /*
+      Javadoc'd in Node.
+     */
+    public final CompactEdge out()
+    {
+        return digraph.firstEdge(id);
+    }
+
+    /**
+       Return the number of edges leading from this node.
+     */
+    public final int degree()
+    {
+        return digraph.outDegree(id);
+    }
+
+    /**
+       Returns the digraph to which this node belongs.
+     */
+    public final CompactDigraph digraph()
+    {
+        return digraph;
+    }
+
+    /**
+       Human readable string.
+     */
+    public String toString()
+    {
+        return "CompactNode(" + id + ")";
+    }
+
+    /**
+       Produce a hash code for this node.
+     */
+    public int hashCode()
+    {
+        return id;
+    }
+
+    /**
+       Implement equals so that hashing works.
+     */
+    public boolean equals(Object o)
+    {
+        if (o instanceof CompactNode) {
+            CompactNode n = (CompactNode) o;
+            return id == n.id && digraph == n.digraph;
+        }
+        return false;
+    }
+}
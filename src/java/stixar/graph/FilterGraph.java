@@ -15,12 +15,14 @@ import stixar.util.ListCell;
   Digraph.
  */
 
-/*
-  A filter digraph is a non-public base class which implements the
-  filtering portion of the Digraph interface.  It is subclassed
-  by AdjList, BasicDigraph, and BasicPDigraph.
+/**
+   A base class implementing the filtering portion of the
+   {@link Graph} interface with a stack of filters, a node or edge
+   being filtered if any of them filters it.  It is subclassed by the
+   graphs of this package and by graphs elsewhere, such as
+   {@link stixar.graph.io.MappedDigraph}.
  */
-class FilterGraph extends AttrManager
+public class FilterGraph extends AttrManager
 {
 
     protected CList<GraphFilter> filters;
@@ -0,0 +1,73 @@
+package stixar.graph;
+
+/**
+   Primitive, index based access to the outgoing edges of a graph.
+   <p>
+   Graphs implementing this interface allow algorithms to walk adjacency
+   lists by node and edge identifiers rather than by following
+   {@link Node#out} and {@link Edge#next}, so that a traversal touches
+   only <tt>int</tt>s and need not create or dereference an {@link Edge}
+   per arc.  A typical loop looks like
+   <pre>
+   for (int i=0, d=adj.outDegree(u); i&lt;d; ++i) {
+       int v = adj.outTarget(u, i);
+       int eid = adj.outEdgeId(u, i);
+       // ...
+   }
+   </pre>
+   and visits the same edges in the same order as
+   <pre>
+   for (Edge e = graph.node(u).out(); e != null; e = e.next()) { ... }
+   </pre>
+   </p>
+   <p>
+   Node and edge identifiers are those of {@link Node#nodeId} and
+   {@link Edge#edgeId}, so attribute arrays and native maps may be indexed
+   by them directly.  Like iteration over a graph, this interface does not
+   respect {@link GraphFilter filters}; algorithms which are
+   {@link Filtering} must check filters themselves, typically by falling
+   back to the object interface when a filter is installed.
+   </p>
+   <p>
+   The linked graphs, {@link BasicDigraph} and {@link BasicUGraph}, do
+   not implement this interface; they hand out a frozen snapshot on
+   request, see {@link BasicDigraph#adjacency}, so that primitive access
+   never pays for checking or rebuilding it behind the caller's back.
+   </p>
+ */
+public interface IntAdjacency
+{
+    /**
+       Return the number of outgoing edges of the node with identifier
+       <tt>u</tt>.
+     */
+    public int outDegree(int u);
+
+    /**
+       Return the identifier of the target of the <tt>i</tt>th outgoing
+       edge of the node with identifier <tt>u</tt>.
+
+       @param u a node identifier.
+       @param i an index in <tt>[0, outDegree(u))</tt>.
+     */
+    public int outTarget(int u, int i);
+
+    /**
+       Return the identifier of the <tt>i</tt>th outgoing edge of the
+       node with identifier <tt>u</tt>.
+
+       @param u a node identifier.
+       @param i an index in <tt>[0, outDegree(u))</tt>.
+     */
+    public int outEdgeId(int u, int i);
+
+    /**
+       Return the <tt>i</tt>th outgoing edge of the node with identifier
+       <tt>u</tt> as an object, for the occasional caller who needs one,
+       for example to record a tree edge or to consult a filter.
+
+       @param u a node identifier.
+       @param i an index in <tt>[0, outDegree(u))</tt>.
+     */
+    public Edge outEdge(int u, int i);
+}
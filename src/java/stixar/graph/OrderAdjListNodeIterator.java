@@ -0,0 +1,42 @@
+package stixar.graph;
+
+import stixar.graph.order.NodeOrder;
+
+import java.util.Iterator;
+
+/*
+  Iterates over an array of nodes in the order of a NodeOrder, for
+  AdjList and CompactDigraph.
+ */
+final class OrderAdjListNodeIterator implements Iterator<Node> {
+    protected Node[] nodes;
+    protected int[] permutation;
+    protected boolean reverse;
+    protected int idx;
+
+    public OrderAdjListNodeIterator(Node[] nodes, final NodeOrder order)
+    {
+        this.nodes = nodes;
+        this.permutation = order.permutation();
+        this.reverse = order.isReversed();
+        this.idx = reverse ? nodes.length - 1 : 0;
+    }
+
+    public final boolean hasNext()
+    {
+        return idx < nodes.length && idx >= 0;
+    }
+
+    public final Node next()
+    {
+        if (reverse) 
+            return nodes[permutation[idx--]];
+        else
+            return nodes[permutation[idx++]];
+    }
+
+    public final void remove()
+    {
+        throw new UnsupportedOperationException();
+    }
+}
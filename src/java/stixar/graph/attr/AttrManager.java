@@ -4,6 +4,7 @@ import stixar.graph.Node;
 import stixar.graph.Edge;
 
 import java.util.Map;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.BitSet;
 import java.util.Arrays;
@@ -253,6 +254,22 @@ public class AttrManager implements GraphAttrCollection
         edgeAttrs.remove(key);
     }
 
+    /**
+       Return the managed node attributes by key, a read-only view.
+     */
+    public Map<Object, NodeData> managedNodeAttrs()
+    {
+        return Collections.unmodifiableMap(nodeAttrs);
+    }
+
+    /**
+       Return the managed edge attributes by key, a read-only view.
+     */
+    public Map<Object, EdgeData> managedEdgeAttrs()
+    {
+        return Collections.unmodifiableMap(edgeAttrs);
+    }
+
     public void registerNode(Object key, Node n)
     {
         specialNodes.put(key, n);
@@ -526,6 +543,57 @@ public class AttrManager implements GraphAttrCollection
         return perm;
     }
 
+    /**
+       Renumber the nodes in place.  Every managed node attribute is moved
+       from index <tt>i</tt> to <tt>perm[i]</tt>, the node slots are
+       reset accordingly and the capacity is unchanged.  The caller is
+       responsible for renumbering its node objects.
+
+       @param perm an injective map from the current node identifiers to
+       <tt>[0, number of nodes)</tt>, of length at least <tt>nodeTop</tt>,
+       with <tt>-1</tt> for unused identifiers.
+     */
+    protected void permuteNodes(int[] perm)
+    {
+        int[] fillPerm = new int[nodeCap];
+        Arrays.fill(fillPerm, -1);
+        System.arraycopy(perm, 0, fillPerm, 0, nodeTop);
+        for (NodeData nd : nodeAttrs.values()) {
+            nd.shrink(nodeCap, fillPerm);
+        }
+        nSlots.clear();
+        int newTop = 0;
+        for (int i=0; i<nodeTop; ++i) {
+            if (fillPerm[i] != -1) {
+                nSlots.set(fillPerm[i], true);
+                newTop = Math.max(newTop, fillPerm[i] + 1);
+            }
+        }
+        nodeTop = newTop;
+    }
+
+    /**
+       Renumber the edges in place, as {@link #permuteNodes} does for nodes.
+     */
+    protected void permuteEdges(int[] perm)
+    {
+        int[] fillPerm = new int[edgeCap];
+        Arrays.fill(fillPerm, -1);
+        System.arraycopy(perm, 0, fillPerm, 0, edgeTop);
+        for (EdgeData ed : edgeAttrs.values()) {
+            ed.shrink(edgeCap, fillPerm);
+        }
+        eSlots.clear();
+        int newTop = 0;
+        for (int i=0; i<edgeTop; ++i) {
+            if (fillPerm[i] != -1) {
+                eSlots.set(fillPerm[i], true);
+                newTop = Math.max(newTop, fillPerm[i] + 1);
+            }
+        }
+        edgeTop = newTop;
+    }
+
     /*
       Map Callbacks
      */
@@ -0,0 +1,159 @@
+package stixar.graph.attr;
+
+import stixar.graph.Node;
+
+import java.util.Arrays;
+
+/**
+   A matrix of booleans for nodes packed one bit per entry.
+   <p>
+   Each row is a run of <tt>long</tt> words in a single array, bit
+   <tt>j &amp; 63</tt> of word <tt>j &gt;&gt; 6</tt> of row <tt>i</tt>
+   holding entry <tt>(i,j)</tt>, so that the matrix takes an eighth of
+   the memory of a {@link ByteNodeMatrix} and whole rows are combined a
+   word, 64 entries, at a time.  Rows never share a word, so that
+   different rows may be written by different threads.  The capacity is
+   limited by the 2<sup>31</sup> words of one array, to about 370000
+   nodes.
+   </p>
+ */
+public class BitNodeMatrix implements NodeMatrix<Boolean>
+{
+    protected long[] bits;
+    protected int cap;
+    protected int words;
+
+    /**
+       Construct a matrix with every entry false.
+       @param cap the capacity, in nodes.
+       @throws IllegalArgumentException if the capacity is too large.
+     */
+    public BitNodeMatrix(int cap)
+    {
+        this.cap = cap;
+        this.words = (cap + 63) >>> 6;
+        this.bits = allocate(cap, words);
+    }
+
+    private static long[] allocate(int cap, int words)
+    {
+        if ((long) cap * words > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("capacity " + cap + " too large for a bit matrix");
+        return new long[cap * words];
+    }
+
+    /**
+       Return the capacity of this matrix, in nodes.
+     */
+    public int capacity()
+    {
+        return cap;
+    }
+
+    public Boolean get(Node u, Node v)
+    {
+        return isSet(u, v);
+    }
+
+    public Boolean set(Node u, Node v, Boolean b)
+    {
+        set(u, v, b.booleanValue());
+        return b;
+    }
+
+    /**
+       Return entry <tt>(u,v)</tt>.
+     */
+    public boolean isSet(Node u, Node v)
+    {
+        int j = v.nodeId();
+        return (bits[u.nodeId() * words + (j >>> 6)] & (1L << j)) != 0;
+    }
+
+    /**
+       Set entry <tt>(u,v)</tt>.
+     */
+    public void set(Node u, Node v, boolean b)
+    {
+        int j = v.nodeId();
+        int w = u.nodeId() * words + (j >>> 6);
+        if (b)
+            bits[w] |= 1L << j;
+        else
+            bits[w] &= ~(1L << j);
+    }
+
+    /**
+       Set the row of <tt>u</tt> to its union with the row of <tt>v</tt>.
+     */
+    public void orRow(Node u, Node v)
+    {
+        int d = u.nodeId() * words;
+        int s = v.nodeId() * words;
+        for (int w=0; w<words; ++w)
+            bits[d + w] |= bits[s + w];
+    }
+
+    /**
+       Set the row of <tt>u</tt> to the row of <tt>v</tt>.
+     */
+    public void copyRow(Node u, Node v)
+    {
+        System.arraycopy(bits, v.nodeId() * words, bits, u.nodeId() * words, words);
+    }
+
+    /**
+       Return the number of true entries in the row of <tt>u</tt>.
+     */
+    public int count(Node u)
+    {
+        int c = 0;
+        for (int w = u.nodeId() * words, end = w + words; w < end; ++w)
+            c += Long.bitCount(bits[w]);
+        return c;
+    }
+
+    public void grow(int newCap)
+    {
+        if (newCap <= cap)
+            return;
+        int newWords = (newCap + 63) >>> 6;
+        long[] newBits = allocate(newCap, newWords);
+        for (int i=0; i<cap; ++i)
+            System.arraycopy(bits, i * words, newBits, i * newWords, words);
+        bits = newBits;
+        cap = newCap;
+        words = newWords;
+    }
+
+    public void shrink(int newCap, int[] fillPerm)
+    {
+        int newWords = (newCap + 63) >>> 6;
+        long[] newBits = allocate(newCap, newWords);
+        int limit = Math.min(cap, fillPerm.length);
+        for (int i=0; i<limit; ++i) {
+            int pi = fillPerm[i];
+            if (pi < 0)
+                continue;
+            int row = i * words;
+            for (int w=0; w<words; ++w) {
+                long x = bits[row + w];
+                while (x != 0) {
+                    int j = (w << 6) + Long.numberOfTrailingZeros(x);
+                    x &= x - 1;
+                    int pj = j < limit ? fillPerm[j] : -1;
+                    if (pj >= 0)
+                        newBits[pi * newWords + (pj >>> 6)] |= 1L << pj;
+                }
+            }
+        }
+        bits = newBits;
+        cap = newCap;
+        words = newWords;
+    }
+
+    public void clear()
+    {
+        Arrays.fill(bits, 0L);
+    }
+}
@@ -34,7 +34,7 @@ public class ByteMap implements NativeMap
             throw new IllegalArgumentException();
 
         byte[] newData = new byte[cap];
-        System.arraycopy(data, 0, newData, 0, cap);
+        System.arraycopy(data, 0, newData, 0, data.length);
         data = newData;
     }
 
@@ -35,7 +35,7 @@ public class CharMap implements NativeMap
             throw new IllegalArgumentException();
 
         char[] newData = new char[cap];
-        System.arraycopy(data, 0, newData, 0, cap);
+        System.arraycopy(data, 0, newData, 0, data.length);
         data = newData;
     }
 
@@ -35,7 +35,7 @@ public class DoubleMap implements NativeMap
             throw new IllegalArgumentException();
 
         double[] newData = new double[cap];
-        System.arraycopy(data, 0, newData, 0, cap);
+        System.arraycopy(data, 0, newData, 0, data.length);
         data = newData;
     }
 
@@ -6,14 +6,73 @@ import java.util.Arrays;
 
 /**
    A map to doubles for {@link Attributable attributable objects}.
+   <p>
+   The entries are kept in an array per row, or, in a matrix made by
+   {@link #flat}, in a single array laid out by a {@link MatrixLayout}.
+   </p>
  */
 public class DoubleNodeMatrix implements NativeNodeMatrix
 {
     protected double[][] data;
+    // the single array of a flat matrix, whose data is null
+    private final FlatStore store;
+    private double[] flat;
     
     public DoubleNodeMatrix(double[][] data)
     {
         this.data = data;
+        this.store = null;
+    }
+
+    private DoubleNodeMatrix(FlatStore store)
+    {
+        this.store = store;
+        this.flat = (double[]) store.data;
+    }
+
+    /**
+       Return a row major matrix stored in a single array.
+       @see #flat(int,MatrixLayout)
+     */
+    public static DoubleNodeMatrix flat(int cap)
+    {
+        return flat(cap, MatrixLayout.RowMajor);
+    }
+
+    /**
+       Return a matrix stored in a single array.
+       <p>
+       The matrix is one object for the collector, and its rows, or tiles,
+       are adjacent in memory and copied in and out in contiguous runs.
+       When managed, it grows with a quarter of headroom beyond the
+       capacity asked for, so that growing node by node does not copy it
+       every time.  Its capacity is a multiple of the tile side, and is
+       limited to about 46000 nodes, see {@link MatrixLayout#fits}.
+       </p>
+       @param cap the initial capacity, in nodes.
+       @param layout the layout of the entries.
+       @throws IllegalArgumentException if the capacity is too large.
+     */
+    public static DoubleNodeMatrix flat(int cap, MatrixLayout layout)
+    {
+        return new DoubleNodeMatrix(new FlatStore(layout, double.class, cap));
+    }
+
+    /**
+       Return the layout of this matrix if it is {@link #flat flat}, and
+       <tt>null</tt> if it is stored by rows.
+     */
+    public MatrixLayout layout()
+    {
+        return store == null ? null : store.layout;
+    }
+
+    /**
+       Return the capacity of this matrix, in nodes.
+     */
+    public int capacity()
+    {
+        return store == null ? data.length : store.cap;
     }
     
     public NativeMap.Type type()
@@ -23,14 +82,82 @@ public class DoubleNodeMatrix implements NativeNodeMatrix
 
     public double get(Node u, Node v)
     {
+        if (flat != null)
+            return flat[store.offset(u.nodeId(), v.nodeId())];
         return data[u.nodeId()][v.nodeId()];
     }
 
     public double set(Node u, Node v, double val)
     {
+        if (flat != null)
+            return flat[store.offset(u.nodeId(), v.nodeId())] = val;
         return data[u.nodeId()][v.nodeId()] = val;
     }
 
+    /**
+       Copy the row of a node, its values to every node by id, into an
+       array.
+       @param u the node.
+       @param row an array of at most the capacity of this matrix.
+       @return row
+     */
+    public double[] getRow(Node u, double[] row)
+    {
+        if (store != null)
+            store.getRow(u.nodeId(), row, row.length);
+        else
+            System.arraycopy(data[u.nodeId()], 0, row, 0, row.length);
+        return row;
+    }
+
+    /**
+       Set the row of a node from an array of its values to every node
+       by id.
+       @param u the node.
+       @param row an array of at most the capacity of this matrix.
+     */
+    public void setRow(Node u, double[] row)
+    {
+        if (store != null)
+            store.setRow(u.nodeId(), row, row.length);
+        else
+            System.arraycopy(row, 0, data[u.nodeId()], 0, row.length);
+    }
+
+    /**
+       Copy the column of a node, the values of every node by id to it,
+       into an array.
+       @param v the node.
+       @param column an array of at most the capacity of this matrix.
+       @return column
+     */
+    public double[] getColumn(Node v, double[] column)
+    {
+        int j = v.nodeId();
+        if (store != null)
+            store.getColumn(j, column, column.length);
+        else
+            for (int i=0; i<column.length; ++i)
+                column[i] = data[i][j];
+        return column;
+    }
+
+    /**
+       Set the column of a node from an array of the values of every node
+       by id to it.
+       @param v the node.
+       @param column an array of at most the capacity of this matrix.
+     */
+    public void setColumn(Node v, double[] column)
+    {
+        int j = v.nodeId();
+        if (store != null)
+            store.setColumn(j, column, column.length);
+        else
+            for (int i=0; i<column.length; ++i)
+                data[i][j] = column[i];
+    }
+
     /**
        Method for use by an attribute manager when this attribute map 
        is managed.
@@ -45,6 +172,11 @@ public class DoubleNodeMatrix implements NativeNodeMatrix
     @SuppressWarnings("unchecked")
     public void grow(int cap)
     {
+        if (store != null) {
+            store.grow(cap);
+            flat = (double[]) store.data;
+            return;
+        }
         if (cap < data.length)
             throw new IllegalArgumentException
                 ("got cap " + cap + " when length was " + data.length);
@@ -80,6 +212,11 @@ public class DoubleNodeMatrix implements NativeNodeMatrix
     @SuppressWarnings("unchecked")
     public void shrink(int cap, int[] fillPerm)
     {
+        if (store != null) {
+            store.shrink(cap, fillPerm);
+            flat = (double[]) store.data;
+            return;
+        }
         if (cap > data.length)
             throw new IllegalArgumentException();
         double [][] newData = new double[cap][cap];
@@ -101,6 +238,10 @@ public class DoubleNodeMatrix implements NativeNodeMatrix
 
     public void clear()
     {
+        if (flat != null) {
+            Arrays.fill(flat, 0d);
+            return;
+        }
         for (int i=0; i<data.length; ++i)
             Arrays.fill(data[i], 0d);
     }
@@ -0,0 +1,107 @@
+package stixar.graph.attr;
+
+import stixar.graph.Edge;
+
+/**
+   Edge map containing native doubles which is cleared in constant time.
+   <p>
+   Every entry carries the generation in which it was last set; {@link
+   #clear} starts a new generation, after which every entry reads as the
+   default value until it is set again.  Algorithms which are run many
+   times on a large graph, each run touching few edges, may thus start
+   each run without rewriting the whole map.
+   </p>
+ */
+public class EpochDoubleEdgeMap extends DoubleEdgeMap
+{
+    private final Epochs epochs;
+    private double def;
+
+    /**
+       Construct a map in which every entry reads as <tt>def</tt>.
+       @param cap the capacity, the edge attribute size of the graph.
+       @param def the default value.
+     */
+    public EpochDoubleEdgeMap(int cap, double def)
+    {
+        super(new double[cap]);
+        this.epochs = new Epochs(cap);
+        this.def = def;
+    }
+
+    /**
+       Return the default value.
+     */
+    public double defaultValue()
+    {
+        return def;
+    }
+
+    /**
+       Return whether the entry of identifier <tt>i</tt> was set since the
+       last clear.
+     */
+    public boolean isSet(int i)
+    {
+        return epochs.live(i);
+    }
+
+    /**
+       Return whether the entry of <tt>e</tt> was set since the last clear.
+     */
+    public boolean isSet(Edge e)
+    {
+        return epochs.live(e.edgeId());
+    }
+
+    public double get(int i)
+    {
+        return epochs.live(i) ? data[i] : def;
+    }
+
+    public double set(int i, double x)
+    {
+        epochs.mark(i);
+        return data[i] = x;
+    }
+
+    public double get(Edge e)
+    {
+        return get(e.edgeId());
+    }
+
+    public double set(Edge e, double x)
+    {
+        return set(e.edgeId(), x);
+    }
+
+    public void grow(int cap)
+    {
+        super.grow(cap);
+        epochs.grow(cap);
+    }
+
+    public void shrink(int cap, int[] fillPerm)
+    {
+        super.shrink(cap, fillPerm);
+        epochs.shrink(cap, fillPerm);
+    }
+
+    /**
+       Reset every entry to the default value, in constant time.
+     */
+    public void clear()
+    {
+        epochs.next();
+    }
+
+    /**
+       Reset every entry to a new default value, in constant time.
+       @param def the new default value.
+     */
+    public void clear(double def)
+    {
+        this.def = def;
+        epochs.next();
+    }
+}
@@ -0,0 +1,118 @@
+package stixar.graph.attr;
+
+import stixar.graph.Edge;
+
+/**
+   Generic edge map which is cleared in constant time.
+   <p>
+   Every entry carries the generation in which it was last set; {@link
+   #clear} starts a new generation, after which every entry reads as the
+   default value until it is set again.  Stale values are only dropped
+   when their entry is set again.
+   </p>
+   @see EpochIntEdgeMap
+ */
+public class EpochEdgeMap<T> extends ArrayMap<T>
+    implements EdgeMap<T>
+{
+    private final Epochs epochs;
+    private T def;
+
+    /**
+       Construct a map in which every entry reads as <tt>null</tt>.
+       @param cap the capacity, the edge attribute size of the graph.
+     */
+    public EpochEdgeMap(int cap)
+    {
+        this(cap, null);
+    }
+
+    /**
+       Construct a map in which every entry reads as <tt>def</tt>.
+       @param cap the capacity, the edge attribute size of the graph.
+       @param def the default value.
+     */
+    @SuppressWarnings("unchecked")
+    public EpochEdgeMap(int cap, T def)
+    {
+        super((T[]) new Object[cap]);
+        this.epochs = new Epochs(cap);
+        this.def = def;
+    }
+
+    /**
+       Return the default value.
+     */
+    public T defaultValue()
+    {
+        return def;
+    }
+
+    /**
+       Return whether the entry of identifier <tt>i</tt> was set since the
+       last clear.
+     */
+    public boolean isSet(int i)
+    {
+        return epochs.live(i);
+    }
+
+    /**
+       Return whether the entry of <tt>e</tt> was set since the last clear.
+     */
+    public boolean isSet(Edge e)
+    {
+        return epochs.live(e.edgeId());
+    }
+
+    public T get(int i)
+    {
+        return epochs.live(i) ? data[i] : def;
+    }
+
+    public T set(int i, T x)
+    {
+        epochs.mark(i);
+        return data[i] = x;
+    }
+
+    public T get(Edge e)
+    {
+        return get(e.edgeId());
+    }
+
+    public T set(Edge e, T x)
+    {
+        return set(e.edgeId(), x);
+    }
+
+    public void grow(int cap)
+    {
+        super.grow(cap);
+        epochs.grow(cap);
+    }
+
+    public void shrink(int cap, int[] fillPerm)
+    {
+        super.shrink(cap, fillPerm);
+        epochs.shrink(cap, fillPerm);
+    }
+
+    /**
+       Reset every entry to the default value, in constant time.
+     */
+    public void clear()
+    {
+        epochs.next();
+    }
+
+    /**
+       Reset every entry to a new default value, in constant time.
+       @param def the new default value.
+     */
+    public void clear(T def)
+    {
+        this.def = def;
+        epochs.next();
+    }
+}
@@ -0,0 +1,55 @@
+package stixar.graph.attr;
+
+import java.util.Arrays;
+
+/*
+  The generation stamps of an epoch map: an entry is live if its stamp
+  is the current epoch, and clearing the map starts a new epoch.  The
+  stamps are only rewritten when the epoch counter wraps around.
+ */
+final class Epochs
+{
+    int[] stamps;
+    int epoch;
+
+    Epochs(int cap)
+    {
+        stamps = new int[cap];
+        epoch = 1;
+    }
+
+    boolean live(int i)
+    {
+        return stamps[i] == epoch;
+    }
+
+    void mark(int i)
+    {
+        stamps[i] = epoch;
+    }
+
+    void next()
+    {
+        if (epoch == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            epoch = 0;
+        }
+        epoch++;
+    }
+
+    void grow(int cap)
+    {
+        stamps = Arrays.copyOf(stamps, cap);
+    }
+
+    void shrink(int cap, int[] fillPerm)
+    {
+        int[] s = new int[cap];
+        for (int i=0; i<stamps.length && i<fillPerm.length; ++i) {
+            int pi = fillPerm[i];
+            if (pi != -1)
+                s[pi] = stamps[i];
+        }
+        stamps = s;
+    }
+}
@@ -0,0 +1,127 @@
+package stixar.graph.attr;
+
+import java.lang.reflect.Array;
+
+/*
+  The single array of a flat node matrix of any native type, with its
+  allocated capacity, and the operations which move entries regardless of
+  their type, shared by the flat matrices of every type.
+
+  Growth keeps a quarter of headroom so that repeated growth copies each
+  entry a bounded number of times, and copies whole runs; the capacity is
+  always a multiple of the tile side.
+ */
+final class FlatStore
+{
+    static final long MaxEntries = Integer.MAX_VALUE - 8;
+
+    final MatrixLayout layout;
+    private final Class<?> component;
+    Object data;
+    int cap;
+
+    FlatStore(MatrixLayout layout, Class<?> component, int cap)
+    {
+        this.layout = layout;
+        this.component = component;
+        this.cap = layout.round(cap);
+        this.data = allocate(this.cap);
+    }
+
+    private Object allocate(int c)
+    {
+        if ((long) c * c > MaxEntries)
+            throw new IllegalArgumentException("capacity " + c + " too large for a flat matrix");
+        return Array.newInstance(component, c * c);
+    }
+
+    /*
+      The index of entry (i,j), which must lie within the capacity: an
+      index of a row beyond the capacity would otherwise land in the next
+      row, where an array of rows would throw.
+     */
+    int offset(int i, int j)
+    {
+        if (i >= cap || j >= cap)
+            throw new ArrayIndexOutOfBoundsException
+                ("entry (" + i + "," + j + ") outside capacity " + cap);
+        return layout.offset(i, j, cap);
+    }
+
+    void grow(int n)
+    {
+        if (n <= cap)
+            return;
+        int newCap = layout.round(Math.max(n, cap + (cap >> 2)));
+        if ((long) newCap * newCap > MaxEntries)
+            newCap = layout.round(n);
+        Object newData = allocate(newCap);
+        int run = layout.run(cap);
+        for (int i=0; i<cap; ++i)
+            for (int j=0; j<cap; j+=run)
+                System.arraycopy(data, layout.offset(i, j, cap),
+                                 newData, layout.offset(i, j, newCap), run);
+        data = newData;
+        cap = newCap;
+    }
+
+    /*
+      Move entry (i,j) to (perm[i],perm[j]) in an array for capacity n,
+      copying the runs which stay consecutive in one piece.
+     */
+    void shrink(int n, int[] perm)
+    {
+        int newCap = layout.round(n);
+        Object newData = allocate(newCap);
+        int limit = Math.min(cap, perm.length);
+        int srcRun = layout.run(cap);
+        int dstRun = layout.run(newCap);
+        for (int i=0; i<limit; ++i) {
+            int pi = perm[i];
+            if (pi < 0)
+                continue;
+            for (int j=0; j<limit; ) {
+                int pj = perm[j];
+                if (pj < 0) {
+                    j++;
+                    continue;
+                }
+                int len = 1;
+                while (j + len < limit && perm[j + len] == pj + len
+                       && (j + len) % srcRun != 0 && (pj + len) % dstRun != 0)
+                    len++;
+                System.arraycopy(data, layout.offset(i, j, cap),
+                                 newData, layout.offset(pi, pj, newCap), len);
+                j += len;
+            }
+        }
+        data = newData;
+        cap = newCap;
+    }
+
+    void getRow(int i, Object row, int n)
+    {
+        int run = layout.run(cap);
+        for (int j=0; j<n; j+=run)
+            System.arraycopy(data, offset(i, j), row, j, Math.min(run, n - j));
+    }
+
+    void setRow(int i, Object row, int n)
+    {
+        int run = layout.run(cap);
+        for (int j=0; j<n; j+=run)
+            System.arraycopy(row, j, data, offset(i, j), Math.min(run, n - j));
+    }
+
+    void getColumn(int j, Object column, int n)
+    {
+        for (int i=0; i<n; ++i)
+            System.arraycopy(data, offset(i, j), column, i, 1);
+    }
+
+    void setColumn(int j, Object column, int n)
+    {
+        for (int i=0; i<n; ++i)
+            System.arraycopy(column, i, data, offset(i, j), 1);
+    }
+}
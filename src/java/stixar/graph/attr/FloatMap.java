@@ -34,7 +34,7 @@ public class FloatMap implements NativeMap
             throw new IllegalArgumentException();
 
         float[] newData = new float[cap];
-        System.arraycopy(data, 0, newData, 0, cap);
+        System.arraycopy(data, 0, newData, 0, data.length);
         data = newData;
     }
 
@@ -34,7 +34,7 @@ public class IntMap implements NativeMap
             throw new IllegalArgumentException();
 
         int[] newData = new int[cap];
-        System.arraycopy(data, 0, newData, 0, cap);
+        System.arraycopy(data, 0, newData, 0, data.length);
         data = newData;
     }
 
@@ -35,7 +35,7 @@ public class LongMap implements NativeMap
             throw new IllegalArgumentException();
 
         long[] newData = new long[cap];
-        System.arraycopy(data, 0, newData, 0, cap);
+        System.arraycopy(data, 0, newData, 0, data.length);
         data = newData;
     }
 
@@ -0,0 +1,98 @@
+package stixar.graph.attr;
+
+/**
+   The layout of a flat node matrix in its single array.
+   <p>
+   In the {@link #RowMajor} layout, the entries of a row are contiguous
+   and rows follow each other.  In a {@link #blocked blocked} layout the
+   matrix is cut into square tiles whose entries are contiguous, row major
+   within the tile, the tiles being in row major order, so that an entry
+   is close to its neighbours in both directions; this suits algorithms
+   which sweep the matrix tile by tile, or read columns as much as rows.
+   </p>
+   @see IntNodeMatrix#flat(int,MatrixLayout)
+ */
+public final class MatrixLayout
+{
+    /**
+       Rows one after the other.
+     */
+    public static final MatrixLayout RowMajor = new MatrixLayout(0);
+
+    final int shift;
+    final int tile;
+    final int mask;
+
+    private MatrixLayout(int shift)
+    {
+        this.shift = shift;
+        this.tile = 1 << shift;
+        this.mask = tile - 1;
+    }
+
+    /**
+       Return a blocked layout.
+       @param tile the side of a tile, a power of two.
+       @throws IllegalArgumentException if tile is not a power of two.
+     */
+    public static MatrixLayout blocked(int tile)
+    {
+        if (tile < 1 || (tile & (tile - 1)) != 0)
+            throw new IllegalArgumentException("tile side " + tile + " not a power of two");
+        if (tile == 1)
+            return RowMajor;
+        return new MatrixLayout(Integer.numberOfTrailingZeros(tile));
+    }
+
+    /**
+       Return the side of the tiles, 1 for the row major layout.
+     */
+    public int tile()
+    {
+        return tile;
+    }
+
+    /**
+       Return whether a flat matrix of this layout can hold <tt>cap</tt>
+       nodes, its entries fitting in one array.
+     */
+    public boolean fits(int cap)
+    {
+        long c = round(cap);
+        return c * c <= FlatStore.MaxEntries;
+    }
+
+    /*
+      A capacity rounded up to whole tiles.
+     */
+    int round(int cap)
+    {
+        return (cap + mask) & ~mask;
+    }
+
+    /*
+      The index of entry (i,j) in an array for a capacity of cap.
+     */
+    int offset(int i, int j, int cap)
+    {
+        assert i >= 0 && i < cap && j >= 0 && j < cap : "(" + i + "," + j + ")";
+        if (shift == 0)
+            return i * cap + j;
+        return ((((i >> shift) * (cap >> shift)) + (j >> shift)) << (2 * shift))
+            + ((i & mask) << shift) + (j & mask);
+    }
+
+    /*
+      The length of the contiguous runs of a row, from an index multiple
+      of it.
+     */
+    int run(int cap)
+    {
+        return shift == 0 ? Math.max(cap, 1) : tile;
+    }
+
+    public String toString()
+    {
+        return shift == 0 ? "row major" : "blocked " + tile;
+    }
+}
@@ -30,6 +30,10 @@ public interface NodeData
        for every <tt>i</tt> and <tt>j</tt> such that there is a node with id <tt>i</tT>
        and a node with id <tt>j</tt>.</li>
        </ol>
+       Monotonicity holds when the manager compacts identifiers.  When it
+       renumbers them, <tt>cap</tt> is the current capacity and
+       <tt>fillPerm</tt> is only injective; implementations simply move
+       entry <tt>i</tt> to <tt>fillPerm[i]</tt>.
      */
     public void shrink(int cap, int[] fillPerm);
 
@@ -187,9 +187,8 @@ public class BiconnectedComponents
 	    Node s = e.source();
 	    if (s.get(parents) != e.target()) {
 		Node t = e.target();
-                DFS.Status tStat = dfs.status(t);
 		s.setInt(lowPoints, Math.min(s.getInt(lowPoints), 
-					     tStat.startNum));
+					     dfs.dfsStart(t)));
 		eStack.add(e);
 	    }
 	}
@@ -199,8 +198,7 @@ public class BiconnectedComponents
 	*/
 	public void discover(Node n)
 	{
-            DFS.Status nStat = dfs.status(n);
-	    n.setInt(lowPoints, nStat.startNum);
+	    n.setInt(lowPoints, dfs.dfsStart(n));
 	}
 
 	/**
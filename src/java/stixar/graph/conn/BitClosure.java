@@ -0,0 +1,68 @@
+package stixar.graph.conn;
+
+import stixar.graph.BasicDigraph;
+import stixar.graph.Digraph;
+import stixar.graph.Edge;
+import stixar.graph.Node;
+import stixar.graph.attr.BitNodeMatrix;
+import stixar.graph.attr.NodeMap;
+import stixar.util.CList;
+
+import java.util.concurrent.ForkJoinPool;
+
+/*
+  The bit packed transitive closure of Transitivity.bitClosure.
+
+  Components of the quotient graph are closed by increasing height: the
+  row of the leader of a component, its first node, is the union of the
+  rows of the leaders of its successors, plus the component itself, and
+  is then copied to the other nodes of the component.  Components of one
+  height only read rows of lower heights and write their own rows, so
+  they are closed in parallel.
+ */
+final class BitClosure implements QuotientLevels.Step
+{
+    private final BasicDigraph quotient;
+    private final Node[][] members;
+    private final BitNodeMatrix matrix;
+
+    BitClosure(Digraph dg)
+    {
+        quotient = StrongComponents.quotient(dg);
+        NodeMap<CList<Node>> lists =
+            quotient.getNodeMap(StrongComponents.QuotientCompListMapKey);
+        members = new Node[quotient.nodeAttrSize()][];
+        for (Node c : quotient.nodes()) {
+            CList<Node> list = c.get(lists);
+            Node[] ms = new Node[list.size()];
+            int i = 0;
+            for (Node u : list)
+                ms[i++] = u;
+            members[c.nodeId()] = ms;
+        }
+        matrix = new BitNodeMatrix(dg.nodeAttrSize());
+    }
+
+    BitNodeMatrix run(ForkJoinPool pool)
+    {
+        new QuotientLevels(quotient).run(pool, this);
+        return matrix;
+    }
+
+    public void close(int c)
+    {
+        Node[] ms = members[c];
+        if (ms.length == 0)
+            return;
+        Node leader = ms[0];
+        for (Edge e = quotient.node(c).out(); e != null; e = e.next()) {
+            Node[] ts = members[e.target().nodeId()];
+            if (ts.length > 0)
+                matrix.orRow(leader, ts[0]);
+        }
+        for (Node u : ms)
+            matrix.set(leader, u, true);
+        for (int i=1; i<ms.length; ++i)
+            matrix.copyRow(ms[i], leader);
+    }
+}
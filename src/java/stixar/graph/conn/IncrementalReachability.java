@@ -0,0 +1,155 @@
+package stixar.graph.conn;
+
+import stixar.graph.Edge;
+import stixar.graph.MutableDigraph;
+import stixar.graph.Node;
+import stixar.graph.attr.BitNodeMatrix;
+
+/**
+   Reachability in a mutable digraph maintained under edge insertions.
+   <p>
+   The transitive closure of the graph is kept as a {@link BitNodeMatrix}, so
+   that a query is a single bit test.  Edges and nodes are added through
+   this object, which adds them to the graph and updates the closure: an
+   edge <tt>(u,v)</tt> which does not already follow from the closure is
+   accounted for by adding the row of <tt>v</tt> to the row of every node
+   which reaches <tt>u</tt>, a word at a time, in <tt>O(|V|<sup>2</sup>/64)</tt>
+   time at worst, and in <tt>O(1)</tt> time, a single bit test, if
+   <tt>u</tt> already reaches <tt>v</tt>.
+   </p><p>
+   Removals, through this object, only mark the closure stale; it is
+   recomputed with {@link Transitivity#bitClosure} by the first query that
+   follows, or by an explicit call to {@link #rebuild}, so that a batch of
+   removals costs a single rebuild.  Modifications made to the graph
+   other than through this object are not seen until the next rebuild.
+   </p>
+ */
+public class IncrementalReachability
+{
+    protected MutableDigraph digraph;
+    protected BitNodeMatrix closure;
+    protected boolean stale;
+    protected int rebuilds;
+
+    /**
+       Compute the closure of a mutable digraph.
+       @param mdg the digraph.
+     */
+    public IncrementalReachability(MutableDigraph mdg)
+    {
+        this.digraph = mdg;
+        rebuild();
+        this.rebuilds = 0;
+    }
+
+    /**
+       Return the digraph.
+     */
+    public MutableDigraph graph()
+    {
+        return digraph;
+    }
+
+    /**
+       Return whether <tt>u</tt> reaches <tt>v</tt>, rebuilding the closure
+       first if removals have made it stale.  Every node reaches itself.
+     */
+    public boolean reaches(Node u, Node v)
+    {
+        if (stale)
+            rebuild();
+        return closure.isSet(u, v);
+    }
+
+    /**
+       Add a node to the graph.
+       @return the new node.
+     */
+    public Node genNode()
+    {
+        Node n = digraph.genNode();
+        if (!stale) {
+            ensureCapacity();
+            closure.set(n, n, true);
+        }
+        return n;
+    }
+
+    /**
+       Add an edge to the graph and to the closure.
+       @param u the source of the edge.
+       @param v the target of the edge.
+       @return the new edge.
+     */
+    public Edge genEdge(Node u, Node v)
+    {
+        Edge e = digraph.genEdge(u, v);
+        if (!stale && !closure.isSet(u, v)) {
+            for (Node x : digraph.nodes()) {
+                if (closure.isSet(x, u))
+                    closure.orRow(x, v);
+            }
+        }
+        return e;
+    }
+
+    /**
+       Remove an edge from the graph, marking the closure stale.
+     */
+    public void remove(Edge e)
+    {
+        digraph.remove(e);
+        stale = true;
+    }
+
+    /**
+       Remove a node and its edges from the graph, marking the closure
+       stale.
+     */
+    public void remove(Node n)
+    {
+        digraph.remove(n);
+        stale = true;
+    }
+
+    /**
+       Return whether the closure will be rebuilt by the next query.
+     */
+    public boolean isStale()
+    {
+        return stale;
+    }
+
+    /**
+       Return the number of times the closure was rebuilt since
+       construction.
+     */
+    public int rebuilds()
+    {
+        return rebuilds;
+    }
+
+    /**
+       Recompute the closure from the graph.
+     */
+    public void rebuild()
+    {
+        closure = Transitivity.bitClosure(digraph);
+        stale = false;
+        rebuilds++;
+    }
+
+    /*
+      Grow the closure, doubling it, to cover new nodes.
+     */
+    private void ensureCapacity()
+    {
+        int n = digraph.nodeAttrSize();
+        if (n <= closure.capacity())
+            return;
+        long grown = Math.max(n, 2L * closure.capacity());
+        if (grown * ((grown + 63) >>> 6) > Integer.MAX_VALUE - 8)
+            grown = n;
+        closure.grow((int) grown);
+    }
+}
@@ -0,0 +1,115 @@
+package stixar.graph.conn;
+
+import stixar.graph.BasicDigraph;
+import stixar.graph.Edge;
+import stixar.graph.Node;
+import stixar.graph.order.TopSorter;
+import stixar.util.CList;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+  The nodes of a quotient graph, the strong components of a digraph,
+  bucketed by height: sinks have height 0 and every other component one
+  more than the greatest height of its successors.  Components of one
+  height never reach each other, so that a computation whose result for
+  a component only depends on the results of its successors may close
+  the components of a height in parallel once the lower heights are
+  done.  The topological numbers of the components are kept as well.
+ */
+final class QuotientLevels
+{
+    static final int Grain = 8;
+
+    /*
+      The work done for a component once its successors are done.
+     */
+    interface Step
+    {
+        void close(int c);
+    }
+
+    final BasicDigraph quotient;
+    final int[] tsNum;
+    final int[] byLevel;
+    final int[] levelStart;
+
+    QuotientLevels(BasicDigraph quotient)
+    {
+        this.quotient = quotient;
+        int qn = quotient.nodeAttrSize();
+        TopSorter ts = new TopSorter(quotient);
+        ts.run();
+        tsNum = ts.tsNums();
+        int[] level = new int[qn];
+        int[] order = new int[quotient.nodeSize()];
+        int nOrder = 0;
+        int top = 0;
+        CList<Node> tsort = ts.getSort();
+        while (tsort.size() > 0) {
+            Node c = tsort.removeLast();
+            int l = 0;
+            for (Edge e = c.out(); e != null; e = e.next())
+                l = Math.max(l, level[e.target().nodeId()] + 1);
+            level[c.nodeId()] = l;
+            order[nOrder++] = c.nodeId();
+            top = Math.max(top, l);
+        }
+        levelStart = new int[top + 2];
+        for (int i=0; i<nOrder; ++i)
+            levelStart[level[order[i]] + 1]++;
+        for (int l=0; l<=top; ++l)
+            levelStart[l + 1] += levelStart[l];
+        byLevel = new int[nOrder];
+        int[] fill = new int[top + 1];
+        System.arraycopy(levelStart, 0, fill, 0, top + 1);
+        for (int i=0; i<nOrder; ++i)
+            byLevel[fill[level[order[i]]]++] = order[i];
+    }
+
+    /*
+      Close every component, by increasing height, in the pool if it is
+      not null.
+     */
+    void run(ForkJoinPool pool, Step step)
+    {
+        for (int l=0; l + 1 < levelStart.length; ++l) {
+            int lo = levelStart[l];
+            int hi = levelStart[l + 1];
+            if (pool == null || hi - lo <= Grain) {
+                for (int i=lo; i<hi; ++i)
+                    step.close(byLevel[i]);
+            } else {
+                pool.invoke(new Range(step, lo, hi));
+            }
+        }
+    }
+
+    private final class Range extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Step step;
+        private final int lo;
+        private final int hi;
+
+        Range(Step step, int lo, int hi)
+        {
+            this.step = step;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        protected void compute()
+        {
+            if (hi - lo <= Grain) {
+                for (int i=lo; i<hi; ++i)
+                    step.close(byLevel[i]);
+            } else {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Range(step, lo, mid), new Range(step, mid, hi));
+            }
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package stixar.graph.conn;
+
+import stixar.graph.BasicDigraph;
+import stixar.graph.Digraph;
+import stixar.graph.Edge;
+import stixar.graph.Node;
+import stixar.graph.attr.NodeMap;
+import stixar.graph.attr.NodeMatrix;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+   A compact reachability index of a digraph, answering reachability
+   queries in logarithmic time.
+   <p>
+   The strong components of the graph are numbered in topological order
+   of the {@link StrongComponents#quotient quotient graph}, and the set of
+   components reachable from each component is stored as a sorted list
+   of disjoint intervals of these numbers, the union of the lists of its
+   successors and of its own number.  A query from <tt>s</tt> to
+   <tt>t</tt> is then a binary search for the number of the component of
+   <tt>t</tt> among the intervals of the component of <tt>s</tt>.  The
+   number of intervals is typically close to linear in the size of the
+   graph, and all of them are kept in flat <tt>int</tt> arrays.
+   </p><p>
+   Lists are built by increasing height in the quotient graph, the
+   components of one height, which do not reach each other, being
+   merged in parallel when a {@link ForkJoinPool} is given.  The index
+   does not follow later modifications of the graph.
+   </p><p>
+   An index may be written and read back with the graph it was built
+   for, so that it need not be rebuilt.  The format, in the big endian
+   order of <tt>DataOutputStream</tt>, is
+   </p>
+   <pre>
+   int    magic 'STRI'
+   int    version
+   int    nodeAttrSize, number of components, number of intervals
+   int[nodeAttrSize]     component numbers, -1 for missing nodes
+   int[components + 1]   index of the first interval of each component
+   intervals: int lower, int upper, lower inclusive, upper exclusive
+   </pre>
+   @see Transitivity#compactClosure
+ */
+public final class ReachabilityIndex
+{
+    /**
+       The magic number of a written index, <tt>'STRI'</tt>.
+     */
+    public static final int Magic = 0x53545249;
+
+    /**
+       The version of the format written.
+     */
+    public static final int Version = 1;
+
+    private final Digraph graph;
+    private final int nodes;
+    private final int components;
+    private final int[] comp;
+    private final int[] first;
+    private final int[] lower;
+    private final int[] upper;
+
+    private ReachabilityIndex(Digraph graph, int components,
+                              int[] comp, int[] first, int[] lower, int[] upper)
+    {
+        this.graph = graph;
+        this.nodes = graph.nodeAttrSize();
+        this.components = components;
+        this.comp = comp;
+        this.first = first;
+        this.lower = lower;
+        this.upper = upper;
+    }
+
+    /**
+       Build the reachability index of a digraph in the calling thread.
+       @param dg the digraph.
+     */
+    public static ReachabilityIndex build(Digraph dg)
+    {
+        return build(dg, null);
+    }
+
+    /**
+       Build the reachability index of a digraph.
+       @param dg the digraph.
+       @param pool the pool in which to merge interval lists, or
+       <tt>null</tt> to merge them in the calling thread.
+     */
+    public static ReachabilityIndex build(Digraph dg, ForkJoinPool pool)
+    {
+        NodeMap<Node> qMap = dg.createNodeMap(null);
+        BasicDigraph quotient = StrongComponents.quotient(dg, qMap);
+        QuotientLevels levels = new QuotientLevels(quotient);
+        Lists lists = new Lists(quotient, levels.tsNum);
+        levels.run(pool, lists);
+
+        int k = quotient.nodeSize();
+        int[] comp = new int[dg.nodeAttrSize()];
+        Arrays.fill(comp, -1);
+        for (Node u : dg.nodes())
+            comp[u.nodeId()] = levels.tsNum[qMap.get(u).nodeId()];
+        int[][] byNum = new int[k][];
+        for (Node c : quotient.nodes())
+            byNum[levels.tsNum[c.nodeId()]] = lists.lists[c.nodeId()];
+        int[] first = new int[k + 1];
+        for (int i=0; i<k; ++i)
+            first[i + 1] = first[i] + (byNum[i].length >> 1);
+        int[] lower = new int[first[k]];
+        int[] upper = new int[first[k]];
+        for (int i=0; i<k; ++i) {
+            int[] l = byNum[i];
+            for (int j=0, r=first[i]; j<l.length; j+=2, ++r) {
+                lower[r] = l[j];
+                upper[r] = l[j + 1];
+            }
+        }
+        return new ReachabilityIndex(dg, k, comp, first, lower, upper);
+    }
+
+    /*
+      The interval lists of the components, indexed by quotient node id,
+      each a sorted array of lower, upper pairs.
+     */
+    private static final class Lists implements QuotientLevels.Step
+    {
+        final BasicDigraph quotient;
+        final int[] tsNum;
+        final int[][] lists;
+
+        Lists(BasicDigraph quotient, int[] tsNum)
+        {
+            this.quotient = quotient;
+            this.tsNum = tsNum;
+            this.lists = new int[quotient.nodeAttrSize()][];
+        }
+
+        public void close(int c)
+        {
+            int n = 1;
+            for (Edge e = quotient.node(c).out(); e != null; e = e.next())
+                n += lists[e.target().nodeId()].length >> 1;
+            long[] keys = new long[n];
+            int me = tsNum[c];
+            keys[0] = ((long) me << 32) | (me + 1);
+            int k = 1;
+            for (Edge e = quotient.node(c).out(); e != null; e = e.next()) {
+                int[] l = lists[e.target().nodeId()];
+                for (int j=0; j<l.length; j+=2)
+                    keys[k++] = ((long) l[j] << 32) | l[j + 1];
+            }
+            Arrays.sort(keys);
+            int[] merged = new int[2 * n];
+            int m = 0;
+            for (int i=0; i<n; ++i) {
+                int lo = (int) (keys[i] >>> 32);
+                int hi = (int) keys[i];
+                if (m > 0 && lo <= merged[m - 1]) {
+                    merged[m - 1] = Math.max(merged[m - 1], hi);
+                } else {
+                    merged[m++] = lo;
+                    merged[m++] = hi;
+                }
+            }
+            lists[c] = m == merged.length ? merged : Arrays.copyOf(merged, m);
+        }
+    }
+
+    /**
+       Return the digraph of this index.
+     */
+    public Digraph graph()
+    {
+        return graph;
+    }
+
+    /**
+       Return the number of strong components of the graph.
+     */
+    public int components()
+    {
+        return components;
+    }
+
+    /**
+       Return the total number of intervals stored.
+     */
+    public int intervals()
+    {
+        return first[components];
+    }
+
+    /**
+       Return the topological number of the strong component of a node;
+       nodes of one component have the same number, and a node reaches
+       only nodes with a number at least its own.
+     */
+    public int component(Node u)
+    {
+        return comp[u.nodeId()];
+    }
+
+    /**
+       Return whether <tt>s</tt> reaches <tt>t</tt>.  Every node reaches
+       itself.
+     */
+    public boolean reaches(Node s, Node t)
+    {
+        int cs = comp[s.nodeId()];
+        return search(first[cs], first[cs + 1], cs, comp[t.nodeId()]);
+    }
+
+    /**
+       Return for each of a number of targets whether a source reaches
+       it.
+       @param s the source.
+       @param targets the targets.
+       @param result an array for the results, or <tt>null</tt>; entry
+       <tt>i</tt> is set to whether <tt>s</tt> reaches <tt>targets[i]</tt>.
+       @return <tt>result</tt>, or a new array if it is <tt>null</tt> or
+       shorter than <tt>targets</tt>.
+     */
+    public boolean[] reaches(Node s, Node[] targets, boolean[] result)
+    {
+        if (result == null || result.length < targets.length)
+            result = new boolean[targets.length];
+        int cs = comp[s.nodeId()];
+        int lo = first[cs];
+        int hi = first[cs + 1];
+        for (int i=0; i<targets.length; ++i)
+            result[i] = search(lo, hi, cs, comp[targets[i].nodeId()]);
+        return result;
+    }
+
+    /**
+       Return the number of targets a source reaches.
+       @param s the source.
+       @param targets the targets.
+     */
+    public int count(Node s, Iterable<? extends Node> targets)
+    {
+        int cs = comp[s.nodeId()];
+        int lo = first[cs];
+        int hi = first[cs + 1];
+        int n = 0;
+        for (Node t : targets) {
+            if (search(lo, hi, cs, comp[t.nodeId()]))
+                n++;
+        }
+        return n;
+    }
+
+    /*
+      Whether component ct is in the intervals lo..hi of component cs,
+      which start with cs itself.
+     */
+    private boolean search(int lo, int hi, int cs, int ct)
+    {
+        if (ct < cs)
+            return false;
+        hi--;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (lower[mid] <= ct)
+                lo = mid;
+            else
+                hi = mid - 1;
+        }
+        return ct < upper[lo];
+    }
+
+    /**
+       Return a read only view of this index as a matrix, whose entry
+       <tt>(u,v)</tt> is whether <tt>u</tt> reaches <tt>v</tt>.  The
+       <tt>set</tt> method of the matrix throws an
+       UnsupportedOperationException.
+     */
+    public NodeMatrix<Boolean> asMatrix()
+    {
+        return new NodeMatrix<Boolean>() {
+            public Boolean get(Node u, Node v)
+            {
+                return reaches(u, v);
+            }
+            public Boolean set(Node u, Node v, Boolean b)
+            {
+                throw new UnsupportedOperationException();
+            }
+            public void grow(int c) {}
+            public void shrink(int c, int[] p) {}
+            public void clear() {}
+        };
+    }
+
+    /**
+       Write this index to a file.
+     */
+    public void write(File file) throws IOException
+    {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            write(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+       Write this index to a stream, which is flushed but not closed.
+     */
+    public void write(OutputStream out) throws IOException
+    {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        data.writeInt(Magic);
+        data.writeInt(Version);
+        data.writeInt(nodes);
+        data.writeInt(components);
+        data.writeInt(intervals());
+        for (int i=0; i<nodes; ++i)
+            data.writeInt(comp[i]);
+        for (int i=0; i<=components; ++i)
+            data.writeInt(first[i]);
+        for (int i=0; i<first[components]; ++i) {
+            data.writeInt(lower[i]);
+            data.writeInt(upper[i]);
+        }
+        data.flush();
+    }
+
+    /**
+       Read an index of a digraph from a file.
+       @param file the file.
+       @param g the digraph for which the index was built.
+       @throws IOException if the file cannot be read, is not an index
+       or does not match the graph.
+     */
+    public static ReachabilityIndex read(File file, Digraph g) throws IOException
+    {
+        InputStream in = new FileInputStream(file);
+        try {
+            return read(in, g);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+       Read an index of a digraph from a stream.
+       @param in the stream.
+       @param g the digraph for which the index was built.
+       @throws IOException if the stream cannot be read, is not an index
+       or does not match the graph.
+     */
+    public static ReachabilityIndex read(InputStream in, Digraph g) throws IOException
+    {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+        if (data.readInt() != Magic)
+            throw new IOException("not a reachability index");
+        int version = data.readInt();
+        if (version != Version)
+            throw new IOException("unsupported index version " + version);
+        int nodes = data.readInt();
+        int components = data.readInt();
+        int intervals = data.readInt();
+        if (nodes != g.nodeAttrSize() || components < 0 || intervals < components)
+            throw new IOException("index does not match graph");
+        int[] comp = new int[nodes];
+        for (int i=0; i<nodes; ++i) {
+            comp[i] = data.readInt();
+            if ((comp[i] < 0) != (g.node(i) == null) || comp[i] >= components)
+                throw new IOException("index does not match graph");
+        }
+        int[] first = new int[components + 1];
+        for (int i=0; i<=components; ++i) {
+            first[i] = data.readInt();
+            if (i == 0 ? first[i] != 0 : first[i] <= first[i - 1])
+                throw new IOException("corrupt index component " + i);
+        }
+        if (first[components] != intervals)
+            throw new IOException("corrupt index");
+        int[] lower = new int[intervals];
+        int[] upper = new int[intervals];
+        for (int c=0; c<components; ++c) {
+            for (int i=first[c]; i<first[c + 1]; ++i) {
+                lower[i] = data.readInt();
+                upper[i] = data.readInt();
+                if (lower[i] >= upper[i] || upper[i] > components
+                    || (i == first[c] ? lower[i] != c : lower[i] <= upper[i - 1]))
+                    throw new IOException("corrupt index interval " + i);
+            }
+        }
+        return new ReachabilityIndex(g, components, comp, first, lower, upper);
+    }
+}
@@ -7,11 +7,17 @@ import stixar.graph.Node;
 
 import stixar.graph.attr.NodeMap;
 import stixar.graph.attr.EdgeMap;
+import stixar.graph.attr.NativeMap;
 import stixar.graph.attr.NativeEdgeMap;
+import stixar.graph.attr.IntEdgeMap;
+import stixar.graph.attr.LongEdgeMap;
+import stixar.graph.attr.FloatEdgeMap;
+import stixar.graph.attr.DoubleEdgeMap;
 
 import stixar.graph.search.DFS;
 
 import stixar.util.CList;
+import stixar.util.IntDHeap;
 import stixar.util.Partition;
 import stixar.util.NumAdaptor;
 import stixar.util.fheap.FibHeap;
@@ -90,16 +96,72 @@ public class SpanTree
        of the edge weights is minimal amongst all spanning trees.
 
        If the graph is not connected, a forest will result.
+       <p>
+       This is Prim's algorithm, with the nodes queued by identifier in an
+       {@link IntDHeap} keyed by the weight of their lightest edge to the
+       tree, so it runs in <tt>O(m log n)</tt> time without allocating per
+       node or edge.  The available native types are <tt>int,long,float</tt>
+       and <tt>double</tt>.
+       </p>
 
        @param g the graph for which to compute a minimum spanning tree.
        @param weights an edge weight map.
        @return a node map associating with each node in the graph an edge
-       leading to it in the tree, thus defining a tree.
+       leading to it in the tree, thus defining a tree.  The first node
+       of each connected component, its root, is associated with
+       <tt>null</tt>.
+       @throws IllegalArgumentException if the native type of the weights
+       is not supported.
      */
     public static NodeMap<Edge> minTree(UGraph g,
                                         NativeEdgeMap weights)
     {
-        return null;
+        NativeMap.Type type = weights.type();
+        switch (type) {
+        case Int: case Long: case Float: case Double:
+            break;
+        default:
+            throw new IllegalArgumentException("unsupported weight type " + type);
+        }
+        NodeMap<Edge> tree = g.createNodeMap((Edge) null);
+        IntDHeap heap = new IntDHeap(g.nodeAttrSize());
+        for (Node root : g.nodes()) {
+            if (heap.queued(root.nodeId()))
+                continue;
+            heap.insert(root.nodeId(), Long.MIN_VALUE);
+            while (!heap.isEmpty()) {
+                Node u = g.node(heap.extractMin());
+                for (Edge e = u.out(); e != null; e = e.next()) {
+                    int v = e.target().nodeId();
+                    long key = weightKey(weights, type, e.edgeId());
+                    if (!heap.queued(v)) {
+                        heap.insert(v, key);
+                        tree.set(v, e);
+                    } else if (heap.contains(v) && key < heap.key(v)) {
+                        heap.decreaseKey(v, key);
+                        tree.set(v, e);
+                    }
+                }
+            }
+        }
+        return tree;
+    }
+
+    /*
+      Weight of an edge as an IntDHeap key.
+     */
+    private static long weightKey(NativeEdgeMap w, NativeMap.Type type, int eid)
+    {
+        switch (type) {
+        case Int:
+            return ((IntEdgeMap) w).get(eid);
+        case Long:
+            return ((LongEdgeMap) w).get(eid);
+        case Float:
+            return IntDHeap.doubleKey(((FloatEdgeMap) w).get(eid));
+        default:
+            return IntDHeap.doubleKey(((DoubleEdgeMap) w).get(eid));
+        }
     }
 
     /*
@@ -321,8 +321,8 @@ public class StrongComponents
                 if (filter != null && filter.filter(e)) continue;
                 Node t = e.target();
                 if (t.getInt(components) == Integer.MAX_VALUE) {
-                    int nn = dfs.status(n.get(leaders)).startNum;
-                    int tn = dfs.status(t.get(leaders)).startNum;
+                    int nn = dfs.dfsStart(n.get(leaders));
+                    int tn = dfs.dfsStart(t.get(leaders));
                     if (nn >= tn) 
                         n.set(leaders, t.get(leaders));
                 }
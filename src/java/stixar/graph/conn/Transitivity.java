@@ -8,7 +8,9 @@ import stixar.graph.Algorithm;
 import stixar.graph.Filtering;
 import stixar.graph.BasicDigraph;
 
+import stixar.graph.attr.BitNodeMatrix;
 import stixar.graph.attr.ByteNodeMatrix;
+import stixar.graph.attr.MatrixLayout;
 import stixar.graph.attr.NodeMap;
 import stixar.graph.attr.NodeMatrix;
 import stixar.graph.order.TopSorter;
@@ -17,6 +19,7 @@ import stixar.util.CList;
 
 import java.util.PriorityQueue;
 import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
 
 /**
    Transitivity Algorithms.
@@ -130,18 +133,19 @@ public class Transitivity
        at the expense of the space used to store the matrix.
        If the graph is large or the number of reachability queries
        does not exceed <tt>|V|<sup>2</sup> / log(|V|)</tt>, then using the 
-       {@link #compactClosure} method is recomended.
+       {@link #compactClosure} method is recomended.  The {@link #bitClosure}
+       method computes the same matrix packed a bit per entry.
        </p>
        @param dg a digraph.
-       @return a matrix whose entries <tt>(i,j)</tt> are <tt>1</tt> if 
+       @return a matrix, {@link ByteNodeMatrix#flat flat} when one array can
+       hold it, whose entries <tt>(i,j)</tt> are <tt>1</tt> if 
        <tt>i</tt> can reach <tt>j</tt> in the graph <tt>dg</tt>, and <tt>0</tt>
        otherwise.
      */
     public static ByteNodeMatrix closure(Digraph dg)
     {
-        Transitivity t = new Transitivity(dg);
-        t.run();
-        ByteNodeMatrix m = dg.createByteNodeMatrix();
+        ReachabilityIndex t = ReachabilityIndex.build(dg);
+        ByteNodeMatrix m = closureMatrix(dg);
         for (Node i : dg.nodes()) {
             for (Node j : dg.nodes()) {
                 if (t.reaches(i, j))
@@ -151,6 +155,39 @@ public class Transitivity
         return m;
     }
 
+    /**
+       Compute a bit packed reachability matrix for the digraph.
+       <p>
+       The matrix takes a bit per node pair, an eighth of the space of
+       {@link #closure}, and is computed on the quotient graph of the
+       strong components, in reverse topological order, each row being the
+       union of the rows of the successors a word at a time.
+       </p>
+       @param dg a digraph.
+       @return a matrix whose entries <tt>(i,j)</tt> are true if 
+       <tt>i</tt> can reach <tt>j</tt> in the graph <tt>dg</tt>.
+     */
+    public static BitNodeMatrix bitClosure(Digraph dg)
+    {
+        return new BitClosure(dg).run(null);
+    }
+
+    /**
+       Compute a bit packed reachability matrix for the digraph, the rows
+       of components at the same height in the quotient graph, which do not
+       depend on each other, being computed in parallel.
+       @param dg a digraph.
+       @param pool the pool in which to compute rows, or <tt>null</tt> to
+       compute them in the calling thread.
+       @return a matrix whose entries <tt>(i,j)</tt> are true if 
+       <tt>i</tt> can reach <tt>j</tt> in the graph <tt>dg</tt>.
+       @see #bitClosure(Digraph)
+     */
+    public static BitNodeMatrix bitClosure(Digraph dg, ForkJoinPool pool)
+    {
+        return new BitClosure(dg).run(pool);
+    }
+
     /**
        Produce a compact representation of the transitive closure
        of an arbitrary digraph.
@@ -160,6 +197,8 @@ public class Transitivity
        <tt>O(log(|V|)</tt> time, and is oftentimes much faster.  
        While the space required by the representation can vary a lot, it is
        typically linear if it is handed a randomly generated graph.
+       The representation is a {@link ReachabilityIndex}, which may also be
+       built in parallel, saved and queried in batches.
        </p>
        @param dg the graph whose closure is to be computed.
        @return a pseudo-matrix which returns true upon a call
@@ -170,22 +209,7 @@ public class Transitivity
      */
     public static NodeMatrix<Boolean> compactClosure(Digraph dg)
     {
-        final Transitivity t = new Transitivity(dg);
-        t.run();
-        return new NodeMatrix<Boolean>() {
-            public Boolean get(Node u, Node v)
-            {
-                return t.reaches(u,v);
-            }
-            public Boolean set(Node u, Node v, Boolean b)
-            {
-                throw new UnsupportedOperationException();
-            }
-            public void grow(int c) {}
-            public void shrink(int c, int[] p) {}
-            public void clear() {}
-        };
-        
+        return ReachabilityIndex.build(dg).asMatrix();
     }
 
     /**
@@ -198,7 +222,8 @@ public class Transitivity
        {@link #compactClosure} method is recomended.
        </p>
        @param dg a digraph.
-       @return a matrix whose entries <tt>(i,j)</tt> are <tt>1</tt> if 
+       @return a matrix, {@link ByteNodeMatrix#flat flat} when one array can
+       hold it, whose entries <tt>(i,j)</tt> are <tt>1</tt> if 
        <tt>i</tt> can reach <tt>j</tt> in the graph <tt>dg</tt>, and <tt>0</tt>
        otherwise.
        
@@ -219,7 +244,8 @@ public class Transitivity
        </p>
        @param dg a digraph.
        @param tsort a topologically sorted list of nodes in <tt>dg</tt>.
-       @return a matrix whose entries <tt>(i,j)</tt> are <tt>1</tt> if 
+       @return a matrix, {@link ByteNodeMatrix#flat flat} when one array can
+       hold it, whose entries <tt>(i,j)</tt> are <tt>1</tt> if 
        <tt>i</tt> can reach <tt>j</tt> in the graph <tt>dg</tt>, and <tt>0</tt>
        otherwise.
      */
@@ -227,7 +253,7 @@ public class Transitivity
     {
         Transitivity t = new Transitivity(dg);
         t.run(tsort);
-        ByteNodeMatrix m = dg.createByteNodeMatrix();
+        ByteNodeMatrix m = closureMatrix(dg);
         for (Node i : dg.nodes()) {
             for (Node j : dg.nodes()) {
                 if (t.reaches(i, j))
@@ -237,6 +263,18 @@ public class Transitivity
         return m;
     }
 
+    /*
+      The matrix of a closure: flat if one array can hold it, and the
+      managed matrix of rows of the digraph otherwise.
+     */
+    private static ByteNodeMatrix closureMatrix(Digraph dg)
+    {
+        int n = dg.nodeAttrSize();
+        if (MatrixLayout.RowMajor.fits(n))
+            return ByteNodeMatrix.flat(n);
+        return dg.createByteNodeMatrix();
+    }
+
     /**
        Add a minimal number of edges to a mutable digraph to make it transitive.
        @return the number of edges added.
@@ -244,8 +282,7 @@ public class Transitivity
      */
     public static CList<Edge> close(MutableDigraph mdg)
     {
-        Transitivity t = new Transitivity(mdg);
-        t.run();
+        ReachabilityIndex t = ReachabilityIndex.build(mdg);
         CList<Edge> added = new CList<Edge>();
         int[] marks = new int[mdg.nodeAttrSize()];
         int mark = 1;
@@ -6,6 +6,7 @@ import stixar.graph.Digraph;
 import stixar.graph.BasicDigraph;
 import stixar.graph.BasicNode;
 import stixar.graph.BasicEdge;
+import stixar.graph.CompactDigraph;
 import stixar.graph.attr.NodeMap;
 
 import stixar.util.Pair;
@@ -276,4 +277,17 @@ public class BasicDGFactory
     {
         return digraph;
     }
+
+    /**
+       Create a frozen {@link CompactDigraph} comprised of all the nodes and
+       edges produced by this factory since this factory was created.
+       <p>
+       Node identifiers are those of the nodes returned by the factory.
+       Edges are renumbered by source; see {@link CompactDigraph#copy}.
+       </p>
+     */
+    public CompactDigraph compactDigraph()
+    {
+        return CompactDigraph.copy(digraph);
+    }
 }
@@ -0,0 +1,109 @@
+package stixar.graph.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+
+/*
+  Buffered reader of primitive values from a channel, the counterpart
+  of ChannelWriter.  Running out of input is an EOFException.
+ */
+final class ChannelReader
+{
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buf;
+
+    ChannelReader(ReadableByteChannel channel, ByteOrder order)
+    {
+        this.channel = channel;
+        this.buf = ByteBuffer.allocateDirect(1 << 16).order(order);
+        this.buf.flip();
+    }
+
+    void order(ByteOrder order)
+    {
+        buf.order(order);
+    }
+
+    ByteOrder order()
+    {
+        return buf.order();
+    }
+
+    private void ensure(int n) throws IOException
+    {
+        if (buf.remaining() >= n)
+            return;
+        buf.compact();
+        while (buf.position() < n) {
+            if (channel.read(buf) < 0)
+                throw new EOFException("unexpected end of input");
+        }
+        buf.flip();
+    }
+
+    int getInt() throws IOException
+    {
+        ensure(4);
+        return buf.getInt();
+    }
+
+    long getLong() throws IOException
+    {
+        ensure(8);
+        return buf.getLong();
+    }
+
+    float getFloat() throws IOException
+    {
+        ensure(4);
+        return buf.getFloat();
+    }
+
+    double getDouble() throws IOException
+    {
+        ensure(8);
+        return buf.getDouble();
+    }
+
+    char getChar() throws IOException
+    {
+        ensure(2);
+        return buf.getChar();
+    }
+
+    byte getByte() throws IOException
+    {
+        ensure(1);
+        return buf.get();
+    }
+
+    short getShort() throws IOException
+    {
+        ensure(2);
+        return buf.getShort();
+    }
+
+    void getBytes(byte[] bytes) throws IOException
+    {
+        for (int i=0; i<bytes.length; ++i)
+            bytes[i] = getByte();
+    }
+
+    /*
+      Fill a with ints, a buffer at a time.
+     */
+    void getInts(int[] a) throws IOException
+    {
+        int i = 0;
+        while (i < a.length) {
+            ensure(4);
+            int k = Math.min(buf.remaining() / 4, a.length - i);
+            buf.asIntBuffer().get(a, i, k);
+            buf.position(buf.position() + 4 * k);
+            i += k;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package stixar.graph.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+
+/*
+  Buffered writer of primitive values onto a channel, keeping
+  track of the number of bytes written so that sections can be
+  aligned.  Shared by the graph file and snapshot writers.
+ */
+final class ChannelWriter
+{
+    private final WritableByteChannel channel;
+    private final ByteBuffer buf;
+    private long position;
+
+    ChannelWriter(WritableByteChannel channel, ByteOrder order)
+    {
+        this.channel = channel;
+        this.buf = ByteBuffer.allocateDirect(1 << 16).order(order);
+        this.position = 0;
+    }
+
+    long position()
+    {
+        return position + buf.position();
+    }
+
+    private void ensure(int n) throws IOException
+    {
+        if (buf.remaining() < n)
+            flush();
+    }
+
+    void putInt(int v) throws IOException
+    {
+        ensure(4);
+        buf.putInt(v);
+    }
+
+    void putLong(long v) throws IOException
+    {
+        ensure(8);
+        buf.putLong(v);
+    }
+
+    void putFloat(float v) throws IOException
+    {
+        ensure(4);
+        buf.putFloat(v);
+    }
+
+    void putDouble(double v) throws IOException
+    {
+        ensure(8);
+        buf.putDouble(v);
+    }
+
+    void putChar(char v) throws IOException
+    {
+        ensure(2);
+        buf.putChar(v);
+    }
+
+    void putByte(byte v) throws IOException
+    {
+        ensure(1);
+        buf.put(v);
+    }
+
+    void putShort(short v) throws IOException
+    {
+        ensure(2);
+        buf.putShort(v);
+    }
+
+    void putBytes(byte[] bytes) throws IOException
+    {
+        for (byte b : bytes)
+            putByte(b);
+    }
+
+    /*
+      Pad with zeros up to a multiple of <tt>alignment</tt> bytes.
+     */
+    void align(int alignment) throws IOException
+    {
+        while (position() % alignment != 0)
+            putByte((byte) 0);
+    }
+
+    void flush() throws IOException
+    {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            position += channel.write(buf);
+        }
+        buf.clear();
+    }
+}
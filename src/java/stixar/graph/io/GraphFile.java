@@ -0,0 +1,350 @@
+package stixar.graph.io;
+
+import stixar.graph.Digraph;
+import stixar.graph.Edge;
+import stixar.graph.Node;
+import stixar.graph.attr.NativeEdgeMap;
+import stixar.graph.attr.NativeMap;
+import stixar.graph.attr.NativeNodeMap;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+   Binary graph files for memory mapping.
+   <p>
+   A graph file holds the topology of a digraph in compressed sparse row
+   form, followed by any number of named node and edge attribute columns
+   of the {@link NativeMap.Type native types}.  {@link #open} maps such a
+   file and returns a {@link MappedDigraph} which reads the file in place.
+   </p>
+   <h3>Layout</h3>
+   All values are written in the native byte order of the writing machine,
+   which is recorded by the magic number; readers on either kind of machine
+   accept either order.  Every section starts at a multiple of 8 bytes.
+   <pre>
+   int   magic 'STXG'
+   int   version
+   int   n, m, edgeAttrSize
+   int   number of node columns, number of edge columns, 0
+   long  positions of the offset, target and edge id sections
+   per column:
+     byte  0 for a node column, 1 for an edge column
+     byte  the ordinal of the column's NativeMap.Type
+     short length of the name, followed by the UTF-8 encoded name
+     long  position of the column (after padding to 8 bytes)
+   int[n+1]          offsets
+   int[m]            targets
+   int[m]            edge identifiers
+   type[n]           each node column
+   type[edgeAttrSize] each edge column
+   </pre>
+   <p>
+   Each section is mapped separately and so must be smaller than 2GB; in
+   particular a graph file holds at most <tt>2<sup>29</sup></tt> edges, or
+   <tt>2<sup>28</sup></tt> if it has an edge column of longs or doubles.
+   </p>
+ */
+public final class GraphFile
+{
+    /**
+       The magic number at the start of every graph file.
+     */
+    public static final int Magic = 0x53545847;
+
+    /**
+       The version of the format written by this class.
+     */
+    public static final int Version = 1;
+
+    static final int HeaderSize = 56;
+
+    private GraphFile() {}
+
+    /**
+       Write the topology of a digraph to a file.
+
+       @see #write(Digraph, File, Map, Map)
+     */
+    public static void write(Digraph dg, File file) throws IOException
+    {
+        Map<String, NativeNodeMap> none = Collections.emptyMap();
+        Map<String, NativeEdgeMap> noEdges = Collections.emptyMap();
+        write(dg, file, none, noEdges);
+    }
+
+    /**
+       Write a digraph and some of its native attributes to a file.
+       <p>
+       Nodes are renumbered densely in order of their identifiers, so that
+       node identifiers are preserved exactly when <tt>dg</tt> has no holes
+       in them.  Edge identifiers are preserved.  Filters are ignored.
+       </p>
+
+       @param dg the digraph to write.
+       @param file the file to write, which is overwritten.
+       @param nodeColumns native node maps of <tt>dg</tt> to write, by name,
+       written in the iteration order of the map.
+       @param edgeColumns native edge maps of <tt>dg</tt> to write, by name.
+       @throws IOException if writing fails.
+       @throws IllegalArgumentException if a column name occurs twice.
+     */
+    public static void write(Digraph dg, File file,
+                             Map<String, ? extends NativeNodeMap> nodeColumns,
+                             Map<String, ? extends NativeEdgeMap> edgeColumns)
+        throws IOException
+    {
+        for (String name : nodeColumns.keySet()) {
+            if (edgeColumns.containsKey(name))
+                throw new IllegalArgumentException("duplicate column " + name);
+        }
+        int nasz = dg.nodeAttrSize();
+        int[] perm = new int[nasz];
+        int n = 0;
+        for (int i=0; i<nasz; ++i) {
+            perm[i] = dg.node(i) == null ? -1 : n++;
+        }
+        int[] inverse = new int[n];
+        for (int i=0; i<nasz; ++i) {
+            if (perm[i] != -1)
+                inverse[perm[i]] = i;
+        }
+        int[] offsets = new int[n + 1];
+        for (int u=0; u<n; ++u) {
+            int d = 0;
+            for (Edge e = dg.node(inverse[u]).out(); e != null; e = e.next())
+                d++;
+            offsets[u + 1] = offsets[u] + d;
+        }
+        int m = offsets[n];
+        int easz = dg.edgeAttrSize();
+
+        // lay out the file.
+        long pos = HeaderSize;
+        byte[][] nodeNames = names(nodeColumns);
+        byte[][] edgeNames = names(edgeColumns);
+        for (byte[] b : nodeNames) pos += align(4 + b.length) + 8;
+        for (byte[] b : edgeNames) pos += align(4 + b.length) + 8;
+        long offsetsPos = pos;
+        pos = align(pos + 4L * (n + 1));
+        long targetsPos = pos;
+        pos = align(pos + 4L * m);
+        long edgeIdsPos = pos;
+        pos = align(pos + 4L * m);
+        long[] nodePos = new long[nodeNames.length];
+        int c = 0;
+        for (NativeNodeMap map : nodeColumns.values()) {
+            nodePos[c++] = pos;
+            pos = align(pos + (long) NativeIO.width(map.type()) * n);
+        }
+        long[] edgePos = new long[edgeNames.length];
+        c = 0;
+        for (NativeEdgeMap map : edgeColumns.values()) {
+            edgePos[c++] = pos;
+            pos = align(pos + (long) NativeIO.width(map.type()) * easz);
+        }
+
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            ChannelWriter w = new ChannelWriter(out.getChannel(), ByteOrder.nativeOrder());
+            w.putInt(Magic);
+            w.putInt(Version);
+            w.putInt(n);
+            w.putInt(m);
+            w.putInt(easz);
+            w.putInt(nodeNames.length);
+            w.putInt(edgeNames.length);
+            w.putInt(0);
+            w.putLong(offsetsPos);
+            w.putLong(targetsPos);
+            w.putLong(edgeIdsPos);
+            c = 0;
+            for (NativeNodeMap map : nodeColumns.values()) {
+                putColumnEntry(w, 0, map.type(), nodeNames[c], nodePos[c]);
+                c++;
+            }
+            c = 0;
+            for (NativeEdgeMap map : edgeColumns.values()) {
+                putColumnEntry(w, 1, map.type(), edgeNames[c], edgePos[c]);
+                c++;
+            }
+            assert w.position() == offsetsPos;
+            for (int u=0; u<=n; ++u)
+                w.putInt(offsets[u]);
+            w.align(8);
+            for (int u=0; u<n; ++u) {
+                for (Edge e = dg.node(inverse[u]).out(); e != null; e = e.next())
+                    w.putInt(perm[e.target().nodeId()]);
+            }
+            w.align(8);
+            for (int u=0; u<n; ++u) {
+                for (Edge e = dg.node(inverse[u]).out(); e != null; e = e.next())
+                    w.putInt(e.edgeId());
+            }
+            w.align(8);
+            for (NativeNodeMap map : nodeColumns.values()) {
+                NativeIO.write(w, map, n, inverse);
+                w.align(8);
+            }
+            for (NativeEdgeMap map : edgeColumns.values()) {
+                NativeIO.write(w, map, easz, null);
+                w.align(8);
+            }
+            w.flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+       Map a graph file.
+       <p>
+       The file is mapped read-only and closed; the mapping remains valid
+       until the returned digraph is garbage collected.  The file must not
+       be modified while it is mapped.  The header and the topology are
+       checked as the file is opened, which reads the topology once; the
+       attribute columns are not.
+       </p>
+
+       @param file a file written by {@link #write}.
+       @return a digraph reading the file in place.
+       @throws IOException if the file cannot be read, is not a graph file
+       or is corrupt.
+     */
+    public static MappedDigraph open(File file) throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel ch = raf.getChannel();
+            long size = ch.size();
+            if (size < HeaderSize)
+                throw new IOException(file + " is not a graph file");
+            ByteBuffer head = ByteBuffer.allocate(HeaderSize);
+            readFully(ch, head, 0);
+            head.flip();
+            int magic = head.getInt(0);
+            if (magic == Magic) {
+                head.order(ByteOrder.BIG_ENDIAN);
+            } else if (Integer.reverseBytes(magic) == Magic) {
+                head.order(ByteOrder.LITTLE_ENDIAN);
+            } else {
+                throw new IOException(file + " is not a graph file");
+            }
+            ByteOrder order = head.order();
+            head.position(4);
+            int version = head.getInt();
+            if (version != Version)
+                throw new IOException("unsupported graph file version " + version);
+            int n = head.getInt();
+            int m = head.getInt();
+            int easz = head.getInt();
+            int nNodeCols = head.getInt();
+            int nEdgeCols = head.getInt();
+            head.getInt();
+            long offsetsPos = head.getLong();
+            long targetsPos = head.getLong();
+            long edgeIdsPos = head.getLong();
+            if (n < 0 || m < 0 || easz < m || nNodeCols < 0 || nEdgeCols < 0
+                || offsetsPos < HeaderSize || offsetsPos - HeaderSize > Integer.MAX_VALUE
+                || offsetsPos > size)
+                throw new IOException(file + " has a corrupt header");
+
+            ByteBuffer dir = ByteBuffer.allocate((int) (offsetsPos - HeaderSize));
+            readFully(ch, dir, HeaderSize);
+            dir.flip();
+            dir.order(order);
+            Map<String, MappedDigraph.Column> nodeCols
+                = new LinkedHashMap<String, MappedDigraph.Column>();
+            Map<String, MappedDigraph.Column> edgeCols
+                = new LinkedHashMap<String, MappedDigraph.Column>();
+            for (int i=0; i<nNodeCols + nEdgeCols; ++i) {
+                if (dir.remaining() < 4)
+                    throw new IOException(file + " has a corrupt column directory");
+                int kind = dir.get();
+                NativeMap.Type type = NativeIO.type(dir.get());
+                byte[] name = new byte[dir.getShort() & 0xffff];
+                if (kind != 0 && kind != 1
+                    || align(dir.position() + name.length) + 8 > dir.limit())
+                    throw new IOException(file + " has a corrupt column directory");
+                dir.get(name);
+                dir.position((int) align(dir.position()));
+                long colPos = dir.getLong();
+                long len = (long) NativeIO.width(type) * (kind == 0 ? n : easz);
+                ByteBuffer data = map(ch, colPos, len, size).order(order);
+                MappedDigraph.Column col = new MappedDigraph.Column(type, data);
+                (kind == 0 ? nodeCols : edgeCols).put(new String(name, "UTF-8"), col);
+            }
+            IntBuffer offsets = map(ch, offsetsPos, 4L * (n + 1), size).order(order).asIntBuffer();
+            IntBuffer targets = map(ch, targetsPos, 4L * m, size).order(order).asIntBuffer();
+            IntBuffer edgeIds = map(ch, edgeIdsPos, 4L * m, size).order(order).asIntBuffer();
+            try {
+                return new MappedDigraph(n, m, easz, offsets, targets, edgeIds,
+                                         nodeCols, edgeCols);
+            } catch (IOException e) {
+                throw new IOException(file + " has a corrupt topology: " + e.getMessage());
+            }
+        } finally {
+            raf.close();
+        }
+    }
+
+    static long align(long pos)
+    {
+        return (pos + 7) & ~7L;
+    }
+
+    private static byte[][] names(Map<String, ?> columns) throws IOException
+    {
+        byte[][] result = new byte[columns.size()][];
+        int i = 0;
+        for (String name : columns.keySet()) {
+            result[i] = name.getBytes("UTF-8");
+            if (result[i].length > 0xffff)
+                throw new IllegalArgumentException("column name too long");
+            i++;
+        }
+        return result;
+    }
+
+    private static void putColumnEntry(ChannelWriter w, int kind, NativeMap.Type type,
+                                       byte[] name, long pos)
+        throws IOException
+    {
+        w.putByte((byte) kind);
+        w.putByte((byte) type.ordinal());
+        w.putShort((short) name.length);
+        w.putBytes(name);
+        w.align(8);
+        w.putLong(pos);
+    }
+
+    private static ByteBuffer map(FileChannel ch, long pos, long len, long size)
+        throws IOException
+    {
+        if (len > Integer.MAX_VALUE)
+            throw new IOException("section of " + len + " bytes is too large to map");
+        if (pos < 0 || pos + len > size)
+            throw new IOException("graph file is truncated");
+        return ch.map(FileChannel.MapMode.READ_ONLY, pos, len);
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long pos)
+        throws IOException
+    {
+        while (buf.hasRemaining()) {
+            int r = ch.read(buf, pos);
+            if (r < 0)
+                throw new IOException("graph file is truncated");
+            pos += r;
+        }
+    }
+}
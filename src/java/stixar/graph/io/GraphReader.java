@@ -0,0 +1,786 @@
+package stixar.graph.io;
+
+import stixar.graph.BasicDigraph;
+import stixar.graph.CompactDigraph;
+import stixar.graph.Edge;
+import stixar.graph.MutableDigraph;
+import stixar.graph.Node;
+import stixar.graph.attr.DoubleEdgeMap;
+import stixar.graph.attr.FloatEdgeMap;
+import stixar.graph.attr.GraphAttrCollection;
+import stixar.graph.attr.IntEdgeMap;
+import stixar.graph.attr.LongEdgeMap;
+import stixar.graph.attr.NativeEdgeMap;
+import stixar.graph.attr.NativeMap;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+   Streaming reader for textual graph formats.
+   <p>
+   The input is read through a channel in large chunks, each cut at a line
+   boundary, and the chunks are parsed concurrently into arrays of arcs by
+   a pool of threads.  The parsed chunks are then added to the graph in file
+   order by the calling thread, so edge identifiers follow the order of the
+   arcs in the input.  Graph capacity is reserved with
+   {@link MutableDigraph#ensureCapacity} ahead of the edges, from the problem
+   line where the format has one, and edge weights are stored directly in a
+   native edge map.
+   </p>
+   <h3>Formats</h3>
+   <ul>
+   <li>{@link Format#EdgeList}: one arc per line, given by whitespace separated
+   source and target node identifiers starting at <tt>0</tt>, optionally
+   followed by a weight.  Lines starting with <tt>#</tt> or <tt>%</tt>
+   are comments and further columns are ignored.</li>
+   <li>{@link Format#DimacsShortestPath}: the DIMACS shortest path format
+   (<tt>.gr</tt>), with a problem line <tt>p sp n m</tt> and arc lines
+   <tt>a u v w</tt>, nodes numbered from <tt>1</tt>.</li>
+   <li>{@link Format#DimacsMaxFlow}: the DIMACS maximum flow format
+   (<tt>.max</tt>) read by h_prf, with a problem line <tt>p max n m</tt>,
+   node designators <tt>n id s</tt> and <tt>n id t</tt> and arc lines
+   <tt>a u v capacity</tt>.</li>
+   </ul>
+   <p>
+   Node identifiers in the graph are those of the file, shifted to start at
+   <tt>0</tt>, when reading into an empty graph.  The weight map is managed
+   by the graph under the key {@link #WeightMapKey} and is also available
+   from {@link #weights}.
+   </p>
+ */
+public class GraphReader
+{
+    /**
+       The supported input formats.
+     */
+    public enum Format { EdgeList, DimacsShortestPath, DimacsMaxFlow }
+
+    /**
+       The key under which the weight map is managed by the graph read.
+     */
+    public static final Object WeightMapKey = new Object();
+
+    protected Format format;
+    protected NativeMap.Type weightType;
+    protected int threads;
+    protected int chunkSize;
+
+    protected NativeEdgeMap weights;
+    protected Node source;
+    protected Node sink;
+
+    /**
+       Create a reader for a format.  Weights are read as <tt>int</tt>s
+       for the DIMACS formats, and not at all for edge lists.
+     */
+    public GraphReader(Format format)
+    {
+        this.format = format;
+        this.weightType = format == Format.EdgeList ? null : NativeMap.Type.Int;
+        this.threads = Runtime.getRuntime().availableProcessors();
+        this.chunkSize = 1 << 22;
+    }
+
+    /**
+       Set the type of the weights read, one of <tt>Int, Long, Float, Double</tt>,
+       or <tt>null</tt> to ignore weights.  Weights are then required on every
+       arc line.
+
+       @throws IllegalArgumentException for other types.
+     */
+    public void setWeightType(NativeMap.Type t)
+    {
+        if (t == NativeMap.Type.Char || t == NativeMap.Type.Byte)
+            throw new IllegalArgumentException("unsupported weight type " + t);
+        weightType = t;
+    }
+
+    /**
+       Set the number of parsing threads.
+     */
+    public void setThreads(int n)
+    {
+        if (n < 1)
+            throw new IllegalArgumentException();
+        threads = n;
+    }
+
+    /**
+       Set the number of bytes read and parsed at a time.
+     */
+    public void setChunkSize(int n)
+    {
+        if (n < 1)
+            throw new IllegalArgumentException();
+        chunkSize = n;
+    }
+
+    /**
+       Return the weights read by the last read, or <tt>null</tt> if
+       weights were not read.
+     */
+    public NativeEdgeMap weights()
+    {
+        return weights;
+    }
+
+    /**
+       Return the source designated in the last max flow input read,
+       or <tt>null</tt>.
+     */
+    public Node source()
+    {
+        return source;
+    }
+
+    /**
+       Return the sink designated in the last max flow input read,
+       or <tt>null</tt>.
+     */
+    public Node sink()
+    {
+        return sink;
+    }
+
+    /**
+       Read a file into a new BasicDigraph.
+     */
+    public BasicDigraph read(File file) throws IOException
+    {
+        BasicDigraph g = new BasicDigraph();
+        read(file, g);
+        return g;
+    }
+
+    /**
+       Read a file, adding its nodes and edges to a digraph.
+     */
+    public void read(File file, MutableDigraph g) throws IOException
+    {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            read(in.getChannel(), g);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+       Read from a channel, adding the nodes and edges read to a digraph.
+       The nodes in the input are created in order as new nodes of
+       <tt>g</tt>.
+
+       @throws IOException if reading fails or the input is malformed.
+     */
+    public void read(ReadableByteChannel ch, MutableDigraph g) throws IOException
+    {
+        reset();
+        GraphSink s = new GraphSink(g);
+        parse(ch, s);
+        s.finish();
+    }
+
+    /**
+       Read a file into a new CompactDigraph, which avoids creating an
+       object per edge.
+     */
+    public CompactDigraph readCompact(File file) throws IOException
+    {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            return readCompact(in.getChannel());
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+       Read from a channel into a new CompactDigraph.  Edges are numbered
+       by source as usual for compact digraphs; the weights are permuted
+       accordingly.
+
+       @throws IOException if reading fails or the input is malformed.
+     */
+    public CompactDigraph readCompact(ReadableByteChannel ch) throws IOException
+    {
+        reset();
+        CompactSink s = new CompactSink();
+        parse(ch, s);
+        return s.finish();
+    }
+
+    private void reset()
+    {
+        weights = null;
+        source = sink = null;
+    }
+
+    /*
+      Read chunks, parse them concurrently, and hand them to the sink
+      in order.  At most 2 * threads chunks are in flight.
+     */
+    private void parse(ReadableByteChannel ch, Sink s) throws IOException
+    {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        LinkedList<Future<ArcBlock>> pending = new LinkedList<Future<ArcBlock>>();
+        try {
+            byte[] carry = new byte[0];
+            int carryLen = 0;
+            long offset = 0;
+            boolean eof = false;
+            while (!eof) {
+                byte[] buf = new byte[carryLen + chunkSize];
+                System.arraycopy(carry, 0, buf, 0, carryLen);
+                ByteBuffer bb = ByteBuffer.wrap(buf);
+                bb.position(carryLen);
+                while (bb.hasRemaining()) {
+                    if (ch.read(bb) < 0) {
+                        eof = true;
+                        break;
+                    }
+                }
+                int len = bb.position();
+                int cut = len;
+                if (!eof) {
+                    while (cut > 0 && buf[cut - 1] != '\n') cut--;
+                    if (cut == 0) {
+                        // a line longer than a chunk, read more of it.
+                        carry = buf;
+                        carryLen = len;
+                        continue;
+                    }
+                }
+                carryLen = len - cut;
+                carry = new byte[carryLen];
+                System.arraycopy(buf, cut, carry, 0, carryLen);
+                pending.add(pool.submit(new ChunkParser(format, weightType, buf, cut, offset)));
+                offset += cut;
+                while (pending.size() > 2 * threads)
+                    s.accept(get(pending.removeFirst()));
+            }
+            while (!pending.isEmpty())
+                s.accept(get(pending.removeFirst()));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static ArcBlock get(Future<ArcBlock> f) throws IOException
+    {
+        try {
+            return f.get();
+        } catch (InterruptedException ie) {
+            throw new InterruptedIOException();
+        } catch (ExecutionException ee) {
+            Throwable t = ee.getCause();
+            if (t instanceof IOException)
+                throw (IOException) t;
+            if (t instanceof RuntimeException)
+                throw (RuntimeException) t;
+            if (t instanceof Error)
+                throw (Error) t;
+            throw new IllegalStateException(t);
+        }
+    }
+
+    static NativeEdgeMap createWeights(GraphAttrCollection g, NativeMap.Type t)
+    {
+        switch (t) {
+        case Int: return g.createIntEdgeMap(WeightMapKey);
+        case Long: return g.createLongEdgeMap(WeightMapKey);
+        case Float: return g.createFloatEdgeMap(WeightMapKey);
+        case Double: return g.createDoubleEdgeMap(WeightMapKey);
+        default:
+            throw new IllegalArgumentException();
+        }
+    }
+
+    /*
+      Set weights[eid[i]] (or weights[i] if eid is null) from
+      entry i of the block, for i in [0,b.size).
+     */
+    static void setWeights(NativeEdgeMap w, ArcBlock b, int[] eid, int eidStart)
+    {
+        switch (w.type()) {
+        case Int:
+            IntEdgeMap im = (IntEdgeMap) w;
+            for (int i=0; i<b.size; ++i)
+                im.set(eid[eidStart + i], (int) b.lw[i]);
+            break;
+        case Long:
+            LongEdgeMap lm = (LongEdgeMap) w;
+            for (int i=0; i<b.size; ++i)
+                lm.set(eid[eidStart + i], b.lw[i]);
+            break;
+        case Float:
+            FloatEdgeMap fm = (FloatEdgeMap) w;
+            for (int i=0; i<b.size; ++i)
+                fm.set(eid[eidStart + i], (float) b.dw[i]);
+            break;
+        case Double:
+            DoubleEdgeMap dm = (DoubleEdgeMap) w;
+            for (int i=0; i<b.size; ++i)
+                dm.set(eid[eidStart + i], b.dw[i]);
+            break;
+        default:
+            throw new IllegalArgumentException();
+        }
+    }
+
+    /*
+      Consumer of parsed chunks, in file order.
+     */
+    interface Sink
+    {
+        void accept(ArcBlock b) throws IOException;
+    }
+
+    /*
+      Adds the arcs to a mutable digraph.
+     */
+    final class GraphSink implements Sink
+    {
+        final MutableDigraph g;
+        Node[] table;
+        int nodeCount;
+        int declared;
+        int edgeReserve;
+        int sourceId;
+        int sinkId;
+        int[] eids;
+
+        GraphSink(MutableDigraph g)
+        {
+            this.g = g;
+            this.table = new Node[16];
+            this.nodeCount = 0;
+            this.declared = -1;
+            this.edgeReserve = g.edgeAttrSize();
+            this.sourceId = -1;
+            this.sinkId = -1;
+            this.eids = new int[0];
+            if (weightType != null)
+                weights = createWeights(g, weightType);
+        }
+
+        void ensureNodes(int n)
+        {
+            if (n <= nodeCount)
+                return;
+            if (table.length < n) {
+                Node[] tmp = new Node[Math.max(n, table.length * 2)];
+                System.arraycopy(table, 0, tmp, 0, nodeCount);
+                table = tmp;
+            }
+            g.ensureCapacity(g.nodeAttrSize() + n - nodeCount, edgeReserve);
+            for (Node u : g.genNodes(n - nodeCount))
+                table[nodeCount++] = u;
+        }
+
+        public void accept(ArcBlock b) throws IOException
+        {
+            if (b.problemNodes >= 0) {
+                if (declared >= 0)
+                    throw new IOException("more than one problem line");
+                declared = b.problemNodes;
+                edgeReserve = g.edgeAttrSize() + b.problemArcs;
+                ensureNodes(declared);
+            }
+            if (b.sourceId >= 0) sourceId = b.sourceId;
+            if (b.sinkId >= 0) sinkId = b.sinkId;
+            if (declared >= 0 && b.maxNode >= declared) {
+                throw new IOException("node " + (b.maxNode + 1)
+                                      + " exceeds the problem size " + declared);
+            }
+            if (format != Format.EdgeList && b.size > 0 && declared < 0)
+                throw new IOException("arcs before the problem line");
+            ensureNodes(b.maxNode + 1);
+            int need = g.edgeAttrSize() + b.size;
+            if (need > edgeReserve) {
+                edgeReserve = Math.max(need, edgeReserve + edgeReserve / 2);
+                g.ensureCapacity(g.nodeAttrSize(), edgeReserve);
+            }
+            if (eids.length < b.size)
+                eids = new int[b.size];
+            for (int i=0; i<b.size; ++i) {
+                Edge e = g.genEdge(table[b.src[i]], table[b.tgt[i]]);
+                eids[i] = e.edgeId();
+            }
+            if (weights != null)
+                setWeights(weights, b, eids, 0);
+        }
+
+        void finish() throws IOException
+        {
+            if (sourceId >= nodeCount || sinkId >= nodeCount)
+                throw new IOException("designated node out of range");
+            source = sourceId < 0 ? null : table[sourceId];
+            sink = sinkId < 0 ? null : table[sinkId];
+        }
+    }
+
+    /*
+      Collects the arcs in arrays for CompactDigraph.fromArcs.
+     */
+    final class CompactSink implements Sink
+    {
+        int[] src = new int[1024];
+        int[] tgt = new int[1024];
+        List<ArcBlock> weighted = new LinkedList<ArcBlock>();
+        int size = 0;
+        int nodes = 0;
+        int declared = -1;
+        int sourceId = -1;
+        int sinkId = -1;
+
+        public void accept(ArcBlock b) throws IOException
+        {
+            if (b.problemNodes >= 0) {
+                if (declared >= 0)
+                    throw new IOException("more than one problem line");
+                declared = b.problemNodes;
+                nodes = Math.max(nodes, declared);
+                if (src.length < size + b.problemArcs) {
+                    src = grow(src, size + b.problemArcs);
+                    tgt = grow(tgt, size + b.problemArcs);
+                }
+            }
+            if (b.sourceId >= 0) sourceId = b.sourceId;
+            if (b.sinkId >= 0) sinkId = b.sinkId;
+            if (declared >= 0 && b.maxNode >= declared) {
+                throw new IOException("node " + (b.maxNode + 1)
+                                      + " exceeds the problem size " + declared);
+            }
+            if (format != Format.EdgeList && b.size > 0 && declared < 0)
+                throw new IOException("arcs before the problem line");
+            nodes = Math.max(nodes, b.maxNode + 1);
+            if (src.length < size + b.size) {
+                int cap = Math.max(size + b.size, src.length * 2);
+                src = grow(src, cap);
+                tgt = grow(tgt, cap);
+            }
+            System.arraycopy(b.src, 0, src, size, b.size);
+            System.arraycopy(b.tgt, 0, tgt, size, b.size);
+            size += b.size;
+            if (weightType != null) {
+                // keep only the weights of the block.
+                b.src = null;
+                b.tgt = null;
+                weighted.add(b);
+            }
+        }
+
+        CompactDigraph finish() throws IOException
+        {
+            if (sourceId >= nodes || sinkId >= nodes)
+                throw new IOException("designated node out of range");
+            if (src.length != size) {
+                src = grow(src, size);
+                tgt = grow(tgt, size);
+            }
+            int[] perm = new int[size];
+            CompactDigraph c = CompactDigraph.fromArcs(nodes, src, tgt, perm);
+            src = tgt = null;
+            if (weightType != null) {
+                weights = createWeights(c, weightType);
+                int start = 0;
+                for (ArcBlock b : weighted) {
+                    setWeights(weights, b, perm, start);
+                    start += b.size;
+                }
+            }
+            source = sourceId < 0 ? null : c.node(sourceId);
+            sink = sinkId < 0 ? null : c.node(sinkId);
+            return c;
+        }
+    }
+
+    static int[] grow(int[] a, int cap)
+    {
+        int[] tmp = new int[cap];
+        System.arraycopy(a, 0, tmp, 0, Math.min(a.length, cap));
+        return tmp;
+    }
+
+    /*
+      The arcs of one chunk, with node identifiers shifted to start at 0.
+     */
+    static final class ArcBlock
+    {
+        int size;
+        int[] src;
+        int[] tgt;
+        long[] lw;
+        double[] dw;
+        int maxNode = -1;
+        int problemNodes = -1;
+        int problemArcs;
+        int sourceId = -1;
+        int sinkId = -1;
+    }
+
+    /*
+      Parses one chunk of complete lines.
+     */
+    static final class ChunkParser implements Callable<ArcBlock>
+    {
+        final Format format;
+        final NativeMap.Type weightType;
+        final byte[] buf;
+        final int end;
+        final long offset;
+        int pos;
+        ArcBlock b;
+
+        ChunkParser(Format format, NativeMap.Type weightType, byte[] buf, int end, long offset)
+        {
+            this.format = format;
+            this.weightType = weightType;
+            this.buf = buf;
+            this.end = end;
+            this.offset = offset;
+        }
+
+        public ArcBlock call() throws IOException
+        {
+            b = new ArcBlock();
+            int cap = end / 12 + 16;
+            b.src = new int[cap];
+            b.tgt = new int[cap];
+            if (weightType == NativeMap.Type.Int || weightType == NativeMap.Type.Long)
+                b.lw = new long[cap];
+            else if (weightType != null)
+                b.dw = new double[cap];
+            int base = format == Format.EdgeList ? 0 : 1;
+            pos = 0;
+            while (pos < end) {
+                skipBlanks();
+                if (pos == end)
+                    break;
+                byte c = buf[pos];
+                if (c == '\n' || c == '\r') {
+                    pos++;
+                    continue;
+                }
+                if (format == Format.EdgeList) {
+                    if (c == '#' || c == '%') {
+                        skipLine();
+                        continue;
+                    }
+                    arc(base);
+                } else if (c == 'c') {
+                    skipLine();
+                    continue;
+                } else if (c == 'p') {
+                    pos++;
+                    problem();
+                } else if (c == 'a') {
+                    pos++;
+                    arc(base);
+                } else if (c == 'n' && format == Format.DimacsMaxFlow) {
+                    pos++;
+                    designator();
+                } else {
+                    throw error();
+                }
+                skipLine();
+            }
+            return b;
+        }
+
+        private IOException error()
+        {
+            return new IOException("malformed input near byte " + (offset + pos));
+        }
+
+        private void skipBlanks()
+        {
+            while (pos < end && (buf[pos] == ' ' || buf[pos] == '\t')) pos++;
+        }
+
+        private void skipLine()
+        {
+            while (pos < end && buf[pos] != '\n') pos++;
+            if (pos < end) pos++;
+        }
+
+        private boolean atEol()
+        {
+            skipBlanks();
+            return pos == end || buf[pos] == '\n' || buf[pos] == '\r';
+        }
+
+        private void problem() throws IOException
+        {
+            skipBlanks();
+            int start = pos;
+            while (pos < end && buf[pos] > ' ') pos++;
+            String kind = new String(buf, start, pos - start, "US-ASCII");
+            String expect = format == Format.DimacsShortestPath ? "sp" : "max";
+            if (!kind.equals(expect))
+                throw new IOException("expected a '" + expect + "' problem, found '"
+                                      + kind + "'");
+            long n = parseLong();
+            long m = parseLong();
+            if (n < 0 || n > Integer.MAX_VALUE || m < 0 || m > Integer.MAX_VALUE)
+                throw error();
+            b.problemNodes = (int) n;
+            b.problemArcs = (int) m;
+        }
+
+        private void designator() throws IOException
+        {
+            int id = node(1);
+            skipBlanks();
+            if (pos == end)
+                throw error();
+            byte c = buf[pos++];
+            if (c == 's')
+                b.sourceId = id;
+            else if (c == 't')
+                b.sinkId = id;
+            else
+                throw error();
+        }
+
+        private int node(int base) throws IOException
+        {
+            long v = parseLong() - base;
+            if (v < 0 || v >= Integer.MAX_VALUE)
+                throw error();
+            return (int) v;
+        }
+
+        private void arc(int base) throws IOException
+        {
+            int u = node(base);
+            int v = node(base);
+            int i = b.size;
+            if (i == b.src.length) {
+                int cap = i * 2;
+                b.src = grow(b.src, cap);
+                b.tgt = grow(b.tgt, cap);
+                if (b.lw != null) {
+                    long[] tmp = new long[cap];
+                    System.arraycopy(b.lw, 0, tmp, 0, i);
+                    b.lw = tmp;
+                }
+                if (b.dw != null) {
+                    double[] tmp = new double[cap];
+                    System.arraycopy(b.dw, 0, tmp, 0, i);
+                    b.dw = tmp;
+                }
+            }
+            b.src[i] = u;
+            b.tgt[i] = v;
+            if (weightType != null) {
+                if (atEol())
+                    throw new IOException("missing weight near byte " + (offset + pos));
+                if (b.lw != null) {
+                    long w = parseLong();
+                    if (weightType == NativeMap.Type.Int
+                        && (w < Integer.MIN_VALUE || w > Integer.MAX_VALUE))
+                        throw error();
+                    b.lw[i] = w;
+                } else {
+                    b.dw[i] = parseDouble();
+                }
+            }
+            b.size++;
+            if (u > b.maxNode) b.maxNode = u;
+            if (v > b.maxNode) b.maxNode = v;
+        }
+
+        private long parseLong() throws IOException
+        {
+            skipBlanks();
+            boolean neg = false;
+            if (pos < end && (buf[pos] == '-' || buf[pos] == '+')) {
+                neg = buf[pos] == '-';
+                pos++;
+            }
+            int start = pos;
+            long v = 0;
+            while (pos < end) {
+                int d = buf[pos] - '0';
+                if (d < 0 || d > 9)
+                    break;
+                if (v > (Long.MAX_VALUE - d) / 10)
+                    throw error();
+                v = v * 10 + d;
+                pos++;
+            }
+            if (pos == start || (pos < end && buf[pos] > ' '))
+                throw error();
+            return neg ? -v : v;
+        }
+
+        /*
+          Decimal numbers with at most 15 significant digits and no
+          exponent are converted exactly as Double.parseDouble would,
+          with a single rounding; anything else is handed to it.
+         */
+        private double parseDouble() throws IOException
+        {
+            skipBlanks();
+            int start = pos;
+            boolean neg = false;
+            if (pos < end && (buf[pos] == '-' || buf[pos] == '+')) {
+                neg = buf[pos] == '-';
+                pos++;
+            }
+            long mant = 0;
+            int digits = 0;
+            int scale = 0;
+            boolean dot = false;
+            boolean simple = true;
+            while (pos < end && buf[pos] > ' ') {
+                byte c = buf[pos];
+                if (c >= '0' && c <= '9') {
+                    if (digits < 15) {
+                        mant = mant * 10 + (c - '0');
+                        if (mant != 0) digits++;
+                        if (dot) scale++;
+                    } else {
+                        simple = false;
+                    }
+                } else if (c == '.' && !dot) {
+                    dot = true;
+                } else {
+                    simple = false;
+                }
+                pos++;
+            }
+            if (pos == start)
+                throw error();
+            if (simple && scale <= 22) {
+                double d = (double) mant / Pow10[scale];
+                return neg ? -d : d;
+            }
+            try {
+                return Double.parseDouble(new String(buf, start, pos - start, "US-ASCII"));
+            } catch (NumberFormatException nfe) {
+                throw error();
+            }
+        }
+
+        static final double[] Pow10 = new double[23];
+        static {
+            Pow10[0] = 1.0;
+            for (int i=1; i<Pow10.length; ++i)
+                Pow10[i] = Pow10[i - 1] * 10.0;
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package stixar.graph.io;
+
+import stixar.graph.BasicDigraph;
+import stixar.graph.Edge;
+import stixar.graph.Node;
+import stixar.graph.attr.EdgeData;
+import stixar.graph.attr.NativeEdgeMap;
+import stixar.graph.attr.NativeMap;
+import stixar.graph.attr.NativeNodeMap;
+import stixar.graph.attr.NodeData;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+   Binary snapshots of {@link BasicDigraph}s together with their managed
+   native attributes.
+   <p>
+   A snapshot holds the topology of the digraph with its node and edge
+   identifiers, including the free identifier slots, followed by every
+   managed {@link NativeNodeMap} and {@link NativeEdgeMap} of the digraph,
+   each as one contiguous block of primitives.  Restoring reads the blocks
+   in one pass into arrays and managed maps of the same types, so a
+   restored digraph is interchangeable with the original: node and edge
+   identifiers, and hence all attribute indices, are preserved.
+   </p>
+   <p>
+   Managed maps are stored under a name.  Maps whose key is a
+   <tt>String</tt> are stored under that key; maps under other keys are
+   stored only if a name is given for the key, and restored under the name
+   or under a key given for it.  Managed maps which are not native, such as
+   object maps and matrices, are not stored.
+   </p>
+   <p>
+   Snapshots may be compressed with GZIP, which readers detect.  Values are
+   written in native byte order, recorded by the magic number.
+   </p>
+   <h3>Layout</h3>
+   <pre>
+   int   magic 'STXS'
+   int   version
+   int   nodeAttrSize, edgeAttrSize, nodeSize, edgeSize
+   int   number of node maps, number of edge maps
+   long[(nodeAttrSize+63)/64]  node slots in use, as bits
+   long[(edgeAttrSize+63)/64]  edge slots in use
+   int[nodeAttrSize+1]         offsets of the out edges of each node
+   int[edgeSize]               edge targets
+   int[edgeSize]               edge identifiers
+   per map:
+     byte  0 for a node map, 1 for an edge map
+     byte  the ordinal of the map's NativeMap.Type
+     short length of the name, followed by the UTF-8 encoded name
+     type[nodeAttrSize] or type[edgeAttrSize]  the values
+   </pre>
+ */
+public final class GraphSnapshot
+{
+    /**
+       The magic number at the start of every snapshot.
+     */
+    public static final int Magic = 0x53545853;
+
+    /**
+       The version of the format written by this class.
+     */
+    public static final int Version = 1;
+
+    private GraphSnapshot() {}
+
+    /**
+       Write a snapshot of a digraph and its managed native maps with
+       <tt>String</tt> keys to a file.
+     */
+    public static void write(BasicDigraph dg, File file, boolean compress)
+        throws IOException
+    {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            write(dg, out, null, compress);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+       Write a snapshot of a digraph and its managed native maps to a stream,
+       which is left open.
+
+       @param dg the digraph.
+       @param out the stream to write to.
+       @param names names for the keys of managed maps whose key is not a
+       <tt>String</tt>, or <tt>null</tt>; maps under such keys without a
+       name are skipped.
+       @param compress whether to compress the snapshot with GZIP.
+       @throws IOException if writing fails.
+       @throws IllegalArgumentException if two stored maps have the same name.
+     */
+    public static void write(BasicDigraph dg, OutputStream out,
+                             Map<Object, String> names, boolean compress)
+        throws IOException
+    {
+        if (names == null)
+            names = Collections.emptyMap();
+        Map<String, NativeNodeMap> nodeMaps = new LinkedHashMap<String, NativeNodeMap>();
+        for (Map.Entry<Object, NodeData> e : dg.managedNodeAttrs().entrySet()) {
+            String name = name(e.getKey(), names);
+            if (name != null && e.getValue() instanceof NativeNodeMap)
+                nodeMaps.put(name, (NativeNodeMap) e.getValue());
+        }
+        Map<String, NativeEdgeMap> edgeMaps = new LinkedHashMap<String, NativeEdgeMap>();
+        for (Map.Entry<Object, EdgeData> e : dg.managedEdgeAttrs().entrySet()) {
+            String name = name(e.getKey(), names);
+            if (name == null || !(e.getValue() instanceof NativeEdgeMap))
+                continue;
+            if (nodeMaps.containsKey(name))
+                throw new IllegalArgumentException("duplicate map name " + name);
+            edgeMaps.put(name, (NativeEdgeMap) e.getValue());
+        }
+
+        GZIPOutputStream gz = null;
+        if (compress)
+            out = gz = new GZIPOutputStream(new BufferedOutputStream(out, 1 << 16), 1 << 16);
+        ChannelWriter w = new ChannelWriter(Channels.newChannel(out), ByteOrder.nativeOrder());
+        int nasz = dg.nodeAttrSize();
+        int easz = dg.edgeAttrSize();
+        int m = dg.edgeSize();
+        w.putInt(Magic);
+        w.putInt(Version);
+        w.putInt(nasz);
+        w.putInt(easz);
+        w.putInt(dg.nodeSize());
+        w.putInt(m);
+        w.putInt(nodeMaps.size());
+        w.putInt(edgeMaps.size());
+
+        BitSet nodeSlots = new BitSet(nasz);
+        BitSet edgeSlots = new BitSet(easz);
+        int[] offsets = new int[nasz + 1];
+        for (int u=0; u<nasz; ++u) {
+            Node n = dg.node(u);
+            int d = 0;
+            if (n != null) {
+                nodeSlots.set(u);
+                for (Edge e = n.out(); e != null; e = e.next()) {
+                    edgeSlots.set(e.edgeId());
+                    d++;
+                }
+            }
+            offsets[u + 1] = offsets[u] + d;
+        }
+        putBits(w, nodeSlots, nasz);
+        putBits(w, edgeSlots, easz);
+        for (int i=0; i<=nasz; ++i)
+            w.putInt(offsets[i]);
+        for (int u=0; u<nasz; ++u) {
+            Node n = dg.node(u);
+            if (n == null) continue;
+            for (Edge e = n.out(); e != null; e = e.next())
+                w.putInt(e.target().nodeId());
+        }
+        for (int u=0; u<nasz; ++u) {
+            Node n = dg.node(u);
+            if (n == null) continue;
+            for (Edge e = n.out(); e != null; e = e.next())
+                w.putInt(e.edgeId());
+        }
+        for (Map.Entry<String, NativeNodeMap> e : nodeMaps.entrySet()) {
+            putMapHeader(w, 0, e.getValue().type(), e.getKey());
+            NativeIO.write(w, e.getValue(), nasz, null);
+        }
+        for (Map.Entry<String, NativeEdgeMap> e : edgeMaps.entrySet()) {
+            putMapHeader(w, 1, e.getValue().type(), e.getKey());
+            NativeIO.write(w, e.getValue(), easz, null);
+        }
+        w.flush();
+        if (gz != null)
+            gz.finish();
+        out.flush();
+    }
+
+    /**
+       Restore a digraph from a snapshot file, with its maps managed under
+       their names.
+     */
+    public static BasicDigraph read(File file) throws IOException
+    {
+        InputStream in = new FileInputStream(file);
+        try {
+            return read(in, null);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+       Restore a digraph and its managed native maps from a snapshot,
+       compressed or not.
+
+       @param in the stream to read, which is left open but may have been
+       read past the end of the snapshot.
+       @param keys the keys under which to manage the maps of the given
+       names, or <tt>null</tt>; maps without a key are managed under their
+       name.
+       @return the restored digraph.
+       @throws IOException if reading fails or the input is not a snapshot.
+     */
+    public static BasicDigraph read(InputStream in, Map<String, ?> keys)
+        throws IOException
+    {
+        if (keys == null)
+            keys = Collections.emptyMap();
+        in = new BufferedInputStream(in, 1 << 16);
+        in.mark(2);
+        int b0 = in.read();
+        int b1 = in.read();
+        in.reset();
+        if (b0 == (GZIPInputStream.GZIP_MAGIC & 0xff) && b1 == (GZIPInputStream.GZIP_MAGIC >>> 8))
+            in = new GZIPInputStream(in, 1 << 16);
+
+        ChannelReader r = new ChannelReader(Channels.newChannel(in), ByteOrder.BIG_ENDIAN);
+        int magic = r.getInt();
+        if (Integer.reverseBytes(magic) == Magic)
+            r.order(ByteOrder.LITTLE_ENDIAN);
+        else if (magic != Magic)
+            throw new IOException("not a graph snapshot");
+        int version = r.getInt();
+        if (version != Version)
+            throw new IOException("unsupported snapshot version " + version);
+        int nasz = r.getInt();
+        int easz = r.getInt();
+        int n = r.getInt();
+        int m = r.getInt();
+        int nNodeMaps = r.getInt();
+        int nEdgeMaps = r.getInt();
+        if (nasz < 0 || easz < 0 || n < 0 || n > nasz || m < 0 || m > easz
+            || nNodeMaps < 0 || nEdgeMaps < 0)
+            throw new IOException("corrupt snapshot header");
+
+        BitSet nodeSlots = getBits(r, nasz);
+        BitSet edgeSlots = getBits(r, easz);
+        int[] offsets = new int[nasz + 1];
+        int[] targets = new int[m];
+        int[] edgeIds = new int[m];
+        r.getInts(offsets);
+        r.getInts(targets);
+        r.getInts(edgeIds);
+        if (nodeSlots.cardinality() != n || edgeSlots.cardinality() != m)
+            throw new IOException("corrupt snapshot slots");
+        BasicDigraph dg;
+        try {
+            dg = BasicDigraph.fromAdjacency(nasz, nodeSlots, offsets, targets, edgeIds, easz);
+        } catch (IllegalArgumentException iae) {
+            throw new IOException("corrupt snapshot topology: " + iae.getMessage());
+        }
+        for (int i=0; i<m; ++i) {
+            if (!edgeSlots.get(edgeIds[i]))
+                throw new IOException("corrupt snapshot slots");
+        }
+        offsets = targets = edgeIds = null;
+
+        for (int i=0; i<nNodeMaps + nEdgeMaps; ++i) {
+            int kind = r.getByte();
+            NativeMap.Type type = NativeIO.type(r.getByte());
+            byte[] nameBytes = new byte[r.getShort() & 0xffff];
+            r.getBytes(nameBytes);
+            String name = new String(nameBytes, "UTF-8");
+            Object key = keys.containsKey(name) ? keys.get(name) : name;
+            if (kind == 0) {
+                NativeIO.read(r, createNodeMap(dg, type, key), nasz);
+            } else if (kind == 1) {
+                NativeIO.read(r, createEdgeMap(dg, type, key), easz);
+            } else {
+                throw new IOException("corrupt snapshot map " + name);
+            }
+        }
+        return dg;
+    }
+
+    private static String name(Object key, Map<Object, String> names)
+    {
+        String name = names.get(key);
+        if (name == null && key instanceof String)
+            name = (String) key;
+        return name;
+    }
+
+    private static void putMapHeader(ChannelWriter w, int kind, NativeMap.Type type,
+                                     String name)
+        throws IOException
+    {
+        byte[] bytes = name.getBytes("UTF-8");
+        if (bytes.length > 0xffff)
+            throw new IllegalArgumentException("map name too long");
+        w.putByte((byte) kind);
+        w.putByte((byte) type.ordinal());
+        w.putShort((short) bytes.length);
+        w.putBytes(bytes);
+    }
+
+    private static void putBits(ChannelWriter w, BitSet bits, int size)
+        throws IOException
+    {
+        int words = (size + 63) >>> 6;
+        for (int k=0; k<words; ++k) {
+            long word = 0;
+            int end = (k + 1) << 6;
+            for (int i = bits.nextSetBit(k << 6); i >= 0 && i < end; i = bits.nextSetBit(i + 1))
+                word |= 1L << (i & 63);
+            w.putLong(word);
+        }
+    }
+
+    private static BitSet getBits(ChannelReader r, int size) throws IOException
+    {
+        BitSet bits = new BitSet(size);
+        int words = (size + 63) >>> 6;
+        for (int k=0; k<words; ++k) {
+            long word = r.getLong();
+            while (word != 0) {
+                int i = Long.numberOfTrailingZeros(word);
+                bits.set((k << 6) + i);
+                word &= word - 1;
+            }
+        }
+        if (bits.length() > size)
+            throw new IOException("corrupt snapshot slots");
+        return bits;
+    }
+
+    private static NativeNodeMap createNodeMap(BasicDigraph dg, NativeMap.Type t, Object key)
+    {
+        switch (t) {
+        case Int: return dg.createIntNodeMap(key);
+        case Long: return dg.createLongNodeMap(key);
+        case Double: return dg.createDoubleNodeMap(key);
+        case Float: return dg.createFloatNodeMap(key);
+        case Char: return dg.createCharNodeMap(key);
+        case Byte: return dg.createByteNodeMap(key);
+        default:
+            throw new IllegalArgumentException();
+        }
+    }
+
+    private static NativeEdgeMap createEdgeMap(BasicDigraph dg, NativeMap.Type t, Object key)
+    {
+        switch (t) {
+        case Int: return dg.createIntEdgeMap(key);
+        case Long: return dg.createLongEdgeMap(key);
+        case Double: return dg.createDoubleEdgeMap(key);
+        case Float: return dg.createFloatEdgeMap(key);
+        case Char: return dg.createCharEdgeMap(key);
+        case Byte: return dg.createByteEdgeMap(key);
+        default:
+            throw new IllegalArgumentException();
+        }
+    }
+}
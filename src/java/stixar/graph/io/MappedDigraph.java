@@ -0,0 +1,411 @@
+package stixar.graph.io;
+
+import stixar.graph.Digraph;
+import stixar.graph.Edge;
+import stixar.graph.FilterGraph;
+import stixar.graph.IntAdjacency;
+import stixar.graph.Node;
+import stixar.graph.attr.NativeEdgeMap;
+import stixar.graph.attr.NativeMap;
+import stixar.graph.attr.NativeNodeMap;
+import stixar.graph.order.NodeOrder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+   A read-only digraph whose topology lives in a memory mapped
+   {@link GraphFile graph file}.
+   <p>
+   The offset, target and edge identifier arrays of the file are accessed
+   in place, so that processes mapping the same file share its pages;
+   opening a graph reads them once, to check them, but copies nothing.
+   Node objects are created the first time they are asked for; edges are
+   handles created while walking adjacency lists.  The digraph implements
+   {@link IntAdjacency}, so primitive traversals never create edges at all.
+   </p>
+   <p>
+   Node identifiers are dense.  Edge identifiers are those stored in the
+   file, which are those of the digraph that was written, so attribute
+   arrays of size {@link #edgeAttrSize} line up with the edge attributes
+   of the original digraph.  Attribute columns stored in the file may be
+   loaded into ordinary native maps with {@link #nodeColumn} and
+   {@link #edgeColumn}, or read in place through {@link #columnBuffer}.
+   </p>
+   <p>
+   The digraph may be shared by threads: all queries are reads of the
+   mapping, and node objects are published atomically.  Filters, as
+   usual, are not thread safe.
+   </p>
+ */
+public class MappedDigraph extends FilterGraph
+    implements Digraph, IntAdjacency
+{
+    protected final int nodeCount;
+    protected final int edgeCount;
+    protected final int edgeIdCap;
+    protected final IntBuffer offsets;
+    protected final IntBuffer targets;
+    protected final IntBuffer edgeIds;
+    protected final AtomicReferenceArray<MappedNode> nodes;
+    protected final Map<String, Column> nodeColumns;
+    protected final Map<String, Column> edgeColumns;
+
+    /*
+      A typed block of attributes in the file.
+     */
+    static final class Column
+    {
+        final NativeMap.Type type;
+        final ByteBuffer data;
+
+        Column(NativeMap.Type type, ByteBuffer data)
+        {
+            this.type = type;
+            this.data = data;
+        }
+    }
+
+    /*
+      Check the topology, which must be a compressed sparse row form with
+      targets in range and distinct edge identifiers below edgeAttrSize,
+      recording the identifiers in use.
+     */
+    MappedDigraph(int n, int m, int edgeAttrSize,
+                  IntBuffer offsets, IntBuffer targets, IntBuffer edgeIds,
+                  Map<String, Column> nodeColumns,
+                  Map<String, Column> edgeColumns)
+        throws IOException
+    {
+        super(n, edgeAttrSize);
+        this.nodeCount = n;
+        this.edgeCount = m;
+        this.edgeIdCap = edgeAttrSize;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.edgeIds = edgeIds;
+        this.nodes = new AtomicReferenceArray<MappedNode>(n);
+        this.nodeColumns = nodeColumns;
+        this.edgeColumns = edgeColumns;
+        this.nodeTop = n;
+        this.edgeTop = edgeAttrSize;
+        if (offsets.get(0) != 0 || offsets.get(n) != m)
+            throw new IOException("corrupt offsets");
+        for (int u=0; u<n; ++u)
+            if (offsets.get(u) > offsets.get(u + 1))
+                throw new IOException("corrupt offsets at node " + u);
+        for (int i=0; i<m; ++i) {
+            int v = targets.get(i);
+            if (v < 0 || v >= n)
+                throw new IOException("edge " + i + " has target " + v + " out of range");
+            int eid = edgeIds.get(i);
+            if (eid < 0 || eid >= edgeAttrSize || eSlots.get(eid))
+                throw new IOException("edge " + i + " has corrupt identifier " + eid);
+            eSlots.set(eid);
+        }
+        nSlots.set(0, n);
+    }
+
+    /*
+      Javadoc'd in Graph.
+     */
+    public MappedNode node(int id)
+    {
+        MappedNode n = nodes.get(id);
+        if (n == null) {
+            nodes.compareAndSet(id, null, new MappedNode(this, id));
+            n = nodes.get(id);
+        }
+        return n;
+    }
+
+    /*
+      Javadoc'd in IntAdjacency.
+     */
+    public final int outDegree(int u)
+    {
+        return offsets.get(u + 1) - offsets.get(u);
+    }
+
+    /*
+      Javadoc'd in IntAdjacency.
+     */
+    public final int outTarget(int u, int i)
+    {
+        return targets.get(offsets.get(u) + i);
+    }
+
+    /*
+      Javadoc'd in IntAdjacency.
+     */
+    public final int outEdgeId(int u, int i)
+    {
+        return edgeIds.get(offsets.get(u) + i);
+    }
+
+    /*
+      Javadoc'd in IntAdjacency.
+     */
+    public final MappedEdge outEdge(int u, int i)
+    {
+        int slot = offsets.get(u) + i;
+        return new MappedEdge(this, slot, edgeIds.get(slot), u);
+    }
+
+    final int slotTarget(int slot)
+    {
+        return targets.get(slot);
+    }
+
+    final MappedEdge firstEdge(int u)
+    {
+        int start = offsets.get(u);
+        if (start == offsets.get(u + 1))
+            return null;
+        return new MappedEdge(this, start, edgeIds.get(start), u);
+    }
+
+    final MappedEdge nextEdge(int slot, int u)
+    {
+        int next = slot + 1;
+        if (next == offsets.get(u + 1))
+            return null;
+        return new MappedEdge(this, next, edgeIds.get(next), u);
+    }
+
+    /*
+      Javadoc'd in Graph.
+     */
+    public int nodeSize()
+    {
+        return nodeCount;
+    }
+
+    /*
+      Javadoc'd in Graph.
+     */
+    public int nodeAttrSize()
+    {
+        return nodeCount;
+    }
+
+    /*
+      Javadoc'd in Graph.
+     */
+    public int edgeSize()
+    {
+        return edgeCount;
+    }
+
+    /*
+      Javadoc'd in Graph.
+     */
+    public int edgeAttrSize()
+    {
+        return edgeIdCap;
+    }
+
+    /**
+       Return the names of the node attribute columns in the file.
+     */
+    public Set<String> nodeColumnNames()
+    {
+        return Collections.unmodifiableSet(nodeColumns.keySet());
+    }
+
+    /**
+       Return the names of the edge attribute columns in the file.
+     */
+    public Set<String> edgeColumnNames()
+    {
+        return Collections.unmodifiableSet(edgeColumns.keySet());
+    }
+
+    /**
+       Load a node attribute column into a new, unmanaged native map.
+
+       @param name the name under which the column was written.
+       @return a native node map of the column's type, or <tt>null</tt> if
+       there is no such column.
+     */
+    public NativeNodeMap nodeColumn(String name)
+    {
+        Column c = nodeColumns.get(name);
+        if (c == null)
+            return null;
+        NativeNodeMap m = NativeIO.newNodeMap(c.type, nodeCount);
+        NativeIO.read(c.data.duplicate().order(c.data.order()), m, nodeCount);
+        return m;
+    }
+
+    /**
+       Load an edge attribute column into a new, unmanaged native map,
+       indexed by edge identifier.
+
+       @param name the name under which the column was written.
+       @return a native edge map of the column's type, or <tt>null</tt> if
+       there is no such column.
+     */
+    public NativeEdgeMap edgeColumn(String name)
+    {
+        Column c = edgeColumns.get(name);
+        if (c == null)
+            return null;
+        NativeEdgeMap m = NativeIO.newEdgeMap(c.type, edgeIdCap);
+        NativeIO.read(c.data.duplicate().order(c.data.order()), m, edgeIdCap);
+        return m;
+    }
+
+    /**
+       Return a read-only view of the mapped bytes of a node or edge
+       attribute column, positioned at its first element and in the
+       byte order of the file.  Node columns are indexed by node identifier
+       and edge columns by edge identifier.
+
+       @param name the name of a node or edge column.
+       @return the column's bytes, or <tt>null</tt> if there is no such column.
+     */
+    public ByteBuffer columnBuffer(String name)
+    {
+        Column c = nodeColumns.get(name);
+        if (c == null)
+            c = edgeColumns.get(name);
+        if (c == null)
+            return null;
+        return c.data.asReadOnlyBuffer().order(c.data.order());
+    }
+
+    /**
+       Return the type of a node or edge attribute column.
+
+       @return the type, or <tt>null</tt> if there is no such column.
+     */
+    public NativeMap.Type columnType(String name)
+    {
+        Column c = nodeColumns.get(name);
+        if (c == null)
+            c = edgeColumns.get(name);
+        return c == null ? null : c.type;
+    }
+
+    /*
+      Javadoc'd in Graph
+     */
+    public Iterable<Node> nodes()
+    {
+        return new Iterable<Node>() {
+            public Iterator<Node> iterator() {
+                return new MappedNodeIterator(null);
+            }
+        };
+    }
+
+    /*
+      Javadoc'd in Graph
+     */
+    public Iterable<Node> nodes(final NodeOrder order)
+    {
+        return new Iterable<Node>() {
+            public Iterator<Node> iterator() {
+                return new MappedNodeIterator(order);
+            }
+        };
+    }
+
+    /*
+      Javadoc'd in Graph
+     */
+    public Iterable<Edge> edges()
+    {
+        return new Iterable<Edge>() {
+            public Iterator<Edge> iterator() {
+                return new MappedEdgeIterator();
+            }
+        };
+    }
+
+    /**
+       Produces a string for the graph in a simple adjacency list
+       representation.  Each node <tt>n</tt> is listed in order (by {@link Node#nodeId}),
+       followed by  a colon ':' and a space separated list of the nodes
+       to which <tt>n</tt> is linked by an edge.
+     */
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        for (int u=0; u<nodeCount; ++u) {
+            sb.append(u + ":");
+            for (int i=offsets.get(u); i<offsets.get(u + 1); ++i) {
+                sb.append(" " + targets.get(i));
+            }
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+
+    class MappedNodeIterator implements Iterator<Node>
+    {
+        protected int[] perm;
+        protected boolean reverse;
+        protected int idx;
+
+        MappedNodeIterator(NodeOrder order)
+        {
+            this.perm = order == null ? null : order.permutation();
+            this.reverse = order != null && order.isReversed();
+            this.idx = reverse ? nodeCount - 1 : 0;
+        }
+
+        public boolean hasNext()
+        {
+            return idx >= 0 && idx < nodeCount;
+        }
+
+        public Node next()
+        {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            int i = reverse ? idx-- : idx++;
+            return node(perm == null ? i : perm[i]);
+        }
+
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    class MappedEdgeIterator implements Iterator<Edge>
+    {
+        protected int slot;
+        protected int src;
+
+        public boolean hasNext()
+        {
+            return slot < edgeCount;
+        }
+
+        public Edge next()
+        {
+            if (slot >= edgeCount)
+                throw new NoSuchElementException();
+            while (offsets.get(src + 1) <= slot) src++;
+            MappedEdge e = new MappedEdge(MappedDigraph.this, slot,
+                                          edgeIds.get(slot), src);
+            slot++;
+            return e;
+        }
+
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package stixar.graph.io;
+
+import stixar.graph.Edge;
+import stixar.graph.attr.AttributableBase;
+
+/**
+   Edges of a {@link MappedDigraph}.
+   <p>
+   Like {@link stixar.graph.CompactEdge}s, mapped edges are handles created
+   on demand while walking adjacency lists; compare them with
+   {@link #equals} or {@link #edgeId}, not by reference.
+   </p>
+ */
+public final class MappedEdge extends AttributableBase
+    implements Edge
+{
+    private final int slot;
+    private final int eid;
+    private final int src;
+    private final MappedDigraph digraph;
+
+    MappedEdge(MappedDigraph dg, int slot, int eid, int src)
+    {
+        super(eid);
+        this.digraph = dg;
+        this.slot = slot;
+        this.eid = eid;
+        this.src = src;
+    }
+
+    /*
+      Javadoc'd in Edge.
+     */
+    public final int edgeId()
+    {
+        return eid;
+    }
+
+    /*
+      Javadoc'd in Edge.
+     */
+    public final MappedNode source()
+    {
+        return digraph.node(src);
+    }
+
+    /*
+      Javadoc'd in Edge.
+     */
+    public final MappedNode target()
+    {
+        return digraph.node(digraph.slotTarget(slot));
+    }
+
+    /*
+      Javadoc'd in Edge.
+     */
+    public final MappedEdge next()
+    {
+        return digraph.nextEdge(slot, src);
+    }
+
+    /**
+       Produce a human readable string representation.
+     */
+    public String toString()
+    {
+        return "MappedEdge-" + eid + "(" + src + "," + digraph.slotTarget(slot) + ")";
+    }
+
+    /**
+       Produce a hash code for this edge.
+     */
+    public int hashCode()
+    {
+        return eid;
+    }
+
+    /**
+       Make hashing work.
+     */
+    public boolean equals(Object o)
+    {
+        if (o instanceof MappedEdge) {
+            MappedEdge e = (MappedEdge) o;
+            return eid == e.eid && digraph == e.digraph;
+        }
+        return false;
+    }
+}
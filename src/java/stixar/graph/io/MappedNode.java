@@ -0,0 +1,81 @@
+package stixar.graph.io;
+
+import stixar.graph.Node;
+import stixar.graph.attr.AttributableBase;
+
+/**
+   Nodes of a {@link MappedDigraph}.
+ */
+public final class MappedNode extends AttributableBase
+    implements Node
+{
+    private final int id;
+    private final MappedDigraph digraph;
+
+    MappedNode(MappedDigraph dg, int id)
+    {
+        super(id);
+        this.digraph = dg;
+        this.id = id;
+    }
+
+    /*
+      Javadoc'd in Node.
+     */
+    public final int nodeId()
+    {
+        return id;
+    }
+
+    /*
+      Javadoc'd in Node.
+     */
+    public final MappedEdge out()
+    {
+        return digraph.firstEdge(id);
+    }
+
+    /**
+       Return the number of edges leading from this node.
+     */
+    public final int degree()
+    {
+        return digraph.outDegree(id);
+    }
+
+    /**
+       Returns the digraph to which this node belongs.
+     */
+    public final MappedDigraph digraph()
+    {
+        return digraph;
+    }
+
+    /**
+       Human readable string.
+     */
+    public String toString()
+    {
+        return "MappedNode(" + id + ")";
+    }
+
+    /**
+       Produce a hash code for this node.
+     */
+    public int hashCode()
+    {
+        return id;
+    }
+
+    /**
+       Implement equals so that hashing works.
+     */
+    public boolean equals(Object o)
+    {
+        if (o instanceof MappedNode) {
+            MappedNode n = (MappedNode) o;
+            return id == n.id && digraph == n.digraph;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,215 @@
+package stixar.graph.io;
+
+import stixar.graph.attr.ByteEdgeMap;
+import stixar.graph.attr.ByteMap;
+import stixar.graph.attr.ByteNodeMap;
+import stixar.graph.attr.CharEdgeMap;
+import stixar.graph.attr.CharMap;
+import stixar.graph.attr.CharNodeMap;
+import stixar.graph.attr.DoubleEdgeMap;
+import stixar.graph.attr.DoubleMap;
+import stixar.graph.attr.DoubleNodeMap;
+import stixar.graph.attr.FloatEdgeMap;
+import stixar.graph.attr.FloatMap;
+import stixar.graph.attr.FloatNodeMap;
+import stixar.graph.attr.IntEdgeMap;
+import stixar.graph.attr.IntMap;
+import stixar.graph.attr.IntNodeMap;
+import stixar.graph.attr.LongEdgeMap;
+import stixar.graph.attr.LongMap;
+import stixar.graph.attr.LongNodeMap;
+import stixar.graph.attr.NativeEdgeMap;
+import stixar.graph.attr.NativeMap;
+import stixar.graph.attr.NativeNodeMap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/*
+  Type dispatch for reading and writing native maps as contiguous
+  blocks of primitives.
+ */
+final class NativeIO
+{
+    private NativeIO() {}
+
+    static final NativeMap.Type[] Types = NativeMap.Type.values();
+
+    static NativeMap.Type type(int ordinal) throws IOException
+    {
+        if (ordinal < 0 || ordinal >= Types.length)
+            throw new IOException("unknown attribute type " + ordinal);
+        return Types[ordinal];
+    }
+
+    /*
+      The number of bytes per element of a map of type t.
+     */
+    static int width(NativeMap.Type t)
+    {
+        switch (t) {
+        case Int: return 4;
+        case Long: return 8;
+        case Double: return 8;
+        case Float: return 4;
+        case Char: return 2;
+        case Byte: return 1;
+        default:
+            throw new IllegalArgumentException();
+        }
+    }
+
+    static NativeNodeMap newNodeMap(NativeMap.Type t, int size)
+    {
+        switch (t) {
+        case Int: return new IntNodeMap(new int[size]);
+        case Long: return new LongNodeMap(new long[size]);
+        case Double: return new DoubleNodeMap(new double[size]);
+        case Float: return new FloatNodeMap(new float[size]);
+        case Char: return new CharNodeMap(new char[size]);
+        case Byte: return new ByteNodeMap(new byte[size]);
+        default:
+            throw new IllegalArgumentException();
+        }
+    }
+
+    static NativeEdgeMap newEdgeMap(NativeMap.Type t, int size)
+    {
+        switch (t) {
+        case Int: return new IntEdgeMap(new int[size]);
+        case Long: return new LongEdgeMap(new long[size]);
+        case Double: return new DoubleEdgeMap(new double[size]);
+        case Float: return new FloatEdgeMap(new float[size]);
+        case Char: return new CharEdgeMap(new char[size]);
+        case Byte: return new ByteEdgeMap(new byte[size]);
+        default:
+            throw new IllegalArgumentException();
+        }
+    }
+
+    /*
+      Write entries [0,size) of m, in the order given by perm if
+      perm is not null (entry i of the block is m[perm[i]]).
+     */
+    static void write(ChannelWriter w, NativeMap m, int size, int[] perm)
+        throws IOException
+    {
+        switch (m.type()) {
+        case Int:
+            IntMap im = (IntMap) m;
+            for (int i=0; i<size; ++i)
+                w.putInt(im.get(perm == null ? i : perm[i]));
+            break;
+        case Long:
+            LongMap lm = (LongMap) m;
+            for (int i=0; i<size; ++i)
+                w.putLong(lm.get(perm == null ? i : perm[i]));
+            break;
+        case Double:
+            DoubleMap dm = (DoubleMap) m;
+            for (int i=0; i<size; ++i)
+                w.putDouble(dm.get(perm == null ? i : perm[i]));
+            break;
+        case Float:
+            FloatMap fm = (FloatMap) m;
+            for (int i=0; i<size; ++i)
+                w.putFloat(fm.get(perm == null ? i : perm[i]));
+            break;
+        case Char:
+            CharMap cm = (CharMap) m;
+            for (int i=0; i<size; ++i)
+                w.putChar(cm.get(perm == null ? i : perm[i]));
+            break;
+        case Byte:
+            ByteMap bm = (ByteMap) m;
+            for (int i=0; i<size; ++i)
+                w.putByte(bm.get(perm == null ? i : perm[i]));
+            break;
+        default:
+            throw new IllegalArgumentException();
+        }
+    }
+
+    /*
+      Fill entries [0,size) of m from the current position of buf,
+      advancing it.
+     */
+    static void read(ByteBuffer buf, NativeMap m, int size)
+    {
+        switch (m.type()) {
+        case Int:
+            IntMap im = (IntMap) m;
+            for (int i=0; i<size; ++i)
+                im.set(i, buf.getInt());
+            break;
+        case Long:
+            LongMap lm = (LongMap) m;
+            for (int i=0; i<size; ++i)
+                lm.set(i, buf.getLong());
+            break;
+        case Double:
+            DoubleMap dm = (DoubleMap) m;
+            for (int i=0; i<size; ++i)
+                dm.set(i, buf.getDouble());
+            break;
+        case Float:
+            FloatMap fm = (FloatMap) m;
+            for (int i=0; i<size; ++i)
+                fm.set(i, buf.getFloat());
+            break;
+        case Char:
+            CharMap cm = (CharMap) m;
+            for (int i=0; i<size; ++i)
+                cm.set(i, buf.getChar());
+            break;
+        case Byte:
+            ByteMap bm = (ByteMap) m;
+            for (int i=0; i<size; ++i)
+                bm.set(i, buf.get());
+            break;
+        default:
+            throw new IllegalArgumentException();
+        }
+    }
+
+    /*
+      Fill entries [0,size) of m from a reader.
+     */
+    static void read(ChannelReader r, NativeMap m, int size) throws IOException
+    {
+        switch (m.type()) {
+        case Int:
+            IntMap im = (IntMap) m;
+            for (int i=0; i<size; ++i)
+                im.set(i, r.getInt());
+            break;
+        case Long:
+            LongMap lm = (LongMap) m;
+            for (int i=0; i<size; ++i)
+                lm.set(i, r.getLong());
+            break;
+        case Double:
+            DoubleMap dm = (DoubleMap) m;
+            for (int i=0; i<size; ++i)
+                dm.set(i, r.getDouble());
+            break;
+        case Float:
+            FloatMap fm = (FloatMap) m;
+            for (int i=0; i<size; ++i)
+                fm.set(i, r.getFloat());
+            break;
+        case Char:
+            CharMap cm = (CharMap) m;
+            for (int i=0; i<size; ++i)
+                cm.set(i, r.getChar());
+            break;
+        case Byte:
+            ByteMap bm = (ByteMap) m;
+            for (int i=0; i<size; ++i)
+                bm.set(i, r.getByte());
+            break;
+        default:
+            throw new IllegalArgumentException();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+/**
+   Reading and writing graphs.
+   <p>
+   {@link stixar.graph.io.GraphFile} writes digraphs and their native
+   attributes in a binary format which is opened by memory mapping,
+   giving a read-only {@link stixar.graph.io.MappedDigraph} that
+   shares its pages between processes.
+   </p>
+   <p>
+   {@link stixar.graph.io.GraphReader} streams textual edge lists and
+   DIMACS shortest path and max flow files into mutable or compact
+   digraphs, parsing chunks of the input in parallel.
+   </p>
+   <p>
+   {@link stixar.graph.io.GraphSnapshot} checkpoints a
+   {@link stixar.graph.BasicDigraph} together with its managed native
+   maps, optionally compressed, and restores it with identical node and
+   edge identifiers.
+   </p>
+ */
+package stixar.graph.io;
@@ -6,6 +6,7 @@ import stixar.graph.Graph;
 import stixar.graph.search.DFS;
 import stixar.graph.search.BFS;
 
+import java.util.Arrays;
 import java.util.Comparator;
 /**
    Representation for an ordering of the nodes in a digraph.
@@ -46,8 +47,15 @@ public class NodeOrder
 
     /**
        Return true if the order is reversed.
+       <p>
+       This method was named <tt>reversed()</tt>, which clashes with the
+       default method <tt>Comparator.reversed()</tt> of Java 8 and later,
+       as a method cannot differ from it in its return type alone.  For
+       the same reason no deprecated <tt>boolean reversed()</tt> can be
+       kept beside it; callers of the old name must be changed.
+       </p>
      */
-    public boolean reversed()
+    public boolean isReversed()
     {
         return reverse;
     }
@@ -71,6 +79,40 @@ public class NodeOrder
         return permutation;
     }
 
+    /**
+       Return the renumbering of the graph's nodes which lists them in
+       this order.  Nodes whose entry in the permutation is negative, such as
+       nodes not reached by the search producing the order, follow all the
+       others by identifier.
+
+       @return an attribute array <tt>r</tt> of size
+       <tt>graph().nodeAttrSize()</tt> such that <tt>r[i]</tt> is the
+       position in <tt>[0, nodeSize())</tt> of the node with identifier
+       <tt>i</tt>, or <tt>-1</tt> if there is no such node.
+     */
+    public int[] renumbering()
+    {
+        int nasz = graph.nodeAttrSize();
+        long[] keys = new long[nasz];
+        int n = 0;
+        for (int i=0; i<nasz; ++i) {
+            if (graph.node(i) == null) continue;
+            int rank = i < permutation.length ? permutation[i] : -1;
+            long hi;
+            if (rank < 0)
+                hi = Integer.MAX_VALUE;
+            else
+                hi = reverse ? Integer.MAX_VALUE - 1 - rank : rank;
+            keys[n++] = (hi << 32) | i;
+        }
+        Arrays.sort(keys, 0, n);
+        int[] result = new int[nasz];
+        Arrays.fill(result, -1);
+        for (int k=0; k<n; ++k)
+            result[(int) keys[k]] = k;
+        return result;
+    }
+
     /**
        Return the graph to which this NodeOrder belongs.
      */
@@ -18,6 +18,7 @@
    <li><a href="edit/package-summary.html">Editing algorithms.</a></li>
    <li><a href="check/package-summary.html">Property checkers.</a></li>
    <li><a href="flow/package-summary.html">Flow analysis.</a></li>
+   <li><a href="io/package-summary.html">Graph input and output.</a></li>
    </ul>
 
  */
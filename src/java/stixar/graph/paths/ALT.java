@@ -0,0 +1,324 @@
+package stixar.graph.paths;
+
+import stixar.graph.Algorithm;
+import stixar.graph.Edge;
+import stixar.graph.Filtering;
+import stixar.graph.Graph;
+import stixar.graph.GraphFilter;
+import stixar.graph.Node;
+
+import stixar.graph.attr.NativeEdgeMap;
+
+import stixar.util.IntDHeap;
+
+import java.util.Arrays;
+
+/**
+   A<sup>*</sup> search with landmark lower bounds (ALT) between two nodes
+   of a natively attributed graph with non negative edge weights.
+   <p>
+   Nodes are settled in order of their distance from the source plus the
+   {@link Landmarks} lower bound on their distance to the target, computed
+   when a node is first reached, so that the search heads for the target
+   and settles a fraction of the nodes Dijkstra's algorithm would.  Each
+   query uses the {@link #setActive active} landmarks giving the greatest
+   bounds from the source to the target.  Nodes from which the landmarks
+   show the target is not reachable are not queued at all.
+   </p><p>
+   Distances are summed as <tt>double</tt>s and queued in an
+   {@link IntDHeap}, and only the nodes reached by a query are reset for
+   the next one.  An instance may be reused for many queries on the same
+   graph, by {@link #path(Node,Node)} or by setting the source and target
+   and calling {@link #run}.  Edge filters are respected.  The weights may
+   differ from those of the landmarks, as long as no weight is smaller.
+   </p>
+   @see stixar.graph.search.AStar
+ */
+public class ALT implements Algorithm, Filtering
+{
+    /**
+       The default number of active landmarks.
+     */
+    public static final int DefaultActive = 4;
+
+    protected Graph graph;
+    protected GraphFilter filter;
+    protected NativeEdgeMap weights;
+    protected Landmarks landmarks;
+
+    private Node source;
+    private Node target;
+    private int active;
+    private final int[] use;
+    private final double[] useBounds;
+
+    private double[] dist;
+    private double[] bound;
+    private Edge[] parents;
+    private int[] reached;
+    private int nReached;
+    private IntDHeap queue;
+    private double distance;
+    private int settled;
+
+    /**
+       Construct an ALT search.
+       @param g the graph.
+       @param weights the edge weights, none smaller than the weights of
+       the landmark tables.
+       @param landmarks landmarks of the graph.
+       @throws IllegalArgumentException if the native type of the weights
+       is not supported or the landmarks are of another graph.
+     */
+    public ALT(Graph g, NativeEdgeMap weights, Landmarks landmarks)
+    {
+        Weights.check(weights);
+        if (landmarks.graph() != g)
+            throw new IllegalArgumentException("landmarks of another graph");
+        this.graph = g;
+        this.filter = g.getFilter();
+        this.weights = weights;
+        this.landmarks = landmarks;
+        this.active = Math.min(DefaultActive, landmarks.size());
+        this.use = new int[landmarks.size()];
+        this.useBounds = new double[landmarks.size()];
+        this.distance = Double.POSITIVE_INFINITY;
+    }
+
+    /**
+       Return the current source node for this algorithm.
+    */
+    public Node source()
+    {
+        return source;
+    }
+
+    /**
+       Return the current target node for this algorithm.
+    */
+    public Node target()
+    {
+        return target;
+    }
+
+    /**
+       Set and return the current source node.
+       @return n
+    */
+    public Node source(Node n)
+    {
+        return source = n;
+    }
+
+    /**
+       Set and return the current target node.
+       @return n
+    */
+    public Node target(Node n)
+    {
+        return target = n;
+    }
+
+    /**
+       Set the number of landmarks used by each query.  Fewer landmarks
+       give weaker bounds which are cheaper to compute.
+       @throws IllegalArgumentException if k is not positive or exceeds the
+       number of landmarks.
+     */
+    public void setActive(int k)
+    {
+        if (k < 1 || k > landmarks.size())
+            throw new IllegalArgumentException("bad active landmark count " + k);
+        active = k;
+    }
+
+    /**
+       Return the number of landmarks used by each query.
+     */
+    public int active()
+    {
+        return active;
+    }
+
+    /**
+       Compute a shortest path from the current source to the current
+       target.
+       @throws IllegalStateException if the source or target is not set.
+     */
+    public void run()
+    {
+        if (source == null || target == null)
+            throw new IllegalStateException("source or target not set");
+        int nasz = graph.nodeAttrSize();
+        if (dist == null || dist.length < nasz) {
+            dist = new double[nasz];
+            bound = new double[nasz];
+            Arrays.fill(dist, Double.POSITIVE_INFINITY);
+            Arrays.fill(bound, Double.NaN);
+            parents = new Edge[nasz];
+            reached = new int[nasz];
+            queue = new IntDHeap(nasz);
+        } else {
+            for (int i=0; i<nReached; ++i) {
+                int v = reached[i];
+                dist[v] = Double.POSITIVE_INFINITY;
+                bound[v] = Double.NaN;
+            }
+        }
+        nReached = 0;
+        settled = 0;
+        search();
+        while (!queue.isEmpty())
+            queue.extractMin();
+    }
+
+    /**
+       Compute a shortest path between two nodes.
+       @param s the source node.
+       @param t the target node.
+       @return a shortest path from <tt>s</tt> to <tt>t</tt>, or
+       <tt>null</tt> if <tt>t</tt> is not reachable from <tt>s</tt>.
+     */
+    public Path path(Node s, Node t)
+    {
+        source = s;
+        target = t;
+        run();
+        return path();
+    }
+
+    /**
+       Return the shortest path found by the last run, or <tt>null</tt>
+       if the target is not reachable from the source.
+     */
+    public Path path()
+    {
+        if (!found())
+            return null;
+        Path p = new Path(target);
+        int sid = source.nodeId();
+        for (int v = target.nodeId(); v != sid; ) {
+            Edge e = parents[v];
+            p.prepend(e);
+            v = e.source().nodeId();
+        }
+        return p;
+    }
+
+    /**
+       Return whether the last run found a path.
+     */
+    public boolean found()
+    {
+        return distance != Double.POSITIVE_INFINITY;
+    }
+
+    /**
+       Return the length of the path found by the last run.
+       @throws IllegalStateException if no path was found.
+     */
+    public double distance()
+    {
+        if (!found())
+            throw new IllegalStateException("no path");
+        return distance;
+    }
+
+    /**
+       Return the number of nodes settled in the last run.
+     */
+    public int settled()
+    {
+        return settled;
+    }
+
+    /*
+      Choose the active landmarks with the greatest bounds from s to t,
+      by insertion into use[0..active-1].
+     */
+    private void choose(int s, int t)
+    {
+        int k = landmarks.size();
+        int n = 0;
+        int sb = s * k;
+        int tb = t * k;
+        for (int i=0; i<k; ++i) {
+            double b = landmarks.bound(sb + i, tb + i);
+            if (n == active && b <= useBounds[n - 1])
+                continue;
+            int j = n < active ? n++ : n - 1;
+            while (j > 0 && useBounds[j - 1] < b) {
+                use[j] = use[j - 1];
+                useBounds[j] = useBounds[j - 1];
+                --j;
+            }
+            use[j] = i;
+            useBounds[j] = b;
+        }
+    }
+
+    /*
+      The bound from v to the target over the active landmarks, computed
+      on first use.
+     */
+    private double bound(int v, int tb)
+    {
+        double h = bound[v];
+        if (h == h)
+            return h;
+        int k = landmarks.size();
+        int vb = v * k;
+        h = 0;
+        for (int j=0; j<active; ++j) {
+            int i = use[j];
+            double h1 = landmarks.bound(vb + i, tb + i);
+            if (h1 > h)
+                h = h1;
+        }
+        if (dist[v] == Double.POSITIVE_INFINITY)
+            reached[nReached++] = v;
+        return bound[v] = h;
+    }
+
+    private void search()
+    {
+        distance = Double.POSITIVE_INFINITY;
+        int s = source.nodeId();
+        int t = target.nodeId();
+        int tb = t * landmarks.size();
+        choose(s, t);
+        double hs = bound(s, tb);
+        if (hs == Double.POSITIVE_INFINITY)
+            return;
+        dist[s] = 0;
+        queue.insert(s, IntDHeap.doubleKey(hs));
+        while (!queue.isEmpty()) {
+            int u = queue.extractMin();
+            settled++;
+            double du = dist[u];
+            if (u == t) {
+                distance = du;
+                return;
+            }
+            for (Edge e = graph.node(u).out(); e != null; e = e.next()) {
+                if (filter != null && filter.filter(e))
+                    continue;
+                int v = e.target().nodeId();
+                double dv = du + Weights.get(weights, e);
+                if (dv >= dist[v])
+                    continue;
+                double hv = bound(v, tb);
+                if (hv == Double.POSITIVE_INFINITY)
+                    continue;
+                if (dist[v] == Double.POSITIVE_INFINITY)
+                    queue.insert(v, IntDHeap.doubleKey(dv + hv));
+                else if (queue.contains(v))
+                    queue.decreaseKey(v, IntDHeap.doubleKey(dv + hv));
+                else
+                    continue;
+                dist[v] = dv;
+                parents[v] = e;
+            }
+        }
+    }
+}
@@ -8,10 +8,15 @@ import stixar.graph.attr.EdgeSource;
 import stixar.graph.attr.EdgeMap;
 import stixar.graph.attr.NodeMap;
 import stixar.graph.attr.NodeMatrix;
+import stixar.graph.attr.NativeEdgeMap;
 import stixar.graph.attr.NativeNodeMatrix;
 
 import stixar.util.NumAdaptor;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
 /**
    All pairs shortests paths computations as static methods.
  */
@@ -133,6 +138,76 @@ public class APSP
         return null;
     }
 
+    /**
+       Compute all pairs shortests paths distances of a natively attributed
+       digraph using Johnson's algorithm, on as many threads as there are
+       processors.
+       @see #apspSparse(Digraph,NativeEdgeMap,NativeNodeMatrix,ExecutorService,int)
+     */
+    public static Path apspSparse(Digraph dg,
+                                  NativeEdgeMap weights,
+                                  NativeNodeMatrix m)
+    {
+        return apspSparse(dg, weights, m, null, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+       Compute all pairs shortests paths distances of a natively attributed
+       digraph using Johnson's algorithm, running the Dijkstra phase in
+       parallel.
+       <p>
+       Potentials are computed by a Bellman-Ford-Moore pass over primitive
+       arrays, without copying the graph, and the reduced weights are laid
+       out once in arrays shared by all threads.  Each of <tt>threads</tt>
+       tasks then runs Dijkstra's algorithm from the sources it claims,
+       with its own distance arrays and heap, writing each row of the
+       matrix whole.  Available native types: <tt>int,long,float,double</tt>;
+       the matrix must be of the type of the weights, and <tt>int</tt> and
+       <tt>long</tt> weights are summed as <tt>long</tt>s,
+       <tt>float</tt> and <tt>double</tt> weights as <tt>double</tt>s.
+       The entry of a node pair without a path is the greatest value of the
+       type, or infinity.  Edge filters are respected.
+       </p>
+       @param dg the digraph whose shortests path distances are to be 
+       computed.
+       @param weights the edge weights.
+       @param m a matrix in which to store shortest path distances
+       from node <tt>i</tt> to node <tt>j</tt> in cell <tt>(i,j)</tt>.
+       @param executor the executor running the tasks, or <tt>null</tt> for
+       a pool of <tt>threads</tt> threads made for the call.
+       @param threads the number of tasks.
+       @return a Path containing a negative cycle in dg, in which case the
+       matrix is left untouched, or null if the computation is successful.
+       @throws IllegalArgumentException if the native types of the weights
+       and matrix differ or are not supported, or <tt>threads</tt> is not
+       positive.
+     */
+    public static Path apspSparse(Digraph dg,
+                                  NativeEdgeMap weights,
+                                  NativeNodeMatrix m,
+                                  ExecutorService executor,
+                                  int threads)
+    {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be positive");
+        JohnsonNative j = new JohnsonNative(dg, weights, m);
+        Path nc = j.potentials();
+        if (nc != null)
+            return nc;
+        j.reweight();
+        if (executor != null || threads == 1) {
+            j.run(executor, threads);
+            return null;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            j.run(pool, threads);
+        } finally {
+            pool.shutdown();
+        }
+        return null;
+    }
+
     /*
       Adapt edge weights to positive edge weights with potential function.
      */
@@ -191,6 +266,7 @@ public class APSP
             this.node = n;
             this.m = m;
             this.potential = pot;
+            this.adaptor = adaptor;
         }
 
         public T get(Node n)
@@ -286,6 +362,63 @@ public class APSP
         }
     }
 
+    /**
+       Compute all pairs shortests paths of a natively attributed digraph
+       with the blocked Floyd-Warshall algorithm, in a pool made for the
+       call.
+       @see #apspDense(Digraph,NativeEdgeMap,NativeNodeMatrix,ForkJoinPool)
+     */
+    public static void apspDense(Digraph dg,
+                                 NativeEdgeMap weights,
+                                 NativeNodeMatrix m)
+    {
+        apspDense(dg, weights, m, null);
+    }
+
+    /**
+       Compute all pairs shortests paths of a natively attributed digraph
+       with the blocked Floyd-Warshall algorithm.
+       <p>
+       The distances are copied into a flat primitive array of the type of
+       the weights and updated tile by tile in the three phases of the
+       blocked algorithm, the independent tiles of each phase running in
+       parallel, and are then copied into the matrix row by row.  This
+       needs memory for a second <tt>n<sup>2</sup></tt> matrix.  Available
+       native types: <tt>int,long,float,double</tt>; the matrix must be of
+       the type of the weights.  The entry of a node pair without a path
+       is the greatest value of the type, or infinity.  As with
+       {@link #apspDense(Digraph,EdgeSource,NodeMatrix,NumAdaptor)}, a
+       negative cycle shows as a negative diagonal entry.  Edge filters are
+       respected.
+       </p>
+       @param dg the digraph whose shortests path distances are to be 
+       computed.
+       @param weights the edge weights.
+       @param m a matrix in which to store shortest path distances
+       from node <tt>i</tt> to node <tt>j</tt> in cell <tt>(i,j)</tt>.
+       @param pool the pool running the tiles, or <tt>null</tt> for a pool
+       made for the call.
+       @throws IllegalArgumentException if the native types of the weights
+       and matrix differ or are not supported.
+     */
+    public static void apspDense(Digraph dg,
+                                 NativeEdgeMap weights,
+                                 NativeNodeMatrix m,
+                                 ForkJoinPool pool)
+    {
+        FloydNative f = new FloydNative(dg, weights, m);
+        if (pool != null) {
+            f.run(pool);
+            return;
+        }
+        ForkJoinPool own = new ForkJoinPool();
+        try {
+            f.run(own);
+        } finally {
+            own.shutdown();
+        }
+    }
+
     /**
        Incrememtal APSP for dense graphs.
 
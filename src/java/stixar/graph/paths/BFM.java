@@ -19,7 +19,7 @@ import stixar.graph.attr.FloatEdgeMap;
 import stixar.graph.attr.DoubleEdgeMap;
 import stixar.graph.attr.LongEdgeMap;
 import stixar.graph.attr.NodeMap;
-import stixar.graph.attr.ArrayNodeMap;
+import stixar.graph.attr.EpochNodeMap;
 import stixar.graph.attr.EdgeMap;
 import stixar.graph.attr.EdgeSource;
 
@@ -34,6 +34,13 @@ import java.util.Arrays;
 /**
    Tarjan's subtree disassembly variant of the Bellman-Ford-Moore
    algorithm for generically attributed digraphs.
+   <p>
+   If the distance map is an {@link EpochNodeMap}, each run resets it to
+   infinity in constant time rather than by setting every node, and the
+   parent map is likewise cleared in constant time when it is one, as it
+   is if it is created by the constructor; a run from a source which
+   reaches few nodes then costs in proportion to those nodes.
+   </p>
  */
 public class BFM<T> extends BFMBase
 {
@@ -80,7 +87,7 @@ public class BFM<T> extends BFMBase
     public void run()
     {
         reset();
-        NodeInfo ni = source.get(niA);
+        NodeInfo ni = info(source);
         ni.cell = queue.append(ni);
         while(!queue.isEmpty()) {
             ni = queue.remove();
@@ -90,11 +97,17 @@ public class BFM<T> extends BFMBase
     }
     
 
+    @SuppressWarnings("unchecked")
     protected  void reset()
     {
         super.reset();
         T zero = adaptor.zero();
         T inf = adaptor.inf();
+        if (distMap instanceof EpochNodeMap) {
+            ((EpochNodeMap<T>) distMap).clear(inf);
+            distMap.set(source, zero);
+            return;
+        }
         for (Node n : digraph.nodes())
             if (n == source) distMap.set(n, zero);
             else distMap.set(n, inf);
@@ -121,7 +134,7 @@ public class BFM<T> extends BFMBase
                 continue;
             }
             Node t = e.target();
-            NodeInfo tInfo = t.get(niA);
+            NodeInfo tInfo = info(t);
             T newTDist = adaptor.add(distMap.get(s), weights.get(e));
             if (adaptor.compare(newTDist, distMap.get(t)) < 0) {
                 distMap.set(t, newTDist);
@@ -187,8 +200,8 @@ class BFMBase
     }
 
 
-    // attribute array for nod infos
-    protected NodeInfo[] niA;
+    // node infos, created as nodes are reached in a run.
+    protected EpochNodeMap<NodeInfo> niA;
     // attribute array for parents in shortest path tree.
     protected NodeMap<Edge> parents;
     // the input digraph.
@@ -226,10 +239,24 @@ class BFMBase
         this.cycleEdge = null;
         this.queue = new CList<NodeInfo>();
         if (parents == null)
-            this.parents = new ArrayNodeMap<Edge>(new Edge[dg.nodeAttrSize()]);
+            this.parents = new EpochNodeMap<Edge>(dg.nodeAttrSize());
         else
             this.parents = parents;
-        this.niA = new NodeInfo[dg.nodeAttrSize()];
+        this.niA = new EpochNodeMap<NodeInfo>(dg.nodeAttrSize());
+    }
+
+    /*
+      The info of a node, created the first time the node is reached
+      in a run.
+     */
+    protected final NodeInfo info(Node n)
+    {
+        NodeInfo ni = niA.get(n);
+        if (ni == null) {
+            ni = new NodeInfo(n);
+            niA.set(n, ni);
+        }
+        return ni;
     }
 
 
@@ -331,15 +358,18 @@ class BFMBase
       Abstract class reset, some more work is done
       for the particular implementations.
      */
+    @SuppressWarnings("unchecked")
     protected void reset()
     {
         queue.clear();
-        int i=0;
-        for (Node n : digraph.nodes()) {
-            niA[i++] = new NodeInfo(n);
-            n.set(parents, null);
+        niA.clear();
+        if (parents instanceof EpochNodeMap) {
+            ((EpochNodeMap<Edge>) parents).clear();
+        } else {
+            for (Node n : digraph.nodes())
+                n.set(parents, null);
         }
-        NodeInfo sInfo = source.get(niA);
+        NodeInfo sInfo = info(source);
         sInfo.sptParent = sInfo;
         sInfo.sptNext = sInfo;
         sInfo.sptPrev = sInfo;
@@ -17,6 +17,9 @@ import stixar.graph.attr.IntEdgeMap;
 import stixar.graph.attr.FloatEdgeMap;
 import stixar.graph.attr.DoubleEdgeMap;
 import stixar.graph.attr.LongEdgeMap;
+import stixar.graph.attr.EpochIntNodeMap;
+import stixar.graph.attr.EpochLongNodeMap;
+import stixar.graph.attr.EpochDoubleNodeMap;
 import stixar.graph.attr.NodeMap;
 import stixar.graph.attr.ArrayNodeMap;
 import stixar.graph.attr.EdgeMap;
@@ -32,6 +35,11 @@ import java.util.Arrays;
 /**
    Tarjan's subtree disassembly variant of the Bellman-Ford-Moore
    algorithm for natively attributed digraphs.
+   <p>
+   An epoch distance map, such as an {@link EpochIntNodeMap}, is reset to
+   infinity in constant time by each run, as is the parent map if it is
+   created by the constructor.
+   </p>
  */
 public class BFMNative extends BFMBase // BFMBase found in BFM.java
 {
@@ -61,7 +69,7 @@ public class BFMNative extends BFMBase // BFMBase found in BFM.java
     public void run()
     {
         reset();
-        NodeInfo ni = source.get(niA);
+        NodeInfo ni = info(source);
         ni.cell = queue.append(ni);
         switch (distMap.type()) {
         case Int:
@@ -118,7 +126,7 @@ public class BFMNative extends BFMBase // BFMBase found in BFM.java
                 continue;
             }
             Node t = e.target();
-            NodeInfo tInfo = t.get(niA);
+            NodeInfo tInfo = info(t);
             int newTDist = intNodeMap.get(s) + intEdgeMap.get(e);
             if (newTDist < intNodeMap.get(t)) {
                 int tid = t.nodeId();
@@ -140,7 +148,7 @@ public class BFMNative extends BFMBase // BFMBase found in BFM.java
                     continue;
             }
             Node t = e.target();
-            NodeInfo tInfo = t.get(niA);
+            NodeInfo tInfo = info(t);
             long newTDist = longNodeMap.get(s) + longEdgeMap.get(e);
             if (newTDist < longNodeMap.get(t)) {
                 int tid = t.nodeId();
@@ -162,7 +170,7 @@ public class BFMNative extends BFMBase // BFMBase found in BFM.java
                 continue;
             }
             Node t = e.target();
-            NodeInfo tInfo = t.get(niA);
+            NodeInfo tInfo = info(t);
             float newTDist = floatNodeMap.get(s) + floatEdgeMap.get(e);
             if (newTDist < floatNodeMap.get(t)) {
                 int tid = t.nodeId();
@@ -184,7 +192,7 @@ public class BFMNative extends BFMBase // BFMBase found in BFM.java
                 continue;
             }
             Node t = e.target();
-            NodeInfo tInfo = t.get(niA);
+            NodeInfo tInfo = info(t);
             double newTDist = doubleNodeMap.get(s) + doubleEdgeMap.get(e);
             if (newTDist < doubleNodeMap.get(t)) {
                 int tid = t.nodeId();
@@ -204,6 +212,11 @@ public class BFMNative extends BFMBase // BFMBase found in BFM.java
         case Int:
             intNodeMap = (IntNodeMap) distMap;
             intEdgeMap = (IntEdgeMap) weights;
+            if (intNodeMap instanceof EpochIntNodeMap) {
+                ((EpochIntNodeMap) intNodeMap).clear(Integer.MAX_VALUE);
+                intNodeMap.set(source, 0);
+                break;
+            }
             for (Node n : digraph.nodes())
                 if (n == source) intNodeMap.set(n, 0);
                 else intNodeMap.set(n, Integer.MAX_VALUE);
@@ -211,6 +224,11 @@ public class BFMNative extends BFMBase // BFMBase found in BFM.java
         case Long:
             longNodeMap = (LongNodeMap) distMap;
             longEdgeMap = (LongEdgeMap) weights;
+            if (longNodeMap instanceof EpochLongNodeMap) {
+                ((EpochLongNodeMap) longNodeMap).clear(Long.MAX_VALUE);
+                longNodeMap.set(source, 0);
+                break;
+            }
             for (Node n : digraph.nodes())
                 if (n == source) longNodeMap.set(n, 0);
                 else longNodeMap.set(n, Long.MAX_VALUE);
@@ -225,6 +243,11 @@ public class BFMNative extends BFMBase // BFMBase found in BFM.java
         case Double:
             doubleNodeMap = (DoubleNodeMap) distMap;
             doubleEdgeMap = (DoubleEdgeMap) weights;
+            if (doubleNodeMap instanceof EpochDoubleNodeMap) {
+                ((EpochDoubleNodeMap) doubleNodeMap).clear(Double.POSITIVE_INFINITY);
+                doubleNodeMap.set(source, 0);
+                break;
+            }
             for (Node n : digraph.nodes())
                 if (n == source) doubleNodeMap.set(n, 0);
                 else doubleNodeMap.set(n, Double.POSITIVE_INFINITY);
@@ -0,0 +1,212 @@
+package stixar.graph.paths;
+
+import stixar.graph.Node;
+import stixar.graph.Edge;
+import stixar.graph.Graph;
+
+import stixar.graph.attr.EdgeSource;
+
+import stixar.util.BinaryPQ;
+import stixar.util.Cell;
+import stixar.util.NumAdaptor;
+
+import java.util.Comparator;
+
+/**
+   Bidirectional Dijkstra shortest paths between two nodes of a
+   generically attributed graph with non negative edge weights.
+   <p>
+   An instance may be reused for many queries on the same graph, by
+   {@link #path(Node,Node)} or by setting the source and target and
+   calling {@link #run}.  Edge filters are respected.
+   </p><p>
+   The backward search follows the incoming edge lists of a
+   {@link stixar.graph.BasicDigraph} or {@link stixar.graph.ArrayDigraph}.
+   For other graphs, the incoming edges are tabulated when the algorithm is
+   constructed, and the graph should not be modified while it is used.
+   </p>
+   @see BiDijkstraNative
+*/
+public class BiDijkstra<T> extends BiDijkstraBase
+{
+    protected EdgeSource<T> weights;
+    protected NumAdaptor<T> adaptor;
+
+    private Object[] fDist;
+    private Object[] bDist;
+    private Cell<Node>[] fCells;
+    private Cell<Node>[] bCells;
+    private BinaryPQ<Node> fQueue;
+    private BinaryPQ<Node> bQueue;
+    // the nodes queued by either search of the last run
+    private int[] reached;
+    private int nReached;
+    private T dist;
+
+    /**
+       Construct a bidirectional Dijkstra algorithm.
+       @param g the graph.
+       @param weights the edge weights.
+       @param adaptor an adaptor defining addition and comparison for the
+       type <tt>T</tt>.
+     */
+    public BiDijkstra(Graph g, EdgeSource<T> weights, NumAdaptor<T> adaptor)
+    {
+        super(g);
+        this.weights = weights;
+        this.adaptor = adaptor;
+    }
+
+    /**
+       Return the length of the path found by the last run.
+       @throws IllegalStateException if no path was found.
+     */
+    public T distance()
+    {
+        if (!found())
+            throw new IllegalStateException("no path");
+        return dist;
+    }
+
+    void allocate(int nasz)
+    {
+        fDist = new Object[nasz];
+        bDist = new Object[nasz];
+        fCells = cells(nasz);
+        bCells = cells(nasz);
+        reached = new int[2 * nasz];
+        nReached = 0;
+        fQueue = new BinaryPQ<Node>(new Cmp(fDist));
+        bQueue = new BinaryPQ<Node>(new Cmp(bDist));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Cell<Node>[] cells(int n)
+    {
+        return (Cell<Node>[]) new Cell<?>[n];
+    }
+
+    /*
+      Forget the nodes queued by the last run, in time proportional to
+      their number.
+     */
+    private void reset()
+    {
+        for (int i=0; i<nReached; ++i) {
+            int v = reached[i];
+            fCells[v] = null;
+            bCells[v] = null;
+            fDist[v] = null;
+            bDist[v] = null;
+        }
+        nReached = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    void search()
+    {
+        fQueue.clear();
+        bQueue.clear();
+        reset();
+        int s = source.nodeId();
+        int t = target.nodeId();
+        if (s == t) {
+            meet = s;
+            dist = adaptor.zero();
+            return;
+        }
+        fDist[s] = adaptor.zero();
+        fCells[s] = fQueue.insert(source);
+        bDist[t] = adaptor.zero();
+        bCells[t] = bQueue.insert(target);
+        reached[nReached++] = s;
+        reached[nReached++] = t;
+        T best = null;
+        while (!fQueue.isEmpty() && !bQueue.isEmpty()) {
+            if (best != null) {
+                T bound = adaptor.add((T) fDist[fQueue.min().nodeId()],
+                                      (T) bDist[bQueue.min().nodeId()]);
+                if (adaptor.compare(bound, best) >= 0)
+                    break;
+            }
+            settled++;
+            if (fQueue.size() <= bQueue.size()) {
+                Node u = fQueue.extractMin();
+                T du = (T) fDist[u.nodeId()];
+                for (Edge e = u.out(); e != null; e = e.next()) {
+                    if (filter != null && filter.filter(e))
+                        continue;
+                    int v = e.target().nodeId();
+                    T dv = adaptor.add(du, weights.get(e));
+                    Cell<Node> c = fCells[v];
+                    if (c == null) {
+                        fDist[v] = dv;
+                        fCells[v] = fQueue.insert(e.target());
+                        reached[nReached++] = v;
+                    } else if (c.isValid() && adaptor.compare(dv, (T) fDist[v]) < 0) {
+                        fDist[v] = dv;
+                        fQueue.requeue(c);
+                    } else {
+                        continue;
+                    }
+                    fParents[v] = e;
+                    if (bCells[v] != null) {
+                        T len = adaptor.add(dv, (T) bDist[v]);
+                        if (best == null || adaptor.compare(len, best) < 0) {
+                            best = len;
+                            meet = v;
+                        }
+                    }
+                }
+            } else {
+                Node u = bQueue.extractMin();
+                T du = (T) bDist[u.nodeId()];
+                for (Edge e = incoming.first(u); e != null; e = incoming.next(e)) {
+                    if (filter != null && filter.filter(e))
+                        continue;
+                    int v = e.source().nodeId();
+                    T dv = adaptor.add(du, weights.get(e));
+                    Cell<Node> c = bCells[v];
+                    if (c == null) {
+                        bDist[v] = dv;
+                        bCells[v] = bQueue.insert(e.source());
+                        reached[nReached++] = v;
+                    } else if (c.isValid() && adaptor.compare(dv, (T) bDist[v]) < 0) {
+                        bDist[v] = dv;
+                        bQueue.requeue(c);
+                    } else {
+                        continue;
+                    }
+                    bParents[v] = e;
+                    if (fCells[v] != null) {
+                        T len = adaptor.add(dv, (T) fDist[v]);
+                        if (best == null || adaptor.compare(len, best) < 0) {
+                            best = len;
+                            meet = v;
+                        }
+                    }
+                }
+            }
+        }
+        dist = best;
+    }
+
+    /*
+      Node comparator by one of the distance arrays.
+     */
+    private final class Cmp implements Comparator<Node>
+    {
+        private final Object[] dists;
+
+        Cmp(Object[] dists)
+        {
+            this.dists = dists;
+        }
+
+        @SuppressWarnings("unchecked")
+        public int compare(Node n1, Node n2)
+        {
+            return adaptor.compare((T) dists[n1.nodeId()], (T) dists[n2.nodeId()]);
+        }
+    }
+}
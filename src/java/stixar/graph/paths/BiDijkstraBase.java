@@ -0,0 +1,162 @@
+package stixar.graph.paths;
+
+import stixar.graph.Algorithm;
+import stixar.graph.Filtering;
+import stixar.graph.Node;
+import stixar.graph.Edge;
+import stixar.graph.Graph;
+import stixar.graph.GraphFilter;
+
+/**
+   Common state of the bidirectional Dijkstra algorithms.
+   <p>
+   A bidirectional search runs Dijkstra's algorithm forward from the source
+   on outgoing edges and backward from the target on incoming edges, always
+   advancing the side with fewer queued nodes.  Every edge relaxed which
+   joins the two searches gives a candidate path, and the search stops once
+   the sum of the least queued distances of both sides reaches the shortest
+   candidate, which is then a shortest path.  Only about two balls of half
+   the radius of a one way search are settled, typically several times
+   fewer nodes.
+   </p>
+ */
+abstract class BiDijkstraBase implements Algorithm, Filtering
+{
+    Graph graph;
+    GraphFilter filter;
+    Incoming incoming;
+    Node source;
+    Node target;
+    Edge[] fParents;
+    Edge[] bParents;
+    int meet;
+    int settled;
+
+    protected BiDijkstraBase(Graph graph)
+    {
+        this.graph = graph;
+        this.filter = graph.getFilter();
+        this.incoming = new Incoming(graph);
+        this.meet = -1;
+    }
+
+    /**
+       Return the current source node for this algorithm.
+    */
+    public Node source()
+    {
+        return source;
+    }
+
+    /**
+       Return the current target node for this algorithm.
+    */
+    public Node target()
+    {
+        return target;
+    }
+
+    /**
+       Set and return the current source node.
+       @return n
+    */
+    public Node source(Node n)
+    {
+        return source = n;
+    }
+
+    /**
+       Set and return the current target node.
+       @return n
+    */
+    public Node target(Node n)
+    {
+        return target = n;
+    }
+
+    /**
+       Compute a shortest path from the current source to the current
+       target.
+       @throws IllegalStateException if the source or target is not set.
+     */
+    public void run()
+    {
+        if (source == null || target == null)
+            throw new IllegalStateException("source or target not set");
+        int nasz = graph.nodeAttrSize();
+        if (fParents == null || fParents.length < nasz) {
+            fParents = new Edge[nasz];
+            bParents = new Edge[nasz];
+            allocate(nasz);
+        }
+        meet = -1;
+        settled = 0;
+        search();
+    }
+
+    /**
+       Compute a shortest path between two nodes.
+       @param s the source node.
+       @param t the target node.
+       @return a shortest path from <tt>s</tt> to <tt>t</tt>, or
+       <tt>null</tt> if <tt>t</tt> is not reachable from <tt>s</tt>.
+     */
+    public Path path(Node s, Node t)
+    {
+        source = s;
+        target = t;
+        run();
+        return path();
+    }
+
+    /**
+       Return the shortest path found by the last run, or <tt>null</tt>
+       if the target is not reachable from the source.
+     */
+    public Path path()
+    {
+        if (meet == -1)
+            return null;
+        Path p = new Path(graph.node(meet));
+        int sid = source.nodeId();
+        for (int v = meet; v != sid; ) {
+            Edge e = fParents[v];
+            p.prepend(e);
+            v = e.source().nodeId();
+        }
+        int tid = target.nodeId();
+        for (int v = meet; v != tid; ) {
+            Edge e = bParents[v];
+            p.append(e);
+            v = e.target().nodeId();
+        }
+        return p;
+    }
+
+    /**
+       Return whether the last run found a path.
+     */
+    public boolean found()
+    {
+        return meet != -1;
+    }
+
+    /**
+       Return the number of nodes settled by both searches in the
+       last run.
+     */
+    public int settled()
+    {
+        return settled;
+    }
+
+    /*
+      Allocate the distance arrays and queues for nasz nodes.
+     */
+    abstract void allocate(int nasz);
+
+    /*
+      Run the search, setting meet and settled.
+     */
+    abstract void search();
+}
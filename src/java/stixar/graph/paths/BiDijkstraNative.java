@@ -0,0 +1,263 @@
+package stixar.graph.paths;
+
+import stixar.graph.Node;
+import stixar.graph.Edge;
+import stixar.graph.Graph;
+
+import stixar.graph.attr.NativeMap;
+import stixar.graph.attr.NativeEdgeMap;
+import stixar.graph.attr.IntEdgeMap;
+import stixar.graph.attr.LongEdgeMap;
+import stixar.graph.attr.FloatEdgeMap;
+import stixar.graph.attr.DoubleEdgeMap;
+
+import stixar.util.IntDHeap;
+
+/**
+   Bidirectional Dijkstra shortest paths between two nodes of a natively
+   attributed graph with non negative edge weights.
+   <p>
+   Available native numeric types: <tt>int,long,float,double</tt>.
+   <tt>int</tt> weights are summed as <tt>long</tt>s and <tt>float</tt>
+   weights as <tt>double</tt>s.  Both searches queue nodes by identifier in
+   an {@link IntDHeap}.  An instance may be reused for many queries on the
+   same graph, by {@link #path(Node,Node)} or by setting the source and
+   target and calling {@link #run}.  Edge filters are respected.
+   </p><p>
+   The backward search follows the incoming edge lists of a
+   {@link stixar.graph.BasicDigraph} or {@link stixar.graph.ArrayDigraph}.
+   For other graphs, the incoming edges are tabulated when the algorithm is
+   constructed, and the graph should not be modified while it is used.
+   </p>
+*/
+public class BiDijkstraNative extends BiDijkstraBase
+{
+    protected NativeEdgeMap weights;
+    protected final boolean integral;
+
+    private IntDHeap fQueue;
+    private IntDHeap bQueue;
+    private long[] fLong;
+    private long[] bLong;
+    private double[] fDouble;
+    private double[] bDouble;
+    private long longDist;
+    private double doubleDist;
+
+    /**
+       Construct a bidirectional Dijkstra algorithm.
+       @param g the graph.
+       @param weights the edge weights.
+       @throws IllegalArgumentException if the native type of the weights
+       is not supported.
+     */
+    public BiDijkstraNative(Graph g, NativeEdgeMap weights)
+    {
+        super(g);
+        this.weights = weights;
+        switch (weights.type()) {
+        case Int: case Long:
+            integral = true;
+            break;
+        case Float: case Double:
+            integral = false;
+            break;
+        default:
+            throw new IllegalArgumentException("unsupported weight type " + weights.type());
+        }
+    }
+
+    /**
+       Return the length of the path found by the last run, for
+       <tt>int</tt> or <tt>long</tt> weights.
+       @throws IllegalStateException if no path was found.
+     */
+    public long longDistance()
+    {
+        if (!found())
+            throw new IllegalStateException("no path");
+        return integral ? longDist : (long) doubleDist;
+    }
+
+    /**
+       Return the length of the path found by the last run.
+       @throws IllegalStateException if no path was found.
+     */
+    public double doubleDistance()
+    {
+        if (!found())
+            throw new IllegalStateException("no path");
+        return integral ? (double) longDist : doubleDist;
+    }
+
+    void allocate(int nasz)
+    {
+        fQueue = new IntDHeap(nasz);
+        bQueue = new IntDHeap(nasz);
+        if (integral) {
+            fLong = new long[nasz];
+            bLong = new long[nasz];
+        } else {
+            fDouble = new double[nasz];
+            bDouble = new double[nasz];
+        }
+    }
+
+    void search()
+    {
+        fQueue.clear();
+        bQueue.clear();
+        if (integral)
+            searchLong();
+        else
+            searchDouble();
+    }
+
+    private long longWeight(Edge e)
+    {
+        if (weights.type() == NativeMap.Type.Int)
+            return ((IntEdgeMap) weights).get(e);
+        return ((LongEdgeMap) weights).get(e);
+    }
+
+    private double doubleWeight(Edge e)
+    {
+        if (weights.type() == NativeMap.Type.Float)
+            return ((FloatEdgeMap) weights).get(e);
+        return ((DoubleEdgeMap) weights).get(e);
+    }
+
+    private void searchLong()
+    {
+        int s = source.nodeId();
+        int t = target.nodeId();
+        if (s == t) {
+            meet = s;
+            longDist = 0;
+            return;
+        }
+        fLong[s] = 0;
+        fQueue.insert(s, 0);
+        bLong[t] = 0;
+        bQueue.insert(t, 0);
+        long best = Long.MAX_VALUE;
+        while (!fQueue.isEmpty() && !bQueue.isEmpty()) {
+            if (fQueue.minKey() + bQueue.minKey() >= best)
+                break;
+            settled++;
+            if (fQueue.size() <= bQueue.size()) {
+                int u = fQueue.extractMin();
+                long du = fLong[u];
+                for (Edge e = graph.node(u).out(); e != null; e = e.next()) {
+                    if (filter != null && filter.filter(e))
+                        continue;
+                    int v = e.target().nodeId();
+                    long dv = du + longWeight(e);
+                    if (!fQueue.queued(v)) {
+                        fQueue.insert(v, dv);
+                    } else if (dv < fLong[v] && fQueue.contains(v)) {
+                        fQueue.decreaseKey(v, dv);
+                    } else {
+                        continue;
+                    }
+                    fLong[v] = dv;
+                    fParents[v] = e;
+                    if (bQueue.queued(v) && dv + bLong[v] < best) {
+                        best = dv + bLong[v];
+                        meet = v;
+                    }
+                }
+            } else {
+                int u = bQueue.extractMin();
+                long du = bLong[u];
+                for (Edge e = incoming.first(graph.node(u)); e != null; e = incoming.next(e)) {
+                    if (filter != null && filter.filter(e))
+                        continue;
+                    int v = e.source().nodeId();
+                    long dv = du + longWeight(e);
+                    if (!bQueue.queued(v)) {
+                        bQueue.insert(v, dv);
+                    } else if (dv < bLong[v] && bQueue.contains(v)) {
+                        bQueue.decreaseKey(v, dv);
+                    } else {
+                        continue;
+                    }
+                    bLong[v] = dv;
+                    bParents[v] = e;
+                    if (fQueue.queued(v) && dv + fLong[v] < best) {
+                        best = dv + fLong[v];
+                        meet = v;
+                    }
+                }
+            }
+        }
+        longDist = best;
+    }
+
+    private void searchDouble()
+    {
+        int s = source.nodeId();
+        int t = target.nodeId();
+        if (s == t) {
+            meet = s;
+            doubleDist = 0;
+            return;
+        }
+        fDouble[s] = 0;
+        fQueue.insert(s, IntDHeap.doubleKey(0));
+        bDouble[t] = 0;
+        bQueue.insert(t, IntDHeap.doubleKey(0));
+        double best = Double.POSITIVE_INFINITY;
+        while (!fQueue.isEmpty() && !bQueue.isEmpty()) {
+            if (fDouble[fQueue.min()] + bDouble[bQueue.min()] >= best)
+                break;
+            settled++;
+            if (fQueue.size() <= bQueue.size()) {
+                int u = fQueue.extractMin();
+                double du = fDouble[u];
+                for (Edge e = graph.node(u).out(); e != null; e = e.next()) {
+                    if (filter != null && filter.filter(e))
+                        continue;
+                    int v = e.target().nodeId();
+                    double dv = du + doubleWeight(e);
+                    if (!fQueue.queued(v)) {
+                        fQueue.insert(v, IntDHeap.doubleKey(dv));
+                    } else if (dv < fDouble[v] && fQueue.contains(v)) {
+                        fQueue.decreaseKey(v, IntDHeap.doubleKey(dv));
+                    } else {
+                        continue;
+                    }
+                    fDouble[v] = dv;
+                    fParents[v] = e;
+                    if (bQueue.queued(v) && dv + bDouble[v] < best) {
+                        best = dv + bDouble[v];
+                        meet = v;
+                    }
+                }
+            } else {
+                int u = bQueue.extractMin();
+                double du = bDouble[u];
+                for (Edge e = incoming.first(graph.node(u)); e != null; e = incoming.next(e)) {
+                    if (filter != null && filter.filter(e))
+                        continue;
+                    int v = e.source().nodeId();
+                    double dv = du + doubleWeight(e);
+                    if (!bQueue.queued(v)) {
+                        bQueue.insert(v, IntDHeap.doubleKey(dv));
+                    } else if (dv < bDouble[v] && bQueue.contains(v)) {
+                        bQueue.decreaseKey(v, IntDHeap.doubleKey(dv));
+                    } else {
+                        continue;
+                    }
+                    bDouble[v] = dv;
+                    bParents[v] = e;
+                    if (fQueue.queued(v) && dv + fDouble[v] < best) {
+                        best = dv + fDouble[v];
+                        meet = v;
+                    }
+                }
+            }
+        }
+        doubleDist = best;
+    }
+}
@@ -0,0 +1,182 @@
+package stixar.graph.paths;
+
+import stixar.graph.Node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+  The bucket algorithm for many to many distances on a contraction
+  hierarchy, for DistanceTable.compute.
+
+  In the backward phase, workers claim targets and search from each over
+  the downward arcs, into nodes of lower rank, recording an entry
+  (column, distance) for every node settled, in lists of their own.  The
+  entries are then gathered into buckets, one run of an array per node.
+  In the forward phase, workers claim sources and search from each over
+  the upward arcs, and the distance to a target is the least sum over
+  the nodes settled of the distance to the node and the distance of the
+  entries of the target in the node's bucket.  Neither search stops
+  early; the upward search spaces of a hierarchy are small.  The arcs of
+  each direction are wrapped in a ForwardStar, without copying.
+ */
+final class CHBuckets
+{
+    static final int Chunk = 16;
+
+    private final int n;
+    private final ForwardStar up;
+    private final ForwardStar down;
+    private final int[] srcIds;
+    private final int[] tgtIds;
+    private final DistanceTable table;
+
+    // entries of the backward phase, one list per worker
+    private final List<Entries> lists;
+    private final AtomicInteger nextTarget;
+    private final AtomicInteger nextSource;
+
+    // the buckets, entries of node v at bucketOff[v] .. bucketOff[v+1]-1
+    private int[] bucketOff;
+    private int[] bucketCol;
+    private double[] bucketDist;
+
+    CHBuckets(ContractionHierarchy ch, Node[] sources, Node[] targets)
+    {
+        this.n = ch.nodes;
+        this.up = new ForwardStar(ch.upOff, ch.upHead, null, ch.upWeight, null);
+        this.down = new ForwardStar(ch.downOff, ch.downTail, null, ch.downWeight, null);
+        srcIds = new int[sources.length];
+        for (int i=0; i<sources.length; ++i)
+            srcIds[i] = sources[i].nodeId();
+        tgtIds = new int[targets.length];
+        for (int j=0; j<targets.length; ++j)
+            tgtIds[j] = targets[j].nodeId();
+        table = new DistanceTable(sources, targets, false, false);
+        lists = new ArrayList<Entries>();
+        nextTarget = new AtomicInteger();
+        nextSource = new AtomicInteger();
+    }
+
+    DistanceTable table()
+    {
+        return table;
+    }
+
+    Workers.Task backward()
+    {
+        return new Workers.Task() {
+                public void work(int worker)
+                {
+                    Entries es = new Entries();
+                    StarSearch s = new StarSearch(n, false, false, true);
+                    int cols = tgtIds.length;
+                    for (int j = nextTarget.getAndAdd(Chunk); j < cols;
+                         j = nextTarget.getAndAdd(Chunk)) {
+                        int end = Math.min(j + Chunk, cols);
+                        for (int c=j; c<end; ++c) {
+                            s.reset();
+                            s.run(down, tgtIds[c]);
+                            for (int i=0; i<s.nSettled; ++i) {
+                                int v = s.settled[i];
+                                es.add(v, c, s.ddist[v]);
+                            }
+                        }
+                    }
+                    add(es);
+                }
+            };
+    }
+
+    private synchronized void add(Entries es)
+    {
+        if (es.size > 0)
+            lists.add(es);
+    }
+
+    /*
+      Gather the entries of the backward phase into buckets.
+     */
+    synchronized void fill()
+    {
+        bucketOff = new int[n + 1];
+        int total = 0;
+        for (Entries es : lists) {
+            for (int i=0; i<es.size; ++i)
+                bucketOff[es.node[i] + 1]++;
+            total += es.size;
+        }
+        for (int v=0; v<n; ++v)
+            bucketOff[v + 1] += bucketOff[v];
+        bucketCol = new int[total];
+        bucketDist = new double[total];
+        int[] at = Arrays.copyOf(bucketOff, n);
+        for (Entries es : lists) {
+            for (int i=0; i<es.size; ++i) {
+                int k = at[es.node[i]]++;
+                bucketCol[k] = es.col[i];
+                bucketDist[k] = es.dist[i];
+            }
+        }
+        lists.clear();
+    }
+
+    Workers.Task forward()
+    {
+        return new Workers.Task() {
+                public void work(int worker)
+                {
+                    StarSearch s = new StarSearch(n, false, false, true);
+                    double[] d = table.doubles();
+                    int cols = tgtIds.length;
+                    int rows = srcIds.length;
+                    for (int i = nextSource.getAndAdd(Chunk); i < rows;
+                         i = nextSource.getAndAdd(Chunk)) {
+                        int end = Math.min(i + Chunk, rows);
+                        for (int r=i; r<end; ++r) {
+                            int base = r * cols;
+                            Arrays.fill(d, base, base + cols, Double.POSITIVE_INFINITY);
+                            s.reset();
+                            s.run(up, srcIds[r]);
+                            for (int k=0; k<s.nSettled; ++k) {
+                                int u = s.settled[k];
+                                double du = s.ddist[u];
+                                for (int b=bucketOff[u], bend=bucketOff[u + 1]; b<bend; ++b) {
+                                    double x = du + bucketDist[b];
+                                    int c = base + bucketCol[b];
+                                    if (x < d[c])
+                                        d[c] = x;
+                                }
+                            }
+                        }
+                    }
+                }
+            };
+    }
+
+    /*
+      Growable parallel arrays of bucket entries.
+     */
+    private static final class Entries
+    {
+        int[] node = new int[64];
+        int[] col = new int[64];
+        double[] dist = new double[64];
+        int size;
+
+        void add(int v, int c, double d)
+        {
+            if (size == node.length) {
+                node = Arrays.copyOf(node, 2 * size);
+                col = Arrays.copyOf(col, 2 * size);
+                dist = Arrays.copyOf(dist, 2 * size);
+            }
+            node[size] = v;
+            col[size] = c;
+            dist[size] = d;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,573 @@
+package stixar.graph.paths;
+
+import stixar.graph.Edge;
+import stixar.graph.Graph;
+import stixar.graph.Node;
+
+import stixar.graph.attr.NativeEdgeMap;
+
+import stixar.util.IntDHeap;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+  Preprocessing of a ContractionHierarchy.
+
+  The remaining graph is kept as per node lists of live in and out arc
+  indices into growable arc arrays.  Each round selects the remaining
+  nodes whose priority (id breaking ties) is less than that of all their
+  remaining neighbours.  No two of these are adjacent, so their shortcuts
+  can be found in parallel against the same remaining graph; the shortcuts
+  are then applied sequentially, and the priorities of the neighbours of
+  the contracted nodes are recomputed in parallel.  Each worker thread
+  owns a Witness workspace.
+
+  A shortcut u,w for a contracted node v is needed unless a witness
+  search from u in the remaining graph without v reaches w no later than
+  through v.  Witness searches of a round avoid all the nodes of the
+  round, so that a round amounts to contracting its nodes one at a time
+  with stricter witnesses.  Witness searches are also bounded by distance
+  and by the number of nodes settled, so that an unnecessary shortcut is
+  sometimes added, which costs query time but not correctness.
+ */
+final class CHBuilder
+{
+    static final int SettleLimit = 500;
+    static final int EstimateLimit = 20;
+
+    private final Graph graph;
+    private final int nodes;
+    private final int threads;
+
+    private int arcs;
+    private int[] tail;
+    private int[] head;
+    private double[] weight;
+    private int[] first;
+    private int[] second;
+
+    private final int[][] outArcs;
+    private final int[] outSize;
+    private final int[][] inArcs;
+    private final int[] inSize;
+
+    private final int[] rank;
+    private final int[] priority;
+    private final int[] deleted;
+    private final boolean[] contracting;
+
+    private Witness[] workers;
+
+    CHBuilder(Graph graph, NativeEdgeMap weights, int threads)
+    {
+        Weights.check(weights);
+        this.graph = graph;
+        this.nodes = graph.nodeAttrSize();
+        this.threads = threads;
+        int m = graph.edgeAttrSize();
+        tail = new int[Math.max(m, 16)];
+        head = new int[tail.length];
+        weight = new double[tail.length];
+        first = new int[tail.length];
+        second = new int[tail.length];
+        outArcs = new int[nodes][];
+        outSize = new int[nodes];
+        inArcs = new int[nodes][];
+        inSize = new int[nodes];
+        rank = new int[nodes];
+        priority = new int[nodes];
+        deleted = new int[nodes];
+        contracting = new boolean[nodes];
+        for (int i=0; i<nodes; ++i) {
+            outArcs[i] = new int[4];
+            inArcs[i] = new int[4];
+            rank[i] = -1;
+        }
+        for (int i=0; i<nodes; ++i) {
+            Node u = graph.node(i);
+            if (u == null) continue;
+            for (Edge e = u.out(); e != null; e = e.next()) {
+                double w = Weights.get(weights, e);
+                if (!(w >= 0))
+                    throw new IllegalArgumentException("negative weight on edge " + e);
+                int h = e.target().nodeId();
+                int a = addArc(i, h, w, e.edgeId(), -1);
+                if (i == h)
+                    continue;
+                int b = arc(i, h);
+                if (b == -1)
+                    link(a);
+                else if (w < weight[b])
+                    replace(b, a);
+            }
+        }
+    }
+
+    ContractionHierarchy build()
+    {
+        int originals = arcs;
+        ExecutorService pool = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        try {
+            workers = new Witness[threads];
+            for (int i=0; i<threads; ++i)
+                workers[i] = new Witness();
+            int[] live = new int[nodes];
+            int nLive = 0;
+            for (int i=0; i<nodes; ++i) {
+                if (graph.node(i) != null)
+                    live[nLive++] = i;
+            }
+            parallel(pool, new Prioritize(live, nLive));
+            int[] round = new int[nodes];
+            int[] touched = new int[nodes];
+            int[] seen = new int[nodes];
+            int next = 0;
+            while (nLive > 0) {
+                int nRound = 0;
+                int kept = 0;
+                for (int i=0; i<nLive; ++i) {
+                    int v = live[i];
+                    if (independent(v))
+                        round[nRound++] = v;
+                    else
+                        live[kept++] = v;
+                }
+                nLive = kept;
+                for (int i=0; i<nRound; ++i)
+                    contracting[round[i]] = true;
+                Contract contract = new Contract(round, nRound);
+                parallel(pool, contract);
+                int nTouched = 0;
+                for (int i=0; i<nRound; ++i) {
+                    int v = round[i];
+                    rank[v] = next++;
+                    contract.apply(i);
+                    for (int k=0; k<outSize[v]; ++k)
+                        nTouched = touch(head[outArcs[v][k]], next, seen, touched, nTouched);
+                    for (int k=0; k<inSize[v]; ++k)
+                        nTouched = touch(tail[inArcs[v][k]], next, seen, touched, nTouched);
+                    remove(v);
+                    contracting[v] = false;
+                }
+                for (int i=0; i<nTouched; ++i)
+                    seen[touched[i]] = -seen[touched[i]];
+                parallel(pool, new Prioritize(touched, nTouched));
+            }
+        } finally {
+            if (pool != null)
+                pool.shutdown();
+        }
+        try {
+            return new ContractionHierarchy(graph, originals, arcs, trim(tail), trim(head),
+                                            trim(weight), trim(first), trim(second), rank);
+        } catch (IOException e) {
+            throw new IllegalStateException("graph modified during contraction");
+        }
+    }
+
+    /*
+      Count a contracted neighbour of w, the stamp-th node contracted,
+      adding w to the touched nodes of the round once.  seen[w] is stamp
+      once counted, and positive while w is touched in this round.
+     */
+    private int touch(int w, int stamp, int[] seen, int[] touched, int nTouched)
+    {
+        int s = seen[w];
+        if (s == stamp)
+            return nTouched;
+        deleted[w]++;
+        seen[w] = stamp;
+        if (s <= 0)
+            touched[nTouched++] = w;
+        return nTouched;
+    }
+
+    /*
+      Whether v has a smaller priority than all its remaining neighbours.
+     */
+    private boolean independent(int v)
+    {
+        int p = priority[v];
+        for (int k=0; k<outSize[v]; ++k) {
+            int w = head[outArcs[v][k]];
+            if (priority[w] < p || (priority[w] == p && w < v))
+                return false;
+        }
+        for (int k=0; k<inSize[v]; ++k) {
+            int w = tail[inArcs[v][k]];
+            if (priority[w] < p || (priority[w] == p && w < v))
+                return false;
+        }
+        return true;
+    }
+
+    /*
+      Run a task over a range of indices on all workers.
+     */
+    private void parallel(ExecutorService pool, final Task task)
+    {
+        final AtomicInteger counter = new AtomicInteger();
+        Workers.run(pool, threads, new Workers.Task() {
+                public void work(int t)
+                {
+                    Witness worker = workers[t];
+                    for (int i = counter.getAndAdd(16); i < task.size(); i = counter.getAndAdd(16)) {
+                        int end = Math.min(i + 16, task.size());
+                        for (int j=i; j<end; ++j)
+                            task.run(worker, j);
+                    }
+                }
+            }, "contraction");
+    }
+
+    private interface Task
+    {
+        int size();
+
+        void run(Witness worker, int i);
+    }
+
+    /*
+      Recompute the priorities of a set of nodes.
+     */
+    private final class Prioritize implements Task
+    {
+        private final int[] set;
+        private final int size;
+
+        Prioritize(int[] set, int size)
+        {
+            this.set = set;
+            this.size = size;
+        }
+
+        public int size()
+        {
+            return size;
+        }
+
+        public void run(Witness worker, int i)
+        {
+            int v = set[i];
+            int added = worker.shortcuts(v, false);
+            priority[v] = added - outSize[v] - inSize[v] + deleted[v];
+        }
+    }
+
+    /*
+      Find the shortcuts of a round of independent nodes, recording for
+      each node the worker and the range of its shortcuts.
+     */
+    private final class Contract implements Task
+    {
+        private final int[] set;
+        private final int size;
+        private final Witness[] owner;
+        private final int[] start;
+        private final int[] count;
+
+        Contract(int[] set, int size)
+        {
+            this.set = set;
+            this.size = size;
+            this.owner = new Witness[size];
+            this.start = new int[size];
+            this.count = new int[size];
+            for (Witness w : workers)
+                w.found = 0;
+        }
+
+        public int size()
+        {
+            return size;
+        }
+
+        public void run(Witness worker, int i)
+        {
+            owner[i] = worker;
+            start[i] = worker.found;
+            count[i] = worker.shortcuts(set[i], true);
+        }
+
+        void apply(int i)
+        {
+            Witness w = owner[i];
+            for (int k = start[i], end = start[i] + count[i]; k < end; ++k) {
+                int in = w.found1[k];
+                int out = w.found2[k];
+                int t = tail[in];
+                int h = head[out];
+                double d = weight[in] + weight[out];
+                int b = arc(t, h);
+                if (b != -1 && weight[b] <= d)
+                    continue;
+                int a = addArc(t, h, d, in, out);
+                if (b == -1)
+                    link(a);
+                else
+                    replace(b, a);
+            }
+        }
+    }
+
+    /*
+      Per thread workspace of the witness searches.
+     */
+    private final class Witness
+    {
+        private final double[] dist;
+        private final int[] visited;
+        private int nVisited;
+        private final IntDHeap heap;
+        private final int[] mark;
+        private int stamp;
+
+        int[] found1;
+        int[] found2;
+        int found;
+
+        Witness()
+        {
+            dist = new double[nodes];
+            Arrays.fill(dist, Double.POSITIVE_INFINITY);
+            visited = new int[nodes];
+            heap = new IntDHeap(nodes);
+            mark = new int[nodes];
+            found1 = new int[64];
+            found2 = new int[64];
+        }
+
+        /*
+          Count, and if record is set record, the shortcuts needed to
+          contract v.
+         */
+        int shortcuts(int v, boolean record)
+        {
+            int[] ins = inArcs[v];
+            int[] outs = outArcs[v];
+            int nIn = inSize[v];
+            int nOut = outSize[v];
+            if (nIn == 0 || nOut == 0)
+                return 0;
+            double maxOut = 0;
+            int targets = 0;
+            stamp++;
+            for (int k=0; k<nOut; ++k) {
+                int out = outs[k];
+                maxOut = Math.max(maxOut, weight[out]);
+                if (mark[head[out]] != stamp) {
+                    mark[head[out]] = stamp;
+                    targets++;
+                }
+            }
+            int limit = record ? SettleLimit : EstimateLimit;
+            int added = 0;
+            for (int i=0; i<nIn; ++i) {
+                int in = ins[i];
+                int u = tail[in];
+                int need = mark[u] == stamp ? targets - 1 : targets;
+                if (need == 0)
+                    continue;
+                search(u, v, weight[in] + maxOut, need, limit);
+                for (int k=0; k<nOut; ++k) {
+                    int out = outs[k];
+                    int w = head[out];
+                    if (w == u)
+                        continue;
+                    if (dist[w] <= weight[in] + weight[out])
+                        continue;
+                    added++;
+                    if (record)
+                        add(in, out);
+                }
+                reset();
+            }
+            return added;
+        }
+
+        private void add(int in, int out)
+        {
+            if (found == found1.length) {
+                int[] f1 = new int[2 * found];
+                int[] f2 = new int[2 * found];
+                System.arraycopy(found1, 0, f1, 0, found);
+                System.arraycopy(found2, 0, f2, 0, found);
+                found1 = f1;
+                found2 = f2;
+            }
+            found1[found] = in;
+            found2[found] = out;
+            found++;
+        }
+
+        /*
+          Dijkstra from u in the remaining graph without v, up to distance
+          max, until the targets, the nodes marked with stamp, are settled,
+          or up to limit settled nodes.
+         */
+        private void search(int u, int v, double max, int targets, int limit)
+        {
+            dist[u] = 0;
+            visited[nVisited++] = u;
+            heap.insert(u, IntDHeap.doubleKey(0));
+            int settled = 0;
+            while (!heap.isEmpty()) {
+                int x = heap.extractMin();
+                double dx = dist[x];
+                if (dx > max || ++settled > limit)
+                    break;
+                if (mark[x] == stamp && x != u && --targets == 0)
+                    break;
+                int[] outs = outArcs[x];
+                for (int k = 0, n = outSize[x]; k < n; ++k) {
+                    int a = outs[k];
+                    int y = head[a];
+                    if (y == v || contracting[y])
+                        continue;
+                    double dy = dx + weight[a];
+                    if (dy > max || dy >= dist[y])
+                        continue;
+                    if (dist[y] == Double.POSITIVE_INFINITY) {
+                        visited[nVisited++] = y;
+                        heap.insert(y, IntDHeap.doubleKey(dy));
+                    } else {
+                        heap.decreaseKey(y, IntDHeap.doubleKey(dy));
+                    }
+                    dist[y] = dy;
+                }
+            }
+            while (!heap.isEmpty())
+                heap.extractMin();
+        }
+
+        private void reset()
+        {
+            for (int i=0; i<nVisited; ++i)
+                dist[visited[i]] = Double.POSITIVE_INFINITY;
+            nVisited = 0;
+        }
+    }
+
+    private int addArc(int t, int h, double w, int a, int b)
+    {
+        if (arcs == tail.length) {
+            int cap = 2 * arcs;
+            tail = grow(tail, cap);
+            head = grow(head, cap);
+            first = grow(first, cap);
+            second = grow(second, cap);
+            double[] wt = new double[cap];
+            System.arraycopy(weight, 0, wt, 0, arcs);
+            weight = wt;
+        }
+        tail[arcs] = t;
+        head[arcs] = h;
+        weight[arcs] = w;
+        first[arcs] = a;
+        second[arcs] = b;
+        return arcs++;
+    }
+
+    /*
+      The arc from t to h in the remaining graph, or -1.  The remaining
+      graph has no parallel arcs.
+     */
+    private int arc(int t, int h)
+    {
+        int[] outs = outArcs[t];
+        for (int k=0; k<outSize[t]; ++k) {
+            if (head[outs[k]] == h)
+                return outs[k];
+        }
+        return -1;
+    }
+
+    /*
+      Replace arc b by the parallel arc a in the remaining graph.
+     */
+    private void replace(int b, int a)
+    {
+        int[] outs = outArcs[tail[b]];
+        for (int k=0; k<outSize[tail[b]]; ++k) {
+            if (outs[k] == b)
+                outs[k] = a;
+        }
+        int[] ins = inArcs[head[b]];
+        for (int k=0; k<inSize[head[b]]; ++k) {
+            if (ins[k] == b)
+                ins[k] = a;
+        }
+    }
+
+    /*
+      Add arc a to the lists of the remaining graph.
+     */
+    private void link(int a)
+    {
+        int t = tail[a];
+        int h = head[a];
+        if (outSize[t] == outArcs[t].length)
+            outArcs[t] = grow(outArcs[t], 2 * outSize[t]);
+        outArcs[t][outSize[t]++] = a;
+        if (inSize[h] == inArcs[h].length)
+            inArcs[h] = grow(inArcs[h], 2 * inSize[h]);
+        inArcs[h][inSize[h]++] = a;
+    }
+
+    /*
+      Remove a contracted node from the remaining graph.
+     */
+    private void remove(int v)
+    {
+        for (int k=0; k<outSize[v]; ++k) {
+            int a = outArcs[v][k];
+            unlink(inArcs, inSize, head[a], a);
+        }
+        for (int k=0; k<inSize[v]; ++k) {
+            int a = inArcs[v][k];
+            unlink(outArcs, outSize, tail[a], a);
+        }
+        outArcs[v] = null;
+        inArcs[v] = null;
+        outSize[v] = 0;
+        inSize[v] = 0;
+    }
+
+    private static void unlink(int[][] lists, int[] sizes, int w, int a)
+    {
+        int[] list = lists[w];
+        int n = sizes[w];
+        for (int i=0; i<n; ++i) {
+            if (list[i] == a) {
+                System.arraycopy(list, i + 1, list, i, n - i - 1);
+                sizes[w] = n - 1;
+                return;
+            }
+        }
+    }
+
+    private static int[] grow(int[] a, int cap)
+    {
+        int[] b = new int[Math.max(cap, 4)];
+        System.arraycopy(a, 0, b, 0, Math.min(a.length, b.length));
+        return b;
+    }
+
+    private int[] trim(int[] a)
+    {
+        int[] b = new int[arcs];
+        System.arraycopy(a, 0, b, 0, arcs);
+        return b;
+    }
+
+    private double[] trim(double[] a)
+    {
+        double[] b = new double[arcs];
+        System.arraycopy(a, 0, b, 0, arcs);
+        return b;
+    }
+}
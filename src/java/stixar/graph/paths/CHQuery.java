@@ -0,0 +1,260 @@
+package stixar.graph.paths;
+
+import stixar.graph.Node;
+
+import stixar.util.IntDHeap;
+
+import java.util.Arrays;
+
+/**
+   Shortest path queries on a {@link ContractionHierarchy}.
+   <p>
+   A query searches forward from the source over arcs to nodes of higher
+   rank and backward from the target over arcs from nodes of higher rank,
+   alternating between the two sides.  A side stops once its least queued
+   distance reaches the shortest path found joining the two searches.  A
+   node whose tentative distance is improved by an arc from a node of
+   higher rank already reached is stalled: it cannot be on a shortest
+   path, and its arcs are not relaxed.
+   </p><p>
+   A query settles few nodes, and only the nodes it reached are reset for
+   the next query, so that a query does not cost time in the size of the
+   graph.  A query engine is not thread safe; each thread should use its
+   own, from {@link ContractionHierarchy#query}.
+   </p>
+ */
+public class CHQuery
+{
+    private final ContractionHierarchy ch;
+    private final double[] fDist;
+    private final double[] bDist;
+    private final int[] fParent;
+    private final int[] bParent;
+    private final IntDHeap fQueue;
+    private final IntDHeap bQueue;
+    private final int[] reached;
+    private int nReached;
+    private int source;
+    private int target;
+    private int meet;
+    private double best;
+    private int settled;
+
+    CHQuery(ContractionHierarchy ch)
+    {
+        this.ch = ch;
+        int n = ch.nodes;
+        fDist = new double[n];
+        bDist = new double[n];
+        Arrays.fill(fDist, Double.POSITIVE_INFINITY);
+        Arrays.fill(bDist, Double.POSITIVE_INFINITY);
+        fParent = new int[n];
+        bParent = new int[n];
+        fQueue = new IntDHeap(n);
+        bQueue = new IntDHeap(n);
+        reached = new int[n];
+        meet = -1;
+    }
+
+    /**
+       Return the hierarchy of this query engine.
+     */
+    public ContractionHierarchy hierarchy()
+    {
+        return ch;
+    }
+
+    /**
+       Compute the shortest path distance between two nodes.
+       @return the distance from <tt>s</tt> to <tt>t</tt>, or
+       <tt>Double.POSITIVE_INFINITY</tt> if <tt>t</tt> is not reachable
+       from <tt>s</tt>.
+     */
+    public double distance(Node s, Node t)
+    {
+        search(s.nodeId(), t.nodeId());
+        return best;
+    }
+
+    /**
+       Compute a shortest path between two nodes, as edges of the graph.
+       @return a shortest path from <tt>s</tt> to <tt>t</tt>, or
+       <tt>null</tt> if <tt>t</tt> is not reachable from <tt>s</tt>.
+     */
+    public Path path(Node s, Node t)
+    {
+        search(s.nodeId(), t.nodeId());
+        if (meet == -1)
+            return null;
+        Path p = new Path(s);
+        int[] arcs = new int[16];
+        int n = 0;
+        for (int v = meet; v != source; v = ch.tail[fParent[v]]) {
+            if (n == arcs.length)
+                arcs = grow(arcs);
+            arcs[n++] = fParent[v];
+        }
+        for (int i = n - 1; i >= 0; --i)
+            unpack(p, arcs[i]);
+        for (int v = meet; v != target; v = ch.head[bParent[v]])
+            unpack(p, bParent[v]);
+        return p;
+    }
+
+    /**
+       Return the number of nodes settled by both searches of the last
+       query.
+     */
+    public int settled()
+    {
+        return settled;
+    }
+
+    /*
+      Append the original edges of an arc to a path.
+     */
+    private void unpack(Path p, int arc)
+    {
+        int[] stack = new int[16];
+        int n = 0;
+        stack[n++] = arc;
+        while (n > 0) {
+            int a = stack[--n];
+            if (a < ch.originals) {
+                p.append(ch.edges[a]);
+            } else {
+                if (n + 2 > stack.length)
+                    stack = grow(stack);
+                stack[n++] = ch.second[a];
+                stack[n++] = ch.first[a];
+            }
+        }
+    }
+
+    private static int[] grow(int[] a)
+    {
+        int[] b = new int[2 * a.length];
+        System.arraycopy(a, 0, b, 0, a.length);
+        return b;
+    }
+
+    private void reach(int v)
+    {
+        if (fDist[v] == Double.POSITIVE_INFINITY && bDist[v] == Double.POSITIVE_INFINITY)
+            reached[nReached++] = v;
+    }
+
+    private void search(int s, int t)
+    {
+        for (int i=0; i<nReached; ++i) {
+            int v = reached[i];
+            fDist[v] = Double.POSITIVE_INFINITY;
+            bDist[v] = Double.POSITIVE_INFINITY;
+        }
+        nReached = 0;
+        source = s;
+        target = t;
+        settled = 0;
+        if (s == t) {
+            meet = s;
+            best = 0;
+            return;
+        }
+        meet = -1;
+        best = Double.POSITIVE_INFINITY;
+        reach(s);
+        fDist[s] = 0;
+        fQueue.insert(s, IntDHeap.doubleKey(0));
+        reach(t);
+        bDist[t] = 0;
+        bQueue.insert(t, IntDHeap.doubleKey(0));
+
+        final int[] upOff = ch.upOff;
+        final int[] upHead = ch.upHead;
+        final double[] upWeight = ch.upWeight;
+        final int[] upArc = ch.upArc;
+        final int[] downOff = ch.downOff;
+        final int[] downTail = ch.downTail;
+        final double[] downWeight = ch.downWeight;
+        final int[] downArc = ch.downArc;
+        boolean forward = true;
+        while (true) {
+            boolean fDone = fQueue.isEmpty() || fDist[fQueue.min()] >= best;
+            boolean bDone = bQueue.isEmpty() || bDist[bQueue.min()] >= best;
+            if (fDone && bDone)
+                break;
+            if (fDone)
+                forward = false;
+            else if (bDone)
+                forward = true;
+            if (forward) {
+                int u = fQueue.extractMin();
+                double du = fDist[u];
+                settled++;
+                if (du + bDist[u] < best) {
+                    best = du + bDist[u];
+                    meet = u;
+                }
+                if (!stalled(u, du, fDist, downOff, downTail, downWeight)) {
+                    for (int k = upOff[u], end = upOff[u + 1]; k < end; ++k) {
+                        int v = upHead[k];
+                        double dv = du + upWeight[k];
+                        if (dv >= fDist[v])
+                            continue;
+                        if (fDist[v] == Double.POSITIVE_INFINITY) {
+                            reach(v);
+                            fQueue.insert(v, IntDHeap.doubleKey(dv));
+                        } else {
+                            fQueue.decreaseKey(v, IntDHeap.doubleKey(dv));
+                        }
+                        fDist[v] = dv;
+                        fParent[v] = upArc[k];
+                    }
+                }
+            } else {
+                int u = bQueue.extractMin();
+                double du = bDist[u];
+                settled++;
+                if (du + fDist[u] < best) {
+                    best = du + fDist[u];
+                    meet = u;
+                }
+                if (!stalled(u, du, bDist, upOff, upHead, upWeight)) {
+                    for (int k = downOff[u], end = downOff[u + 1]; k < end; ++k) {
+                        int v = downTail[k];
+                        double dv = du + downWeight[k];
+                        if (dv >= bDist[v])
+                            continue;
+                        if (bDist[v] == Double.POSITIVE_INFINITY) {
+                            reach(v);
+                            bQueue.insert(v, IntDHeap.doubleKey(dv));
+                        } else {
+                            bQueue.decreaseKey(v, IntDHeap.doubleKey(dv));
+                        }
+                        bDist[v] = dv;
+                        bParent[v] = downArc[k];
+                    }
+                }
+            }
+            forward = !forward;
+        }
+        while (!fQueue.isEmpty())
+            fQueue.extractMin();
+        while (!bQueue.isEmpty())
+            bQueue.extractMin();
+    }
+
+    /*
+      Whether a node settled at distance du is reached more cheaply over
+      an arc of the opposite direction from a node of higher rank.
+     */
+    private static boolean stalled(int u, double du, double[] dist,
+                                   int[] off, int[] ends, double[] weights)
+    {
+        for (int k = off[u], end = off[u + 1]; k < end; ++k) {
+            if (dist[ends[k]] + weights[k] < du)
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,321 @@
+package stixar.graph.paths;
+
+import stixar.graph.Edge;
+import stixar.graph.Graph;
+import stixar.graph.Node;
+
+import stixar.graph.attr.NativeEdgeMap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+   A contraction hierarchy of a graph, for fast shortest path queries.
+   <p>
+   Preprocessing ranks the nodes and contracts them in order of rank:
+   contracting a node removes it from the remaining graph, adding a
+   <em>shortcut</em> arc <tt>(u,w)</tt> for each path <tt>u,v,w</tt> through
+   the node <tt>v</tt> which is the only shortest path from <tt>u</tt> to
+   <tt>w</tt> in the remaining graph.  Nodes are ordered by their edge
+   difference, the number of shortcuts their contraction adds less the
+   number of arcs it removes, plus the number of their neighbours already
+   contracted.  Rounds of nodes whose priority is least among their
+   neighbours, which are thus independent, are contracted in parallel; the
+   hierarchy built does not depend on the number of threads.
+   </p><p>
+   Every shortest path then has a shortest path of the same length which
+   climbs in rank over original arcs and shortcuts and then descends, so a
+   query is a bidirectional search over the upward arcs from the source
+   and the downward arcs into the target, both of which are small; see
+   {@link CHQuery}.  Shortcuts record the two arcs they replace, and query
+   paths are unpacked into edges of the graph.
+   </p><p>
+   Weights of types <tt>int,long,float</tt> and <tt>double</tt> are
+   accepted, and summed as <tt>double</tt>s, which is exact for integral
+   path lengths below 2<sup>53</sup>.  Weights must not be negative, and
+   filters are ignored.  A hierarchy stays valid as long as the graph and
+   the weights are not modified.
+   </p><p>
+   A hierarchy may be written and read back with the graph it was built
+   for.  The format, in the big endian order of <tt>DataOutputStream</tt>,
+   is
+   </p>
+   <pre>
+   int    magic 'STCH'
+   int    version
+   int    nodeAttrSize, number of original arcs, number of arcs
+   int[nodeAttrSize]   node ranks, -1 for missing nodes
+   arcs: int tail, int head, double weight, int first, int second
+   </pre>
+   <p>
+   The original arcs come first, in the order of the out edges of the
+   nodes by identifier, with <tt>first</tt> the edge identifier and
+   <tt>second</tt> -1; shortcuts give the arc indices they replace.
+   </p>
+ */
+public final class ContractionHierarchy
+{
+    /**
+       The magic number of a written hierarchy, <tt>'STCH'</tt>.
+     */
+    public static final int Magic = 0x53544348;
+
+    /**
+       The version of the format written.
+     */
+    public static final int Version = 1;
+
+    final Graph graph;
+    final int nodes;
+    final int originals;
+    final int arcs;
+    final int[] tail;
+    final int[] head;
+    final double[] weight;
+    final int[] first;
+    final int[] second;
+    final int[] rank;
+    final Edge[] edges;
+
+    final int[] upOff;
+    final int[] upHead;
+    final double[] upWeight;
+    final int[] upArc;
+    final int[] downOff;
+    final int[] downTail;
+    final double[] downWeight;
+    final int[] downArc;
+
+    ContractionHierarchy(Graph graph, int originals, int arcs, int[] tail, int[] head,
+                         double[] weight, int[] first, int[] second, int[] rank)
+        throws IOException
+    {
+        this.graph = graph;
+        this.nodes = graph.nodeAttrSize();
+        this.originals = originals;
+        this.arcs = arcs;
+        this.tail = tail;
+        this.head = head;
+        this.weight = weight;
+        this.first = first;
+        this.second = second;
+        this.rank = rank;
+        this.edges = new Edge[originals];
+        int a = 0;
+        for (int i=0; i<nodes; ++i) {
+            Node u = graph.node(i);
+            if (u == null) continue;
+            for (Edge e = u.out(); e != null; e = e.next()) {
+                if (a == originals || tail[a] != i || second[a] != -1
+                    || first[a] != e.edgeId() || head[a] != e.target().nodeId())
+                    throw new IOException("hierarchy does not match graph");
+                edges[a++] = e;
+            }
+        }
+        if (a != originals)
+            throw new IOException("hierarchy does not match graph");
+
+        upOff = new int[nodes + 1];
+        downOff = new int[nodes + 1];
+        for (int i=0; i<arcs; ++i) {
+            if (tail[i] == head[i]) continue;
+            if (rank[tail[i]] < rank[head[i]])
+                upOff[tail[i] + 1]++;
+            else
+                downOff[head[i] + 1]++;
+        }
+        for (int i=0; i<nodes; ++i) {
+            upOff[i + 1] += upOff[i];
+            downOff[i + 1] += downOff[i];
+        }
+        upHead = new int[upOff[nodes]];
+        upWeight = new double[upOff[nodes]];
+        upArc = new int[upOff[nodes]];
+        downTail = new int[downOff[nodes]];
+        downWeight = new double[downOff[nodes]];
+        downArc = new int[downOff[nodes]];
+        int[] up = upOff.clone();
+        int[] down = downOff.clone();
+        for (int i=0; i<arcs; ++i) {
+            int t = tail[i];
+            int h = head[i];
+            if (t == h) continue;
+            if (rank[t] < rank[h]) {
+                int k = up[t]++;
+                upHead[k] = h;
+                upWeight[k] = weight[i];
+                upArc[k] = i;
+            } else {
+                int k = down[h]++;
+                downTail[k] = t;
+                downWeight[k] = weight[i];
+                downArc[k] = i;
+            }
+        }
+    }
+
+    /**
+       Build the contraction hierarchy of a graph, contracting in parallel
+       with as many threads as there are processors.
+       @param g the graph.
+       @param weights the edge weights.
+       @throws IllegalArgumentException if the native type of the weights
+       is not supported or a weight is negative.
+     */
+    public static ContractionHierarchy build(Graph g, NativeEdgeMap weights)
+    {
+        return build(g, weights, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+       Build the contraction hierarchy of a graph.
+       @param g the graph.
+       @param weights the edge weights.
+       @param threads the number of threads contracting nodes.
+       @throws IllegalArgumentException if the native type of the weights
+       is not supported, a weight is negative, or the number of threads is
+       not positive.
+     */
+    public static ContractionHierarchy build(Graph g, NativeEdgeMap weights, int threads)
+    {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be positive");
+        return new CHBuilder(g, weights, threads).build();
+    }
+
+    /**
+       Return the graph of this hierarchy.
+     */
+    public Graph graph()
+    {
+        return graph;
+    }
+
+    /**
+       Return the rank of a node, its position in the contraction order.
+     */
+    public int rank(Node n)
+    {
+        return rank[n.nodeId()];
+    }
+
+    /**
+       Return the number of shortcuts added to the graph.
+     */
+    public int shortcuts()
+    {
+        return arcs - originals;
+    }
+
+    /**
+       Create a query engine for this hierarchy.  A hierarchy may be
+       shared by any number of engines, one per thread.
+     */
+    public CHQuery query()
+    {
+        return new CHQuery(this);
+    }
+
+    /**
+       Write this hierarchy to a file.
+     */
+    public void write(File file) throws IOException
+    {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            write(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+       Write this hierarchy to a stream, which is flushed but not closed.
+     */
+    public void write(OutputStream out) throws IOException
+    {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        data.writeInt(Magic);
+        data.writeInt(Version);
+        data.writeInt(nodes);
+        data.writeInt(originals);
+        data.writeInt(arcs);
+        for (int i=0; i<nodes; ++i)
+            data.writeInt(rank[i]);
+        for (int i=0; i<arcs; ++i) {
+            data.writeInt(tail[i]);
+            data.writeInt(head[i]);
+            data.writeDouble(weight[i]);
+            data.writeInt(first[i]);
+            data.writeInt(second[i]);
+        }
+        data.flush();
+    }
+
+    /**
+       Read a hierarchy of a graph from a file.
+       @param file the file.
+       @param g the graph for which the hierarchy was built.
+       @throws IOException if the file cannot be read, is not a hierarchy
+       or does not match the graph.
+     */
+    public static ContractionHierarchy read(File file, Graph g) throws IOException
+    {
+        InputStream in = new FileInputStream(file);
+        try {
+            return read(in, g);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+       Read a hierarchy of a graph from a stream.
+       @param in the stream.
+       @param g the graph for which the hierarchy was built.
+       @throws IOException if the stream cannot be read, is not a hierarchy
+       or does not match the graph.
+     */
+    public static ContractionHierarchy read(InputStream in, Graph g) throws IOException
+    {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+        if (data.readInt() != Magic)
+            throw new IOException("not a contraction hierarchy");
+        int version = data.readInt();
+        if (version != Version)
+            throw new IOException("unsupported hierarchy version " + version);
+        int nodes = data.readInt();
+        int originals = data.readInt();
+        int arcs = data.readInt();
+        if (nodes != g.nodeAttrSize() || originals < 0 || arcs < originals)
+            throw new IOException("hierarchy does not match graph");
+        int[] rank = new int[nodes];
+        for (int i=0; i<nodes; ++i)
+            rank[i] = data.readInt();
+        int[] tail = new int[arcs];
+        int[] head = new int[arcs];
+        double[] weight = new double[arcs];
+        int[] first = new int[arcs];
+        int[] second = new int[arcs];
+        for (int i=0; i<arcs; ++i) {
+            tail[i] = data.readInt();
+            head[i] = data.readInt();
+            weight[i] = data.readDouble();
+            first[i] = data.readInt();
+            second[i] = data.readInt();
+            if (tail[i] < 0 || tail[i] >= nodes || head[i] < 0 || head[i] >= nodes)
+                throw new IOException("corrupt hierarchy arc " + i);
+            if (i >= originals && (first[i] < 0 || first[i] >= i || second[i] < 0 || second[i] >= i))
+                throw new IOException("corrupt hierarchy arc " + i);
+        }
+        return new ContractionHierarchy(g, originals, arcs, tail, head, weight, first, second, rank);
+    }
+}
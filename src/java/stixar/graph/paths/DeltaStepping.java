@@ -0,0 +1,547 @@
+package stixar.graph.paths;
+
+import stixar.graph.Algorithm;
+import stixar.graph.Edge;
+import stixar.graph.Filtering;
+import stixar.graph.Graph;
+import stixar.graph.GraphFilter;
+import stixar.graph.Node;
+
+import stixar.graph.attr.ArrayNodeMap;
+import stixar.graph.attr.DoubleEdgeMap;
+import stixar.graph.attr.DoubleNodeMap;
+import stixar.graph.attr.FloatEdgeMap;
+import stixar.graph.attr.FloatNodeMap;
+import stixar.graph.attr.IntEdgeMap;
+import stixar.graph.attr.IntNodeMap;
+import stixar.graph.attr.LongEdgeMap;
+import stixar.graph.attr.LongNodeMap;
+import stixar.graph.attr.NativeEdgeMap;
+import stixar.graph.attr.NativeMap;
+import stixar.graph.attr.NativeNodeMap;
+import stixar.graph.attr.NodeMap;
+
+import stixar.util.IntDHeap;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+   Parallel single source shortest paths by delta-stepping, for natively
+   attributed graphs with non negative edge weights.
+   <p>
+   Available native numeric types: <tt>int,long,float,double</tt>; the
+   distance map must be of the type of the weights.  Results follow the
+   contract of {@link DijkstraNative}: the distance of every node reachable
+   from the source is set in the distance map, counting from the distance
+   of the source in the map, and its shortest path tree edge in the parent
+   map, other nodes being left untouched.  Edge filters are respected,
+   and the weights of the edges they hide are not read.  An instance may
+   be run again, for instance from another source, at the cost of
+   resetting the nodes the last run reached.
+   </p><p>
+   Delta-stepping keeps nodes in buckets of distances of width
+   <tt>delta</tt> and settles a whole bucket at a time.  Edges of weight
+   at most <tt>delta</tt> are light, and are relaxed from the nodes of the
+   current bucket, in parallel, until the bucket stays empty; the heavy
+   edges of the nodes removed from the bucket are then relaxed once, in
+   parallel.  A small <tt>delta</tt> approaches Dijkstra's algorithm with
+   little parallelism, a large one Bellman-Ford with much wasted work.  By
+   default <tt>delta</tt> is the largest weight divided by the average out
+   degree, so that a node has about one light edge.
+   </p><p>
+   Distances are kept in an atomic array, as themselves for <tt>int</tt>
+   and <tt>long</tt> weights and as keys from {@link IntDHeap#doubleKey}
+   for <tt>float</tt> and <tt>double</tt> weights, summed in the type of
+   the weights.  An improvement of a node is made under one of a set of
+   striped locks, so that a distance and its parent edge change together
+   and the parents form a tree even with zero weight cycles; improvements
+   are rare next to the relaxations which fail a plain atomic read.
+   Between phases, the improved nodes are distributed into the buckets by
+   the calling thread.  Relaxation phases run in a
+   <tt>java.util.concurrent.ForkJoinPool</tt>, shared by default.
+   </p>
+   @see DijkstraNative
+*/
+public class DeltaStepping implements Algorithm, Filtering
+{
+    static final int Grain = 256;
+    static final int Stripes = 1024;
+    static final long MaxBuckets = 1 << 24;
+    static final long Unreached = Long.MAX_VALUE;
+
+    private static ForkJoinPool sharedPool;
+
+    protected Graph graph;
+    protected Node source;
+    protected NodeMap<Edge> parents;
+    protected NativeNodeMap distMap;
+    protected NativeEdgeMap weights;
+    protected GraphFilter filter;
+
+    private final NativeMap.Type type;
+    private ForkJoinPool pool;
+    private double delta;
+    private double runDelta;
+    private long intDelta;
+
+    private AtomicLongArray dist;
+    private Edge[] parentEdges;
+    private int[] reached;
+    private final AtomicInteger nReached;
+    private final Object[] locks;
+    private AtomicIntegerArray mark;
+    private volatile int phase;
+    private int[] touched;
+    private final AtomicInteger nTouched;
+
+    private int[][] buckets;
+    private int[] bucketSizes;
+    private long pending;
+
+    /**
+       Construct a delta-stepping shortest paths algorithm.
+       @param g the graph.
+       @param source the source node.
+       @param parents a map in which to store the shortest path tree, or
+       <tt>null</tt> for a new one, see {@link #parents}.
+       @param distMap a map in which to store distances.
+       @param weights the edge weights.
+       @throws IllegalArgumentException if the native types of the
+       distances and weights differ or are not supported.
+     */
+    public DeltaStepping(Graph g,
+                         Node source,
+                         NodeMap<Edge> parents,
+                         NativeNodeMap distMap,
+                         NativeEdgeMap weights)
+    {
+        Weights.check(weights);
+        if (distMap.type() != weights.type())
+            throw new IllegalArgumentException("distance type " + distMap.type()
+                                               + " differs from weight type " + weights.type());
+        this.graph = g;
+        this.source = source;
+        this.parents = parents != null ? parents
+            : new ArrayNodeMap<Edge>(new Edge[g.nodeAttrSize()]);
+        this.distMap = distMap;
+        this.weights = weights;
+        this.filter = g.getFilter();
+        this.type = weights.type();
+        this.locks = new Object[Stripes];
+        for (int i=0; i<Stripes; ++i)
+            locks[i] = new Object();
+        this.nTouched = new AtomicInteger();
+        this.nReached = new AtomicInteger();
+    }
+
+    /**
+       Return the map giving each node reached its parent edge in the
+       shortest path tree.
+     */
+    public NodeMap<Edge> parents()
+    {
+        return parents;
+    }
+
+    /**
+       Return the current source node for this algorithm.
+    */
+    public Node source()
+    {
+        return source;
+    }
+
+    /**
+       Set and return the current source node.
+       @return n
+    */
+    public Node source(Node n)
+    {
+        return source = n;
+    }
+
+    /**
+       Set the bucket width.  For <tt>int</tt> and <tt>long</tt> weights
+       it is rounded up to an integer.
+       @param d the width, or 0 for the default.
+       @throws IllegalArgumentException if d is negative or not finite.
+     */
+    public void setDelta(double d)
+    {
+        if (!(d >= 0) || d == Double.POSITIVE_INFINITY)
+            throw new IllegalArgumentException("bad delta " + d);
+        delta = d;
+    }
+
+    /**
+       Return the bucket width used by the last run, or set by
+       {@link #setDelta} before any run.
+     */
+    public double delta()
+    {
+        return runDelta != 0 ? runDelta : delta;
+    }
+
+    /**
+       Set the pool in which relaxations run.
+       @param p the pool, or <tt>null</tt> for a pool shared by all
+       instances with as many threads as there are processors.
+     */
+    public void setPool(ForkJoinPool p)
+    {
+        pool = p;
+    }
+
+    private static synchronized ForkJoinPool sharedPool()
+    {
+        if (sharedPool == null)
+            sharedPool = new ForkJoinPool();
+        return sharedPool;
+    }
+
+    /**
+       Compute the shortest paths from the source.
+       @throws IllegalStateException if the source is not set.
+       @throws IllegalArgumentException if a weight is negative, or
+       <tt>delta</tt> is so small that more than 2<sup>24</sup> buckets
+       are needed.
+     */
+    public void run()
+    {
+        if (source == null)
+            throw new IllegalStateException("source not set");
+        ForkJoinPool fjp = pool != null ? pool : sharedPool();
+        int n = graph.nodeAttrSize();
+        allocate(n);
+        long nb = scan();
+        // a finished run leaves every bucket empty
+        if (buckets == null || buckets.length < nb || pending != 0) {
+            buckets = new int[(int) nb][];
+            bucketSizes = new int[(int) nb];
+            pending = 0;
+        }
+
+        int s = source.nodeId();
+        dist.set(s, sourceKey());
+        reached[nReached.getAndIncrement()] = s;
+        long current = bucket(dist.get(s));
+        add(current, s);
+        int[] frontier = new int[16];
+        int[] removed = new int[16];
+        while (pending > 0) {
+            while (bucketSizes[slot(current)] == 0)
+                ++current;
+            int b = slot(current);
+            int[] items = buckets[b];
+            int size = bucketSizes[b];
+            bucketSizes[b] = 0;
+            pending -= size;
+            // the live entries of the bucket, once each
+            ++phase;
+            int nFrontier = 0;
+            for (int i=0; i<size; ++i) {
+                int v = items[i];
+                if (bucket(dist.get(v)) == current && mark.get(v) != phase) {
+                    mark.set(v, phase);
+                    if (nFrontier == frontier.length)
+                        frontier = grow(frontier);
+                    frontier[nFrontier++] = v;
+                }
+            }
+            int nRemoved = 0;
+            while (nFrontier > 0) {
+                while (nRemoved + nFrontier > removed.length)
+                    removed = grow(removed);
+                System.arraycopy(frontier, 0, removed, nRemoved, nFrontier);
+                nRemoved += nFrontier;
+                relax(fjp, frontier, nFrontier, true);
+                nFrontier = 0;
+                for (int i=0, end=nTouched.get(); i<end; ++i) {
+                    int v = touched[i];
+                    long bv = bucket(dist.get(v));
+                    if (bv == current) {
+                        if (nFrontier == frontier.length)
+                            frontier = grow(frontier);
+                        frontier[nFrontier++] = v;
+                    } else {
+                        add(bv, v);
+                    }
+                }
+            }
+            relax(fjp, removed, nRemoved, false);
+            for (int i=0, end=nTouched.get(); i<end; ++i) {
+                int v = touched[i];
+                add(bucket(dist.get(v)), v);
+            }
+        }
+        store();
+    }
+
+    /*
+      Allocate the per-node arrays for n nodes, or reset the nodes the
+      last run reached.
+     */
+    private void allocate(int n)
+    {
+        if (dist == null || dist.length() != n) {
+            dist = new AtomicLongArray(n);
+            parentEdges = new Edge[n];
+            mark = new AtomicIntegerArray(n);
+            touched = new int[n];
+            reached = new int[n];
+            for (int i=0; i<n; ++i)
+                dist.set(i, Unreached);
+        } else {
+            for (int i=0, end=nReached.get(); i<end; ++i) {
+                int v = reached[i];
+                dist.set(v, Unreached);
+                parentEdges[v] = null;
+            }
+        }
+        nReached.set(0);
+    }
+
+    /*
+      Check the weights of the edges the filter keeps, set runDelta, and
+      intDelta for integral weights, and return the number of buckets a
+      run needs.  Integral weights are kept in longs throughout.
+     */
+    private long scan()
+    {
+        boolean integral = type == NativeMap.Type.Int || type == NativeMap.Type.Long;
+        double max = 0;
+        long lmax = 0;
+        long m = 0;
+        for (Edge e : graph.edges()) {
+            if (filter != null && filter.filter(e))
+                continue;
+            if (integral) {
+                long w = type == NativeMap.Type.Int ? ((IntEdgeMap) weights).get(e)
+                    : ((LongEdgeMap) weights).get(e);
+                if (w < 0)
+                    throw new IllegalArgumentException("negative weight on edge " + e);
+                if (w > lmax)
+                    lmax = w;
+            } else {
+                double w = Weights.get(weights, e);
+                if (!(w >= 0))
+                    throw new IllegalArgumentException("negative weight on edge " + e);
+                if (w > max)
+                    max = w;
+            }
+            m++;
+        }
+        if (integral)
+            max = lmax;
+        double d = delta;
+        if (d == 0) {
+            int nodes = Math.max(1, graph.nodeSize());
+            d = max / Math.max(1.0, (double) m / nodes);
+        }
+        long nb;
+        if (integral) {
+            intDelta = Math.max(1, (long) Math.ceil(d));
+            runDelta = intDelta;
+            nb = lmax / intDelta + 2;
+        } else {
+            runDelta = d > 0 ? d : 1;
+            nb = (long) Math.floor(max / runDelta) + 2;
+        }
+        if (nb > MaxBuckets)
+            throw new IllegalArgumentException("delta " + runDelta + " too small for weights up to "
+                                               + (integral ? Long.toString(lmax) : Double.toString(max)));
+        return nb;
+    }
+
+    private long sourceKey()
+    {
+        switch (type) {
+        case Int:
+            return ((IntNodeMap) distMap).get(source);
+        case Long:
+            return ((LongNodeMap) distMap).get(source);
+        case Float:
+            return IntDHeap.doubleKey(((FloatNodeMap) distMap).get(source));
+        default:
+            return IntDHeap.doubleKey(((DoubleNodeMap) distMap).get(source));
+        }
+    }
+
+    /*
+      The bucket of a distance, rounding down so that distances below a
+      negative distance of the source fall in buckets of their own.
+      Integral distances are divided in longs, as doubles do not hold
+      them exactly beyond 2^53.
+     */
+    private long bucket(long key)
+    {
+        switch (type) {
+        case Int: case Long: {
+            long q = key / intDelta;
+            return key % intDelta < 0 ? q - 1 : q;
+        }
+        default:
+            return (long) Math.floor(IntDHeap.keyDouble(key) / runDelta);
+        }
+    }
+
+    /*
+      The slot of a bucket in the cyclic array, for negative buckets too.
+     */
+    private int slot(long bucket)
+    {
+        int r = (int) (bucket % buckets.length);
+        return r < 0 ? r + buckets.length : r;
+    }
+
+    private void add(long bucket, int v)
+    {
+        int b = slot(bucket);
+        int[] items = buckets[b];
+        if (items == null)
+            items = buckets[b] = new int[16];
+        else if (bucketSizes[b] == items.length)
+            items = buckets[b] = grow(items);
+        items[bucketSizes[b]++] = v;
+        pending++;
+    }
+
+    private static int[] grow(int[] a)
+    {
+        int[] b = new int[2 * a.length];
+        System.arraycopy(a, 0, b, 0, a.length);
+        return b;
+    }
+
+    /*
+      Relax the light or heavy edges of nodes[0..count-1], collecting the
+      improved nodes in touched.
+     */
+    private void relax(ForkJoinPool fjp, int[] nodes, int count, boolean light)
+    {
+        ++phase;
+        nTouched.set(0);
+        if (count <= Grain) {
+            for (int i=0; i<count; ++i)
+                relax(nodes[i], light);
+        } else {
+            fjp.invoke(new Relax(nodes, 0, count, light));
+        }
+    }
+
+    private final class Relax extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] nodes;
+        private final int lo;
+        private final int hi;
+        private final boolean light;
+
+        Relax(int[] nodes, int lo, int hi, boolean light)
+        {
+            this.nodes = nodes;
+            this.lo = lo;
+            this.hi = hi;
+            this.light = light;
+        }
+
+        protected void compute()
+        {
+            if (hi - lo <= Grain) {
+                for (int i=lo; i<hi; ++i)
+                    relax(nodes[i], light);
+            } else {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Relax(nodes, lo, mid, light),
+                          new Relax(nodes, mid, hi, light));
+            }
+        }
+    }
+
+    private void relax(int u, boolean light)
+    {
+        long du = dist.get(u);
+        long id = intDelta;
+        double d = runDelta;
+        for (Edge e = graph.node(u).out(); e != null; e = e.next()) {
+            if (filter != null && filter.filter(e))
+                continue;
+            long dv;
+            switch (type) {
+            case Int: {
+                int w = ((IntEdgeMap) weights).get(e);
+                if ((w <= id) != light) continue;
+                dv = du + w;
+                break;
+            }
+            case Long: {
+                long w = ((LongEdgeMap) weights).get(e);
+                if ((w <= id) != light) continue;
+                dv = du + w;
+                break;
+            }
+            case Float: {
+                float w = ((FloatEdgeMap) weights).get(e);
+                if ((w <= d) != light) continue;
+                dv = IntDHeap.doubleKey((float) IntDHeap.keyDouble(du) + w);
+                break;
+            }
+            default: {
+                double w = ((DoubleEdgeMap) weights).get(e);
+                if ((w <= d) != light) continue;
+                dv = IntDHeap.doubleKey(IntDHeap.keyDouble(du) + w);
+                break;
+            }
+            }
+            int v = e.target().nodeId();
+            if (dv >= dist.get(v))
+                continue;
+            synchronized (locks[v & (Stripes - 1)]) {
+                long old = dist.get(v);
+                if (dv >= old)
+                    continue;
+                dist.set(v, dv);
+                parentEdges[v] = e;
+                if (old == Unreached)
+                    reached[nReached.getAndIncrement()] = v;
+            }
+            int p = phase;
+            if (mark.get(v) != p && mark.getAndSet(v, p) != p)
+                touched[nTouched.getAndIncrement()] = v;
+        }
+    }
+
+    /*
+      Copy the distances and parents of the nodes reached to the maps.
+     */
+    private void store()
+    {
+        int s = source.nodeId();
+        for (int i=0, end=nReached.get(); i<end; ++i) {
+            int v = reached[i];
+            long key = dist.get(v);
+            Node node = graph.node(v);
+            switch (type) {
+            case Int:
+                ((IntNodeMap) distMap).set(node, (int) key);
+                break;
+            case Long:
+                ((LongNodeMap) distMap).set(node, key);
+                break;
+            case Float:
+                ((FloatNodeMap) distMap).set(node, (float) IntDHeap.keyDouble(key));
+                break;
+            default:
+                ((DoubleNodeMap) distMap).set(node, IntDHeap.keyDouble(key));
+                break;
+            }
+            if (v != s)
+                parents.set(node, parentEdges[v]);
+        }
+    }
+}
@@ -28,6 +28,7 @@ public class Dijkstra<T> extends DijkstraBase
     protected NodeMap<T> distMap;
     protected EdgeSource<T> weights;
     protected NumAdaptor<T> adaptor;
+    protected T radius;
     
     public Dijkstra(Graph dg, 
                     Node source,
@@ -46,6 +47,17 @@ public class Dijkstra<T> extends DijkstraBase
         //this.pQueue = new FibHeap<Node>(getComparator(distMap, adaptor));
     }
     
+    /**
+       Stop runs before settling a node whose distance from the source
+       exceeds a radius, so that a run settles the nodes within the
+       radius.
+       @param r the radius, <tt>null</tt> for none.
+     */
+    public void setRadius(T r)
+    {
+        radius = r;
+    }
+
     protected Comparator<Node> getComparator(final NodeMap<T> dMap, 
                                              final NumAdaptor<T> adaptor)
     {
@@ -67,14 +79,16 @@ public class Dijkstra<T> extends DijkstraBase
     public void run()
     {
         reset();
+        begin();
         pqItems.set(source, pQueue.insert(source));
         while(!pQueue.isEmpty()) {
             Node s = pQueue.extractMin();
-            if (s == target) {
+            T sDist = distMap.get(s);
+            if (radius != null && adaptor.compare(sDist, radius) > 0
+                || settle(s.nodeId())) {
                 pQueue.clear();
                 break;
             }
-            T sDist = distMap.get(s);
             for (Edge e = s.out(); e != null; e = e.next()) {
                 // implement filtering.
                 if (filter != null && filter.filter(e)) 
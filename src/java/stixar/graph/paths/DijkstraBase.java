@@ -11,7 +11,7 @@ import stixar.graph.attr.EdgeSource;
 import stixar.graph.attr.NodeMap;
 import stixar.graph.attr.NodeSink;
 
-import stixar.graph.attr.ArrayNodeMap;
+import stixar.graph.attr.EpochNodeMap;
 
 import stixar.util.PQueue;
 import stixar.util.Cell;
@@ -19,6 +19,7 @@ import stixar.util.Cell;
 import stixar.util.fheap.FibHeap;
 import stixar.util.fheap.FHeapCell;
 
+import java.util.Arrays;
 import java.util.Comparator;
 
 /**
@@ -28,6 +29,19 @@ import java.util.Comparator;
    algorithm working on directed graphs with non-negative 
    edge weights.  If the graph is acyclic, {@link AcyclicSP}
    supplies a faster algorithm.
+   <p>
+   Besides a single target, a run may be stopped once all or some of a
+   set of {@link #setTargets targets} are settled, once a
+   {@link #setBudget budget} of settled nodes is spent, or, with the
+   radius of the subclasses, before settling a node farther than the
+   radius from the source.  The nodes settled by a run, whose distances
+   and parents are final, are recorded in the order in which they were
+   settled, see {@link #settledCount} and {@link #settledIds}; nodes which
+   were reached but not settled when a run stops may have tentative
+   distances and parents.  Together with maps which are reset in constant
+   time, this makes the cost of a run proportional to the region it
+   explores.
+   </p>
  */
 class DijkstraBase
 {
@@ -38,8 +52,20 @@ class DijkstraBase
     NodeMap<Cell<Node>> pqItems;
     PQueue<Node> pQueue;
     GraphFilter filter;
+
+    // stopping criteria
+    int targetId;
+    Node[] targets;
+    boolean[] isTarget;
+    boolean[] targetMask;
+    int targetsWanted;
+    int targetsLeft;
+    int budget;
+
+    // the nodes settled by the last run, in order
+    int[] settled;
+    int nSettled;
     
-    @SuppressWarnings("unchecked")
     protected DijkstraBase(Graph graph,
                            Node source,
                            Node target,
@@ -51,14 +77,16 @@ class DijkstraBase
         this.target = target;
         int ansz = graph.nodeAttrSize();
         if (pMap == null) 
-            this.parents = new ArrayNodeMap<Edge>(new Edge[ansz]);
+            this.parents = new EpochNodeMap<Edge>(ansz);
         else
             this.parents = pMap;
         if (cMap == null) 
-            this.pqItems = new ArrayNodeMap<Cell<Node>>(new Cell[ansz]);
+            this.pqItems = new EpochNodeMap<Cell<Node>>(ansz);
         else
             this.pqItems = cMap;
         this.filter = graph.getFilter();
+        this.budget = Integer.MAX_VALUE;
+        this.settled = new int[16];
     }
                          
     /**
@@ -92,7 +120,163 @@ class DijkstraBase
     {
         return parents;
     }
+
+    /*
+      Forget the parents of the last run, if the map can be cleared in
+      constant time; a map given by the caller is left to the caller.
+     */
+    void clearParents()
+    {
+        if (parents instanceof EpochNodeMap)
+            ((EpochNodeMap<Edge>) parents).clear();
+    }
     
+    /**
+       Stop runs once every one of a set of nodes is settled.
+       @param targets the nodes, or <tt>null</tt> for none.
+     */
+    public void setTargets(Node[] targets)
+    {
+        setTargets(targets, Integer.MAX_VALUE);
+    }
+
+    /**
+       Stop runs once <tt>k</tt> of a set of nodes are settled, for
+       instance to find the <tt>k</tt> nodes of the set nearest the
+       source.  Nodes occurring more than once in the set count once.
+       @param targets the nodes, or <tt>null</tt> for none.
+       @param k the number of nodes of the set to settle, all of them if
+       <tt>k</tt> is at least their number.
+       @throws IllegalArgumentException if <tt>k</tt> is not positive.
+     */
+    public void setTargets(Node[] targets, int k)
+    {
+        if (k < 1)
+            throw new IllegalArgumentException("k must be positive");
+        if (this.targets != null)
+            for (Node n : this.targets)
+                isTarget[n.nodeId()] = false;
+        this.targets = targets;
+        targetMask = null;
+        if (targets == null)
+            return;
+        if (isTarget == null || isTarget.length < graph.nodeAttrSize())
+            isTarget = new boolean[graph.nodeAttrSize()];
+        int distinct = 0;
+        for (Node n : targets) {
+            if (!isTarget[n.nodeId()]) {
+                isTarget[n.nodeId()] = true;
+                distinct++;
+            }
+        }
+        targetsWanted = Math.min(k, distinct);
+    }
+
+    /*
+      Stop runs at the first node settled among those marked in a mask
+      which the caller owns and may change between runs, for searches of
+      this package whose targets are too many to list.  Setting targets
+      clears the mask.
+     */
+    final void setTargetMask(boolean[] mask)
+    {
+        setTargets(null);
+        targetMask = mask;
+    }
+
+    /*
+      Search with a filter in place of the one the graph had when this
+      object was created, for searches of this package which filter on
+      top of it, without installing the filter on the graph they share.
+     */
+    final void setFilter(GraphFilter f)
+    {
+        filter = f;
+    }
+
+    /**
+       Stop runs once a number of nodes are settled.
+       @param maxSettled the largest number of nodes a run settles,
+       <tt>Integer.MAX_VALUE</tt> for no bound.
+       @throws IllegalArgumentException if <tt>maxSettled</tt> is not
+       positive.
+     */
+    public void setBudget(int maxSettled)
+    {
+        if (maxSettled < 1)
+            throw new IllegalArgumentException("budget must be positive");
+        budget = maxSettled;
+    }
+
+    /**
+       Return the number of nodes settled by the last run.
+     */
+    public int settledCount()
+    {
+        return nSettled;
+    }
+
+    /**
+       Return the identifiers of the nodes settled by the last run, in
+       the order in which they were settled, which is by increasing
+       distance from the source.
+     */
+    public int[] settledIds()
+    {
+        return Arrays.copyOf(settled, nSettled);
+    }
+
+    /**
+       Return the <tt>i</tt>th node settled by the last run.
+       @param i an index in <tt>[0, settledCount())</tt>.
+     */
+    public Node settledNode(int i)
+    {
+        if (i < 0 || i >= nSettled)
+            throw new IndexOutOfBoundsException("settled node " + i);
+        return graph.node(settled[i]);
+    }
+
+    /*
+      Whether a target, targets, a mask of targets or a budget are set,
+      so that runs may stop before settling every node reached.
+     */
+    final boolean stopsEarly()
+    {
+        return target != null || targets != null || targetMask != null
+            || budget != Integer.MAX_VALUE;
+    }
+
+    /*
+      Prepare the stopping criteria for a run.
+     */
+    final void begin()
+    {
+        targetId = target == null ? -1 : target.nodeId();
+        targetsLeft = targets == null ? -1 : targetsWanted;
+        nSettled = 0;
+    }
+
+    /*
+      Record that the node u is settled, returning whether the run
+      should stop without relaxing its edges.
+     */
+    final boolean settle(int u)
+    {
+        if (nSettled == settled.length)
+            settled = Arrays.copyOf(settled, 2 * nSettled);
+        settled[nSettled++] = u;
+        if (u == targetId)
+            return true;
+        if (targetMask != null) {
+            if (targetMask[u])
+                return true;
+        } else if (targetsLeft > 0 && isTarget[u] && --targetsLeft == 0) {
+            return true;
+        }
+        return nSettled >= budget;
+    }
+
     /**
        Return the current source node for this algorithm.
     */
@@ -5,6 +5,7 @@ import stixar.graph.Filtering;
 import stixar.graph.Node;
 import stixar.graph.Edge;
 import stixar.graph.Graph;
+import stixar.graph.IntAdjacency;
 
 import stixar.graph.attr.EdgeSource;
 import stixar.graph.attr.NodeMap;
@@ -22,11 +23,16 @@ import stixar.graph.attr.DoubleNodeMap;
 import stixar.graph.attr.LongEdgeMap;
 import stixar.graph.attr.LongNodeMap;
 import stixar.graph.attr.ArrayNodeMap;
+import stixar.graph.attr.EpochNodeMap;
 
 
 import stixar.util.PQueue;
 import stixar.util.Cell;
 import stixar.util.BinaryPQ;
+import stixar.util.IntPQueue;
+import stixar.util.IntDHeap;
+import stixar.util.IntRadixHeap;
+import stixar.util.BucketQueue;
 
 import stixar.util.fheap.FibHeap;
 
@@ -36,11 +42,79 @@ import java.util.Comparator;
    Dijkstra's shortest paths for natively attributed graphs.
    
    Available native numeric types: <tt>int,long,float,double</tt>.
+   <p>
+   Nodes are queued by identifier in an {@link IntPQueue}, such as a 4-ary
+   {@link IntDHeap}, whose keys are the distances themselves, so that no
+   comparator is called and nothing is allocated per node.
+   <tt>float</tt> and <tt>double</tt> distances are queued as keys from
+   {@link IntDHeap#doubleKey}.  If the graph implements {@link IntAdjacency},
+   as the {@link stixar.graph.CompactDigraph}, the
+   {@link stixar.graph.ArrayDigraph} and the mapped digraphs do, and has no
+   filter installed, edges are relaxed by identifier, and an {@link Edge}
+   object is only fetched when it becomes the parent of a node; the
+   linked graphs are searched along their edge lists.
+   </p><p>
+   The queue may be chosen with {@link #setQueueKind}.  By default, with
+   <tt>int</tt> or <tt>long</tt> weights, Dial's {@link BucketQueue} is used
+   when the largest weight <tt>C</tt> is non negative and at most a
+   sixteenth of the number of nodes, and the heap otherwise.  On a 700x700
+   grid, a graph of large diameter, the buckets are 10 to 25% faster than
+   the heap up to <tt>C = 10<sup>4</sup></tt>, and slower from
+   <tt>C = 10<sup>5</sup></tt> as empty buckets are scanned; on random
+   graphs of small diameter they stay ahead for <tt>C</tt> up to
+   <tt>10<sup>7</sup></tt>.  The {@link IntRadixHeap} was 5 to 20% slower
+   than the heap in both cases and is only used when asked for.  A run
+   which may stop early, at a target or within a radius or a budget,
+   uses the heap rather than scan every weight.  If a run meets a weight
+   beyond the span of buckets chosen for smaller weights, the nodes
+   queued are moved to a heap, which later runs keep.  Negative weights
+   are rejected as they are relaxed.
+   </p><p>
+   If a node priority queue is set with {@link #setPQueue}, for instance
+   to order nodes by a heuristic, it is used instead together with the
+   map of cells given to the constructor.
+   </p><p>
+   An instance may be run many times, for instance from different
+   sources.  The queue, and the parent and cell maps when they are
+   created by the constructor, are then cleared in time proportional to
+   the nodes the previous run touched, the maps being {@link
+   EpochNodeMap epoch stamped}; distances are left to the caller, who may
+   pass an {@link stixar.graph.attr.EpochIntNodeMap} or the like and clear
+   it before setting the distance of the source.
+   </p>
 */
 public class DijkstraNative extends DijkstraBase
 {
+    static final long MaxBuckets = 1 << 24;
+    static final int NodesPerBucket = 16;
+
     NativeNodeMap distMap;
     NativeEdgeMap weights;
+    IntPQueue heap;
+    boolean heapCreated;
+    QueueKind queueKind;
+    double radius;
+
+    /**
+       The primitive priority queues available to {@link DijkstraNative}.
+     */
+    public enum QueueKind
+    {
+        /**
+           Choose by the type of the distances, the largest edge weight
+           and the number of nodes, see {@link DijkstraNative}.  The
+           weights are scanned when the queue is created, unless a target,
+           targets, a radius or a budget are set, in which case the heap
+           is chosen without scanning them.
+         */
+        Auto,
+        /** A 4-ary {@link IntDHeap}. */
+        DHeap,
+        /** Dial's {@link BucketQueue}, for <tt>int</tt> and <tt>long</tt> weights. */
+        Buckets,
+        /** An {@link IntRadixHeap}. */
+        Radix
+    }
     
     public DijkstraNative(Graph dg, 
                           Node source,
@@ -53,10 +127,59 @@ public class DijkstraNative extends DijkstraBase
         super(dg, source, target, parents, cells);
         this.distMap = distMap;
         this.weights = weights;
-        //this.pQueue = new FibHeap<Node>(getComparator(distMap, distMap.type()));
-        this.pQueue = new BinaryPQ<Node>(getComparator(distMap, distMap.type()), dg.nodeSize());
+        this.pQueue = null;
+        this.queueKind = QueueKind.Auto;
+        this.radius = Double.POSITIVE_INFINITY;
+    }
+
+    /**
+       Stop runs before settling a node whose distance from the source
+       exceeds a radius, so that a run settles the nodes within the
+       radius.  Distances of every type are compared to the radius as
+       <tt>double</tt>s.
+       @param r the radius, <tt>Double.POSITIVE_INFINITY</tt> for none.
+       @throws IllegalArgumentException if <tt>r</tt> is NaN.
+     */
+    public void setRadius(double r)
+    {
+        if (Double.isNaN(r))
+            throw new IllegalArgumentException("radius is NaN");
+        radius = r;
+    }
+
+    /**
+       Set the kind of primitive priority queue in which nodes are queued.
+       The queue is created at the next run, and kept for later runs
+       unless the weights outgrow the span of its buckets.
+       @param k the kind of queue.
+     */
+    public void setQueueKind(QueueKind k)
+    {
+        queueKind = k;
+        heap = null;
+    }
+
+    /**
+       Return the kind of primitive priority queue set with
+       {@link #setQueueKind}.
+     */
+    public QueueKind queueKind()
+    {
+        return queueKind;
+    }
+
+    /**
+       Set the primitive priority queue in which nodes are queued by
+       identifier, in place of one of kind {@link #queueKind}.  The queue
+       must accept the identifiers of the graph's nodes, and is cleared at
+       the start of each run.
+       @param q the priority queue.
+     */
+    public void setIntPQueue(IntPQueue q)
+    {
+        heap = q;
+        heapCreated = false;
     }
-    
 
     final void reset()
     {
@@ -66,6 +189,133 @@ public class DijkstraNative extends DijkstraBase
     
     
     public final void run()
+    {
+        clearParents();
+        begin();
+        if (pQueue != null) {
+            runQueue();
+            return;
+        }
+        if (heap == null) {
+            heap = createQueue();
+            heapCreated = true;
+        }
+        heap.clear();
+        if (filter == null && graph instanceof IntAdjacency)
+            runAdjacency((IntAdjacency) graph);
+        else
+            runEdges();
+    }
+
+    /*
+      The span of a bucket queue created by this instance, the largest
+      weight a run may relax without calling outgrow; no bound for other
+      queues, which check their keys themselves.
+     */
+    private long span()
+    {
+        if (heapCreated && heap instanceof BucketQueue)
+            return ((BucketQueue) heap).span();
+        return Long.MAX_VALUE;
+    }
+
+    /*
+      Called on relaxing an edge e whose weight w lies outside [0,span()].
+      A negative weight is rejected; a weight beyond the span of the
+      buckets, which grew since they were created, moves the queue to a
+      heap with the same nodes and keys, the nodes settled so far being
+      marked removed so that they are not queued again.  Returns the span
+      of the new queue.
+     */
+    private long outgrow(long w, Edge e)
+    {
+        if (w < 0)
+            throw negativeWeight(e);
+        BucketQueue b = (BucketQueue) heap;
+        int n = graph.nodeAttrSize();
+        IntDHeap h = new IntDHeap(n);
+        for (int i=0; i<nSettled; ++i) {
+            h.insert(settled[i], 0);
+            h.remove(settled[i]);
+        }
+        for (int v=0; v<n; ++v)
+            if (b.contains(v))
+                h.insert(v, b.key(v));
+        heap = h;
+        return Long.MAX_VALUE;
+    }
+
+    private static IllegalArgumentException negativeWeight(Edge e)
+    {
+        return new IllegalArgumentException("negative weight on edge " + e);
+    }
+
+    /*
+      Create the queue of kind queueKind.
+     */
+    private IntPQueue createQueue()
+    {
+        int n = graph.nodeAttrSize();
+        NativeMap.Type t = distMap.type();
+        boolean integral = t == NativeMap.Type.Int || t == NativeMap.Type.Long;
+        switch (queueKind) {
+        case DHeap:
+            return new IntDHeap(n);
+        case Radix:
+            return new IntRadixHeap(n);
+        case Buckets:
+            if (!integral)
+                throw new IllegalArgumentException("buckets need integral weights");
+            long c = maxWeight();
+            if (c < 0 || c >= MaxBuckets)
+                throw new IllegalArgumentException("weights outside [0," + MaxBuckets + ")");
+            return new BucketQueue(n, c);
+        default:
+            // a run which may stop early need not pay for scanning weights
+            if (!integral || stopsEarly() || radius < Double.POSITIVE_INFINITY)
+                return new IntDHeap(n);
+            long w = maxWeight();
+            if (w < 0)
+                return new IntDHeap(n);
+            if (w < MaxBuckets && w * NodesPerBucket <= graph.nodeSize())
+                return new BucketQueue(n, w);
+            return new IntDHeap(n);
+        }
+    }
+
+    /*
+      The largest integral weight of an edge which is not filtered, or -1
+      if some weight is negative.
+     */
+    private long maxWeight()
+    {
+        long max = 0;
+        if (distMap.type() == NativeMap.Type.Int) {
+            IntEdgeMap iw = (IntEdgeMap) weights;
+            for (Edge e : graph.edges()) {
+                if (filter != null && filter.filter(e))
+                    continue;
+                int w = iw.get(e);
+                if (w < 0) return -1;
+                if (w > max) max = w;
+            }
+        } else {
+            LongEdgeMap lw = (LongEdgeMap) weights;
+            for (Edge e : graph.edges()) {
+                if (filter != null && filter.filter(e))
+                    continue;
+                long w = lw.get(e);
+                if (w < 0) return -1;
+                if (w > max) max = w;
+            }
+        }
+        return max;
+    }
+
+    /*
+      Version of run() with a node priority queue set by setPQueue().
+     */
+    private void runQueue()
     {
         reset();
         pqItems.set(source, pQueue.insert(source));
@@ -76,9 +326,9 @@ public class DijkstraNative extends DijkstraBase
             IntEdgeMap iWeights = (IntEdgeMap) weights;
             while(!pQueue.isEmpty()) {
                 Node s = pQueue.extractMin();
-                if (s == target)
-                    break;
                 int sDist = iDists.get(s);
+                if (sDist > radius || settle(s.nodeId()))
+                    break;
                 for (Edge e = s.out(); e != null; e = e.next()) {
                     // implement filtering.
                     if (filter != null && filter.filter(e)) 
@@ -103,9 +353,9 @@ public class DijkstraNative extends DijkstraBase
             LongEdgeMap lWeights = (LongEdgeMap) weights;
             while(!pQueue.isEmpty()) {
                 Node s = pQueue.extractMin();
-                if (s == target)
-                    break;
                 long sDist = lDists.get(s);
+                if (sDist > radius || settle(s.nodeId()))
+                    break;
                 for (Edge e = s.out(); e != null; e = e.next()) {
                     // implement filtering.
                     if (filter != null && filter.filter(e)) 
@@ -131,9 +381,9 @@ public class DijkstraNative extends DijkstraBase
             FloatEdgeMap fWeights = (FloatEdgeMap) weights;
             while(!pQueue.isEmpty()) {
                 Node s = pQueue.extractMin();
-                if (s == target)
-                    break;
                 float sDist = fDists.get(s);
+                if (sDist > radius || settle(s.nodeId()))
+                    break;
                 for (Edge e = s.out(); e != null; e = e.next()) {
                     // implement filtering.
                     if (filter != null && filter.filter(e)) 
@@ -159,9 +409,9 @@ public class DijkstraNative extends DijkstraBase
             DoubleEdgeMap dWeights = (DoubleEdgeMap) weights;
             while(!pQueue.isEmpty()) {
                 Node s = pQueue.extractMin();
-                if (s == target)
-                    break;
                 double sDist = dDists.get(s);
+                if (sDist > radius || settle(s.nodeId()))
+                    break;
                 for (Edge e = s.out(); e != null; e = e.next()) {
                     // implement filtering.
                     if (filter != null && filter.filter(e)) 
@@ -186,6 +436,254 @@ public class DijkstraNative extends DijkstraBase
         }
     }
 
+    /*
+      Primitive queue version of run(), following Edge lists.
+     */
+    private void runEdges()
+    {
+        long span = span();
+        switch (distMap.type()) {
+        case Int:
+            IntNodeMap iDists = (IntNodeMap) distMap;
+            IntEdgeMap iWeights = (IntEdgeMap) weights;
+            heap.insert(source.nodeId(), iDists.get(source));
+            while(!heap.isEmpty()) {
+                int u = heap.extractMin();
+                int sDist = iDists.get(u);
+                if (sDist > radius || settle(u))
+                    break;
+                for (Edge e = graph.node(u).out(); e != null; e = e.next()) {
+                    if (filter != null && filter.filter(e))
+                        continue;
+                    int v = e.target().nodeId();
+                    int w = iWeights.get(e);
+                    if (w < 0 || w > span)
+                        span = outgrow(w, e);
+                    int tDist = sDist + w;
+                    if (!heap.queued(v)) {
+                        iDists.set(v, tDist);
+                        heap.insert(v, tDist);
+                        parents.set(v, e);
+                    } else if (tDist < iDists.get(v) && heap.contains(v)) {
+                        iDists.set(v, tDist);
+                        heap.decreaseKey(v, tDist);
+                        parents.set(v, e);
+                    }
+                }
+            }
+            break;
+        case Long:
+            LongNodeMap lDists = (LongNodeMap) distMap;
+            LongEdgeMap lWeights = (LongEdgeMap) weights;
+            heap.insert(source.nodeId(), lDists.get(source));
+            while(!heap.isEmpty()) {
+                int u = heap.extractMin();
+                long sDist = lDists.get(u);
+                if (sDist > radius || settle(u))
+                    break;
+                for (Edge e = graph.node(u).out(); e != null; e = e.next()) {
+                    if (filter != null && filter.filter(e))
+                        continue;
+                    int v = e.target().nodeId();
+                    long w = lWeights.get(e);
+                    if (w < 0 || w > span)
+                        span = outgrow(w, e);
+                    long tDist = sDist + w;
+                    if (!heap.queued(v)) {
+                        lDists.set(v, tDist);
+                        heap.insert(v, tDist);
+                        parents.set(v, e);
+                    } else if (tDist < lDists.get(v) && heap.contains(v)) {
+                        lDists.set(v, tDist);
+                        heap.decreaseKey(v, tDist);
+                        parents.set(v, e);
+                    }
+                }
+            }
+            break;
+        case Float:
+            FloatNodeMap fDists = (FloatNodeMap) distMap;
+            FloatEdgeMap fWeights = (FloatEdgeMap) weights;
+            heap.insert(source.nodeId(), IntDHeap.doubleKey(fDists.get(source)));
+            while(!heap.isEmpty()) {
+                int u = heap.extractMin();
+                float sDist = fDists.get(u);
+                if (sDist > radius || settle(u))
+                    break;
+                for (Edge e = graph.node(u).out(); e != null; e = e.next()) {
+                    if (filter != null && filter.filter(e))
+                        continue;
+                    int v = e.target().nodeId();
+                    float w = fWeights.get(e);
+                    if (w < 0)
+                        throw negativeWeight(e);
+                    float tDist = sDist + w;
+                    if (!heap.queued(v)) {
+                        fDists.set(v, tDist);
+                        heap.insert(v, IntDHeap.doubleKey(tDist));
+                        parents.set(v, e);
+                    } else if (tDist < fDists.get(v) && heap.contains(v)) {
+                        fDists.set(v, tDist);
+                        heap.decreaseKey(v, IntDHeap.doubleKey(tDist));
+                        parents.set(v, e);
+                    }
+                }
+            }
+            break;
+        case Double:
+            DoubleNodeMap dDists = (DoubleNodeMap) distMap;
+            DoubleEdgeMap dWeights = (DoubleEdgeMap) weights;
+            heap.insert(source.nodeId(), IntDHeap.doubleKey(dDists.get(source)));
+            while(!heap.isEmpty()) {
+                int u = heap.extractMin();
+                double sDist = dDists.get(u);
+                if (sDist > radius || settle(u))
+                    break;
+                for (Edge e = graph.node(u).out(); e != null; e = e.next()) {
+                    if (filter != null && filter.filter(e))
+                        continue;
+                    int v = e.target().nodeId();
+                    double w = dWeights.get(e);
+                    if (w < 0)
+                        throw negativeWeight(e);
+                    double tDist = sDist + w;
+                    if (!heap.queued(v)) {
+                        dDists.set(v, tDist);
+                        heap.insert(v, IntDHeap.doubleKey(tDist));
+                        parents.set(v, e);
+                    } else if (tDist < dDists.get(v) && heap.contains(v)) {
+                        dDists.set(v, tDist);
+                        heap.decreaseKey(v, IntDHeap.doubleKey(tDist));
+                        parents.set(v, e);
+                    }
+                }
+            }
+            break;
+        default:
+            throw new Error();
+        }
+    }
+
+    /*
+      Primitive queue version of run() for unfiltered IntAdjacency graphs.
+     */
+    private void runAdjacency(IntAdjacency adj)
+    {
+        long span = span();
+        switch (distMap.type()) {
+        case Int:
+            IntNodeMap iDists = (IntNodeMap) distMap;
+            IntEdgeMap iWeights = (IntEdgeMap) weights;
+            heap.insert(source.nodeId(), iDists.get(source));
+            while(!heap.isEmpty()) {
+                int u = heap.extractMin();
+                int sDist = iDists.get(u);
+                if (sDist > radius || settle(u))
+                    break;
+                for (int i=0, deg=adj.outDegree(u); i<deg; ++i) {
+                    int v = adj.outTarget(u, i);
+                    int w = iWeights.get(adj.outEdgeId(u, i));
+                    if (w < 0 || w > span)
+                        span = outgrow(w, adj.outEdge(u, i));
+                    int tDist = sDist + w;
+                    if (!heap.queued(v)) {
+                        iDists.set(v, tDist);
+                        heap.insert(v, tDist);
+                        parents.set(v, adj.outEdge(u, i));
+                    } else if (tDist < iDists.get(v) && heap.contains(v)) {
+                        iDists.set(v, tDist);
+                        heap.decreaseKey(v, tDist);
+                        parents.set(v, adj.outEdge(u, i));
+                    }
+                }
+            }
+            break;
+        case Long:
+            LongNodeMap lDists = (LongNodeMap) distMap;
+            LongEdgeMap lWeights = (LongEdgeMap) weights;
+            heap.insert(source.nodeId(), lDists.get(source));
+            while(!heap.isEmpty()) {
+                int u = heap.extractMin();
+                long sDist = lDists.get(u);
+                if (sDist > radius || settle(u))
+                    break;
+                for (int i=0, deg=adj.outDegree(u); i<deg; ++i) {
+                    int v = adj.outTarget(u, i);
+                    long w = lWeights.get(adj.outEdgeId(u, i));
+                    if (w < 0 || w > span)
+                        span = outgrow(w, adj.outEdge(u, i));
+                    long tDist = sDist + w;
+                    if (!heap.queued(v)) {
+                        lDists.set(v, tDist);
+                        heap.insert(v, tDist);
+                        parents.set(v, adj.outEdge(u, i));
+                    } else if (tDist < lDists.get(v) && heap.contains(v)) {
+                        lDists.set(v, tDist);
+                        heap.decreaseKey(v, tDist);
+                        parents.set(v, adj.outEdge(u, i));
+                    }
+                }
+            }
+            break;
+        case Float:
+            FloatNodeMap fDists = (FloatNodeMap) distMap;
+            FloatEdgeMap fWeights = (FloatEdgeMap) weights;
+            heap.insert(source.nodeId(), IntDHeap.doubleKey(fDists.get(source)));
+            while(!heap.isEmpty()) {
+                int u = heap.extractMin();
+                float sDist = fDists.get(u);
+                if (sDist > radius || settle(u))
+                    break;
+                for (int i=0, deg=adj.outDegree(u); i<deg; ++i) {
+                    int v = adj.outTarget(u, i);
+                    float w = fWeights.get(adj.outEdgeId(u, i));
+                    if (w < 0)
+                        throw negativeWeight(adj.outEdge(u, i));
+                    float tDist = sDist + w;
+                    if (!heap.queued(v)) {
+                        fDists.set(v, tDist);
+                        heap.insert(v, IntDHeap.doubleKey(tDist));
+                        parents.set(v, adj.outEdge(u, i));
+                    } else if (tDist < fDists.get(v) && heap.contains(v)) {
+                        fDists.set(v, tDist);
+                        heap.decreaseKey(v, IntDHeap.doubleKey(tDist));
+                        parents.set(v, adj.outEdge(u, i));
+                    }
+                }
+            }
+            break;
+        case Double:
+            DoubleNodeMap dDists = (DoubleNodeMap) distMap;
+            DoubleEdgeMap dWeights = (DoubleEdgeMap) weights;
+            heap.insert(source.nodeId(), IntDHeap.doubleKey(dDists.get(source)));
+            while(!heap.isEmpty()) {
+                int u = heap.extractMin();
+                double sDist = dDists.get(u);
+                if (sDist > radius || settle(u))
+                    break;
+                for (int i=0, deg=adj.outDegree(u); i<deg; ++i) {
+                    int v = adj.outTarget(u, i);
+                    double w = dWeights.get(adj.outEdgeId(u, i));
+                    if (w < 0)
+                        throw negativeWeight(adj.outEdge(u, i));
+                    double tDist = sDist + w;
+                    if (!heap.queued(v)) {
+                        dDists.set(v, tDist);
+                        heap.insert(v, IntDHeap.doubleKey(tDist));
+                        parents.set(v, adj.outEdge(u, i));
+                    } else if (tDist < dDists.get(v) && heap.contains(v)) {
+                        dDists.set(v, tDist);
+                        heap.decreaseKey(v, IntDHeap.doubleKey(tDist));
+                        parents.set(v, adj.outEdge(u, i));
+                    }
+                }
+            }
+            break;
+        default:
+            throw new Error();
+        }
+    }
+
     protected Comparator<Node> getComparator(final NativeNodeMap d, NativeMap.Type t)
     {
         switch (t) {
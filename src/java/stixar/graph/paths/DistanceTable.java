@@ -0,0 +1,299 @@
+package stixar.graph.paths;
+
+import stixar.graph.Digraph;
+import stixar.graph.Edge;
+import stixar.graph.Node;
+
+import stixar.graph.attr.NativeEdgeMap;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+   A table of shortest path distances from a set of sources to a set of
+   targets.
+   <p>
+   The distances are kept in a single flat array in row major order, the
+   distance from <tt>sources()[i]</tt> to <tt>targets()[j]</tt> at position
+   <tt>i * columns() + j</tt>: a <tt>long[]</tt> for <tt>int</tt> and
+   <tt>long</tt> weights, holding <tt>Long.MAX_VALUE</tt> for unreachable
+   pairs, and a <tt>double[]</tt> otherwise, holding infinity.  A table
+   may also hold, in an array of the same layout, the last edge of a
+   shortest path for each pair.
+   </p><p>
+   Tables are computed either by Dijkstra's algorithm from each source,
+   stopping once every target is settled, or from a
+   {@link ContractionHierarchy} by the bucket algorithm: a backward upward
+   search from each target leaves its distance to each node it settles
+   in a bucket at that node, and a forward upward search from each source
+   then scans the buckets of the nodes it settles, so that the table
+   costs one small search per source and per target.  Either way the
+   sources are searched in parallel, each thread with its own arrays and
+   heap, writing whole rows of the table.
+   </p>
+ */
+public final class DistanceTable
+{
+    private final Node[] sources;
+    private final Node[] targets;
+    private final int cols;
+    private final long[] ldist;
+    private final double[] ddist;
+    private final Edge[] preds;
+
+    DistanceTable(Node[] sources, Node[] targets, boolean integral, boolean predecessors)
+    {
+        this.sources = sources;
+        this.targets = targets;
+        this.cols = targets.length;
+        int size = sources.length * targets.length;
+        this.ldist = integral ? new long[size] : null;
+        this.ddist = integral ? null : new double[size];
+        this.preds = predecessors ? new Edge[size] : null;
+    }
+
+    /**
+       Compute the distance table of a digraph with Dijkstra's algorithm,
+       on as many threads as there are processors, without predecessors.
+       @see #compute(Digraph,NativeEdgeMap,Node[],Node[],boolean,ExecutorService,int)
+     */
+    public static DistanceTable compute(Digraph dg, NativeEdgeMap weights,
+                                        Node[] sources, Node[] targets)
+    {
+        return compute(dg, weights, sources, targets, false, null,
+                       Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+       Compute the distance table of a digraph with Dijkstra's algorithm
+       from each source.
+       <p>
+       The edges kept by the filter of the digraph are laid out once in
+       arrays shared by all threads, and each search stops once every
+       target is settled.  Available native types:
+       <tt>int,long,float,double</tt>; <tt>int</tt> and <tt>long</tt>
+       weights are summed as <tt>long</tt>s, <tt>float</tt> and
+       <tt>double</tt> weights as <tt>double</tt>s.
+       </p>
+       @param dg the digraph.
+       @param weights the edge weights, none negative.
+       @param sources the sources, the rows of the table.
+       @param targets the targets, the columns of the table.
+       @param predecessors whether to record the last edge of a shortest
+       path for each pair.
+       @param executor the executor running the searches, or <tt>null</tt>
+       for a pool of <tt>threads</tt> threads made for the call.
+       @param threads the number of tasks.
+       @throws IllegalArgumentException if the native type of the weights
+       is not supported, a weight is negative, or <tt>threads</tt> is not
+       positive.
+     */
+    public static DistanceTable compute(Digraph dg, NativeEdgeMap weights,
+                                        Node[] sources, Node[] targets,
+                                        boolean predecessors,
+                                        ExecutorService executor, int threads)
+    {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be positive");
+        TableSearch ts = new TableSearch(dg, weights, sources, targets, predecessors);
+        run(ts, executor, threads);
+        return ts.table();
+    }
+
+    /**
+       Compute the distance table of the graph of a contraction hierarchy
+       with the bucket algorithm, on as many threads as there are
+       processors.
+       @see #compute(ContractionHierarchy,Node[],Node[],ExecutorService,int)
+     */
+    public static DistanceTable compute(ContractionHierarchy ch,
+                                        Node[] sources, Node[] targets)
+    {
+        return compute(ch, sources, targets, null,
+                       Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+       Compute the distance table of the graph of a contraction hierarchy
+       with the bucket algorithm.  The distances are <tt>double</tt>s,
+       as are those of the hierarchy, and no predecessors are recorded.
+       @param ch the hierarchy.
+       @param sources the sources, the rows of the table.
+       @param targets the targets, the columns of the table.
+       @param executor the executor running the searches, or <tt>null</tt>
+       for a pool of <tt>threads</tt> threads made for the call.
+       @param threads the number of tasks.
+       @throws IllegalArgumentException if <tt>threads</tt> is not
+       positive.
+     */
+    public static DistanceTable compute(ContractionHierarchy ch,
+                                        Node[] sources, Node[] targets,
+                                        ExecutorService executor, int threads)
+    {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be positive");
+        CHBuckets b = new CHBuckets(ch, sources, targets);
+        run(b.backward(), executor, threads);
+        b.fill();
+        run(b.forward(), executor, threads);
+        return b.table();
+    }
+
+    /*
+      Run a phase on threads workers, on the executor if there is one,
+      on a pool made for the call if threads > 1, and in the calling
+      thread otherwise.
+     */
+    private static void run(Workers.Task phase, ExecutorService executor, int threads)
+    {
+        ExecutorService pool = executor;
+        if (pool == null && threads > 1)
+            pool = Executors.newFixedThreadPool(threads);
+        try {
+            Workers.run(pool, threads, phase, "distance table");
+        } finally {
+            if (executor == null && pool != null)
+                pool.shutdown();
+        }
+    }
+
+    /**
+       Return the sources, the rows of this table.  The array is not
+       copied and should not be modified.
+     */
+    public Node[] sources()
+    {
+        return sources;
+    }
+
+    /**
+       Return the targets, the columns of this table.  The array is not
+       copied and should not be modified.
+     */
+    public Node[] targets()
+    {
+        return targets;
+    }
+
+    /**
+       Return the number of rows of this table.
+     */
+    public int rows()
+    {
+        return sources.length;
+    }
+
+    /**
+       Return the number of columns of this table.
+     */
+    public int columns()
+    {
+        return cols;
+    }
+
+    /**
+       Return whether the distances of this table are <tt>long</tt>s.
+     */
+    public boolean isIntegral()
+    {
+        return ldist != null;
+    }
+
+    /**
+       Return whether this table holds predecessor edges.
+     */
+    public boolean hasPredecessors()
+    {
+        return preds != null;
+    }
+
+    /**
+       Return the flat array of <tt>long</tt> distances, in row major
+       order, unreachable pairs holding <tt>Long.MAX_VALUE</tt>.  The
+       array is not copied.
+       @throws IllegalStateException if the distances are not integral.
+     */
+    public long[] longArray()
+    {
+        if (ldist == null)
+            throw new IllegalStateException("distances are not integral");
+        return ldist;
+    }
+
+    /**
+       Return the flat array of <tt>double</tt> distances, in row major
+       order, unreachable pairs holding infinity.  The array is not
+       copied.
+       @throws IllegalStateException if the distances are integral.
+     */
+    public double[] doubleArray()
+    {
+        if (ddist == null)
+            throw new IllegalStateException("distances are integral");
+        return ddist;
+    }
+
+    /**
+       Return the distance from source <tt>i</tt> to target <tt>j</tt>,
+       or infinity if there is no path.
+     */
+    public double distance(int i, int j)
+    {
+        int k = i * cols + j;
+        if (ldist == null)
+            return ddist[k];
+        return ldist[k] == Long.MAX_VALUE ? Double.POSITIVE_INFINITY : ldist[k];
+    }
+
+    /**
+       Return the integral distance from source <tt>i</tt> to target
+       <tt>j</tt>, or <tt>Long.MAX_VALUE</tt> if there is no path.
+       @throws IllegalStateException if the distances are not integral.
+     */
+    public long longDistance(int i, int j)
+    {
+        return longArray()[i * cols + j];
+    }
+
+    /**
+       Return whether source <tt>i</tt> reaches target <tt>j</tt>.
+     */
+    public boolean reaches(int i, int j)
+    {
+        int k = i * cols + j;
+        if (ldist == null)
+            return ddist[k] != Double.POSITIVE_INFINITY;
+        return ldist[k] != Long.MAX_VALUE;
+    }
+
+    /**
+       Return the last edge of a shortest path from source <tt>i</tt> to
+       target <tt>j</tt>, or <tt>null</tt> if there is no path or the
+       source is the target.
+       @throws IllegalStateException if predecessors were not recorded.
+     */
+    public Edge predecessor(int i, int j)
+    {
+        if (preds == null)
+            throw new IllegalStateException("predecessors not recorded");
+        return preds[i * cols + j];
+    }
+
+    /*
+      The raw arrays, for the computations filling them.
+     */
+    long[] longs()
+    {
+        return ldist;
+    }
+
+    double[] doubles()
+    {
+        return ddist;
+    }
+
+    Edge[] preds()
+    {
+        return preds;
+    }
+}
@@ -0,0 +1,414 @@
+package stixar.graph.paths;
+
+import stixar.graph.Digraph;
+import stixar.graph.Edge;
+import stixar.graph.GraphFilter;
+import stixar.graph.Node;
+
+import stixar.graph.attr.DoubleEdgeMap;
+import stixar.graph.attr.DoubleNodeMatrix;
+import stixar.graph.attr.FloatEdgeMap;
+import stixar.graph.attr.FloatNodeMatrix;
+import stixar.graph.attr.IntEdgeMap;
+import stixar.graph.attr.IntNodeMatrix;
+import stixar.graph.attr.LongEdgeMap;
+import stixar.graph.attr.LongNodeMatrix;
+import stixar.graph.attr.NativeEdgeMap;
+import stixar.graph.attr.NativeMap;
+import stixar.graph.attr.NativeNodeMatrix;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+  Blocked Floyd-Warshall on a flat row major copy of the matrix, for
+  APSP.apspDense with native weights.
+
+  The nodes are numbered densely and the distances copied into one
+  primitive array of the weight type, cut into Tile x Tile tiles.  For
+  each diagonal tile kb, phase one closes the diagonal tile over its own
+  intermediate nodes, phase two updates the tiles of row and column kb
+  from it, and phase three updates every other tile from its row and
+  column tiles of phase two.  The tiles of phases two and three are
+  independent and run on a ForkJoinPool, phase three one row of tiles
+  per task.  The inner loops run over contiguous ranges of one row, and
+  the float and double loops have no test but the minimum, so that the
+  JIT may vectorize them.  Unreached pairs hold the greatest value of
+  the type, or infinity.
+ */
+final class FloydNative
+{
+    static final int Tile = 64;
+
+    private final Digraph graph;
+    private final GraphFilter filter;
+    private final NativeEdgeMap weights;
+    private final NativeNodeMatrix matrix;
+    private final NativeMap.Type type;
+
+    // dense index of node ids and back
+    private final int[] index;
+    private final int[] ids;
+    private final int k;
+    private final int tiles;
+
+    FloydNative(Digraph dg, NativeEdgeMap weights, NativeNodeMatrix m)
+    {
+        Weights.check(weights);
+        this.type = weights.type();
+        if (!(type == NativeMap.Type.Int && m instanceof IntNodeMatrix
+              || type == NativeMap.Type.Long && m instanceof LongNodeMatrix
+              || type == NativeMap.Type.Float && m instanceof FloatNodeMatrix
+              || type == NativeMap.Type.Double && m instanceof DoubleNodeMatrix))
+            throw new IllegalArgumentException("matrix differs from weight type " + type);
+        this.graph = dg;
+        this.filter = dg.getFilter();
+        this.weights = weights;
+        this.matrix = m;
+        int n = dg.nodeAttrSize();
+        index = new int[n];
+        ids = new int[n];
+        int c = 0;
+        for (Node u : dg.nodes()) {
+            index[u.nodeId()] = c;
+            ids[c++] = u.nodeId();
+        }
+        k = c;
+        tiles = (k + Tile - 1) / Tile;
+        if ((long) k * k > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("too many nodes for a flat matrix: " + k);
+    }
+
+    /*
+      Fill the matrix, on the pool if there is one.
+     */
+    void run(ForkJoinPool pool)
+    {
+        final Kernel kernel;
+        switch (type) {
+        case Int:
+            kernel = new IntKernel();
+            break;
+        case Long:
+            kernel = new LongKernel();
+            break;
+        case Float:
+            kernel = new FloatKernel();
+            break;
+        default:
+            kernel = new DoubleKernel();
+            break;
+        }
+        kernel.load();
+        for (int b=0; b<tiles; ++b) {
+            final int kb = b;
+            kernel.update(kb, kb, kb);
+            // row kb for t < tiles - 1, column kb for the others
+            phase(pool, 2 * (tiles - 1), new Work() {
+                    public void run(int t)
+                    {
+                        int jb = t % (tiles - 1);
+                        if (jb >= kb)
+                            jb++;
+                        if (t < tiles - 1)
+                            kernel.update(kb, jb, kb);
+                        else
+                            kernel.update(jb, kb, kb);
+                    }
+                });
+            phase(pool, tiles - 1, new Work() {
+                    public void run(int ib)
+                    {
+                        if (ib >= kb)
+                            ib++;
+                        for (int jb=0; jb<tiles; ++jb)
+                            if (jb != kb)
+                                kernel.update(ib, jb, kb);
+                    }
+                });
+        }
+        kernel.store();
+    }
+
+    private interface Work
+    {
+        void run(int i);
+    }
+
+    private void phase(ForkJoinPool pool, int count, Work work)
+    {
+        if (pool == null || count <= 1) {
+            for (int i=0; i<count; ++i)
+                work.run(i);
+            return;
+        }
+        pool.invoke(new Phase(work, 0, count));
+    }
+
+    private static final class Phase extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Work work;
+        private final int lo;
+        private final int hi;
+
+        Phase(Work work, int lo, int hi)
+        {
+            this.work = work;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        protected void compute()
+        {
+            if (hi - lo == 1) {
+                work.run(lo);
+            } else {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Phase(work, lo, mid), new Phase(work, mid, hi));
+            }
+        }
+    }
+
+    private boolean skip(Edge e)
+    {
+        return filter != null && filter.filter(e);
+    }
+
+    /*
+      The distances of one native type.
+     */
+    private abstract class Kernel
+    {
+        /*
+          Copy the edges in, the diagonal being zero unless a self loop is
+          negative.
+         */
+        abstract void load();
+
+        /*
+          Update tile (ib,jb) through the intermediate nodes of tile kb.
+         */
+        abstract void update(int ib, int jb, int kb);
+
+        abstract void store();
+    }
+
+    private final class IntKernel extends Kernel
+    {
+        private int[] d;
+
+        void load()
+        {
+            d = new int[k * k];
+            Arrays.fill(d, Integer.MAX_VALUE);
+            for (int i=0; i<k; ++i)
+                d[i * k + i] = 0;
+            IntEdgeMap w = (IntEdgeMap) weights;
+            for (Edge e : graph.edges()) {
+                if (skip(e))
+                    continue;
+                int c = index[e.source().nodeId()] * k + index[e.target().nodeId()];
+                d[c] = Math.min(d[c], w.get(e));
+            }
+        }
+
+        void update(int ib, int jb, int kb)
+        {
+            int i1 = Math.min(k, (ib + 1) * Tile);
+            int j0 = jb * Tile;
+            int j1 = Math.min(k, j0 + Tile);
+            int x1 = Math.min(k, (kb + 1) * Tile);
+            for (int x = kb * Tile; x < x1; ++x) {
+                int xr = x * k;
+                for (int i = ib * Tile; i < i1; ++i) {
+                    int ir = i * k;
+                    int dix = d[ir + x];
+                    if (dix == Integer.MAX_VALUE)
+                        continue;
+                    for (int j=j0; j<j1; ++j) {
+                        int dxj = d[xr + j];
+                        if (dxj != Integer.MAX_VALUE && dix + dxj < d[ir + j])
+                            d[ir + j] = dix + dxj;
+                    }
+                }
+            }
+        }
+
+        void store()
+        {
+            IntNodeMatrix m = (IntNodeMatrix) matrix;
+            int[] row = new int[index.length];
+            Arrays.fill(row, Integer.MAX_VALUE);
+            for (int i=0; i<k; ++i) {
+                for (int j=0; j<k; ++j)
+                    row[ids[j]] = d[i * k + j];
+                m.setRow(graph.node(ids[i]), row);
+            }
+        }
+    }
+
+    private final class LongKernel extends Kernel
+    {
+        private long[] d;
+
+        void load()
+        {
+            d = new long[k * k];
+            Arrays.fill(d, Long.MAX_VALUE);
+            for (int i=0; i<k; ++i)
+                d[i * k + i] = 0;
+            LongEdgeMap w = (LongEdgeMap) weights;
+            for (Edge e : graph.edges()) {
+                if (skip(e))
+                    continue;
+                int c = index[e.source().nodeId()] * k + index[e.target().nodeId()];
+                d[c] = Math.min(d[c], w.get(e));
+            }
+        }
+
+        void update(int ib, int jb, int kb)
+        {
+            int i1 = Math.min(k, (ib + 1) * Tile);
+            int j0 = jb * Tile;
+            int j1 = Math.min(k, j0 + Tile);
+            int x1 = Math.min(k, (kb + 1) * Tile);
+            for (int x = kb * Tile; x < x1; ++x) {
+                int xr = x * k;
+                for (int i = ib * Tile; i < i1; ++i) {
+                    int ir = i * k;
+                    long dix = d[ir + x];
+                    if (dix == Long.MAX_VALUE)
+                        continue;
+                    for (int j=j0; j<j1; ++j) {
+                        long dxj = d[xr + j];
+                        if (dxj != Long.MAX_VALUE && dix + dxj < d[ir + j])
+                            d[ir + j] = dix + dxj;
+                    }
+                }
+            }
+        }
+
+        void store()
+        {
+            LongNodeMatrix m = (LongNodeMatrix) matrix;
+            long[] row = new long[index.length];
+            Arrays.fill(row, Long.MAX_VALUE);
+            for (int i=0; i<k; ++i) {
+                for (int j=0; j<k; ++j)
+                    row[ids[j]] = d[i * k + j];
+                m.setRow(graph.node(ids[i]), row);
+            }
+        }
+    }
+
+    private final class FloatKernel extends Kernel
+    {
+        private float[] d;
+
+        void load()
+        {
+            d = new float[k * k];
+            Arrays.fill(d, Float.POSITIVE_INFINITY);
+            for (int i=0; i<k; ++i)
+                d[i * k + i] = 0;
+            FloatEdgeMap w = (FloatEdgeMap) weights;
+            for (Edge e : graph.edges()) {
+                if (skip(e))
+                    continue;
+                int c = index[e.source().nodeId()] * k + index[e.target().nodeId()];
+                d[c] = Math.min(d[c], w.get(e));
+            }
+        }
+
+        void update(int ib, int jb, int kb)
+        {
+            int i1 = Math.min(k, (ib + 1) * Tile);
+            int j0 = jb * Tile;
+            int j1 = Math.min(k, j0 + Tile);
+            int x1 = Math.min(k, (kb + 1) * Tile);
+            for (int x = kb * Tile; x < x1; ++x) {
+                int xr = x * k;
+                for (int i = ib * Tile; i < i1; ++i) {
+                    int ir = i * k;
+                    float dix = d[ir + x];
+                    if (dix == Float.POSITIVE_INFINITY)
+                        continue;
+                    for (int j=j0; j<j1; ++j) {
+                        float s = dix + d[xr + j];
+                        if (s < d[ir + j])
+                            d[ir + j] = s;
+                    }
+                }
+            }
+        }
+
+        void store()
+        {
+            FloatNodeMatrix m = (FloatNodeMatrix) matrix;
+            float[] row = new float[index.length];
+            Arrays.fill(row, Float.POSITIVE_INFINITY);
+            for (int i=0; i<k; ++i) {
+                for (int j=0; j<k; ++j)
+                    row[ids[j]] = d[i * k + j];
+                m.setRow(graph.node(ids[i]), row);
+            }
+        }
+    }
+
+    private final class DoubleKernel extends Kernel
+    {
+        private double[] d;
+
+        void load()
+        {
+            d = new double[k * k];
+            Arrays.fill(d, Double.POSITIVE_INFINITY);
+            for (int i=0; i<k; ++i)
+                d[i * k + i] = 0;
+            DoubleEdgeMap w = (DoubleEdgeMap) weights;
+            for (Edge e : graph.edges()) {
+                if (skip(e))
+                    continue;
+                int c = index[e.source().nodeId()] * k + index[e.target().nodeId()];
+                d[c] = Math.min(d[c], w.get(e));
+            }
+        }
+
+        void update(int ib, int jb, int kb)
+        {
+            int i1 = Math.min(k, (ib + 1) * Tile);
+            int j0 = jb * Tile;
+            int j1 = Math.min(k, j0 + Tile);
+            int x1 = Math.min(k, (kb + 1) * Tile);
+            for (int x = kb * Tile; x < x1; ++x) {
+                int xr = x * k;
+                for (int i = ib * Tile; i < i1; ++i) {
+                    int ir = i * k;
+                    double dix = d[ir + x];
+                    if (dix == Double.POSITIVE_INFINITY)
+                        continue;
+                    for (int j=j0; j<j1; ++j) {
+                        double s = dix + d[xr + j];
+                        if (s < d[ir + j])
+                            d[ir + j] = s;
+                    }
+                }
+            }
+        }
+
+        void store()
+        {
+            DoubleNodeMatrix m = (DoubleNodeMatrix) matrix;
+            double[] row = new double[index.length];
+            Arrays.fill(row, Double.POSITIVE_INFINITY);
+            for (int i=0; i<k; ++i) {
+                for (int j=0; j<k; ++j)
+                    row[ids[j]] = d[i * k + j];
+                m.setRow(graph.node(ids[i]), row);
+            }
+        }
+    }
+}
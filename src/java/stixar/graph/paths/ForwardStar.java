@@ -0,0 +1,118 @@
+package stixar.graph.paths;
+
+import stixar.graph.Edge;
+import stixar.graph.Graph;
+import stixar.graph.GraphFilter;
+import stixar.graph.IntAdjacency;
+import stixar.graph.Node;
+
+import stixar.graph.attr.IntEdgeMap;
+import stixar.graph.attr.LongEdgeMap;
+import stixar.graph.attr.NativeEdgeMap;
+import stixar.graph.attr.NativeMap;
+
+/*
+  Weighted arcs laid out by tail in flat arrays, the arcs of node u at
+  first[u] .. first[u+1]-1, for the primitive searches of StarSearch.
+
+  Weights are longs in an integral star and doubles otherwise.  The edge
+  of each arc is kept if asked for; the arcs of a star without edges, or
+  arcs not laid out from an edge such as the shortcuts of a hierarchy,
+  have identifier -1 and no edge.
+ */
+final class ForwardStar implements IntAdjacency
+{
+    final int[] first;
+    final int[] head;
+    final long[] lweight;
+    final double[] dweight;
+    final Edge[] edges;
+
+    ForwardStar(int[] first, int[] head, long[] lweight, double[] dweight, Edge[] edges)
+    {
+        this.first = first;
+        this.head = head;
+        this.lweight = lweight;
+        this.dweight = dweight;
+        this.edges = edges;
+    }
+
+    /*
+      Lay out the edges of g kept by filter, which may be null.  The
+      weights of an integral star must be of type int or long.
+     */
+    static ForwardStar build(Graph g, GraphFilter filter, NativeEdgeMap weights,
+                             boolean integral, boolean keepEdges)
+    {
+        int n = g.nodeAttrSize();
+        int[] first = new int[n + 1];
+        for (Node u : g.nodes())
+            for (Edge e = u.out(); e != null; e = e.next())
+                if (filter == null || !filter.filter(e))
+                    first[u.nodeId() + 1]++;
+        for (int i=0; i<n; ++i)
+            first[i + 1] += first[i];
+        int m = first[n];
+        int[] head = new int[m];
+        long[] lweight = integral ? new long[m] : null;
+        double[] dweight = integral ? null : new double[m];
+        Edge[] edges = keepEdges ? new Edge[m] : null;
+        boolean ints = weights.type() == NativeMap.Type.Int;
+        int k = 0;
+        for (int u=0; u<n; ++u) {
+            Node un = g.node(u);
+            if (un == null)
+                continue;
+            for (Edge e = un.out(); e != null; e = e.next()) {
+                if (filter != null && filter.filter(e))
+                    continue;
+                head[k] = e.target().nodeId();
+                boolean negative;
+                if (integral)
+                    negative = (lweight[k] = ints ? ((IntEdgeMap) weights).get(e)
+                                : ((LongEdgeMap) weights).get(e)) < 0;
+                else
+                    negative = (dweight[k] = Weights.get(weights, e)) < 0;
+                if (negative)
+                    throw new IllegalArgumentException("negative weight on edge " + e);
+                if (edges != null)
+                    edges[k] = e;
+                k++;
+            }
+        }
+        return new ForwardStar(first, head, lweight, dweight, edges);
+    }
+
+    /*
+      Javadoc'd in IntAdjacency.
+     */
+    public int outDegree(int u)
+    {
+        return first[u + 1] - first[u];
+    }
+
+    /*
+      Javadoc'd in IntAdjacency.
+     */
+    public int outTarget(int u, int i)
+    {
+        return head[first[u] + i];
+    }
+
+    /*
+      Javadoc'd in IntAdjacency.
+     */
+    public int outEdgeId(int u, int i)
+    {
+        Edge e = outEdge(u, i);
+        return e == null ? -1 : e.edgeId();
+    }
+
+    /*
+      Javadoc'd in IntAdjacency.
+     */
+    public Edge outEdge(int u, int i)
+    {
+        return edges == null ? null : edges[first[u] + i];
+    }
+}
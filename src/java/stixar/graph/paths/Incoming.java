@@ -0,0 +1,88 @@
+package stixar.graph.paths;
+
+import stixar.graph.ArrayDigraph;
+import stixar.graph.ArrayEdge;
+import stixar.graph.ArrayNode;
+import stixar.graph.BasicDigraph;
+import stixar.graph.BasicEdge;
+import stixar.graph.BasicNode;
+import stixar.graph.Edge;
+import stixar.graph.Graph;
+import stixar.graph.Node;
+
+/*
+  A cursor over the incoming edges of the nodes of a graph, for searches
+  which run backwards from a target:
+
+    for (Edge e = in.first(v); e != null; e = in.next(e)) ...
+
+  visits the edges whose target is v.  BasicDigraph and ArrayDigraph are
+  walked through their incoming edge lists.  For other graphs, undirected
+  ones included, the incoming edges are tabulated from the outgoing ones
+  when the cursor is created, so that the graph should not be modified
+  while the cursor is used.  A cursor supports one loop at a time.
+ */
+final class Incoming
+{
+    private static final int Basic = 0;
+    private static final int Array = 1;
+    private static final int Table = 2;
+
+    private final int mode;
+    private int[] offsets;
+    private Edge[] edges;
+    private int pos;
+    private int end;
+
+    Incoming(Graph g)
+    {
+        if (g instanceof BasicDigraph) {
+            mode = Basic;
+        } else if (g instanceof ArrayDigraph) {
+            mode = Array;
+        } else {
+            mode = Table;
+            int nasz = g.nodeAttrSize();
+            offsets = new int[nasz + 1];
+            for (Node u : g.nodes()) {
+                for (Edge e = u.out(); e != null; e = e.next())
+                    offsets[e.target().nodeId() + 1]++;
+            }
+            for (int i=0; i<nasz; ++i)
+                offsets[i + 1] += offsets[i];
+            int[] fill = offsets.clone();
+            edges = new Edge[offsets[nasz]];
+            for (Node u : g.nodes()) {
+                for (Edge e = u.out(); e != null; e = e.next())
+                    edges[fill[e.target().nodeId()]++] = e;
+            }
+        }
+    }
+
+    Edge first(Node v)
+    {
+        switch (mode) {
+        case Basic:
+            return ((BasicNode) v).in();
+        case Array:
+            return ((ArrayNode) v).in();
+        default:
+            int id = v.nodeId();
+            pos = offsets[id];
+            end = offsets[id + 1];
+            return pos < end ? edges[pos] : null;
+        }
+    }
+
+    Edge next(Edge e)
+    {
+        switch (mode) {
+        case Basic:
+            return ((BasicEdge) e).nextIn();
+        case Array:
+            return ((ArrayEdge) e).nextIn();
+        default:
+            return ++pos < end ? edges[pos] : null;
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package stixar.graph.paths;
+
+import stixar.graph.Digraph;
+import stixar.graph.Edge;
+import stixar.graph.GraphFilter;
+import stixar.graph.Node;
+
+import stixar.graph.attr.DoubleEdgeMap;
+import stixar.graph.attr.DoubleNodeMatrix;
+import stixar.graph.attr.FloatEdgeMap;
+import stixar.graph.attr.FloatNodeMatrix;
+import stixar.graph.attr.IntEdgeMap;
+import stixar.graph.attr.IntNodeMatrix;
+import stixar.graph.attr.LongEdgeMap;
+import stixar.graph.attr.LongNodeMatrix;
+import stixar.graph.attr.NativeEdgeMap;
+import stixar.graph.attr.NativeMap;
+import stixar.graph.attr.NativeNodeMatrix;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+  Johnson's algorithm on primitive arrays, for APSP.apspSparse with
+  native weights.
+
+  Potentials come from a FIFO Bellman-Ford-Moore pass from a virtual
+  source with a zero edge to every node, checking the parent graph for
+  a cycle after every nodeSize relaxations, any such cycle being
+  negative.  The edges kept by the filter are then laid out in a
+  forward star with reduced weights, in longs for int and long weights
+  and in doubles for float and double weights, and Dijkstra runs from
+  every node on worker threads, each with its own StarSearch and row,
+  claiming sources Chunk at a time and writing whole rows into the
+  matrix.
+ */
+final class JohnsonNative
+{
+    static final int Chunk = 16;
+
+    private final Digraph graph;
+    private final GraphFilter filter;
+    private final NativeEdgeMap weights;
+    private final NativeNodeMatrix matrix;
+    private final NativeMap.Type type;
+    private final boolean integral;
+    private final int n;
+
+    // potentials
+    private long[] lpot;
+    private double[] dpot;
+
+    // forward star of reduced weights
+    private ForwardStar star;
+    private int[] sources;
+    private int nSources;
+
+    JohnsonNative(Digraph dg, NativeEdgeMap weights, NativeNodeMatrix m)
+    {
+        Weights.check(weights);
+        this.type = weights.type();
+        if (!(type == NativeMap.Type.Int && m instanceof IntNodeMatrix
+              || type == NativeMap.Type.Long && m instanceof LongNodeMatrix
+              || type == NativeMap.Type.Float && m instanceof FloatNodeMatrix
+              || type == NativeMap.Type.Double && m instanceof DoubleNodeMatrix))
+            throw new IllegalArgumentException("matrix differs from weight type " + type);
+        this.graph = dg;
+        this.filter = dg.getFilter();
+        this.weights = weights;
+        this.matrix = m;
+        this.integral = type == NativeMap.Type.Int || type == NativeMap.Type.Long;
+        this.n = dg.nodeAttrSize();
+    }
+
+    private boolean skip(Edge e)
+    {
+        return filter != null && filter.filter(e);
+    }
+
+    private long lweight(Edge e)
+    {
+        if (type == NativeMap.Type.Int)
+            return ((IntEdgeMap) weights).get(e);
+        return ((LongEdgeMap) weights).get(e);
+    }
+
+    private double dweight(Edge e)
+    {
+        if (type == NativeMap.Type.Float)
+            return ((FloatEdgeMap) weights).get(e);
+        return ((DoubleEdgeMap) weights).get(e);
+    }
+
+    /*
+      Compute the potentials, returning a negative cycle if there is one.
+     */
+    Path potentials()
+    {
+        if (integral)
+            lpot = new long[n];
+        else
+            dpot = new double[n];
+        Edge[] parent = new Edge[n];
+        boolean[] queued = new boolean[n];
+        int[] queue = new int[n];
+        int qHead = 0;
+        int qSize = 0;
+        int live = 0;
+        for (Node u : graph.nodes()) {
+            queue[qSize++] = u.nodeId();
+            queued[u.nodeId()] = true;
+            live++;
+        }
+        long relaxations = 0;
+        while (qSize > 0) {
+            int u = queue[qHead];
+            qHead = (qHead + 1) % n;
+            qSize--;
+            queued[u] = false;
+            for (Edge e = graph.node(u).out(); e != null; e = e.next()) {
+                if (skip(e))
+                    continue;
+                int v = e.target().nodeId();
+                if (integral) {
+                    long dv = lpot[u] + lweight(e);
+                    if (dv >= lpot[v])
+                        continue;
+                    lpot[v] = dv;
+                } else {
+                    double dv = dpot[u] + dweight(e);
+                    if (dv >= dpot[v])
+                        continue;
+                    dpot[v] = dv;
+                }
+                parent[v] = e;
+                if (!queued[v]) {
+                    queued[v] = true;
+                    queue[(qHead + qSize++) % n] = v;
+                }
+                if (++relaxations % live == 0) {
+                    Path cycle = cycle(parent);
+                    if (cycle != null)
+                        return cycle;
+                }
+            }
+        }
+        return null;
+    }
+
+    /*
+      A cycle of the parent graph, or null.
+     */
+    private Path cycle(Edge[] parent)
+    {
+        int[] walk = new int[n];
+        for (Node start : graph.nodes()) {
+            int s = start.nodeId();
+            int v = s;
+            while (walk[v] == 0 && parent[v] != null) {
+                walk[v] = s + 1;
+                v = parent[v].source().nodeId();
+            }
+            if (walk[v] != s + 1)
+                continue;
+            Path path = new Path();
+            int c = v;
+            do {
+                Edge e = parent[v];
+                path.prepend(e);
+                v = e.source().nodeId();
+            } while (v != c);
+            return path;
+        }
+        return null;
+    }
+
+    /*
+      Lay out the edges kept by the filter with their reduced weights.
+     */
+    void reweight()
+    {
+        int[] first = new int[n + 1];
+        sources = new int[n];
+        nSources = 0;
+        for (Node u : graph.nodes()) {
+            sources[nSources++] = u.nodeId();
+            for (Edge e = u.out(); e != null; e = e.next())
+                if (!skip(e))
+                    first[u.nodeId() + 1]++;
+        }
+        for (int i=0; i<n; ++i)
+            first[i + 1] += first[i];
+        int m = first[n];
+        int[] head = new int[m];
+        long[] lweight = integral ? new long[m] : null;
+        double[] dweight = integral ? null : new double[m];
+        int k = 0;
+        for (int u=0; u<n; ++u) {
+            Node un = graph.node(u);
+            if (un == null)
+                continue;
+            for (Edge e = un.out(); e != null; e = e.next()) {
+                if (skip(e))
+                    continue;
+                int v = e.target().nodeId();
+                head[k] = v;
+                if (integral) {
+                    lweight[k] = lweight(e) + lpot[u] - lpot[v];
+                } else {
+                    // rounding may leave a tight edge slightly negative
+                    double w = dweight(e) + dpot[u] - dpot[v];
+                    dweight[k] = w > 0 ? w : 0;
+                }
+                k++;
+            }
+        }
+        star = new ForwardStar(first, head, lweight, dweight, null);
+    }
+
+    /*
+      Fill the matrix, on the pool if there is one.
+     */
+    void run(ExecutorService pool, int threads)
+    {
+        final AtomicInteger next = new AtomicInteger();
+        Workers.run(pool, threads, new Workers.Task() {
+                public void work(int worker)
+                {
+                    new Worker().run(next);
+                }
+            }, "all pairs shortest paths");
+    }
+
+    /*
+      The workspace of one thread.
+     */
+    private final class Worker
+    {
+        private final StarSearch search = new StarSearch(n, integral, false, false);
+        private int[] irow;
+        private long[] lrow;
+        private float[] frow;
+        private double[] drow;
+
+        Worker()
+        {
+            switch (type) {
+            case Int:
+                irow = new int[n];
+                break;
+            case Long:
+                lrow = new long[n];
+                break;
+            case Float:
+                frow = new float[n];
+                break;
+            default:
+                drow = new double[n];
+                break;
+            }
+        }
+
+        void run(AtomicInteger next)
+        {
+            for (int i = next.getAndAdd(Chunk); i < nSources; i = next.getAndAdd(Chunk)) {
+                int end = Math.min(i + Chunk, nSources);
+                for (int j=i; j<end; ++j) {
+                    int s = sources[j];
+                    search.reset();
+                    search.run(star, s);
+                    store(s);
+                }
+            }
+        }
+
+        /*
+          Write the row of s, undoing the reweighting; nodes not reached
+          get the greatest value of the type.
+         */
+        private void store(int s)
+        {
+            Node sn = graph.node(s);
+            int[] reached = search.reached;
+            int nReached = search.nReached;
+            long[] ldist = search.ldist;
+            double[] ddist = search.ddist;
+            switch (type) {
+            case Int:
+                Arrays.fill(irow, Integer.MAX_VALUE);
+                for (int i=0; i<nReached; ++i) {
+                    int v = reached[i];
+                    irow[v] = (int) (ldist[v] - lpot[s] + lpot[v]);
+                }
+                ((IntNodeMatrix) matrix).setRow(sn, irow);
+                break;
+            case Long:
+                Arrays.fill(lrow, Long.MAX_VALUE);
+                for (int i=0; i<nReached; ++i) {
+                    int v = reached[i];
+                    lrow[v] = ldist[v] - lpot[s] + lpot[v];
+                }
+                ((LongNodeMatrix) matrix).setRow(sn, lrow);
+                break;
+            case Float:
+                Arrays.fill(frow, Float.POSITIVE_INFINITY);
+                for (int i=0; i<nReached; ++i) {
+                    int v = reached[i];
+                    frow[v] = (float) (ddist[v] - dpot[s] + dpot[v]);
+                }
+                ((FloatNodeMatrix) matrix).setRow(sn, frow);
+                break;
+            default:
+                Arrays.fill(drow, Double.POSITIVE_INFINITY);
+                for (int i=0; i<nReached; ++i) {
+                    int v = reached[i];
+                    drow[v] = ddist[v] - dpot[s] + dpot[v];
+                }
+                ((DoubleNodeMatrix) matrix).setRow(sn, drow);
+                break;
+            }
+        }
+    }
+}
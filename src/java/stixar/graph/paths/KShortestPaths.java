@@ -0,0 +1,413 @@
+package stixar.graph.paths;
+
+import stixar.graph.Edge;
+import stixar.graph.Graph;
+import stixar.graph.GraphFilter;
+import stixar.graph.Node;
+
+import stixar.graph.attr.DoubleEdgeMap;
+import stixar.graph.attr.DoubleNodeMap;
+import stixar.graph.attr.NativeEdgeMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+   The <tt>k</tt> shortest simple paths between two nodes, by Yen's
+   algorithm, generated lazily in order of increasing length.
+   <p>
+   Each path found yields candidates by deviating from it at each of its
+   nodes, the <em>spur</em> nodes: a candidate follows the path up to the
+   spur node and then a shortest path to the target which avoids the
+   nodes before the spur node and the edges leaving the spur node along
+   the paths already found with the same prefix.  The next path is the
+   shortest candidate.  As in Lawler's refinement, a path only deviates
+   at and after the node at which it deviated from the path it was
+   derived from.
+   </p><p>
+   The shortest path tree into the target is computed once, and a spur
+   path is taken from the tree whenever the tree path from the spur node
+   avoids the excluded nodes and edges, which is then a shortest spur
+   path.  Otherwise a {@link DijkstraNative} search runs from the spur node
+   with a {@link GraphFilter} excluding the nodes and edges, on top of the
+   filter of the graph, as in the refinements of Lee and of Feng: edges
+   are weighted by how much they add to the distance to the target,
+   <tt>w(u,v) + d(v) - d(u)</tt>, so that tree edges weigh nothing, and
+   the search stops at the first node settled whose tree path avoids the
+   excluded nodes, the spur path following the tree from there.  Such a
+   search usually settles a small part of the nodes a search for the
+   target would.
+   </p><p>
+   Weights of types <tt>int, long, float</tt> and <tt>double</tt> are
+   accepted, must not be negative, and are summed as <tt>double</tt>s.
+   Edge filters installed when the object is created are respected; the
+   graph and the weights should not change while paths are generated.
+   </p>
+ */
+public class KShortestPaths implements Iterator<Path>
+{
+    protected final Graph graph;
+    protected final Node source;
+    protected final Node target;
+    private final TargetTree tree;
+    private final DijkstraNative spur;
+    private final DoubleNodeMap spurDist;
+    private final SpurFilter spurFilter;
+    // the nodes whose tree path avoids the nodes of the current root
+    private final boolean[] clean;
+
+    private final List<Candidate> found;
+    private final PriorityQueue<Candidate> candidates;
+    private final Set<Candidate> seen;
+    private Candidate pending;
+    private long sequence;
+    private double length;
+    private int searches;
+
+    /**
+       Prepare to generate the shortest simple paths from <tt>s</tt> to
+       <tt>t</tt>.
+       @param g the graph.
+       @param weights the edge weights.
+       @param s the source.
+       @param t the target.
+       @throws IllegalArgumentException if the native type of the weights
+       is not supported or a weight is negative.
+     */
+    public KShortestPaths(Graph g, NativeEdgeMap weights, Node s, Node t)
+    {
+        this.graph = g;
+        this.source = s;
+        this.target = t;
+        this.tree = new TargetTree(g, weights, t);
+        int n = g.nodeAttrSize();
+        DoubleEdgeMap reduced = new DoubleEdgeMap(new double[g.edgeAttrSize()]);
+        for (Edge e : g.edges()) {
+            int u = e.source().nodeId();
+            int v = e.target().nodeId();
+            if (tree.skip(e) || !tree.reaches(u) || !tree.reaches(v))
+                continue;
+            double r = tree.weight(e) + tree.dist[v] - tree.dist[u];
+            reduced.set(e, r < 0 ? 0 : r);
+        }
+        this.spurDist = new DoubleNodeMap(new double[n]);
+        this.spurFilter = new SpurFilter(tree, n, g.edgeAttrSize());
+        this.spur = new DijkstraNative(g, s, null, null, spurDist, reduced, null);
+        this.spur.setFilter(spurFilter);
+        this.clean = new boolean[n];
+        this.spur.setTargetMask(clean);
+        this.found = new ArrayList<Candidate>();
+        this.candidates = new PriorityQueue<Candidate>(16, new Comparator<Candidate>() {
+                public int compare(Candidate a, Candidate b)
+                {
+                    if (a.cost != b.cost)
+                        return a.cost < b.cost ? -1 : 1;
+                    return a.seq < b.seq ? -1 : a.seq == b.seq ? 0 : 1;
+                }
+            });
+        this.seen = new HashSet<Candidate>();
+        if (tree.reaches(s.nodeId()))
+            offer(treePath(new Edge[0], 0, s.nodeId(), 0));
+    }
+
+    /**
+       Return whether there is another path.
+     */
+    public boolean hasNext()
+    {
+        if (pending == null)
+            pending = advance();
+        return pending != null;
+    }
+
+    /**
+       Return the next shortest simple path; the first is a shortest path.
+       @throws NoSuchElementException if there are no more paths.
+     */
+    public Path next()
+    {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        Candidate c = pending;
+        pending = null;
+        length = c.cost;
+        Path p = new Path(source);
+        for (Edge e : c.edges)
+            p.append(e);
+        return p;
+    }
+
+    /**
+       Unsupported.
+       @throws UnsupportedOperationException always.
+     */
+    public void remove()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+       Return the length of the path last returned by {@link #next}.
+     */
+    public double length()
+    {
+        return length;
+    }
+
+    /**
+       Return the number of spur paths so far which needed a search rather
+       than the shortest path tree alone.
+     */
+    public int searches()
+    {
+        return searches;
+    }
+
+    /*
+      Take the shortest candidate as the next path, first adding the
+      candidates deviating from the previous one.
+     */
+    private Candidate advance()
+    {
+        if (!found.isEmpty())
+            deviate(found.get(found.size() - 1));
+        Candidate c = candidates.poll();
+        if (c == null)
+            return null;
+        found.add(c);
+        return c;
+    }
+
+    private void offer(Candidate c)
+    {
+        if (seen.add(c)) {
+            c.seq = sequence++;
+            candidates.add(c);
+        }
+    }
+
+    /*
+      Add the candidates deviating from p at each spur node from its
+      deviation index on.
+     */
+    private void deviate(Candidate p)
+    {
+        Edge[] pe = p.edges;
+        double rootCost = 0;
+        for (int i=0; i<p.dev; ++i)
+            rootCost += tree.weight(pe[i]);
+        for (int i=p.dev; i<pe.length; ++i) {
+            int spurNode = pe[i].source().nodeId();
+            spurFilter.reset();
+            for (int j=0; j<i; ++j)
+                spurFilter.block(pe[j].source().nodeId());
+            for (Candidate q : found)
+                if (q.edges.length > i && samePrefix(q.edges, pe, i))
+                    spurFilter.exclude(q.edges[i]);
+            Candidate c = treeSpur(pe, i, spurNode, rootCost);
+            if (c == null)
+                c = searchSpur(pe, i, spurNode, rootCost);
+            if (c != null)
+                offer(c);
+            rootCost += tree.weight(pe[i]);
+        }
+    }
+
+    private static boolean samePrefix(Edge[] a, Edge[] b, int len)
+    {
+        for (int j=0; j<len; ++j)
+            if (a[j].edgeId() != b[j].edgeId())
+                return false;
+        return true;
+    }
+
+    /*
+      The candidate following the tree from the spur node, if the tree
+      path avoids the excluded nodes and edges.
+     */
+    private Candidate treeSpur(Edge[] pe, int i, int spurNode, double rootCost)
+    {
+        for (int v = spurNode; v != target.nodeId(); ) {
+            Edge e = tree.next[v];
+            if (v == spurNode && spurFilter.excluded(e))
+                return null;
+            v = e.target().nodeId();
+            if (spurFilter.blocked(v))
+                return null;
+        }
+        return treePath(pe, i, spurNode, rootCost);
+    }
+
+    /*
+      The candidate made of the first i edges of pe and the tree path
+      from the spur node.
+     */
+    private Candidate treePath(Edge[] pe, int i, int spurNode, double rootCost)
+    {
+        List<Edge> edges = new ArrayList<Edge>(i + 16);
+        for (int j=0; j<i; ++j)
+            edges.add(pe[j]);
+        for (int v = spurNode; v != target.nodeId(); v = tree.next[v].target().nodeId())
+            edges.add(tree.next[v]);
+        return new Candidate(edges.toArray(new Edge[edges.size()]),
+                             rootCost + tree.dist[spurNode], i);
+    }
+
+    /*
+      The candidate with a spur path searched for with the filter, up to
+      the first clean node settled and along the tree from there.  A node
+      is clean if its tree path avoids the spur node and the nodes before
+      it; the search path and the tree path of the first clean node then
+      share no node but it, since every node on a tree path from a clean
+      node is clean and is settled no later than the nodes after it on
+      the search path.
+     */
+    private Candidate searchSpur(Edge[] pe, int i, int spurNode, double rootCost)
+    {
+        searches++;
+        int t = target.nodeId();
+        for (int k=0; k<tree.size; ++k) {
+            int v = tree.order[k];
+            clean[v] = v == t
+                || v != spurNode && !spurFilter.blocked(v)
+                   && clean[tree.next[v].target().nodeId()];
+        }
+        Node sn = graph.node(spurNode);
+        spurDist.set(sn, 0);
+        spur.source(sn);
+        spur.run();
+        int settled = spur.settledCount();
+        if (settled == 0)
+            return null;
+        Node x = spur.settledNode(settled - 1);
+        if (!clean[x.nodeId()])
+            return null;
+        List<Edge> spurEdges = new ArrayList<Edge>();
+        for (Node v = x; v != sn; ) {
+            Edge e = spur.parents().get(v);
+            spurEdges.add(e);
+            v = e.source();
+        }
+        Collections.reverse(spurEdges);
+        for (int v = x.nodeId(); v != t; v = tree.next[v].target().nodeId())
+            spurEdges.add(tree.next[v]);
+        Edge[] edges = new Edge[i + spurEdges.size()];
+        System.arraycopy(pe, 0, edges, 0, i);
+        double cost = rootCost;
+        for (int j=0; j<spurEdges.size(); ++j) {
+            Edge e = spurEdges.get(j);
+            edges[i + j] = e;
+            cost += tree.weight(e);
+        }
+        return new Candidate(edges, cost, i);
+    }
+
+    /*
+      A path as an array of edges, with its cost and the index of the
+      edge at which it deviates from the path it was derived from.
+      Candidates are equal if their edges are.
+     */
+    private static final class Candidate
+    {
+        final Edge[] edges;
+        final double cost;
+        final int dev;
+        final int hash;
+        long seq;
+
+        Candidate(Edge[] edges, double cost, int dev)
+        {
+            this.edges = edges;
+            this.cost = cost;
+            this.dev = dev;
+            int h = 1;
+            for (Edge e : edges)
+                h = 31 * h + e.edgeId();
+            this.hash = h;
+        }
+
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof Candidate))
+                return false;
+            Edge[] oe = ((Candidate) o).edges;
+            return oe.length == edges.length && samePrefix(oe, edges, edges.length);
+        }
+    }
+
+    /*
+      The filter of a spur search: edges into blocked nodes, excluded
+      edges and edges into nodes which do not reach the target are
+      filtered, on top of the filter of the graph.  Nodes and edges are
+      marked with a stamp which is advanced for each spur node.
+     */
+    private static final class SpurFilter implements GraphFilter
+    {
+        private final TargetTree tree;
+        private final int[] nodeStamp;
+        private final int[] edgeStamp;
+        private int stamp;
+
+        SpurFilter(TargetTree tree, int nodes, int edges)
+        {
+            this.tree = tree;
+            this.nodeStamp = new int[nodes];
+            this.edgeStamp = new int[edges];
+        }
+
+        void reset()
+        {
+            if (stamp == Integer.MAX_VALUE) {
+                Arrays.fill(nodeStamp, 0);
+                Arrays.fill(edgeStamp, 0);
+                stamp = 0;
+            }
+            stamp++;
+        }
+
+        void block(int u)
+        {
+            nodeStamp[u] = stamp;
+        }
+
+        void exclude(Edge e)
+        {
+            edgeStamp[e.edgeId()] = stamp;
+        }
+
+        boolean blocked(int u)
+        {
+            return nodeStamp[u] == stamp;
+        }
+
+        boolean excluded(Edge e)
+        {
+            return edgeStamp[e.edgeId()] == stamp;
+        }
+
+        public boolean filter(Edge e)
+        {
+            int v = e.target().nodeId();
+            return excluded(e) || blocked(v) || !tree.reaches(v) || tree.skip(e);
+        }
+
+        public boolean filter(Node n)
+        {
+            return blocked(n.nodeId())
+                || tree.filter != null && tree.filter.filter(n);
+        }
+    }
+}
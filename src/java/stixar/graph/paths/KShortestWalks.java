@@ -0,0 +1,360 @@
+package stixar.graph.paths;
+
+import stixar.graph.Edge;
+import stixar.graph.Graph;
+import stixar.graph.Node;
+
+import stixar.graph.attr.NativeEdgeMap;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+   The <tt>k</tt> shortest paths between two nodes, not necessarily
+   simple, by Eppstein's algorithm, generated lazily in order of
+   increasing length.
+   <p>
+   A path to the target leaves the shortest path tree into the target
+   by a sequence of <em>sidetracks</em>, edges not in the tree, and
+   follows the tree between them; it costs the distance from the source
+   to the target plus, for each sidetrack <tt>(u,v)</tt>, the
+   <tt>w(u,v) + d(v) - d(u)</tt> it adds to the distance, which is never
+   negative.  The sidetracks leaving the tree path from each node are
+   kept in persistent heaps, each node's heap sharing all but a
+   logarithmic part with the heap of its successor in the tree, and a
+   best first search over these heaps yields the sequences of
+   sidetracks in order of cost, each from one before it.  After the tree
+   is built, each path costs a logarithmic number of steps and its own
+   length.
+   </p><p>
+   The paths may repeat nodes and edges; use {@link KShortestPaths} for
+   simple paths.  If there is a cycle of length zero through which the
+   target is reached, there are infinitely many paths of some length.
+   </p><p>
+   Weights of types <tt>int, long, float</tt> and <tt>double</tt> are
+   accepted, must not be negative, and are summed as <tt>double</tt>s.
+   Edge filters installed when the object is created are respected; the
+   graph and the weights should not change while paths are generated.
+   </p>
+ */
+public class KShortestWalks implements Iterator<Path>
+{
+    protected final Graph graph;
+    protected final Node source;
+    protected final Node target;
+    private final TargetTree tree;
+
+    // the sidetracks leaving each node in order of cost, and their costs
+    private final Edge[][] side;
+    private final double[][] delta;
+    // the heap of the sidetracks leaving the tree path from each node
+    private final HeapNode[] heaps;
+
+    private final PriorityQueue<State> queue;
+    private boolean first;
+    private State pending;
+    private double length;
+
+    /**
+       Prepare to generate the shortest paths from <tt>s</tt> to
+       <tt>t</tt>.
+       @param g the graph.
+       @param weights the edge weights.
+       @param s the source.
+       @param t the target.
+       @throws IllegalArgumentException if the native type of the weights
+       is not supported or a weight is negative.
+     */
+    public KShortestWalks(Graph g, NativeEdgeMap weights, Node s, Node t)
+    {
+        this.graph = g;
+        this.source = s;
+        this.target = t;
+        this.tree = new TargetTree(g, weights, t);
+        int n = g.nodeAttrSize();
+        side = new Edge[n][];
+        delta = new double[n][];
+        heaps = new HeapNode[n];
+        queue = new PriorityQueue<State>(16, new Comparator<State>() {
+                public int compare(State a, State b)
+                {
+                    return a.cost < b.cost ? -1 : a.cost == b.cost ? 0 : 1;
+                }
+            });
+        for (int i=0; i<tree.size; ++i) {
+            int u = tree.order[i];
+            sidetracks(u);
+            HeapNode h = u == t.nodeId() ? null : heaps[tree.next[u].target().nodeId()];
+            if (side[u] != null)
+                h = merge(new HeapNode(u, null, null, 1), h);
+            heaps[u] = h;
+        }
+        first = tree.reaches(s.nodeId());
+    }
+
+    /*
+      Tabulate the sidetracks leaving u, the edges other than its tree
+      edge which the filter keeps and whose target reaches the target,
+      in order of cost.
+     */
+    private void sidetracks(int u)
+    {
+        Edge tEdge = tree.next[u];
+        int count = 0;
+        for (Edge e = graph.node(u).out(); e != null; e = e.next())
+            if (isSidetrack(e, tEdge))
+                count++;
+        if (count == 0)
+            return;
+        final double[] d = new double[count];
+        Edge[] es = new Edge[count];
+        Integer[] idx = new Integer[count];
+        int k = 0;
+        for (Edge e = graph.node(u).out(); e != null; e = e.next()) {
+            if (!isSidetrack(e, tEdge))
+                continue;
+            d[k] = tree.weight(e) + tree.dist[e.target().nodeId()] - tree.dist[u];
+            if (d[k] < 0)
+                d[k] = 0;
+            es[k] = e;
+            idx[k] = k;
+            k++;
+        }
+        Arrays.sort(idx, new Comparator<Integer>() {
+                public int compare(Integer a, Integer b)
+                {
+                    return Double.compare(d[a], d[b]);
+                }
+            });
+        Edge[] sorted = new Edge[count];
+        double[] sortedDelta = new double[count];
+        for (int i=0; i<count; ++i) {
+            sorted[i] = es[idx[i]];
+            sortedDelta[i] = d[idx[i]];
+        }
+        side[u] = sorted;
+        delta[u] = sortedDelta;
+    }
+
+    private boolean isSidetrack(Edge e, Edge tEdge)
+    {
+        if (tEdge != null && e.edgeId() == tEdge.edgeId())
+            return false;
+        return !tree.skip(e) && tree.reaches(e.target().nodeId());
+    }
+
+    /*
+      Persistent leftist heap merge, copying the nodes along the right
+      spine of the result.
+     */
+    private HeapNode merge(HeapNode a, HeapNode b)
+    {
+        if (a == null)
+            return b;
+        if (b == null)
+            return a;
+        if (key(b) < key(a)) {
+            HeapNode x = a;
+            a = b;
+            b = x;
+        }
+        HeapNode l = a.left;
+        HeapNode r = merge(a.right, b);
+        if (rank(l) < rank(r)) {
+            HeapNode x = l;
+            l = r;
+            r = x;
+        }
+        return new HeapNode(a.tail, l, r, rank(r) + 1);
+    }
+
+    private double key(HeapNode h)
+    {
+        return delta[h.tail][0];
+    }
+
+    private static int rank(HeapNode h)
+    {
+        return h == null ? 0 : h.rank;
+    }
+
+    /**
+       Return whether there is another path.
+     */
+    public boolean hasNext()
+    {
+        if (first)
+            return true;
+        if (pending == null)
+            pending = advance();
+        return pending != null;
+    }
+
+    /**
+       Return the next shortest path; the first is a shortest path.
+       @throws NoSuchElementException if there are no more paths.
+     */
+    public Path next()
+    {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        State st = null;
+        if (first) {
+            first = false;
+            length = tree.dist[source.nodeId()];
+            HeapNode h = heaps[source.nodeId()];
+            if (h != null)
+                queue.add(new State(h, 0, length + key(h), null));
+        } else {
+            st = pending;
+            pending = null;
+            length = st.cost;
+        }
+        return walk(st);
+    }
+
+    /**
+       Unsupported.
+       @throws UnsupportedOperationException always.
+     */
+    public void remove()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+       Return the length of the path last returned by {@link #next}.
+     */
+    public double length()
+    {
+        return length;
+    }
+
+    /*
+      Take the cheapest state of the search, first adding its successors:
+      the children of its heap node, the next sidetrack of the same node,
+      and the heap of the target of its sidetrack, which extends the
+      sequence by the sidetrack.
+     */
+    private State advance()
+    {
+        State st = queue.poll();
+        if (st == null)
+            return null;
+        HeapNode h = st.heap;
+        double[] d = delta[h.tail];
+        double base = st.cost - d[st.index];
+        if (st.index == 0) {
+            if (h.left != null)
+                queue.add(new State(h.left, 0, base + key(h.left), st.prefix));
+            if (h.right != null)
+                queue.add(new State(h.right, 0, base + key(h.right), st.prefix));
+        }
+        if (st.index + 1 < d.length)
+            queue.add(new State(h, st.index + 1, base + d[st.index + 1], st.prefix));
+        Edge e = side[h.tail][st.index];
+        HeapNode next = heaps[e.target().nodeId()];
+        if (next != null)
+            queue.add(new State(next, 0, st.cost + key(next),
+                                new Link(e, st.prefix)));
+        return st;
+    }
+
+    /*
+      The path of a state, or the tree path if st is null: follow the tree
+      from the source to each sidetrack in turn, then to the target.
+     */
+    private Path walk(State st)
+    {
+        int count = 0;
+        Edge[] tracks;
+        if (st == null) {
+            tracks = new Edge[0];
+        } else {
+            for (Link l = st.prefix; l != null; l = l.prev)
+                count++;
+            tracks = new Edge[count + 1];
+            tracks[count] = side[st.heap.tail][st.index];
+            int i = count;
+            for (Link l = st.prefix; l != null; l = l.prev)
+                tracks[--i] = l.edge;
+        }
+        Path p = new Path(source);
+        int v = source.nodeId();
+        for (Edge e : tracks) {
+            int u = e.source().nodeId();
+            while (v != u) {
+                Edge te = tree.next[v];
+                p.append(te);
+                v = te.target().nodeId();
+            }
+            p.append(e);
+            v = e.target().nodeId();
+        }
+        int t = target.nodeId();
+        while (v != t) {
+            Edge te = tree.next[v];
+            p.append(te);
+            v = te.target().nodeId();
+        }
+        return p;
+    }
+
+    /*
+      A node of a persistent heap, standing for the sidetracks leaving
+      node tail, keyed by the cheapest.
+     */
+    private static final class HeapNode
+    {
+        final int tail;
+        final HeapNode left;
+        final HeapNode right;
+        final int rank;
+
+        HeapNode(int tail, HeapNode left, HeapNode right, int rank)
+        {
+            this.tail = tail;
+            this.left = left;
+            this.right = right;
+            this.rank = rank;
+        }
+    }
+
+    /*
+      A persistent list of the sidetracks of a sequence, last first.
+     */
+    private static final class Link
+    {
+        final Edge edge;
+        final Link prev;
+
+        Link(Edge edge, Link prev)
+        {
+            this.edge = edge;
+            this.prev = prev;
+        }
+    }
+
+    /*
+      A state of the search: the sequence of sidetracks of prefix followed
+      by sidetrack index of the heap node, and the cost of the path.
+     */
+    private static final class State
+    {
+        final HeapNode heap;
+        final int index;
+        final double cost;
+        final Link prefix;
+
+        State(HeapNode heap, int index, double cost, Link prefix)
+        {
+            this.heap = heap;
+            this.index = index;
+            this.cost = cost;
+            this.prefix = prefix;
+        }
+    }
+}
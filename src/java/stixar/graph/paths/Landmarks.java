@@ -0,0 +1,378 @@
+package stixar.graph.paths;
+
+import stixar.graph.Edge;
+import stixar.graph.Graph;
+import stixar.graph.Node;
+import stixar.graph.UGraph;
+
+import stixar.graph.attr.NativeEdgeMap;
+
+import stixar.util.IntDHeap;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+   Landmark distance tables, giving lower bounds on the distances of a
+   graph for goal directed search.
+   <p>
+   For a landmark <tt>L</tt>, the triangle inequality gives lower bounds
+   on the distance from any node <tt>v</tt> to a target <tt>t</tt>:
+   </p>
+   <center><tt>d(v,t) &gt;= d(L,t) - d(L,v)</tt> and
+   <tt>d(v,t) &gt;= d(v,L) - d(t,L)</tt>.</center>
+   <p>
+   The greatest of these bounds over a few well spread landmarks is a
+   feasible A<sup>*</sup> heuristic which is usually close to the true
+   distance; see {@link ALT}.  The distances from and to every landmark
+   are computed once, by Dijkstra's algorithm forward and backward from
+   the landmark, and stored node major in <tt>double</tt> arrays, so that
+   the bounds of a node read adjacent entries.  An undirected graph shares
+   one table for both directions.  When a landmark cannot reach <tt>t</tt>
+   but reaches <tt>v</tt>, or the converse backwards, <tt>t</tt> is not
+   reachable from <tt>v</tt>, and the bound is infinite.
+   </p><p>
+   Landmarks are selected by one of two {@link Strategy strategies}:
+   </p>
+   <ul>
+   <li>{@link Strategy#Farthest}: each landmark is the node farthest from
+   the landmarks already selected, by the least round trip distance, nodes
+   unreachable from or to every landmark, in other components, being
+   farthest of all.</li>
+   <li>{@link Strategy#Avoid}: after a first farthest landmark, a shortest
+   path tree is grown from a random root, each node is weighted by the gap
+   between its distance and its current lower bound, and the new landmark
+   is the leaf reached by descending from the heaviest subtree without a
+   landmark into the heaviest children, thus avoiding regions already well
+   covered.</li>
+   </ul>
+   <p>
+   Tables ignore graph filters.  Since filtering edges or increasing
+   weights only lengthens paths, the bounds stay valid for searches with
+   filters or with weights no smaller than those of the tables.  Weights
+   of types <tt>int,long,float</tt> and <tt>double</tt> are accepted, and
+   summed as <tt>double</tt>s.
+   </p>
+ */
+public final class Landmarks
+{
+    /**
+       Landmark selection strategies.
+     */
+    public enum Strategy
+    {
+        /** Each landmark farthest from those already selected. */
+        Farthest,
+        /** Landmarks in the regions where the current bounds are worst. */
+        Avoid
+    }
+
+    final Graph graph;
+    final int count;
+    final int[] ids;
+    final double[] from;
+    final double[] to;
+
+    private final NativeEdgeMap weights;
+    private final Incoming incoming;
+    private final IntDHeap heap;
+    private final double[] dist;
+    private final int[] parent;
+    private final int[] order;
+    private int nOrder;
+
+    private Landmarks(Graph g, NativeEdgeMap weights, int count)
+    {
+        this.graph = g;
+        this.weights = weights;
+        this.count = count;
+        int n = g.nodeAttrSize();
+        ids = new int[count];
+        from = new double[n * count];
+        boolean undirected = g instanceof UGraph;
+        to = undirected ? from : new double[n * count];
+        incoming = undirected ? null : new Incoming(g);
+        heap = new IntDHeap(n);
+        dist = new double[n];
+        parent = new int[n];
+        order = new int[n];
+    }
+
+    /**
+       Select landmarks of a graph and compute their distance tables.
+       @param g the graph.
+       @param weights the edge weights.
+       @param k the number of landmarks, at most the number of nodes.
+       @param strategy the selection strategy.
+       @throws IllegalArgumentException if the native type of the weights
+       is not supported, a weight is negative, or <tt>k</tt> is not
+       positive or exceeds the number of nodes.
+     */
+    public static Landmarks select(Graph g, NativeEdgeMap weights, int k, Strategy strategy)
+    {
+        return select(g, weights, k, strategy, new Random());
+    }
+
+    /**
+       Select landmarks of a graph and compute their distance tables,
+       with a given source of randomness.
+       @see #select(Graph,NativeEdgeMap,int,Strategy)
+     */
+    public static Landmarks select(Graph g, NativeEdgeMap weights, int k,
+                                   Strategy strategy, Random rnd)
+    {
+        Weights.check(weights);
+        if (k < 1 || k > g.nodeSize())
+            throw new IllegalArgumentException("bad landmark count " + k);
+        for (Edge e : g.edges()) {
+            if (!(Weights.get(weights, e) >= 0))
+                throw new IllegalArgumentException("negative weight on edge " + e);
+        }
+        Landmarks lm = new Landmarks(g, weights, k);
+        lm.selectAll(strategy, rnd);
+        return lm;
+    }
+
+    /**
+       Return the graph of these landmarks.
+     */
+    public Graph graph()
+    {
+        return graph;
+    }
+
+    /**
+       Return the number of landmarks.
+     */
+    public int size()
+    {
+        return count;
+    }
+
+    /**
+       Return the i-th landmark.
+     */
+    public Node landmark(int i)
+    {
+        return graph.node(ids[i]);
+    }
+
+    /**
+       Return the distance from the i-th landmark to a node, or
+       <tt>Double.POSITIVE_INFINITY</tt> if the node is not reachable.
+     */
+    public double distanceFrom(int i, Node n)
+    {
+        return from[n.nodeId() * count + i];
+    }
+
+    /**
+       Return the distance from a node to the i-th landmark, or
+       <tt>Double.POSITIVE_INFINITY</tt> if the landmark is not reachable.
+     */
+    public double distanceTo(int i, Node n)
+    {
+        return to[n.nodeId() * count + i];
+    }
+
+    /**
+       Return the greatest lower bound over all landmarks on the distance
+       from <tt>v</tt> to <tt>t</tt>, <tt>Double.POSITIVE_INFINITY</tt> if
+       <tt>t</tt> is known not to be reachable from <tt>v</tt>.
+     */
+    public double lowerBound(Node v, Node t)
+    {
+        return bound(v.nodeId(), t.nodeId(), 0, count);
+    }
+
+    /*
+      The lower bound from v to t over the landmarks first..end-1.
+     */
+    double bound(int v, int t, int first, int end)
+    {
+        int vb = v * count;
+        int tb = t * count;
+        double h = 0;
+        for (int i=first; i<end; ++i) {
+            double h1 = bound(vb + i, tb + i);
+            if (h1 > h)
+                h = h1;
+        }
+        return h;
+    }
+
+    /*
+      The lower bound of one landmark, from the table entries of v and t.
+     */
+    double bound(int vi, int ti)
+    {
+        double h = 0;
+        double lv = from[vi];
+        double lt = from[ti];
+        if (lv != Double.POSITIVE_INFINITY) {
+            if (lt == Double.POSITIVE_INFINITY)
+                return Double.POSITIVE_INFINITY;
+            h = lt - lv;
+        }
+        double vl = to[vi];
+        double tl = to[ti];
+        if (tl != Double.POSITIVE_INFINITY) {
+            if (vl == Double.POSITIVE_INFINITY)
+                return Double.POSITIVE_INFINITY;
+            if (vl - tl > h)
+                h = vl - tl;
+        }
+        return h;
+    }
+
+    private void selectAll(Strategy strategy, Random rnd)
+    {
+        int n = graph.nodeAttrSize();
+        boolean[] chosen = new boolean[n];
+        // least round trip distance to the landmarks selected
+        double[] near = new double[n];
+        Arrays.fill(near, Double.POSITIVE_INFINITY);
+        for (int i=0; i<count; ++i) {
+            int l = -1;
+            if (i == 0) {
+                int r = randomNode(rnd);
+                dijkstra(r, false);
+                l = farthest(dist, chosen, false, rnd);
+                if (l == -1)
+                    l = r;
+            } else {
+                if (strategy == Strategy.Avoid)
+                    l = avoid(i, chosen, rnd);
+                if (l == -1)
+                    l = farthest(near, chosen, true, rnd);
+            }
+            ids[i] = l;
+            chosen[l] = true;
+            dijkstra(l, false);
+            for (int v=0; v<n; ++v)
+                from[v * count + i] = dist[v];
+            if (to != from) {
+                dijkstra(l, true);
+                for (int v=0; v<n; ++v)
+                    to[v * count + i] = dist[v];
+            }
+            for (int v=0; v<n; ++v) {
+                double d = from[v * count + i] + to[v * count + i];
+                if (d < near[v])
+                    near[v] = d;
+            }
+        }
+    }
+
+    private int randomNode(Random rnd)
+    {
+        int n = graph.nodeAttrSize();
+        while (true) {
+            int r = rnd.nextInt(n);
+            if (graph.node(r) != null)
+                return r;
+        }
+    }
+
+    /*
+      A node not chosen of greatest value, finite unless infinite is set,
+      scanning from a random node; -1 if there is none.
+     */
+    private int farthest(double[] value, boolean[] chosen, boolean infinite, Random rnd)
+    {
+        int n = graph.nodeAttrSize();
+        int start = rnd.nextInt(n);
+        int best = -1;
+        for (int j=0; j<n; ++j) {
+            int v = (start + j) % n;
+            if (graph.node(v) == null || chosen[v])
+                continue;
+            double x = value[v];
+            if (x == Double.POSITIVE_INFINITY && !infinite)
+                continue;
+            if (best == -1 || x > value[best]) {
+                best = v;
+                if (x == Double.POSITIVE_INFINITY)
+                    break;
+            }
+        }
+        return best;
+    }
+
+    /*
+      The i-th landmark by the avoid strategy: the leaf reached from the
+      heaviest subtree without a landmark of the tree from a random root by
+      the heaviest children, or -1 if every node of the tree is covered.
+     */
+    private int avoid(int i, boolean[] chosen, Random rnd)
+    {
+        int r = randomNode(rnd);
+        dijkstra(r, false);
+        int n = graph.nodeAttrSize();
+        double[] size = new double[n];
+        int[] best = new int[n];
+        boolean[] covered = new boolean[n];
+        System.arraycopy(chosen, 0, covered, 0, n);
+        for (int j=0; j<nOrder; ++j) {
+            int v = order[j];
+            size[v] = dist[v] - bound(r, v, 0, i);
+            best[v] = -1;
+        }
+        for (int j = nOrder - 1; j > 0; --j) {
+            int v = order[j];
+            int p = parent[v];
+            if (covered[v]) {
+                covered[p] = true;
+                continue;
+            }
+            size[p] += size[v];
+            if (best[p] == -1 || size[v] > size[best[p]])
+                best[p] = v;
+        }
+        int v = -1;
+        for (int j=0; j<nOrder; ++j) {
+            int u = order[j];
+            if (!covered[u] && (v == -1 || size[u] > size[v]))
+                v = u;
+        }
+        if (v == -1)
+            return -1;
+        while (best[v] != -1)
+            v = best[v];
+        return v;
+    }
+
+    /*
+      Dijkstra from root over the whole graph, forward or backward,
+      setting dist, parent and the settle order.
+     */
+    private void dijkstra(int root, boolean backward)
+    {
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        heap.clear();
+        nOrder = 0;
+        dist[root] = 0;
+        parent[root] = -1;
+        heap.insert(root, IntDHeap.doubleKey(0));
+        while (!heap.isEmpty()) {
+            int u = heap.extractMin();
+            order[nOrder++] = u;
+            double du = dist[u];
+            Node un = graph.node(u);
+            Edge e = backward ? incoming.first(un) : un.out();
+            while (e != null) {
+                int v = backward ? e.source().nodeId() : e.target().nodeId();
+                double dv = du + Weights.get(weights, e);
+                if (dv < dist[v]) {
+                    if (dist[v] == Double.POSITIVE_INFINITY)
+                        heap.insert(v, IntDHeap.doubleKey(dv));
+                    else
+                        heap.decreaseKey(v, IntDHeap.doubleKey(dv));
+                    dist[v] = dv;
+                    parent[v] = u;
+                }
+                e = backward ? incoming.next(e) : e.next();
+            }
+        }
+    }
+}
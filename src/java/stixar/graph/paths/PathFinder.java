@@ -5,11 +5,10 @@ import stixar.graph.Algorithm;
 import stixar.graph.Filtering;
 import stixar.graph.Node;
 import stixar.graph.Edge;
+import stixar.graph.attr.EpochNodeMap;
 
 import stixar.graph.search.DFS;
 
-import java.util.Arrays;
-
 /**
    A simple reachability class for computing a small number 
    of reachability queries.
@@ -18,13 +17,17 @@ import java.util.Arrays;
    {@link Path} of reachability is not needed for the 
    queries, one should consider using {@link stixar.graph.conn.Transitivity}
    as it will be more efficient.
+   </p><p>
+   Each query searches from its source only, and is reset in constant
+   time, so that a query costs in proportion to the part of the graph
+   it explores.
    </p>
  */
 public class PathFinder extends DFS.Visitor implements Filtering
 {
     protected Graph graph;
     protected DFS dfs;
-    protected Edge[] parents;
+    protected EpochNodeMap<Edge> parents;
     protected Node source;
     protected Node target;
     protected boolean found;
@@ -38,7 +41,7 @@ public class PathFinder extends DFS.Visitor implements Filtering
     {
         this.graph = graph;
         this.dfs = new DFS(graph, new Visitor());
-        this.parents = new Edge[graph.nodeAttrSize()];
+        this.parents = new EpochNodeMap<Edge>(graph.nodeAttrSize());
     }
 
     /**
@@ -84,7 +87,7 @@ public class PathFinder extends DFS.Visitor implements Filtering
     {
         this.source = s;
         this.target = t;
-        dfs.run();
+        run();
         return found;
     }
 
@@ -95,16 +98,19 @@ public class PathFinder extends DFS.Visitor implements Filtering
        @param t the node for which a search is performed from <tt>s</tt>.
        @return a Path from <tt>s</tt> to <tt>t</tt> if such a path
        exists, otherwise return <tt>null</tt>. If in addition <tt>s != t</tt>,
-       the path is guaranteed to be simple.
+       the path is guaranteed to be simple, and if <tt>s == t</tt> it is
+       empty.
      */
     public Path path(Node s, Node t)
     {
         if (reaches(s, t)) {
+            if (s == t)
+                return new Path(s);
             Path p = new Path();
             Node n = t;
             Edge e;
             do {
-                e = n.get(parents);
+                e = parents.get(n);
                 p.prepend(e);
                 n = e.source();
             } while(n != s);
@@ -116,7 +122,7 @@ public class PathFinder extends DFS.Visitor implements Filtering
     protected void reset()
     {
         dfs.reset();
-        Arrays.fill(parents, null);
+        parents.clear();
         found = false;
     }
 
@@ -126,7 +132,7 @@ public class PathFinder extends DFS.Visitor implements Filtering
             throw new IllegalStateException
                 ("Source or target not specified in Reach.");
         reset();
-        dfs.run();
+        dfs.visit(source);
     }
 
 
@@ -137,7 +143,7 @@ public class PathFinder extends DFS.Visitor implements Filtering
         */
         public final void treeEdge(Edge e)
         {
-            e.target().set(parents, e);
+            parents.set(e.target(), e);
         }
         
         /**
@@ -154,7 +160,7 @@ public class PathFinder extends DFS.Visitor implements Filtering
         */
         public final boolean done()
         {
-            return !found;
+            return found;
         }
     }
 }
@@ -0,0 +1,370 @@
+package stixar.graph.paths;
+
+import stixar.graph.Edge;
+import stixar.graph.Graph;
+import stixar.graph.Node;
+
+import stixar.graph.attr.NativeEdgeMap;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+   A thread safe shortest path query service over a frozen copy of a
+   graph.
+   <p>
+   Construction copies the adjacency of the graph and its weights into
+   arrays, so that queries neither read nor modify the graph, its
+   attribute manager or its maps, and any number of threads may query a
+   service at once without locking.  Later modifications of the graph or
+   the weights are not seen by the service, which must be rebuilt to see
+   them; filters are ignored.
+   </p><p>
+   Each query runs Dijkstra's algorithm in a workspace of its own,
+   holding distance and parent arrays and an
+   {@link stixar.util.IntDHeap}.  Workspaces are kept in a pool rather
+   than per thread, so that many short lived
+   or virtual threads share a number of workspaces bounded by the number
+   of queries running at once, and a workspace reset only the nodes its
+   last query reached.  The number of workspaces may be bounded, in which
+   case queries beyond the bound wait for a workspace to be released.
+   </p><p>
+   Point to point queries stop once the target is settled, and one to
+   many queries once every target is.  Weights of types <tt>int, long,
+   float</tt> and <tt>double</tt> are accepted and summed as
+   <tt>double</tt>s, and must not be negative.
+   </p><p>
+   The service counts its queries and records their latencies in a
+   histogram of powers of two nanoseconds; see {@link #stats}.
+   </p>
+ */
+public final class SPService
+{
+    private final Graph graph;
+    private final int nodes;
+    private final ForwardStar star;
+
+    private final ConcurrentLinkedQueue<StarSearch> pool;
+    private final Semaphore permits;
+    private final AtomicLong created;
+
+    private final AtomicLong queries;
+    private final AtomicLong totalNanos;
+    private final AtomicLong maxNanos;
+    private final AtomicLongArray histogram;
+    private volatile long statsStart;
+
+    /**
+       Construct a query service for a graph, with as many workspaces as
+       there are concurrent queries.
+       @param g the graph.
+       @param weights the edge weights.
+       @throws IllegalArgumentException if the native type of the weights
+       is not supported or a weight is negative.
+     */
+    public SPService(Graph g, NativeEdgeMap weights)
+    {
+        this(g, weights, 0);
+    }
+
+    /**
+       Construct a query service for a graph.
+       @param g the graph.
+       @param weights the edge weights.
+       @param maxWorkspaces the largest number of workspaces, and thus of
+       queries running at once, or 0 for no bound.
+       @throws IllegalArgumentException if the native type of the weights
+       is not supported, a weight is negative, or <tt>maxWorkspaces</tt>
+       is negative.
+     */
+    public SPService(Graph g, NativeEdgeMap weights, int maxWorkspaces)
+    {
+        if (maxWorkspaces < 0)
+            throw new IllegalArgumentException("negative number of workspaces");
+        Weights.check(weights);
+        this.graph = g;
+        this.nodes = g.nodeAttrSize();
+        this.star = ForwardStar.build(g, null, weights, false, true);
+        this.pool = new ConcurrentLinkedQueue<StarSearch>();
+        this.permits = maxWorkspaces == 0 ? null : new Semaphore(maxWorkspaces);
+        this.created = new AtomicLong();
+        this.queries = new AtomicLong();
+        this.totalNanos = new AtomicLong();
+        this.maxNanos = new AtomicLong();
+        this.histogram = new AtomicLongArray(64);
+        this.statsStart = System.nanoTime();
+    }
+
+    /**
+       Return the graph of this service.
+     */
+    public Graph graph()
+    {
+        return graph;
+    }
+
+    /**
+       Return the number of workspaces created so far, which is the
+       largest number of queries which ran at once.
+     */
+    public int workspaces()
+    {
+        return (int) created.get();
+    }
+
+    /**
+       Compute the shortest path distance between two nodes.
+       @return the distance from <tt>s</tt> to <tt>t</tt>, or
+       <tt>Double.POSITIVE_INFINITY</tt> if <tt>t</tt> is not reachable
+       from <tt>s</tt>.
+     */
+    public double distance(Node s, Node t)
+    {
+        long start = System.nanoTime();
+        StarSearch w = acquire();
+        try {
+            search(w, s.nodeId(), t.nodeId(), null);
+            return w.ddist[t.nodeId()];
+        } finally {
+            release(w);
+            record(start);
+        }
+    }
+
+    /**
+       Compute a shortest path between two nodes.
+       @return a shortest path from <tt>s</tt> to <tt>t</tt>, empty if
+       <tt>s == t</tt>, or <tt>null</tt> if <tt>t</tt> is not reachable
+       from <tt>s</tt>.
+     */
+    public Path path(Node s, Node t)
+    {
+        long start = System.nanoTime();
+        StarSearch w = acquire();
+        try {
+            int sid = s.nodeId();
+            int tid = t.nodeId();
+            search(w, sid, tid, null);
+            if (w.ddist[tid] == Double.POSITIVE_INFINITY)
+                return null;
+            Path p = new Path(t);
+            Edge[] edges = star.edges;
+            for (int v = tid; v != sid; v = edges[w.parent[v]].source().nodeId())
+                p.prepend(edges[w.parent[v]]);
+            return p;
+        } finally {
+            release(w);
+            record(start);
+        }
+    }
+
+    /**
+       Compute the shortest path distances from a node to many nodes, in
+       a single search which stops once every target is settled.
+       @param s the source.
+       @param targets the targets.
+       @return an array whose <tt>i</tt>th element is the distance from
+       <tt>s</tt> to <tt>targets[i]</tt>, or <tt>Double.POSITIVE_INFINITY</tt>
+       if it is not reachable.
+     */
+    public double[] distances(Node s, Node[] targets)
+    {
+        return distances(s, targets, new double[targets.length]);
+    }
+
+    /**
+       Compute the shortest path distances from a node to many nodes into
+       an array, in a single search which stops once every target is
+       settled.
+       @param s the source.
+       @param targets the targets.
+       @param result the array receiving the distances, of length at least
+       <tt>targets.length</tt>.
+       @return <tt>result</tt>.
+     */
+    public double[] distances(Node s, Node[] targets, double[] result)
+    {
+        long start = System.nanoTime();
+        StarSearch w = acquire();
+        try {
+            search(w, s.nodeId(), -1, targets);
+            for (int i=0; i<targets.length; ++i)
+                result[i] = w.ddist[targets[i].nodeId()];
+            return result;
+        } finally {
+            release(w);
+            record(start);
+        }
+    }
+
+    /**
+       Return a snapshot of the query metrics collected since construction
+       or the last call to {@link #resetStats}.
+     */
+    public Stats stats()
+    {
+        long[] h = new long[histogram.length()];
+        for (int i=0; i<h.length; ++i)
+            h[i] = histogram.get(i);
+        return new Stats(queries.get(), totalNanos.get(), maxNanos.get(), h,
+                         System.nanoTime() - statsStart);
+    }
+
+    /**
+       Reset the query metrics.  Queries running during the call may be
+       counted in either period.
+     */
+    public void resetStats()
+    {
+        queries.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+        for (int i=0; i<histogram.length(); ++i)
+            histogram.set(i, 0);
+        statsStart = System.nanoTime();
+    }
+
+    private StarSearch acquire()
+    {
+        if (permits != null)
+            permits.acquireUninterruptibly();
+        StarSearch w = pool.poll();
+        if (w == null) {
+            w = new StarSearch(nodes, false, true, false);
+            created.incrementAndGet();
+        }
+        return w;
+    }
+
+    private void release(StarSearch w)
+    {
+        pool.offer(w);
+        if (permits != null)
+            permits.release();
+    }
+
+    private void record(long start)
+    {
+        long t = System.nanoTime() - start;
+        queries.incrementAndGet();
+        totalNanos.addAndGet(t);
+        long max = maxNanos.get();
+        while (t > max && !maxNanos.compareAndSet(max, t))
+            max = maxNanos.get();
+        histogram.incrementAndGet(64 - Long.numberOfLeadingZeros(t));
+    }
+
+    /*
+      Search from s until t, or every node of targets, is settled.
+     */
+    private void search(StarSearch w, int s, int t, Node[] targets)
+    {
+        w.reset();
+        if (targets == null) {
+            w.target(t);
+        } else {
+            for (Node n : targets)
+                w.target(n.nodeId());
+        }
+        if (w.targets() > 0)
+            w.run(star, s);
+    }
+
+    /**
+       A snapshot of the query metrics of a service.
+     */
+    public static final class Stats
+    {
+        private final long queries;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long[] histogram;
+        private final long elapsed;
+
+        Stats(long queries, long totalNanos, long maxNanos, long[] histogram, long elapsed)
+        {
+            this.queries = queries;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.histogram = histogram;
+            this.elapsed = elapsed;
+        }
+
+        /**
+           Return the number of queries answered.
+         */
+        public long queries()
+        {
+            return queries;
+        }
+
+        /**
+           Return the time over which the metrics were collected, in
+           nanoseconds.
+         */
+        public long elapsed()
+        {
+            return elapsed;
+        }
+
+        /**
+           Return the number of queries answered per second.
+         */
+        public double throughput()
+        {
+            return elapsed == 0 ? 0 : queries * 1e9 / elapsed;
+        }
+
+        /**
+           Return the mean latency of a query, in nanoseconds, including
+           any wait for a workspace.
+         */
+        public double meanLatency()
+        {
+            return queries == 0 ? 0 : (double) totalNanos / queries;
+        }
+
+        /**
+           Return the largest latency of a query, in nanoseconds.
+         */
+        public long maxLatency()
+        {
+            return maxNanos;
+        }
+
+        /**
+           Return an upper bound, within a factor of two, on the latency of
+           the given fraction of queries, in nanoseconds.
+           @param q a fraction in <tt>[0,1]</tt>, such as <tt>0.99</tt>.
+           @throws IllegalArgumentException if <tt>q</tt> is not in
+           <tt>[0,1]</tt>.
+         */
+        public long latency(double q)
+        {
+            if (!(q >= 0 && q <= 1))
+                throw new IllegalArgumentException("fraction " + q + " not in [0,1]");
+            long count = 0;
+            for (long c : histogram)
+                count += c;
+            if (count == 0)
+                return 0;
+            long rank = (long) Math.ceil(q * count);
+            long seen = 0;
+            for (int b=0; b<histogram.length; ++b) {
+                seen += histogram[b];
+                if (seen >= rank && seen > 0)
+                    return Math.min((1L << b) - 1, maxNanos);
+            }
+            return maxNanos;
+        }
+
+        public String toString()
+        {
+            return String.format("%d queries, %.1f/s, mean %.1fus, p50 %.1fus, p99 %.1fus, max %.1fus",
+                                 queries, throughput(), meanLatency() / 1e3,
+                                 latency(0.5) / 1e3, latency(0.99) / 1e3, maxNanos / 1e3);
+        }
+    }
+}
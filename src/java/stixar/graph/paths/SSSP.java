@@ -327,6 +327,91 @@ public class SSSP
         d.run();
     }
 
+    /**
+       Compute the single source shortests paths problem for 
+       an arbitrary graph with non negative edge weights using
+       native maps, in parallel.
+       <p>
+       The results are those of
+       {@link #dijkstra(Graph,Node,NativeNodeMap,NativeEdgeMap,NodeMap)},
+       computed by {@link DeltaStepping delta-stepping} on all processors
+       with the default bucket width.
+       </p>
+       @param g (in)the graph with which to find shortest paths.
+       @param source (in) the source vertex.
+       @param distMap (out) a node attribute map giving distances to each vertex.
+       @param edgeWeights (in) an edge attribute map giving each edge a weight.
+       @param parentMap (out) a node map in which to store the shortest paths
+       tree, or <tt>null</tt>.
+       @throws IllegalArgumentException if the native types of the <tt>distMap</tt>
+       and the <tt>edgeWeights</tt> are not equal, if the native types
+       are not supported, or if a weight is negative.
+     */
+    public static void deltaStepping(Graph g,
+                                     Node source,
+                                     NativeNodeMap distMap,
+                                     NativeEdgeMap edgeWeights,
+                                     NodeMap<Edge> parentMap)
+    {
+        new DeltaStepping(g, source, parentMap, distMap, edgeWeights).run();
+    }
+
+
+    /**
+       Compute a shortest path between two nodes of an arbitrary graph
+       with non negative edge weights.
+       <p>
+       The path is found by a {@link BiDijkstra bidirectional} search,
+       which usually settles several times fewer nodes than
+       {@link #dijkstra(Graph,Node,Node,NodeMap,EdgeSource,NumAdaptor)
+       Dijkstra's algorithm} stopped at the target.  To answer many
+       queries on one graph, reuse a {@link BiDijkstra} instance.
+       </p>
+       @param g (in) the graph with which to find a shortest path.
+       @param source (in) the source vertex.
+       @param target (in) the target vertex.
+       @param edgeWeights (in) an edge attribute map giving each edge a weight.
+       @param adaptor (in) an adaptor defining addition, comparison, zero, and infinity
+       for the type <tt>T</tt>.
+       @return a shortest path from <tt>source</tt> to <tt>target</tt>, or
+       <tt>null</tt> if there is none.
+     */
+    public static <T> Path shortestPath(Graph g,
+                                        Node source,
+                                        Node target,
+                                        EdgeSource<T> edgeWeights,
+                                        NumAdaptor<T> adaptor)
+    {
+        return new BiDijkstra<T>(g, edgeWeights, adaptor).path(source, target);
+    }
+
+    /**
+       Compute a shortest path between two nodes of an arbitrary graph
+       with non negative edge weights using native maps.
+       <p>
+       The path is found by a {@link BiDijkstraNative bidirectional} search,
+       which usually settles several times fewer nodes than
+       {@link #dijkstra(Graph,Node,Node,NativeNodeMap,NativeEdgeMap)
+       Dijkstra's algorithm} stopped at the target.  The implemented native
+       types are: <tt>int,long,float</tt>, and <tt>double</tt>.  To answer
+       many queries on one graph, reuse a {@link BiDijkstraNative} instance.
+       </p>
+       @param g (in) the graph with which to find a shortest path.
+       @param source (in) the source vertex.
+       @param target (in) the target vertex.
+       @param edgeWeights (in) an edge attribute map giving each edge a weight.
+       @return a shortest path from <tt>source</tt> to <tt>target</tt>, or
+       <tt>null</tt> if there is none.
+       @throws IllegalArgumentException if the native type of the weights
+       is not supported.
+     */
+    public static Path shortestPath(Graph g,
+                                    Node source,
+                                    Node target,
+                                    NativeEdgeMap edgeWeights)
+    {
+        return new BiDijkstraNative(g, edgeWeights).path(source, target);
+    }
 
     /**
        Compute the single source shortests paths problem for 
@@ -0,0 +1,172 @@
+package stixar.graph.paths;
+
+import stixar.util.IntDHeap;
+
+import java.util.Arrays;
+
+/*
+  Dijkstra's algorithm on a ForwardStar, the workspace of one thread or
+  query of JohnsonNative, TableSearch, CHBuckets and SPService.
+
+  Distances are longs for integral stars and doubles otherwise, the
+  greatest value of the type standing for nodes not reached.  A search
+  resets only the nodes the last one reached.  Nodes may be marked as
+  targets, by stamps of the search so that marks are cleared with it,
+  and a search with targets stops once all of them are settled.  The
+  parent arc of each node reached and the nodes settled in order are
+  kept on request.
+ */
+final class StarSearch
+{
+    final long[] ldist;
+    final double[] ddist;
+    final int[] parent;
+    final int[] reached;
+    int nReached;
+    final int[] settled;
+    int nSettled;
+
+    private final IntDHeap heap;
+    private final int[] stamp;
+    private int epoch;
+    private int targets;
+
+    StarSearch(int n, boolean integral, boolean parents, boolean order)
+    {
+        ldist = integral ? new long[n] : null;
+        ddist = integral ? null : new double[n];
+        if (integral)
+            Arrays.fill(ldist, Long.MAX_VALUE);
+        else
+            Arrays.fill(ddist, Double.POSITIVE_INFINITY);
+        parent = parents ? new int[n] : null;
+        reached = new int[n];
+        settled = order ? new int[n] : null;
+        heap = new IntDHeap(n);
+        stamp = new int[n];
+    }
+
+    /*
+      Forget the last search and its targets.
+     */
+    void reset()
+    {
+        if (ldist != null) {
+            for (int i=0; i<nReached; ++i)
+                ldist[reached[i]] = Long.MAX_VALUE;
+        } else {
+            for (int i=0; i<nReached; ++i)
+                ddist[reached[i]] = Double.POSITIVE_INFINITY;
+        }
+        nReached = 0;
+        nSettled = 0;
+        heap.clear();
+        if (epoch == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            epoch = 0;
+        }
+        epoch++;
+        targets = 0;
+    }
+
+    /*
+      Mark v as a target of the next search.
+     */
+    void target(int v)
+    {
+        if (stamp[v] != epoch) {
+            stamp[v] = epoch;
+            targets++;
+        }
+    }
+
+    /*
+      The number of distinct targets marked since the last reset.
+     */
+    int targets()
+    {
+        return targets;
+    }
+
+    /*
+      Search from s over the star, whose integrality must be that of this
+      search, until every target is settled if there are any.
+     */
+    void run(ForwardStar star, int s)
+    {
+        if (ldist != null)
+            longs(star, s);
+        else
+            doubles(star, s);
+    }
+
+    private void longs(ForwardStar star, int s)
+    {
+        int[] first = star.first;
+        int[] head = star.head;
+        long[] weight = star.lweight;
+        int remaining = targets;
+        ldist[s] = 0;
+        reached[nReached++] = s;
+        heap.insert(s, 0);
+        while (!heap.isEmpty()) {
+            int u = heap.extractMin();
+            if (settled != null)
+                settled[nSettled++] = u;
+            if (remaining > 0 && stamp[u] == epoch && --remaining == 0)
+                break;
+            long du = ldist[u];
+            for (int k=first[u], end=first[u + 1]; k<end; ++k) {
+                int v = head[k];
+                long dv = du + weight[k];
+                long old = ldist[v];
+                if (dv >= old)
+                    continue;
+                if (old == Long.MAX_VALUE) {
+                    reached[nReached++] = v;
+                    heap.insert(v, dv);
+                } else {
+                    heap.decreaseKey(v, dv);
+                }
+                ldist[v] = dv;
+                if (parent != null)
+                    parent[v] = k;
+            }
+        }
+    }
+
+    private void doubles(ForwardStar star, int s)
+    {
+        int[] first = star.first;
+        int[] head = star.head;
+        double[] weight = star.dweight;
+        int remaining = targets;
+        ddist[s] = 0;
+        reached[nReached++] = s;
+        heap.insert(s, IntDHeap.doubleKey(0));
+        while (!heap.isEmpty()) {
+            int u = heap.extractMin();
+            if (settled != null)
+                settled[nSettled++] = u;
+            if (remaining > 0 && stamp[u] == epoch && --remaining == 0)
+                break;
+            double du = ddist[u];
+            for (int k=first[u], end=first[u + 1]; k<end; ++k) {
+                int v = head[k];
+                double dv = du + weight[k];
+                double old = ddist[v];
+                if (dv >= old)
+                    continue;
+                if (old == Double.POSITIVE_INFINITY) {
+                    reached[nReached++] = v;
+                    heap.insert(v, IntDHeap.doubleKey(dv));
+                } else {
+                    heap.decreaseKey(v, IntDHeap.doubleKey(dv));
+                }
+                ddist[v] = dv;
+                if (parent != null)
+                    parent[v] = k;
+            }
+        }
+    }
+}
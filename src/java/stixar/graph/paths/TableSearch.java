@@ -0,0 +1,101 @@
+package stixar.graph.paths;
+
+import stixar.graph.Digraph;
+import stixar.graph.Edge;
+import stixar.graph.Node;
+
+import stixar.graph.attr.NativeEdgeMap;
+import stixar.graph.attr.NativeMap;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+  Dijkstra's algorithm from many sources to many targets on primitive
+  arrays, for DistanceTable.compute.
+
+  The edges kept by the filter are laid out in a ForwardStar, in longs
+  for int and long weights and in doubles for float and double weights.
+  Each search marks the targets, so that it stops once it has settled
+  them all.  Workers claim sources Chunk at a time, each with its own
+  StarSearch, and write whole rows of the table.
+ */
+final class TableSearch implements Workers.Task
+{
+    static final int Chunk = 16;
+
+    private final int n;
+    private final boolean integral;
+    private final ForwardStar star;
+
+    private final int[] srcIds;
+    private final int[] tgtIds;
+    private final DistanceTable table;
+    private final AtomicInteger next;
+
+    TableSearch(Digraph dg, NativeEdgeMap weights, Node[] sources, Node[] targets,
+                boolean predecessors)
+    {
+        Weights.check(weights);
+        NativeMap.Type type = weights.type();
+        this.integral = type == NativeMap.Type.Int || type == NativeMap.Type.Long;
+        this.n = dg.nodeAttrSize();
+        star = ForwardStar.build(dg, dg.getFilter(), weights, integral, predecessors);
+        srcIds = new int[sources.length];
+        for (int i=0; i<sources.length; ++i)
+            srcIds[i] = sources[i].nodeId();
+        tgtIds = new int[targets.length];
+        for (int j=0; j<targets.length; ++j)
+            tgtIds[j] = targets[j].nodeId();
+        table = new DistanceTable(sources, targets, integral, predecessors);
+        next = new AtomicInteger();
+    }
+
+    DistanceTable table()
+    {
+        return table;
+    }
+
+    public void work(int worker)
+    {
+        StarSearch search = new StarSearch(n, integral, star.edges != null, false);
+        int rows = tgtIds.length == 0 ? 0 : srcIds.length;
+        for (int i = next.getAndAdd(Chunk); i < rows; i = next.getAndAdd(Chunk)) {
+            int end = Math.min(i + Chunk, rows);
+            for (int r=i; r<end; ++r) {
+                search.reset();
+                for (int t : tgtIds)
+                    search.target(t);
+                search.run(star, srcIds[r]);
+                store(search, r);
+            }
+        }
+    }
+
+    /*
+      Write row r from the search of its source; targets not reached keep
+      the greatest value of the type.
+     */
+    private void store(StarSearch search, int r)
+    {
+        int s = srcIds[r];
+        int cols = tgtIds.length;
+        int base = r * cols;
+        long[] lrow = table.longs();
+        double[] drow = table.doubles();
+        Edge[] prow = table.preds();
+        for (int j=0; j<cols; ++j) {
+            int k = base + j;
+            int t = tgtIds[j];
+            boolean found;
+            if (integral) {
+                lrow[k] = search.ldist[t];
+                found = search.ldist[t] != Long.MAX_VALUE;
+            } else {
+                drow[k] = search.ddist[t];
+                found = search.ddist[t] != Double.POSITIVE_INFINITY;
+            }
+            if (prow != null)
+                prow[k] = found && t != s ? star.edges[search.parent[t]] : null;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package stixar.graph.paths;
+
+import stixar.graph.Edge;
+import stixar.graph.Graph;
+import stixar.graph.GraphFilter;
+import stixar.graph.Node;
+
+import stixar.graph.attr.NativeEdgeMap;
+
+import stixar.util.IntDHeap;
+
+import java.util.Arrays;
+
+/*
+  The shortest path tree into a target, for the k shortest paths
+  algorithms: Dijkstra's algorithm runs backwards from the target over
+  the incoming edges kept by the filter of the graph, giving for each
+  node its distance to the target and its first edge on a shortest path
+  to it.  The nodes which reach the target are listed in order of
+  increasing distance, so that a node comes after its successor in the
+  tree.
+ */
+final class TargetTree
+{
+    final Graph graph;
+    final NativeEdgeMap weights;
+    final GraphFilter filter;
+    final Node target;
+    final double[] dist;
+    final Edge[] next;
+    final int[] order;
+    final int size;
+
+    TargetTree(Graph g, NativeEdgeMap weights, Node t)
+    {
+        Weights.check(weights);
+        this.graph = g;
+        this.weights = weights;
+        this.filter = g.getFilter();
+        this.target = t;
+        int n = g.nodeAttrSize();
+        dist = new double[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        next = new Edge[n];
+        order = new int[n];
+        Incoming in = new Incoming(g);
+        IntDHeap heap = new IntDHeap(n);
+        int settled = 0;
+        dist[t.nodeId()] = 0;
+        heap.insert(t.nodeId(), IntDHeap.doubleKey(0));
+        while (!heap.isEmpty()) {
+            int v = heap.extractMin();
+            order[settled++] = v;
+            double dv = dist[v];
+            for (Edge e = in.first(g.node(v)); e != null; e = in.next(e)) {
+                if (skip(e))
+                    continue;
+                double w = weight(e);
+                int u = e.source().nodeId();
+                double du = dv + w;
+                if (du >= dist[u])
+                    continue;
+                if (dist[u] == Double.POSITIVE_INFINITY)
+                    heap.insert(u, IntDHeap.doubleKey(du));
+                else
+                    heap.decreaseKey(u, IntDHeap.doubleKey(du));
+                dist[u] = du;
+                next[u] = e;
+            }
+        }
+        size = settled;
+    }
+
+    boolean skip(Edge e)
+    {
+        return filter != null && filter.filter(e);
+    }
+
+    /*
+      The weight of an edge, which must not be negative.
+     */
+    double weight(Edge e)
+    {
+        double w = Weights.get(weights, e);
+        if (w < 0)
+            throw new IllegalArgumentException("negative weight on edge " + e);
+        return w;
+    }
+
+    /*
+      Whether a node reaches the target.
+     */
+    boolean reaches(int u)
+    {
+        return dist[u] != Double.POSITIVE_INFINITY;
+    }
+}
@@ -0,0 +1,47 @@
+package stixar.graph.paths;
+
+import stixar.graph.Edge;
+
+import stixar.graph.attr.DoubleEdgeMap;
+import stixar.graph.attr.FloatEdgeMap;
+import stixar.graph.attr.IntEdgeMap;
+import stixar.graph.attr.LongEdgeMap;
+import stixar.graph.attr.NativeEdgeMap;
+
+/*
+  Reading native edge weights of any numeric type as doubles, for the
+  algorithms which compute in doubles whatever the weight type.
+ */
+final class Weights
+{
+    private Weights() {}
+
+    /*
+      Check the native type of weights is int, long, float or double.
+     */
+    static void check(NativeEdgeMap weights)
+    {
+        switch (weights.type()) {
+        case Int: case Long: case Float: case Double:
+            return;
+        default:
+            throw new IllegalArgumentException("unsupported weight type " + weights.type());
+        }
+    }
+
+    static double get(NativeEdgeMap weights, Edge e)
+    {
+        switch (weights.type()) {
+        case Int:
+            return ((IntEdgeMap) weights).get(e);
+        case Long:
+            return ((LongEdgeMap) weights).get(e);
+        case Float:
+            return ((FloatEdgeMap) weights).get(e);
+        case Double:
+            return ((DoubleEdgeMap) weights).get(e);
+        default:
+            throw new IllegalArgumentException("unsupported weight type " + weights.type());
+        }
+    }
+}
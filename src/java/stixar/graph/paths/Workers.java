@@ -0,0 +1,65 @@
+package stixar.graph.paths;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/*
+  Running the workers of a parallel computation on an executor, for
+  JohnsonNative, DistanceTable and CHBuilder.  Workers claim their work
+  from counters of their own; a failure of any worker is rethrown in the
+  calling thread as it was thrown.
+ */
+final class Workers
+{
+    private Workers() {}
+
+    /*
+      The work of one worker, numbered from 0.
+     */
+    interface Task
+    {
+        void work(int worker);
+    }
+
+    /*
+      Run threads workers of a task on pool, or one worker in the calling
+      thread if pool is null, and wait for them.  An interruption is
+      reported as what interrupted.
+     */
+    static void run(ExecutorService pool, int threads, final Task task, String what)
+    {
+        if (pool == null) {
+            task.work(0);
+            return;
+        }
+        List<Callable<Object>> calls = new ArrayList<Callable<Object>>(threads);
+        for (int t=0; t<threads; ++t) {
+            final int worker = t;
+            calls.add(new Callable<Object>() {
+                    public Object call()
+                    {
+                        task.work(worker);
+                        return null;
+                    }
+                });
+        }
+        try {
+            for (Future<Object> f : pool.invokeAll(calls))
+                f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(what + " interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+}
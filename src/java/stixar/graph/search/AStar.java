@@ -4,9 +4,13 @@ import stixar.graph.Graph;
 import stixar.graph.Node;
 import stixar.graph.Edge;
 
+import stixar.graph.paths.ALT;
 import stixar.graph.paths.Dijkstra;
+import stixar.graph.paths.Landmarks;
+import stixar.graph.paths.Path;
 import stixar.graph.attr.NodeMap;
 import stixar.graph.attr.EdgeSource;
+import stixar.graph.attr.NativeEdgeMap;
 
 import stixar.util.NumAdaptor;
 import stixar.util.fheap.FibHeap;
@@ -33,6 +37,11 @@ import java.util.Comparator;
    <tt>h(u) + weight(u,v) &gt;= h(v)</tt>.  This property is necessary to guarantee
    that the search takes less time than a search without the heuristic. 
    </p>
+   <p>
+   Where no heuristic is at hand, precomputed {@link Landmarks} give one
+   for any graph with natively attributed weights, by the triangle
+   inequality; see {@link #search(Graph,Node,Node,NativeEdgeMap,Landmarks)}.
+   </p>
  */
 public class AStar
 {
@@ -91,4 +100,25 @@ public class AStar
         a.setPQueue(new FibHeap<Node>(new Cmp<T>(distMap, heuristic, adaptor)));
         a.run();
     }
+
+    /**
+       Compute a shortest path from source to target following the lower
+       bounds of landmarks.  For repeated queries, an {@link ALT} instance
+       should be reused instead.
+       @param g the graph in which to perform the search.
+       @param source the source vertex.
+       @param target the target vertex.
+       @param weights edge weights for the graph.
+       @param landmarks landmarks of the graph for the weights.
+       @return a shortest path from source to target, or <tt>null</tt> if
+       the target is not reachable.
+     */
+    public static Path search(Graph g,
+                              Node source,
+                              Node target,
+                              NativeEdgeMap weights,
+                              Landmarks landmarks)
+    {
+        return new ALT(g, weights, landmarks).path(source, target);
+    }
 }
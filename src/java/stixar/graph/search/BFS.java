@@ -4,19 +4,34 @@ import stixar.graph.Graph;
 import stixar.graph.Node;
 import stixar.graph.Edge;
 import stixar.graph.GraphFilter;
+import stixar.graph.IntAdjacency;
 import stixar.graph.Algorithm;
 import stixar.graph.Filtering;
-import stixar.graph.GraphFilter;
+import stixar.graph.attr.EpochIntNodeMap;
 
 import stixar.graph.order.NodeOrder;
 
 import java.util.LinkedList;
-import java.util.Arrays;
 
 /**
    Breadth first search filtering algorithm.
+   <p>
+   For graphs implementing {@link IntAdjacency}, or given with primitive
+   adjacency lists such as a snapshot from
+   {@link stixar.graph.BasicDigraph#adjacency}, the search may instead be
+   driven by an {@link BFS.IntVisitor}, whose callbacks receive node and edge
+   identifiers.  In that case the search walks the adjacency lists by index
+   and queues identifiers in an array, and allocates nothing per node or edge
+   unless a filter is installed.
+   </p><p>
+   The colours and numbers of the nodes are kept in {@link EpochIntNodeMap
+   epoch stamped maps}, so that {@link #reset} takes constant time and a
+   search may be reset and run again from another node at a cost
+   proportional to the part of the graph it visits.
+   </p>
 
    @see BFS.Visitor
+   @see BFS.IntVisitor
  */
 public class BFS implements Algorithm, Filtering
 {
@@ -32,12 +47,21 @@ public class BFS implements Algorithm, Filtering
 
     protected Visitor visitor;
 
-    protected Color[] colors;
-    protected int[] bfsNumbers;
+    private static final int White = 0;
+    private static final int Grey = 1;
+    private static final int Black = 2;
+    private static final Color[] colorValues = Color.values();
+
+    protected EpochIntNodeMap colors;
+    protected EpochIntNodeMap bfsNumbers;
     protected int bfsNum;
 
     protected LinkedList<Node> queue;
 
+    protected IntAdjacency adj;
+    protected IntVisitor intVisitor;
+    protected int[] intQueue;
+
     /**
        Construct a BFS algorithm for a graph <tt>graph</tt> 
        with the visitor <tt>vis</tt>.
@@ -46,20 +70,70 @@ public class BFS implements Algorithm, Filtering
     {
         this.graph = graph;
         this.filt = graph.getFilter();
-        this.colors = new Color[graph.nodeAttrSize()];
-        this.bfsNumbers = new int[graph.nodeAttrSize()];
+        this.colors = new EpochIntNodeMap(graph.nodeAttrSize(), White);
+        this.bfsNumbers = new EpochIntNodeMap(graph.nodeAttrSize(), -1);
         this.bfsNum = 0;
         this.visitor = vis;
-        Arrays.fill(colors, Color.white);
         queue = new LinkedList<Node>();
     }
 
+    /**
+       Construct a BFS algorithm for a graph <tt>graph</tt>
+       with the primitive visitor <tt>vis</tt>.
+
+       @throws IllegalArgumentException if <tt>graph</tt> does not implement
+       {@link IntAdjacency}.
+     */
+    public BFS(Graph graph, IntVisitor vis)
+    {
+        this(graph, intAdjacency(graph), vis);
+    }
+
+    /**
+       Construct a BFS algorithm for a graph <tt>graph</tt> whose
+       adjacency lists are given by <tt>adj</tt>, such as a snapshot from
+       {@link stixar.graph.BasicDigraph#adjacency}, with the primitive
+       visitor <tt>vis</tt>.
+     */
+    public BFS(Graph graph, IntAdjacency adj, IntVisitor vis)
+    {
+        this(graph, (Visitor) null);
+        this.adj = adj;
+        this.intVisitor = vis;
+        this.intQueue = new int[graph.nodeAttrSize()];
+    }
+
+    private static IntAdjacency intAdjacency(Graph graph)
+    {
+        if (!(graph instanceof IntAdjacency)) {
+            throw new IllegalArgumentException("graph does not implement IntAdjacency");
+        }
+        return (IntAdjacency) graph;
+    }
+
     /**
        Set the color of the node <tt>node</tt> to <tt>color</tt>.
      */
     public void color(Node node, Color color)
     {
-        colors[node.nodeId()] = color;
+        colors.set(node, color.ordinal());
+    }
+
+    /**
+       Return the color of the node <tt>node</tt>.
+     */
+    public Color color(Node node)
+    {
+        return colorValues[colors.get(node)];
+    }
+
+    /**
+       Return the place of <tt>node</tt> in the order in which this
+       search discovered the nodes, or -1 if it was not discovered.
+     */
+    public int bfsNumber(Node node)
+    {
+        return bfsNumbers.get(node);
     }
 
     /**
@@ -83,10 +157,14 @@ public class BFS implements Algorithm, Filtering
      */
     public void run()
     {
+        if (intVisitor != null) {
+            runInt();
+            return;
+        }
         for (Node n: graph.nodes()) {
             if (visitor.done()) break;
             if (filt != null && filt.filter(n)) continue;
-            if (colors[n.nodeId()] == Color.white && visitor.follow(n)) {
+            if (colors.get(n) == White && visitor.follow(n)) {
                 visitor.root(n);
                 visit(n);
             }
@@ -98,7 +176,7 @@ public class BFS implements Algorithm, Filtering
      */
     public final boolean visited(Node n)
     {
-        return colors[n.nodeId()] != Color.white;
+        return colors.get(n) != White;
     }
 
     /**
@@ -106,15 +184,15 @@ public class BFS implements Algorithm, Filtering
      */
     public final void visit(Node n)
     {
-        colors[n.nodeId()] = Color.grey;
-        bfsNumbers[n.nodeId()] = bfsNum++;
+        colors.set(n, Grey);
+        bfsNumbers.set(n, bfsNum++);
         queue.addLast(n);
         visitor.discover(n);
         while(queue.size() > 0) {
             if (visitor.done()) break;
             Node u = queue.removeFirst();
             if (filt != null && filt.filter(u)) continue;
-            colors[u.nodeId()] = Color.black;
+            colors.set(u, Black);
             visitor.start(u);
             for(Edge e = u.out(); e != null; e = e.next()) {
                 if (visitor.done()) break;
@@ -122,21 +200,21 @@ public class BFS implements Algorithm, Filtering
                     continue;
                 }
                 Node v = e.target();
-                switch (colors[v.nodeId()])
+                switch (colors.get(v))
                     {
-                    case white:
+                    case White:
                         visitor.treeEdge(e);
                         if (visitor.done()) break;
                         if (visitor.follow(v)) {
-                            colors[v.nodeId()] = Color.grey;
-                            bfsNumbers[v.nodeId()] = bfsNum++;
+                            colors.set(v, Grey);
+                            bfsNumbers.set(v, bfsNum++);
                             queue.addLast(v);
                             visitor.discover(v);
                         }
                         break;
-                    case grey:
+                    case Grey:
                         visitor.queueEdge(e);
-                    case black:
+                    case Black:
                         visitor.crossEdge(e);
                     }
             }
@@ -144,18 +222,92 @@ public class BFS implements Algorithm, Filtering
         }
     }
 
+    /*
+      Primitive version of run().
+     */
+    private void runInt()
+    {
+        int nasz = graph.nodeAttrSize();
+        for (int u=0; u<nasz; ++u) {
+            if (intVisitor.done()) break;
+            Node n = graph.node(u);
+            if (n == null || (filt != null && filt.filter(n))) continue;
+            if (colors.get(u) == White && intVisitor.follow(u)) {
+                intVisitor.root(u);
+                visit(u);
+            }
+        }
+    }
+
+    /**
+       Visit the node with identifier <tt>s</tt> using the primitive
+       visitor.
+
+       @throws IllegalStateException if this search was not constructed
+       with an {@link IntVisitor}.
+     */
+    public final void visit(int s)
+    {
+        if (intVisitor == null) {
+            throw new IllegalStateException("no IntVisitor");
+        }
+        int head = 0;
+        int tail = 0;
+        colors.set(s, Grey);
+        bfsNumbers.set(s, bfsNum++);
+        intQueue[tail++] = s;
+        intVisitor.discover(s);
+        while(head < tail) {
+            if (intVisitor.done()) break;
+            int u = intQueue[head++];
+            if (filt != null && filt.filter(graph.node(u))) continue;
+            colors.set(u, Black);
+            intVisitor.start(u);
+            for (int i=0, deg=adj.outDegree(u); i<deg; ++i) {
+                if (intVisitor.done()) break;
+                if (filt != null && filt.filter(adj.outEdge(u, i))) {
+                    continue;
+                }
+                int v = adj.outTarget(u, i);
+                int eid = adj.outEdgeId(u, i);
+                switch (colors.get(v))
+                    {
+                    case White:
+                        intVisitor.treeEdge(u, eid, v);
+                        if (intVisitor.done()) break;
+                        if (intVisitor.follow(v)) {
+                            colors.set(v, Grey);
+                            bfsNumbers.set(v, bfsNum++);
+                            intQueue[tail++] = v;
+                            intVisitor.discover(v);
+                        }
+                        break;
+                    case Grey:
+                        intVisitor.queueEdge(u, eid, v);
+                    case Black:
+                        intVisitor.crossEdge(u, eid, v);
+                    }
+            }
+            intVisitor.finish(u);
+        }
+    }
+
     public NodeOrder order()
     {
-        return new NodeOrder(graph, bfsNumbers);
+        int[] numbers = new int[graph.nodeAttrSize()];
+        for (Node n : graph.nodes())
+            numbers[n.nodeId()] = bfsNumbers.get(n);
+        return new NodeOrder(graph, numbers);
     }
 
     /**
-       Reset the algorithm.
+       Reset the algorithm, in constant time.
      */
     public void reset()
     {
-        Arrays.fill(colors, Color.white);
-        Arrays.fill(bfsNumbers, -1);
+        colors.clear();
+        bfsNumbers.clear();
+        bfsNum = 0;
         queue.clear();
     }
 
@@ -193,4 +345,41 @@ public class BFS implements Algorithm, Filtering
         /** trigger the {@link BFS} to halt if return true. */
         public boolean done() { return false; }
     }
+
+    /**
+       Primitive visitor for the breadth first search of an
+       {@link IntAdjacency} graph.  The callbacks correspond to those of
+       {@link BFS.Visitor}, with nodes given by identifier and edges by
+       their source, identifier and target.
+    */
+    public static class IntVisitor
+    {
+        /** Called when a node is a root in the BFS */
+        public void root(int u) {}
+
+        /** Called when a node is first discovered via breadth first search */
+        public void discover(int u) {}
+
+        /** Called just after a node's edges are processed */
+        public void finish(int u) {}
+
+        /** Called just before a node's edges are processed */
+        public void start(int u) {}
+
+        /** Called for an edge to a discovered node */
+        public void treeEdge(int u, int eid, int v) {}
+
+        /** Called for an edge other than a tree edge */
+        public void crossEdge(int u, int eid, int v) {}
+
+        public void queueEdge(int u, int eid, int v) {}
+
+        /**
+            Tell BFS whether or not to follow the node <tt>u</tt>
+        */
+        public boolean follow(int u) { return true; }
+
+        /** trigger the {@link BFS} to halt if return true. */
+        public boolean done() { return false; }
+    }
 }
@@ -6,11 +6,12 @@ import stixar.graph.Edge;
 import stixar.graph.Algorithm;
 import stixar.graph.Filtering;
 import stixar.graph.GraphFilter;
+import stixar.graph.IntAdjacency;
+import stixar.graph.attr.EpochIntNodeMap;
 import stixar.graph.attr.NodeMap;
 
 import stixar.graph.order.NodeOrder;
 
-import java.util.Arrays;
 
 /**
    Filtering depth first search algorithm.
@@ -20,6 +21,25 @@ import java.util.Arrays;
    has methods indicating the various contexts which can occur
    during the search and can be used to construct many different
    algorithms.
+   <p>
+   For graphs implementing {@link IntAdjacency}, or given with primitive
+   adjacency lists such as a snapshot from
+   {@link stixar.graph.BasicDigraph#adjacency}, the search may instead be
+   driven by a {@link DFS.IntVisitor}, whose callbacks receive node and edge
+   identifiers.  That search uses an explicit stack of node identifiers and
+   edge indices and allocates nothing per node or edge unless a filter is
+   installed.  The node {@link #status status} information is maintained
+   in either case.
+   </p>
+   <p>
+   The start and finish numbers of the nodes, from which their colours
+   follow, are kept in {@link EpochIntNodeMap epoch stamped maps}, and the
+   explicit stack in an array of node identifiers and one of edge cursors,
+   all allocated once and grown with the graph, so that a search allocates
+   nothing per node.
+   {@link #reset} takes constant time, and a search may be reset and run
+   again at a cost proportional to the part of the graph it visits.
+   </p>
  */
 public class DFS implements Algorithm, Filtering
 {
@@ -34,9 +54,8 @@ public class DFS implements Algorithm, Filtering
     }
 
     /**
-       Various DFS status information kept for every node.
-       A managed NodeMap&lt;Status&gt is availabel by the
-       key returned from the method key {@link #key}
+       Various DFS status information of a node, as returned by
+       {@link #status}.
      */
     public static final class Status
     {
@@ -53,9 +72,16 @@ public class DFS implements Algorithm, Filtering
         public int finishNum;
     }
 
+    private static final byte White = 0;
+    private static final byte Grey = 1;
+    private static final byte Black = 2;
+    private static final Color[] colors = Color.values();
+
     protected Graph graph;
-    protected NodeMap<Status> statMap;
-    protected NREntry[] nrStack;
+    protected EpochIntNodeMap startNum;
+    protected EpochIntNodeMap finishNum;
+    protected int cap;
+    protected Edge[] nrEdges;
     protected Visitor visitor;
     protected int dfsStart;
     protected int dfsFinish;
@@ -64,6 +90,11 @@ public class DFS implements Algorithm, Filtering
     protected boolean recursive;
     protected Object key;
 
+    protected IntAdjacency adj;
+    protected IntVisitor intVisitor;
+    protected int[] intNodes;
+    protected int[] intEdges;
+
     /**
        Construct a DFS algorithm from a graph and a DFS visitor.
 
@@ -84,8 +115,8 @@ public class DFS implements Algorithm, Filtering
        stack in the recursive style.  As the JVM has a limit on 
        the depth call stack, this can limit the size of the 
        graphs that can be handled.  On the other hand, the non recursive
-       version requires additional explicit storage (an array 
-       of size graph.nodeSize()).  The default is to use the non 
+       version requires additional explicit storage (two arrays 
+       of size graph.nodeAttrSize()).  The default is to use the non 
        recursive version.  
        </p>
        <p>
@@ -103,42 +134,127 @@ public class DFS implements Algorithm, Filtering
     {
         this.graph = graph;
         this.filt = graph.getFilter();
-        this.key = new Object();
-        this.statMap = graph.createNodeMap(key);
+        this.key = null;
 
         this.dfsStart = 0;
         this.visitor = vis;
-        this.nrStack = null;
         this.recursive = recursive;
         this.lastDfsStart = -1;
+        int sz = graph.nodeAttrSize();
+        this.cap = sz;
+        this.startNum = new EpochIntNodeMap(sz, -1);
+        this.finishNum = new EpochIntNodeMap(sz, -1);
         if (!recursive) {
-            int sz = graph.nodeSize();
-            this.nrStack = new NREntry[sz];
-            for (int i=0; i<sz; ++i) {
-                nrStack[i] = new NREntry();
-            }
+            this.intNodes = new int[sz];
+            this.nrEdges = new Edge[sz];
         }
         initStatMap();
     }
 
     /**
-       Initialize the node status map.  This is done
-       upon construction.
+       Construct a DFS algorithm from a graph and a primitive DFS visitor.
+       The search always uses an explicit stack.
+
+       @throws IllegalArgumentException if <tt>graph</tt> does not implement
+       {@link IntAdjacency}.
      */
-    public void initStatMap()
+    public DFS(Graph graph, IntVisitor vis)
     {
-        for (Node n : graph.nodes()) {
-            statMap.set(n, new Status());
+        this(graph, intAdjacency(graph), vis);
+    }
+
+    /**
+       Construct a DFS algorithm for a graph <tt>graph</tt> whose
+       adjacency lists are given by <tt>adj</tt>, such as a snapshot from
+       {@link stixar.graph.BasicDigraph#adjacency}, with the primitive
+       visitor <tt>vis</tt>.
+     */
+    public DFS(Graph graph, IntAdjacency adj, IntVisitor vis)
+    {
+        this(graph, (Visitor) null, true);
+        this.adj = adj;
+        this.intVisitor = vis;
+        this.intNodes = new int[graph.nodeAttrSize()];
+        this.intEdges = new int[graph.nodeAttrSize()];
+    }
+
+    private static IntAdjacency intAdjacency(Graph graph)
+    {
+        if (!(graph instanceof IntAdjacency)) {
+            throw new IllegalArgumentException("graph does not implement IntAdjacency");
         }
+        return (IntAdjacency) graph;
+    }
+
+    /**
+       Initialize the status of every node, and the dfs numbering.  This
+       is done upon construction; {@link #reset} does the same for the
+       nodes visited since.
+     */
+    public void initStatMap()
+    {
+        ensureCapacity();
+        startNum.clear();
+        finishNum.clear();
+        dfsStart = 0;
+        dfsFinish = 0;
+    }
+
+    /*
+      Grow the node arrays to follow the graph.
+     */
+    private void ensureCapacity()
+    {
+        int sz = graph.nodeAttrSize();
+        if (sz <= cap)
+            return;
+        cap = sz;
+        startNum.grow(sz);
+        finishNum.grow(sz);
+        if (intNodes != null)
+            intNodes = new int[sz];
+        if (nrEdges != null)
+            nrEdges = new Edge[sz];
+        if (intEdges != null)
+            intEdges = new int[sz];
+    }
+
+    /*
+      The colour of a node: white until started, grey until finished.
+     */
+    private byte colorOf(int u)
+    {
+        if (startNum.get(u) < 0)
+            return White;
+        return finishNum.get(u) < 0 ? Grey : Black;
+    }
+
+    /*
+      Colour a node grey and give it its start number.
+     */
+    private void start(int u)
+    {
+        startNum.set(u, dfsStart++);
+    }
+
+    /*
+      Colour a node black and give it its finish number.
+     */
+    private void finish(int u)
+    {
+        finishNum.set(u, dfsFinish++);
     }
 
     public void run()
     {
-        Status stat = null;
+        ensureCapacity();
+        if (intVisitor != null) {
+            runInt();
+            return;
+        }
         for (Node n: graph.nodes()) {
             if (filt != null && filt.filter(n)) continue;
-            stat = statMap.get(n);
-            if (stat.color == Color.white) {
+            if (colorOf(n.nodeId()) == White) {
                 visitor.root(n);
                 if (recursive) 
                     rVisit(n);
@@ -149,26 +265,32 @@ public class DFS implements Algorithm, Filtering
     }
 
     /**
-       Return the managed attribute key for a NodeMap&lt;Status&gt;.
+       Return the managed attribute key for a NodeMap&lt;Status&gt; holding
+       the status of every node at the time of the call.  The map is
+       created by the call, the statuses being kept in arrays otherwise.
      */
     public Object statKey()
     {
+        if (key == null)
+            key = new Object();
+        NodeMap<Status> statMap = graph.getNodeMap(key);
+        if (statMap == null)
+            statMap = graph.createNodeMap(key);
+        for (Node n : graph.nodes())
+            statMap.set(n, status(n));
         return key;
     }
 
     /**
-       reinitialize everything.
+       Reinitialize everything, in constant time.
      */
     public void reset()
     {
-        if (nrStack != null) {
-            int sz = graph.nodeSize();
-            this.nrStack = new NREntry[sz];
-            for (int i=0; i<sz; ++i) {
-                nrStack[i] = new NREntry();
-            }
-        }
-        initStatMap();
+        startNum.clear();
+        finishNum.clear();
+        dfsStart = 0;
+        dfsFinish = 0;
+        ensureCapacity();
     }
 
     /**
@@ -180,17 +302,39 @@ public class DFS implements Algorithm, Filtering
      */
     public int dfsStart(Node n)
     {
-        return statMap.get(n).startNum;
+        return startNum.get(n);
+    }
+
+    /**
+       Return the place of <tt>n</tt> in the order in which this
+       algorithm finished the nodes, or -1 if it is not finished.
+     */
+    public int dfsFinish(Node n)
+    {
+        return finishNum.get(n);
+    }
+
+    /**
+       Return the colour of a node.
+     */
+    public Color color(Node n)
+    {
+        return colors[colorOf(n.nodeId())];
     }
 
-    
     /**
-       Return the {@link #Status} object associated with a node.
+       Return a {@link Status} object holding the status of a node
+       at the time of the call.
        @param n the node whose status is to be found.
      */
     public Status status(Node n)
     {
-        return statMap.get(n);
+        int u = n.nodeId();
+        Status stat = new Status();
+        stat.color = colors[colorOf(u)];
+        stat.startNum = startNum.get(u);
+        stat.finishNum = finishNum.get(u);
+        return stat;
     }
 
     /**
@@ -201,10 +345,9 @@ public class DFS implements Algorithm, Filtering
      */
     public NodeOrder order()
     {
-        int[] dfsStarts = new int[graph.nodeSize()];
+        int[] dfsStarts = new int[graph.nodeAttrSize()];
         for (Node n : graph.nodes()) {
-            Status nStat = statMap.get(n);
-            dfsStarts[n.nodeId()] = nStat.startNum;
+            dfsStarts[n.nodeId()] = startNum.get(n);
         }
         return new NodeOrder(graph, dfsStarts);
     }
@@ -216,6 +359,7 @@ public class DFS implements Algorithm, Filtering
      */
     public final void visit(Node u)
     {
+        ensureCapacity();
         if (recursive) rVisit(u);
         else nrVisit(u);
     }
@@ -230,27 +374,26 @@ public class DFS implements Algorithm, Filtering
     {
         if (visitor.done()) return;
         if (!visitor.follow(u)) return;
-        Status uStat = statMap.get(u);
-        uStat.color = Color.grey;
-        uStat.startNum = dfsStart++;
+        int uid = u.nodeId();
+        start(uid);
         visitor.discover(u);
         for(Edge e = u.out(); e != null; e = e.next()) {
             if (filt != null && filt.filter(e)) continue;
             visitor.startEdge(e);
             Node v = e.target();
-            Status vStat = statMap.get(v);
-            switch(vStat.color)
+            int vid = v.nodeId();
+            switch(colorOf(vid))
                 {
-                case white:
+                case White:
                     visitor.treeEdge(e);
                     if (filt != null  && filt.filter(v)) break;
                     rVisit(v);
                     break;
-                case grey:
+                case Grey:
                     visitor.backEdge(e);
                     break;
-                case black:
-                    if (vStat.startNum > uStat.startNum) {
+                case Black:
+                    if (startNum.get(vid) > startNum.get(uid)) {
                         visitor.fwdEdge(e);
                     } else {
                         visitor.crossEdge(e);
@@ -259,85 +402,153 @@ public class DFS implements Algorithm, Filtering
                 }
             visitor.finishEdge(e);
         }
-        uStat.color = Color.black;
-        uStat.finishNum = dfsFinish++;
+        finish(uid);
         visitor.finish(u);
     } 
 
-    protected static final class NREntry
-    {
-        Edge edge;
-        Node node;
-    }
-
     /**
        Non recursive, explicit stack, version of dfs visit.
      */
     protected void nrVisit(Node n)
     {
         int top = 0;
-        NREntry entry = nrStack[top];
-        entry.node = n;
-        entry.edge = n.out();
+        intNodes[top] = n.nodeId();
+        nrEdges[top] = n.out();
         visitor.discover(n);
-        Status nStat = statMap.get(n);
-        nStat.color = Color.grey;
-        nStat.startNum = dfsStart++;
+        start(n.nodeId());
         top++;
         while(top > 0) {
-            entry = nrStack[top - 1];
-            Edge e = entry.edge;
+            int cur = top - 1;
+            Edge e = nrEdges[cur];
             if (e != null) {
-                entry.edge = e.next();
+                nrEdges[cur] = e.next();
             }
             while(e != null && !visitor.done()) {
                 if (filt != null && filt.filter(e)) { 
-                    e = entry.edge = e.next(); 
+                    e = nrEdges[cur] = e.next(); 
                     continue;
                 }
                 visitor.startEdge(e);
                 Node v = e.target();
-                Status vStat = statMap.get(v);
-                switch(vStat.color) {
-                case white:
-                    vStat.color = Color.grey;
-                    vStat.startNum = dfsStart++;
+                int vid = v.nodeId();
+                switch(colorOf(vid)) {
+                case White:
+                    start(vid);
                     visitor.treeEdge(e);
                     visitor.discover(v);
                     if (visitor.follow(v)) {
-                        entry.edge = e;
+                        nrEdges[cur] = e;
                         e = v.out();
-                        entry = nrStack[top++];
-                        entry.edge = e;
-                        entry.node = v;
+                        cur = top++;
+                        nrEdges[cur] = e;
+                        intNodes[cur] = vid;
                         continue;
                     }
                     break;
-                case grey:
+                case Grey:
                     visitor.backEdge(e);
                     break;
-                case black:
-                    Status sStat = statMap.get(e.source());
-                    if (vStat.startNum > sStat.startNum) {
+                case Black:
+                    if (startNum.get(vid) > startNum.get(intNodes[cur])) {
                         visitor.fwdEdge(e);
                     } else {
                         visitor.crossEdge(e);
                     }
                     break;
                 default:
-                    throw new Error("Illegal dfs color: " + vStat.color);
+                    throw new Error("Illegal dfs color: " + colorOf(vid));
                 }
                 e = e.next();
             }
-            Node u = entry.node;
-            Status uStat = statMap.get(u);
-            uStat.color = Color.black;
-            uStat.finishNum = dfsFinish++;
-            visitor.finish(u);
+            int uid = intNodes[cur];
+            nrEdges[cur] = null;
+            finish(uid);
+            visitor.finish(graph.node(uid));
             top--;
         }
     }
 
+    /*
+      Primitive version of run().
+     */
+    private void runInt()
+    {
+        int nasz = graph.nodeAttrSize();
+        for (int u=0; u<nasz; ++u) {
+            Node n = graph.node(u);
+            if (n == null || (filt != null && filt.filter(n))) continue;
+            if (colorOf(u) == White) {
+                intVisitor.root(u);
+                visit(u);
+            }
+        }
+    }
+
+    /**
+       Visit the node with identifier <tt>s</tt>, and those reachable from
+       it, using the primitive visitor.  The order of the callbacks is that
+       of {@link #rVisit}.
+
+       @throws IllegalStateException if this search was not constructed
+       with an {@link IntVisitor}.
+     */
+    public final void visit(int s)
+    {
+        if (intVisitor == null) {
+            throw new IllegalStateException("no IntVisitor");
+        }
+        ensureCapacity();
+        if (intVisitor.done() || !intVisitor.follow(s)) return;
+        start(s);
+        intVisitor.discover(s);
+        int top = 0;
+        intNodes[top] = s;
+        intEdges[top++] = 0;
+        while(top > 0) {
+            int u = intNodes[top - 1];
+            int i = intEdges[top - 1];
+            if (i < adj.outDegree(u) && !intVisitor.done()) {
+                intEdges[top - 1] = i + 1;
+                if (filt != null && filt.filter(adj.outEdge(u, i))) continue;
+                int v = adj.outTarget(u, i);
+                int eid = adj.outEdgeId(u, i);
+                intVisitor.startEdge(u, eid, v);
+                switch(colorOf(v)) {
+                case White:
+                    intVisitor.treeEdge(u, eid, v);
+                    if (filt != null && filt.filter(graph.node(v))) break;
+                    if (intVisitor.done() || !intVisitor.follow(v)) break;
+                    start(v);
+                    intVisitor.discover(v);
+                    intNodes[top] = v;
+                    intEdges[top++] = 0;
+                    // finishEdge is called when v is finished.
+                    continue;
+                case Grey:
+                    intVisitor.backEdge(u, eid, v);
+                    break;
+                case Black:
+                    if (startNum.get(v) > startNum.get(u)) {
+                        intVisitor.fwdEdge(u, eid, v);
+                    } else {
+                        intVisitor.crossEdge(u, eid, v);
+                    }
+                    break;
+                }
+                intVisitor.finishEdge(u, eid, v);
+            } else {
+                finish(u);
+                intVisitor.finish(u);
+                top--;
+                if (top > 0) {
+                    int p = intNodes[top - 1];
+                    int j = intEdges[top - 1] - 1;
+                    intVisitor.finishEdge(p, adj.outEdgeId(p, j), u);
+                }
+            }
+        }
+    }
+
     /**
        Visitor for working with DFS.
        <p>
@@ -439,4 +650,49 @@ public class DFS implements Algorithm, Filtering
         */
         public boolean follow(Node n) { return true; }
     }
+
+    /**
+       Primitive visitor for the depth first search of an
+       {@link IntAdjacency} graph.  The callbacks correspond to those of
+       {@link DFS.Visitor}, with nodes given by identifier and edges by
+       their source, identifier and target.
+    */
+    public static class IntVisitor
+    {
+        /** Called when node u is a root in the DFS. */
+        public void root(int u) {}
+
+        /** Called when DFS first encounters a node during its search. */
+        public void discover(int u) {}
+
+        /** Called when all nodes reachable from <tt>u</tt> have been visited. */
+        public void finish(int u) {}
+
+        /** Called when DFS first encounters an edge during its traversal. */
+        public void startEdge(int u, int eid, int v) {}
+
+        /** Called when DFS is done visiting an edge. */
+        public void finishEdge(int u, int eid, int v) {}
+
+        /** Called for every edge which leads to the discovery of a node. */
+        public void treeEdge(int u, int eid, int v) {}
+
+        /** Called for an edge to a descendent in the DFS tree. */
+        public void fwdEdge(int u, int eid, int v) {}
+
+        /** Called for an edge to an ancestor in the DFS tree. */
+        public void backEdge(int u, int eid, int v) {}
+
+        /** Called for every other edge. */
+        public void crossEdge(int u, int eid, int v) {}
+
+        /** If this method returns <tt>true</tt> the DFS algorithm stops. */
+        public boolean done() { return false; }
+
+        /**
+           Return true iff the node <tt>u</tt> should be examined for outoing
+           edges in the DFS algorithm.
+        */
+        public boolean follow(int u) { return true; }
+    }
 }
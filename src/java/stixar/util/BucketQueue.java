@@ -0,0 +1,270 @@
+package stixar.util;
+
+import java.util.Arrays;
+
+/**
+   Dial's monotone bucket queue of integer items with <tt>long</tt> keys.
+   <p>
+   The queue is a circular array of <tt>span + 1</tt> buckets, each a
+   doubly linked list of items threaded through arrays indexed by item.
+   It is <em>monotone</em>: every key inserted must lie between the key
+   last extracted (before any extraction, the first key inserted) and that
+   key plus <tt>span</tt>, so that each bucket holds items of a single key.
+   In Dijkstra's algorithm with integer weights in <tt>[0,span]</tt> this
+   always holds, and insertion and {@link #decreaseKey} take constant time
+   while extraction takes time proportional to the number of empty buckets
+   skipped, for a total of <tt>O(m + D)</tt> where <tt>D</tt> is the
+   largest distance.
+   </p><p>
+   The items inserted since the last clear are recorded, so that {@link
+   #clear} takes time proportional to their number rather than to the
+   capacity.
+   </p>
+ */
+public class BucketQueue implements IntPQueue
+{
+    private static final int Removed = -2;
+    private static final int Absent = -1;
+
+    protected final long span;
+    protected final int[] heads;
+    protected int[] next;
+    protected int[] prev;
+    protected int[] bucket;
+    protected long[] keys;
+    protected int[] touched;
+    protected int nTouched;
+    protected long last;
+    protected int cursor;
+    protected int size;
+
+    /**
+       Construct a bucket queue for items in <tt>[0,capacity)</tt>.
+       @param capacity the initial bound on the items; larger items may
+       also be inserted.
+       @param span the largest difference between a key inserted and the
+       key last extracted, typically the largest edge weight.
+       @throws IllegalArgumentException if the capacity or span is negative,
+       or the span is not less than <tt>Integer.MAX_VALUE</tt>.
+     */
+    public BucketQueue(int capacity, long span)
+    {
+        if (capacity < 0)
+            throw new IllegalArgumentException("negative capacity");
+        if (span < 0 || span >= Integer.MAX_VALUE)
+            throw new IllegalArgumentException("invalid span " + span);
+        this.span = span;
+        heads = new int[(int) span + 1];
+        Arrays.fill(heads, -1);
+        next = new int[capacity];
+        prev = new int[capacity];
+        keys = new long[capacity];
+        bucket = new int[capacity];
+        touched = new int[capacity];
+        Arrays.fill(bucket, Absent);
+        last = Long.MIN_VALUE;
+        cursor = 0;
+        size = 0;
+    }
+
+    /**
+       Return the largest difference between a key inserted and the key
+       last extracted.
+     */
+    public long span()
+    {
+        return span;
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public void insert(int item, long key)
+    {
+        if (item < 0)
+            throw new IllegalArgumentException("negative item " + item);
+        if (item >= bucket.length)
+            grow(item + 1);
+        else if (bucket[item] >= 0)
+            throw new IllegalArgumentException("item " + item + " already queued");
+        if (bucket[item] == Absent)
+            touched[nTouched++] = item;
+        if (size == 0 && last == Long.MIN_VALUE)
+            last = key;
+        link(item, slot(key));
+        keys[item] = key;
+        size++;
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public void decreaseKey(int item, long key)
+    {
+        if (!contains(item))
+            throw new IllegalArgumentException("item " + item + " not in queue");
+        if (key > keys[item])
+            throw new IllegalArgumentException("key increase for item " + item);
+        int b = slot(key);
+        unlink(item);
+        link(item, b);
+        keys[item] = key;
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public int extractMin()
+    {
+        if (size == 0) return -1;
+        int b = cursor;
+        while (heads[b] == -1) {
+            if (++b == heads.length) b = 0;
+        }
+        int item = heads[b];
+        cursor = b;
+        last = keys[item];
+        unlink(item);
+        bucket[item] = Removed;
+        size--;
+        return item;
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public int min()
+    {
+        if (size == 0) return -1;
+        int b = cursor;
+        while (heads[b] == -1) {
+            if (++b == heads.length) b = 0;
+        }
+        return heads[b];
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public long minKey()
+    {
+        if (size == 0)
+            throw new IllegalStateException("empty queue");
+        return keys[min()];
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public long key(int item)
+    {
+        if (!contains(item))
+            throw new IllegalArgumentException("item " + item + " not in queue");
+        return keys[item];
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public boolean contains(int item)
+    {
+        return item >= 0 && item < bucket.length && bucket[item] >= 0;
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public boolean queued(int item)
+    {
+        return item >= 0 && item < bucket.length && bucket[item] != Absent;
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public void clear()
+    {
+        for (int i=0; i<nTouched; ++i) {
+            int item = touched[i];
+            if (bucket[item] >= 0)
+                heads[bucket[item]] = -1;
+            bucket[item] = Absent;
+        }
+        nTouched = 0;
+        last = Long.MIN_VALUE;
+        cursor = 0;
+        size = 0;
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /*
+      The bucket of a key, checking monotonicity.
+     */
+    private int slot(long key)
+    {
+        long d = key - last;
+        if (d < 0 || d > span)
+            throw new IllegalArgumentException
+                ("key " + key + " outside [" + last + "," + (last + span) + "]");
+        int b = cursor + (int) d;
+        return b >= heads.length ? b - heads.length : b;
+    }
+
+    private void link(int item, int b)
+    {
+        int h = heads[b];
+        next[item] = h;
+        prev[item] = -1;
+        if (h != -1)
+            prev[h] = item;
+        heads[b] = item;
+        bucket[item] = b;
+    }
+
+    private void unlink(int item)
+    {
+        int p = prev[item];
+        int n = next[item];
+        if (p != -1)
+            next[p] = n;
+        else
+            heads[bucket[item]] = n;
+        if (n != -1)
+            prev[n] = p;
+    }
+
+    private void grow(int cap)
+    {
+        int old = bucket.length;
+        cap = Math.max(cap, 2 * old);
+        int[] t = new int[cap];
+        System.arraycopy(next, 0, t, 0, old);
+        next = t;
+        t = new int[cap];
+        System.arraycopy(prev, 0, t, 0, old);
+        prev = t;
+        long[] k = new long[cap];
+        System.arraycopy(keys, 0, k, 0, old);
+        keys = k;
+        t = new int[cap];
+        System.arraycopy(bucket, 0, t, 0, old);
+        Arrays.fill(t, old, cap, Absent);
+        bucket = t;
+        touched = Arrays.copyOf(touched, cap);
+    }
+}
@@ -0,0 +1,312 @@
+package stixar.util;
+
+import java.util.Arrays;
+
+/**
+   An indexed d-ary heap of integer items with <tt>long</tt> keys.
+   <p>
+   Items and their keys are kept in parallel arrays ordered as a heap in
+   which each position has <tt>arity</tt> children, and the position of
+   each item is recorded in an array indexed by the item.  Thus insertion
+   and {@link #decreaseKey} take <tt>O(log<sub>d</sub> n)</tt> time and
+   {@link #extractMin} takes <tt>O(d log<sub>d</sub> n)</tt>, without any
+   per item allocation.  An arity of 4 is usually fastest: the heap is
+   shallower than a binary heap, and the children of a position share a
+   cache line.
+   </p><p>
+   The position array grows as needed to hold the largest item inserted.
+   The items inserted since the last clear are recorded, so that {@link
+   #clear} takes time proportional to their number rather than to the
+   length of the position array, and a heap may be reused by many small
+   searches in a large graph.
+   </p>
+ */
+public class IntDHeap implements IntPQueue
+{
+    private static final int Removed = -2;
+    private static final int Absent = -1;
+
+    protected final int arity;
+    protected int[] items;
+    protected long[] keys;
+    protected int[] pos;
+    protected int size;
+    protected int[] touched;
+    protected int nTouched;
+
+    /**
+       Construct a 4-ary heap for items in <tt>[0,capacity)</tt>.
+     */
+    public IntDHeap(int capacity)
+    {
+        this(capacity, 4);
+    }
+
+    /**
+       Construct a heap for items in <tt>[0,capacity)</tt>.
+       @param capacity the initial bound on the items; larger items may
+       also be inserted.
+       @param arity the number of children of each heap position.
+       @throws IllegalArgumentException if the capacity is negative or
+       the arity is less than 2.
+     */
+    public IntDHeap(int capacity, int arity)
+    {
+        if (capacity < 0)
+            throw new IllegalArgumentException("negative capacity");
+        if (arity < 2)
+            throw new IllegalArgumentException("arity must be at least 2");
+        this.arity = arity;
+        int n = Math.max(16, Math.min(capacity, 1024));
+        items = new int[n];
+        keys = new long[n];
+        pos = new int[capacity];
+        Arrays.fill(pos, Absent);
+        touched = new int[capacity];
+        nTouched = 0;
+        size = 0;
+    }
+
+    /**
+       Return the number of children of each heap position.
+     */
+    public int arity()
+    {
+        return arity;
+    }
+
+    /**
+       Map a <tt>double</tt> to a <tt>long</tt> key such that the keys
+       compare as the doubles do, with <tt>-0.0 &lt; 0.0</tt> and
+       <tt>NaN</tt> greatest.  <tt>float</tt> values may be widened first.
+     */
+    public static long doubleKey(double d)
+    {
+        long bits = Double.doubleToLongBits(d);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    /**
+       Return the double value of a key from {@link #doubleKey}.
+     */
+    public static double keyDouble(long key)
+    {
+        return Double.longBitsToDouble(key ^ ((key >> 63) & Long.MAX_VALUE));
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public void insert(int item, long key)
+    {
+        if (item < 0)
+            throw new IllegalArgumentException("negative item " + item);
+        if (item >= pos.length) {
+            int[] tmp = new int[Math.max(item + 1, 2 * pos.length)];
+            System.arraycopy(pos, 0, tmp, 0, pos.length);
+            Arrays.fill(tmp, pos.length, tmp.length, Absent);
+            pos = tmp;
+            touched = Arrays.copyOf(touched, tmp.length);
+        } else if (pos[item] >= 0) {
+            throw new IllegalArgumentException("item " + item + " already queued");
+        }
+        if (pos[item] == Absent)
+            touched[nTouched++] = item;
+        if (size == items.length) {
+            int[] ti = new int[2 * size];
+            System.arraycopy(items, 0, ti, 0, size);
+            items = ti;
+            long[] tk = new long[2 * size];
+            System.arraycopy(keys, 0, tk, 0, size);
+            keys = tk;
+        }
+        siftUp(size++, item, key);
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public void decreaseKey(int item, long key)
+    {
+        int i = position(item);
+        if (key > keys[i])
+            throw new IllegalArgumentException("key increase for item " + item);
+        siftUp(i, item, key);
+    }
+
+    /**
+       Change the key of an item in the queue, up or down.
+       @throws IllegalArgumentException if the item is not in the queue.
+     */
+    public void changeKey(int item, long key)
+    {
+        int i = position(item);
+        if (key < keys[i])
+            siftUp(i, item, key);
+        else
+            siftDown(i, item, key);
+    }
+
+    /**
+       Remove an item from the queue.
+       @throws IllegalArgumentException if the item is not in the queue.
+     */
+    public void remove(int item)
+    {
+        int i = position(item);
+        pos[item] = Removed;
+        if (i == --size)
+            return;
+        int last = items[size];
+        long lastKey = keys[size];
+        if (lastKey < keys[i])
+            siftUp(i, last, lastKey);
+        else
+            siftDown(i, last, lastKey);
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public int extractMin()
+    {
+        if (size == 0) return -1;
+        int result = items[0];
+        pos[result] = Removed;
+        if (--size > 0)
+            siftDown(0, items[size], keys[size]);
+        return result;
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public int min()
+    {
+        return size == 0 ? -1 : items[0];
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public long minKey()
+    {
+        if (size == 0)
+            throw new IllegalStateException("empty queue");
+        return keys[0];
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public long key(int item)
+    {
+        return keys[position(item)];
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public boolean contains(int item)
+    {
+        return item >= 0 && item < pos.length && pos[item] >= 0;
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public boolean queued(int item)
+    {
+        return item >= 0 && item < pos.length && pos[item] != Absent;
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public void clear()
+    {
+        for (int i=0; i<nTouched; ++i)
+            pos[touched[i]] = Absent;
+        nTouched = 0;
+        size = 0;
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    private int position(int item)
+    {
+        if (!contains(item))
+            throw new IllegalArgumentException("item " + item + " not in queue");
+        return pos[item];
+    }
+
+    /*
+      Place item with key at position i or above, moving the hole up.
+     */
+    private void siftUp(int i, int item, long key)
+    {
+        final int[] items = this.items;
+        final long[] keys = this.keys;
+        final int[] pos = this.pos;
+        while (i > 0) {
+            int p = (i - 1) / arity;
+            long pk = keys[p];
+            if (pk <= key) break;
+            int pi = items[p];
+            items[i] = pi;
+            keys[i] = pk;
+            pos[pi] = i;
+            i = p;
+        }
+        items[i] = item;
+        keys[i] = key;
+        pos[item] = i;
+    }
+
+    /*
+      Place item with key at position i or below, moving the hole down.
+     */
+    private void siftDown(int i, int item, long key)
+    {
+        final int[] items = this.items;
+        final long[] keys = this.keys;
+        final int[] pos = this.pos;
+        final int n = size;
+        while (true) {
+            int c = i * arity + 1;
+            if (c >= n) break;
+            int end = Math.min(c + arity, n);
+            int m = c;
+            long mk = keys[c];
+            for (int j=c + 1; j<end; ++j) {
+                if (keys[j] < mk) {
+                    m = j;
+                    mk = keys[j];
+                }
+            }
+            if (mk >= key) break;
+            int mi = items[m];
+            items[i] = mi;
+            keys[i] = mk;
+            pos[mi] = i;
+            i = m;
+        }
+        items[i] = item;
+        keys[i] = key;
+        pos[item] = i;
+    }
+}
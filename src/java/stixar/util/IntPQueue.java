@@ -0,0 +1,87 @@
+package stixar.util;
+
+/**
+   Interface for a priority queue of integer items with primitive
+   <tt>long</tt> priorities.
+   <p>
+   This is the primitive counterpart of {@link PQueue} for items which are
+   small non-negative integers, such as node identifiers.  An item is its
+   own handle, so no {@link Cell cells} are needed and no comparator is
+   called: the priority of an item is changed by naming it.
+   </p><p>
+   Priorities of other primitive types map to <tt>long</tt> keys: <tt>int</tt>
+   priorities are widened, and <tt>float</tt> or <tt>double</tt> priorities
+   are encoded by {@link IntDHeap#doubleKey}, which preserves their order.
+   </p>
+ */
+public interface IntPQueue
+{
+    /**
+       Insert an item into the priority queue.
+       @param item the item to insert, a non-negative integer.
+       @param key the priority of the item.
+       @throws IllegalArgumentException if the item is negative or already
+       in the queue.
+     */
+    public void insert(int item, long key);
+
+    /**
+       Lower the priority key of an item in the queue.
+       @param item the item.
+       @param key the new key, which may not be greater than the current one.
+       @throws IllegalArgumentException if the item is not in the queue or if
+       the key is greater than its current key.
+     */
+    public void decreaseKey(int item, long key);
+
+    /**
+       Remove and return the item with the least key, or <tt>-1</tt> if
+       the queue is empty.
+     */
+    public int extractMin();
+
+    /**
+       Return the item with the least key, or <tt>-1</tt> if the queue is
+       empty.  The item remains in the queue.
+     */
+    public int min();
+
+    /**
+       Return the least key in the queue.
+       @throws IllegalStateException if the queue is empty.
+     */
+    public long minKey();
+
+    /**
+       Return the key of an item in the queue.
+       @throws IllegalArgumentException if the item is not in the queue.
+     */
+    public long key(int item);
+
+    /**
+       Return whether or not an item is in the queue.
+     */
+    public boolean contains(int item);
+
+    /**
+       Return whether or not an item has been inserted since the queue was
+       last cleared, whether or not it has been extracted since.
+     */
+    public boolean queued(int item);
+
+    /**
+       Clear the priority queue so that it contains no items and no item
+       has been {@link #queued}.
+     */
+    public void clear();
+
+    /**
+       Return whether or not the priority queue is empty.
+     */
+    public boolean isEmpty();
+
+    /**
+       Return the size of the priority queue.
+     */
+    public int size();
+}
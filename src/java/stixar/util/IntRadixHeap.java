@@ -0,0 +1,269 @@
+package stixar.util;
+
+import java.util.Arrays;
+
+/**
+   A monotone radix heap of integer items with <tt>long</tt> keys.
+   <p>
+   This is the primitive counterpart of {@link RadixHeap}.  Items are kept
+   in 65 buckets, each a doubly linked list threaded through arrays indexed
+   by item: bucket <tt>b</tt> holds the items whose key first differs from
+   the key last extracted at bit <tt>b - 1</tt>, bucket 0 those with an
+   equal key.  Extraction empties the first non empty bucket into lower
+   ones, each item moving down at most 64 times, so that a sequence of
+   <tt>n</tt> extractions and <tt>m</tt> insertions or {@link #decreaseKey
+   decreases} takes <tt>O(m + n log C)</tt> time for keys spanning
+   <tt>C</tt> values.
+   </p><p>
+   The heap is monotone: every key inserted must be at least the key last
+   extracted, as holds for Dijkstra's algorithm with non negative weights.
+   Keys from {@link IntDHeap#doubleKey} may be used.  As in {@link
+   IntDHeap}, the items inserted since the last clear are recorded, so
+   that {@link #clear} takes time proportional to their number.
+   </p>
+ */
+public class IntRadixHeap implements IntPQueue
+{
+    private static final int Removed = -2;
+    private static final int Absent = -1;
+
+    protected final int[] heads;
+    protected int[] next;
+    protected int[] prev;
+    protected int[] bucket;
+    protected long[] keys;
+    protected int[] touched;
+    protected int nTouched;
+    protected long last;
+    protected int size;
+
+    /**
+       Construct a radix heap for items in <tt>[0,capacity)</tt>.
+       @param capacity the initial bound on the items; larger items may
+       also be inserted.
+       @throws IllegalArgumentException if the capacity is negative.
+     */
+    public IntRadixHeap(int capacity)
+    {
+        if (capacity < 0)
+            throw new IllegalArgumentException("negative capacity");
+        heads = new int[65];
+        next = new int[capacity];
+        prev = new int[capacity];
+        keys = new long[capacity];
+        bucket = new int[capacity];
+        touched = new int[capacity];
+        Arrays.fill(heads, -1);
+        Arrays.fill(bucket, Absent);
+        last = Long.MIN_VALUE;
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public void insert(int item, long key)
+    {
+        if (item < 0)
+            throw new IllegalArgumentException("negative item " + item);
+        if (item >= bucket.length)
+            grow(item + 1);
+        else if (bucket[item] >= 0)
+            throw new IllegalArgumentException("item " + item + " already queued");
+        if (bucket[item] == Absent)
+            touched[nTouched++] = item;
+        if (key < last)
+            throw new IllegalArgumentException("key " + key + " below " + last);
+        keys[item] = key;
+        link(item, slot(key));
+        size++;
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public void decreaseKey(int item, long key)
+    {
+        if (!contains(item))
+            throw new IllegalArgumentException("item " + item + " not in queue");
+        if (key > keys[item])
+            throw new IllegalArgumentException("key increase for item " + item);
+        if (key < last)
+            throw new IllegalArgumentException("key " + key + " below " + last);
+        keys[item] = key;
+        int b = slot(key);
+        if (b != bucket[item]) {
+            unlink(item);
+            link(item, b);
+        }
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public int extractMin()
+    {
+        if (size == 0) return -1;
+        if (heads[0] == -1) {
+            int b = 1;
+            while (heads[b] == -1) ++b;
+            int item = heads[b];
+            long m = keys[item];
+            for (int i = next[item]; i != -1; i = next[i]) {
+                if (keys[i] < m)
+                    m = keys[i];
+            }
+            last = m;
+            heads[b] = -1;
+            while (item != -1) {
+                int n = next[item];
+                link(item, slot(keys[item]));
+                item = n;
+            }
+        }
+        int item = heads[0];
+        unlink(item);
+        bucket[item] = Removed;
+        size--;
+        return item;
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public int min()
+    {
+        if (size == 0) return -1;
+        if (heads[0] != -1)
+            return heads[0];
+        int b = 1;
+        while (heads[b] == -1) ++b;
+        int m = heads[b];
+        for (int i = next[m]; i != -1; i = next[i]) {
+            if (keys[i] < keys[m])
+                m = i;
+        }
+        return m;
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public long minKey()
+    {
+        if (size == 0)
+            throw new IllegalStateException("empty queue");
+        return keys[min()];
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public long key(int item)
+    {
+        if (!contains(item))
+            throw new IllegalArgumentException("item " + item + " not in queue");
+        return keys[item];
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public boolean contains(int item)
+    {
+        return item >= 0 && item < bucket.length && bucket[item] >= 0;
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public boolean queued(int item)
+    {
+        return item >= 0 && item < bucket.length && bucket[item] != Absent;
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public void clear()
+    {
+        for (int i=0; i<nTouched; ++i) {
+            int item = touched[i];
+            if (bucket[item] >= 0)
+                heads[bucket[item]] = -1;
+            bucket[item] = Absent;
+        }
+        nTouched = 0;
+        last = Long.MIN_VALUE;
+        size = 0;
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /*
+      Javadoc'd in IntPQueue.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /*
+      The bucket of a key: one more than the highest bit in which it
+      differs from the last key extracted.  Keys compare as signed longs,
+      and flipping the sign bit of both to compare them unsigned does not
+      change their exclusive or.
+     */
+    private int slot(long key)
+    {
+        return 64 - Long.numberOfLeadingZeros(key ^ last);
+    }
+
+    private void link(int item, int b)
+    {
+        int h = heads[b];
+        next[item] = h;
+        prev[item] = -1;
+        if (h != -1)
+            prev[h] = item;
+        heads[b] = item;
+        bucket[item] = b;
+    }
+
+    private void unlink(int item)
+    {
+        int p = prev[item];
+        int n = next[item];
+        if (p != -1)
+            next[p] = n;
+        else
+            heads[bucket[item]] = n;
+        if (n != -1)
+            prev[n] = p;
+    }
+
+    private void grow(int cap)
+    {
+        int old = bucket.length;
+        cap = Math.max(cap, 2 * old);
+        int[] t = new int[cap];
+        System.arraycopy(next, 0, t, 0, old);
+        next = t;
+        t = new int[cap];
+        System.arraycopy(prev, 0, t, 0, old);
+        prev = t;
+        long[] k = new long[cap];
+        System.arraycopy(keys, 0, k, 0, old);
+        keys = k;
+        t = new int[cap];
+        System.arraycopy(bucket, 0, t, 0, old);
+        Arrays.fill(t, old, cap, Absent);
+        bucket = t;
+        touched = Arrays.copyOf(touched, cap);
+    }
+}
@@ -0,0 +1,225 @@
+package stixar.graph;
+
+import junit.framework.TestCase;
+
+import stixar.graph.attr.IntEdgeMap;
+import stixar.graph.attr.IntNodeMap;
+import stixar.graph.gen.BasicDGFactory;
+import stixar.graph.paths.SSSP;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Random;
+
+public class ArrayDigraphTest extends TestCase
+{
+    public ArrayDigraphTest()
+    {
+        super("ArrayDigraph");
+    }
+
+    /*
+      Sorted "target:edgeId" lists of the out and in edges of u,
+      checked against IntAdjacency and the edge positions.
+     */
+    private String adjacency(ArrayDigraph g, ArrayNode u)
+    {
+        List<String> out = new ArrayList<String>();
+        int i = 0;
+        for (ArrayEdge e = u.out(); e != null; e = e.next(), ++i) {
+            assertSame(u, e.source());
+            assertEquals(i, e.outPosition());
+            assertEquals(e.target().nodeId(), g.outTarget(u.nodeId(), i));
+            assertEquals(e.edgeId(), g.outEdgeId(u.nodeId(), i));
+            out.add(e.target().nodeId() + ":" + e.edgeId());
+        }
+        assertEquals(i, g.outDegree(u.nodeId()));
+        List<String> in = new ArrayList<String>();
+        i = 0;
+        for (ArrayEdge e = u.in(); e != null; e = e.nextIn(), ++i) {
+            assertSame(u, e.target());
+            assertEquals(i, e.inPosition());
+            in.add(e.source().nodeId() + ":" + e.edgeId());
+        }
+        assertEquals(i, u.inDegree());
+        String[] o = out.toArray(new String[0]);
+        String[] n = in.toArray(new String[0]);
+        Arrays.sort(o);
+        Arrays.sort(n);
+        return Arrays.toString(o) + Arrays.toString(n);
+    }
+
+    private String adjacency(BasicNode u)
+    {
+        List<String> out = new ArrayList<String>();
+        for (BasicEdge e = u.out(); e != null; e = e.next())
+            out.add(e.target().nodeId() + ":" + e.edgeId());
+        List<String> in = new ArrayList<String>();
+        for (BasicEdge e = u.in(); e != null; e = e.nextIn())
+            in.add(e.source().nodeId() + ":" + e.edgeId());
+        String[] o = out.toArray(new String[0]);
+        String[] n = in.toArray(new String[0]);
+        Arrays.sort(o);
+        Arrays.sort(n);
+        return Arrays.toString(o) + Arrays.toString(n);
+    }
+
+    private void check(ArrayDigraph a, BasicDigraph b)
+    {
+        assertEquals(b.nodeSize(), a.nodeSize());
+        assertEquals(b.edgeSize(), a.edgeSize());
+        assertEquals(b.nodeAttrSize(), a.nodeAttrSize());
+        assertEquals(b.edgeAttrSize(), a.edgeAttrSize());
+        for (int i=0; i<b.nodeAttrSize(); ++i) {
+            if (b.node(i) == null) {
+                assertNull(a.node(i));
+            } else {
+                assertEquals(adjacency(b.node(i)), adjacency(a, a.node(i)));
+            }
+        }
+        int m = 0;
+        for (Edge e : a.edges()) m++;
+        assertEquals(b.edgeSize(), m);
+    }
+
+    /*
+      Apply the same random edits to an ArrayDigraph and a BasicDigraph.
+     */
+    public void testEdits()
+    {
+        Random rnd = new Random(3);
+        ArrayDigraph a = new ArrayDigraph();
+        BasicDigraph b = new BasicDigraph();
+        a.genNodes(50);
+        b.genNodes(50);
+        List<ArrayEdge> aRemoved = new ArrayList<ArrayEdge>();
+        List<BasicEdge> bRemoved = new ArrayList<BasicEdge>();
+        for (int step=0; step<5000; ++step) {
+            int op = rnd.nextInt(20);
+            int u = rnd.nextInt(b.nodeAttrSize());
+            int v = rnd.nextInt(b.nodeAttrSize());
+            if (b.node(u) == null || b.node(v) == null)
+                continue;
+            if (op < 12) {
+                ArrayEdge ae = a.genEdge(a.node(u), a.node(v));
+                BasicEdge be = b.genEdge(b.node(u), b.node(v));
+                assertEquals(be.edgeId(), ae.edgeId());
+            } else if (op < 15) {
+                BasicEdge be = b.node(u).out();
+                if (be == null) continue;
+                ArrayEdge ae = null;
+                for (ArrayEdge e = a.node(u).out(); e != null; e = e.next())
+                    if (e.edgeId() == be.edgeId()) ae = e;
+                b.remove(be);
+                a.remove(ae);
+                assertEquals(be.edgeId(), ae.edgeId());
+                if (rnd.nextBoolean()) {
+                    aRemoved.add(ae);
+                    bRemoved.add(be);
+                }
+            } else if (op < 17 && !aRemoved.isEmpty()) {
+                ArrayEdge ae = aRemoved.remove(aRemoved.size() - 1);
+                BasicEdge be = bRemoved.remove(bRemoved.size() - 1);
+                if (ae.source().nodeId() < 0 || ae.target().nodeId() < 0)
+                    continue;
+                a.relink(ae);
+                b.relink(be);
+            } else if (op < 18) {
+                BasicEdge be = b.node(u).out();
+                if (be == null) continue;
+                ArrayEdge ae = null;
+                for (ArrayEdge e = a.node(u).out(); e != null; e = e.next())
+                    if (e.edgeId() == be.edgeId()) ae = e;
+                a.moveEdge(ae, a.node(v), a.node(u));
+                b.moveEdge(be, b.node(v), b.node(u));
+            } else if (op < 19) {
+                a.remove(a.node(u));
+                b.remove(b.node(u));
+            } else {
+                a.genNode();
+                b.genNode();
+            }
+        }
+        check(a, b);
+
+        Comparator<Edge> byTarget = new Comparator<Edge>() {
+            public int compare(Edge e, Edge f) {
+                return e.target().nodeId() - f.target().nodeId();
+            }
+        };
+        a.sortEdges(byTarget);
+        for (Node n : a.nodes()) {
+            for (Edge e = n.out(); e != null && e.next() != null; e = e.next())
+                assertTrue(e.target().nodeId() <= e.next().target().nodeId());
+        }
+        check(a, b);
+
+        a.trimToSize();
+        b.trimToSize();
+        check(a, b);
+        ArrayNode u = a.genNode();
+        a.genEdge(u, a.node(0));
+        assertEquals(b.nodeSize() + 1, a.nodeSize());
+    }
+
+    public void testCopyAndPaths()
+    {
+        BasicDGFactory f = new BasicDGFactory(400, 3000);
+        f.genNodes(400);
+        f.genEdges(3000);
+        BasicDigraph b = f.digraph();
+        b.remove(b.node(11));
+        ArrayDigraph a = ArrayDigraph.copy(b);
+        check(a, b);
+        assertEquals(b.toString(), a.toString());
+
+        Random rnd = new Random(5);
+        IntEdgeMap w = b.createIntEdgeMap();
+        IntEdgeMap aw = a.createIntEdgeMap();
+        for (Edge e : b.edges()) {
+            w.set(e, rnd.nextInt(100));
+            aw.set(e.edgeId(), w.get(e));
+        }
+        IntNodeMap dist = b.createIntNodeMap();
+        IntNodeMap adist = a.createIntNodeMap();
+        SSSP.dijkstra(b, b.node(0), dist, w);
+        SSSP.dijkstra(a, a.node(0), adist, aw);
+        for (Node n : b.nodes())
+            assertEquals(dist.get(n), adist.get(a.node(n.nodeId())));
+    }
+
+    public void testFailFast()
+    {
+        ArrayDigraph g = new ArrayDigraph();
+        g.genNodes(3);
+        g.genEdge(g.node(0), g.node(1));
+        g.genEdge(g.node(1), g.node(2));
+        try {
+            for (Edge e : g.edges())
+                g.genEdge(g.node(2), g.node(0));
+            fail();
+        } catch (ConcurrentModificationException ok) {}
+        try {
+            for (Node n : g.nodes())
+                g.genNode();
+            fail();
+        } catch (ConcurrentModificationException ok) {}
+    }
+
+    public void testManagedGrowth()
+    {
+        ArrayDigraph g = new ArrayDigraph(1, 1);
+        IntEdgeMap w = g.createIntEdgeMap("w");
+        for (int i=0; i<1000; ++i)
+            g.genNode();
+        for (int i=0; i<5000; ++i) {
+            Edge e = g.genEdge(g.node(i % 1000), g.node((i * 7) % 1000));
+            w.set(e, i);
+        }
+        for (Edge e : g.edges())
+            assertEquals(e.edgeId(), w.get(e));
+    }
+}
@@ -0,0 +1,182 @@
+package stixar.graph;
+
+import junit.framework.TestCase;
+
+import stixar.graph.attr.EdgeMap;
+import stixar.graph.attr.IntEdgeMap;
+import stixar.graph.attr.IntNodeMap;
+import stixar.graph.conn.StrongComponents;
+import stixar.graph.edit.MakeSymmetric;
+import stixar.graph.flow.MaxFlow;
+import stixar.graph.gen.BasicDGFactory;
+import stixar.graph.paths.SSSP;
+
+import stixar.util.Pair;
+
+import java.util.Random;
+
+
+public class CompactDigraphTest extends TestCase
+{
+
+    public CompactDigraphTest()
+    {
+        super("CompactDigraph");
+    }
+
+    public void testCopy()
+    {
+        BasicDGFactory f = new BasicDGFactory(500, 3000);
+        f.genNodes(500);
+        f.genEdges(3000, true, true);
+        BasicDigraph g = f.digraph();
+        int[] nPerm = new int[g.nodeAttrSize()];
+        int[] ePerm = new int[g.edgeAttrSize()];
+        CompactDigraph c = CompactDigraph.copy(g, nPerm, ePerm);
+        assertEquals(g.nodeSize(), c.nodeSize());
+        assertEquals(g.edgeSize(), c.edgeSize());
+        assertEquals(c.nodeSize(), c.nodeAttrSize());
+        assertEquals(c.edgeSize(), c.edgeAttrSize());
+        for (Node n : g.nodes()) {
+            CompactNode cn = c.node(nPerm[n.nodeId()]);
+            Edge e = n.out();
+            Edge ce = cn.out();
+            while (e != null) {
+                assertNotNull(ce);
+                assertEquals(ePerm[e.edgeId()], ce.edgeId());
+                assertEquals(nPerm[e.target().nodeId()], ce.target().nodeId());
+                assertSame(cn, ce.source());
+                assertEquals(ce, c.edge(ce.edgeId()));
+                e = e.next();
+                ce = ce.next();
+            }
+            assertNull(ce);
+        }
+        int count = 0;
+        for (Edge e : c.edges()) {
+            assertEquals(count++, e.edgeId());
+        }
+        assertEquals(c.edgeSize(), count);
+        assertEquals(g.toString(), c.toString());
+        assertEquals(c.toString(), f.compactDigraph().toString());
+    }
+
+    public void testCopyWithHoles()
+    {
+        BasicDigraph g = new BasicDigraph();
+        g.genNodes(4);
+        g.genEdge(g.node(0), g.node(1));
+        g.genEdge(g.node(1), g.node(2));
+        g.genEdge(g.node(2), g.node(3));
+        g.genEdge(g.node(3), g.node(0));
+        g.remove(g.node(1));
+        int[] nPerm = new int[g.nodeAttrSize()];
+        CompactDigraph c = CompactDigraph.copy(g, nPerm, null);
+        assertEquals(3, c.nodeSize());
+        assertEquals(2, c.edgeSize());
+        assertEquals(-1, nPerm[1]);
+        assertEquals("0:\n1: 2\n2: 0\n", c.toString());
+    }
+
+    public void testFromArcs()
+    {
+        int[] s = { 2, 0, 2, 1, 0 };
+        int[] t = { 0, 1, 1, 2, 2 };
+        int[] ePerm = new int[s.length];
+        CompactDigraph c = CompactDigraph.fromArcs(3, s, t, ePerm);
+        assertEquals("0: 1 2\n1: 2\n2: 0 1\n", c.toString());
+        for (int i=0; i<s.length; ++i) {
+            CompactEdge e = c.edge(ePerm[i]);
+            assertEquals(s[i], e.source().nodeId());
+            assertEquals(t[i], e.target().nodeId());
+        }
+        try {
+            CompactDigraph.fromArcs(2, s, t, null);
+            fail();
+        } catch (IllegalArgumentException ok) {}
+        try {
+            new CompactDigraph(new int[] { 0, 2 }, new int[] { 0 });
+            fail();
+        } catch (IllegalArgumentException ok) {}
+    }
+
+    public void testDijkstra()
+    {
+        BasicDGFactory f = new BasicDGFactory(2000, 20000);
+        f.genNodes(2000);
+        f.genEdges(20000);
+        BasicNode source = f.genSource();
+        BasicDigraph g = f.digraph();
+        int[] ePerm = new int[g.edgeAttrSize()];
+        CompactDigraph c = CompactDigraph.copy(g, null, ePerm);
+
+        IntEdgeMap w = g.createIntEdgeMap();
+        IntEdgeMap cw = c.createIntEdgeMap();
+        Random rnd = new Random(0);
+        for (Edge e : g.edges()) {
+            int v = rnd.nextInt(100);
+            w.set(e, v);
+            cw.set(ePerm[e.edgeId()], v);
+        }
+        IntNodeMap dist = new IntNodeMap(new int[g.nodeAttrSize()]);
+        IntNodeMap cdist = new IntNodeMap(new int[c.nodeAttrSize()]);
+        SSSP.dijkstra(g, source, dist, w);
+        SSSP.dijkstra(c, c.node(source.nodeId()), cdist, cw);
+        for (Node n : g.nodes()) {
+            assertEquals(dist.get(n), cdist.get(n.nodeId()));
+        }
+    }
+
+    public void testStrongComponents()
+    {
+        BasicDGFactory f = new BasicDGFactory(1000, 1500);
+        f.genNodes(1000);
+        f.genEdges(1500);
+        BasicDigraph g = f.digraph();
+        CompactDigraph c = f.compactDigraph();
+        int[] comps = StrongComponents.components(g);
+        int[] ccomps = StrongComponents.components(c);
+        for (int i=0; i<g.nodeAttrSize(); ++i) {
+            for (int j=i+1; j<g.nodeAttrSize(); j += 7) {
+                assertEquals(comps[i] == comps[j], ccomps[i] == ccomps[j]);
+            }
+        }
+    }
+
+    public void testMaxFlow()
+    {
+        BasicDGFactory fact = new BasicDGFactory(1000, 3000);
+        fact.genNodes(1000);
+        fact.genEdges(3000);
+        Pair<BasicNode,BasicNode> p = fact.genSourceAndSink();
+        BasicDigraph dg = fact.digraph();
+        MakeSymmetric sym = new MakeSymmetric();
+        sym.edit(dg);
+        EdgeMap<Edge> flip = sym.revAttrs();
+        IntEdgeMap caps = dg.createIntEdgeMap();
+        Random rnd = new Random(1);
+        for (Edge e : dg.edges()) {
+            Edge rev = e.get(flip);
+            if (rev.getInt(caps) != 0) {
+                e.setInt(caps, 0);
+            } else {
+                e.setInt(caps, rnd.nextInt(100));
+            }
+        }
+        int[] ePerm = new int[dg.edgeAttrSize()];
+        CompactDigraph c = CompactDigraph.copy(dg, null, ePerm);
+        IntEdgeMap cCaps = c.createIntEdgeMap();
+        EdgeMap<Edge> cFlip = c.createEdgeMap();
+        for (Edge e : dg.edges()) {
+            int eid = ePerm[e.edgeId()];
+            cCaps.set(eid, e.getInt(caps));
+            cFlip.set(c.edge(eid), c.edge(ePerm[e.get(flip).edgeId()]));
+        }
+        MaxFlow pr = new MaxFlow(dg, p.first, p.second, caps, flip);
+        pr.run();
+        MaxFlow cpr = new MaxFlow(c, c.node(p.first.nodeId()),
+                                  c.node(p.second.nodeId()), cCaps, cFlip);
+        cpr.run();
+        assertEquals(pr.totalFlow(), cpr.totalFlow());
+    }
+}
@@ -0,0 +1,145 @@
+package stixar.graph;
+
+import junit.framework.TestCase;
+
+import stixar.graph.attr.IntEdgeMap;
+import stixar.graph.attr.IntNodeMap;
+import stixar.graph.gen.BasicDGFactory;
+import stixar.graph.paths.SSSP;
+import stixar.graph.search.BFS;
+import stixar.graph.search.DFS;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+
+public class IntAdjacencyTest extends TestCase
+{
+
+    public IntAdjacencyTest()
+    {
+        super("IntAdjacency");
+    }
+
+    // the primitive lists must agree with the linked lists.
+    static void checkAdjacency(Graph g, IntAdjacency adj)
+    {
+        for (Node n : g.nodes()) {
+            int u = n.nodeId();
+            int i = 0;
+            for (Edge e = n.out(); e != null; e = e.next(), ++i) {
+                assertEquals(e.target().nodeId(), adj.outTarget(u, i));
+                assertEquals(e.edgeId(), adj.outEdgeId(u, i));
+                assertEquals(e, adj.outEdge(u, i));
+            }
+            assertEquals(i, adj.outDegree(u));
+        }
+    }
+
+    public void testBasicDigraph()
+    {
+        BasicDGFactory f = new BasicDGFactory(300, 2000);
+        f.genNodes(300);
+        f.genEdges(2000, true, true);
+        BasicDigraph g = f.digraph();
+        checkAdjacency(g, g.adjacency());
+        CompactDigraph c = f.compactDigraph();
+        checkAdjacency(c, c);
+        // a snapshot is frozen, a new one follows modifications.
+        IntAdjacency before = g.adjacency();
+        int degree = before.outDegree(7);
+        g.remove(g.node(7));
+        g.genEdge(g.node(1), g.node(2));
+        Node u = g.node(3);
+        while (u.out() == null)
+            u = g.node(u.nodeId() + 1);
+        g.remove(u.out());
+        assertEquals(degree, before.outDegree(7));
+        checkAdjacency(g, g.adjacency());
+        assertEquals(0, g.adjacency().outDegree(7));
+        g.trimToSize();
+        checkAdjacency(g, g.adjacency());
+    }
+
+    public void testBasicUGraph()
+    {
+        BasicUGraph g = new BasicUGraph();
+        g.genNodes(50);
+        Random rnd = new Random(3);
+        for (int i=0; i<200; ++i) {
+            int u = rnd.nextInt(50);
+            int v = (u + 1 + rnd.nextInt(49)) % 50;
+            g.genEdge(g.node(u), g.node(v));
+        }
+        checkAdjacency(g, g.adjacency());
+        g.remove(g.node(10));
+        checkAdjacency(g, g.adjacency());
+    }
+
+    public void testDijkstra()
+    {
+        BasicDGFactory f = new BasicDGFactory(2000, 20000);
+        f.genNodes(2000);
+        f.genEdges(20000);
+        BasicNode source = f.genSource();
+        BasicDigraph g = f.digraph();
+        IntEdgeMap w = g.createIntEdgeMap();
+        Random rnd = new Random(0);
+        for (Edge e : g.edges())
+            w.set(e, rnd.nextInt(100));
+        IntNodeMap dist = new IntNodeMap(new int[g.nodeAttrSize()]);
+        SSSP.dijkstra(g, source, dist, w);
+
+        // the compact copy is searched by identifier.
+        int[] ePerm = new int[g.edgeAttrSize()];
+        CompactDigraph c = CompactDigraph.copy(g, null, ePerm);
+        IntEdgeMap cw = new IntEdgeMap(new int[c.edgeAttrSize()]);
+        for (Edge e : g.edges())
+            cw.set(ePerm[e.edgeId()], w.get(e));
+        IntNodeMap cDist = new IntNodeMap(new int[c.nodeAttrSize()]);
+        SSSP.dijkstra(c, c.node(source.nodeId()), cDist, cw);
+        for (Node n : g.nodes())
+            assertEquals(dist.get(n), cDist.get(n.nodeId()));
+    }
+
+    public void testSearch()
+    {
+        BasicDGFactory f = new BasicDGFactory(500, 1500);
+        f.genNodes(500);
+        f.genEdges(1500);
+        BasicDigraph g = f.digraph();
+
+        final List<Integer> bfsObj = new ArrayList<Integer>();
+        final List<Integer> bfsInt = new ArrayList<Integer>();
+        new BFS(g, new BFS.Visitor() {
+                public void discover(Node n) { bfsObj.add(n.nodeId()); }
+                public void treeEdge(Edge e) { bfsObj.add(-e.edgeId() - 1); }
+            }).run();
+        new BFS(g, g.adjacency(), new BFS.IntVisitor() {
+                public void discover(int u) { bfsInt.add(u); }
+                public void treeEdge(int u, int eid, int v) { bfsInt.add(-eid - 1); }
+            }).run();
+        assertEquals(bfsObj, bfsInt);
+
+        final List<Integer> dfsObj = new ArrayList<Integer>();
+        final List<Integer> dfsInt = new ArrayList<Integer>();
+        DFS dfs = new DFS(g, new DFS.Visitor() {
+                public void discover(Node n) { dfsObj.add(n.nodeId()); }
+                public void finish(Node n) { dfsObj.add(-n.nodeId() - 1); }
+                public void backEdge(Edge e) { dfsObj.add(e.edgeId() + 1000000); }
+                public void finishEdge(Edge e) { dfsObj.add(e.edgeId() + 2000000); }
+            }, true);
+        dfs.run();
+        DFS idfs = new DFS(g, g.adjacency(), new DFS.IntVisitor() {
+                public void discover(int u) { dfsInt.add(u); }
+                public void finish(int u) { dfsInt.add(-u - 1); }
+                public void backEdge(int u, int eid, int v) { dfsInt.add(eid + 1000000); }
+                public void finishEdge(int u, int eid, int v) { dfsInt.add(eid + 2000000); }
+            });
+        idfs.run();
+        assertEquals(dfsObj, dfsInt);
+        for (Node n : g.nodes())
+            assertEquals(dfs.status(n).finishNum, idfs.status(n).finishNum);
+    }
+}
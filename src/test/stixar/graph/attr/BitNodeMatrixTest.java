@@ -0,0 +1,69 @@
+package stixar.graph.attr;
+
+import stixar.graph.BasicDigraph;
+import stixar.graph.Node;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class BitNodeMatrixTest extends TestCase
+{
+    private BasicDigraph g;
+
+    public BitNodeMatrixTest()
+    {
+        super("BitNodeMatrix");
+    }
+
+    protected void setUp()
+    {
+        g = new BasicDigraph();
+        g.genNodes(300);
+    }
+
+    private Node n(int i)
+    {
+        return g.node(i);
+    }
+
+    public void testRowsGrowShrink()
+    {
+        Random rnd = new Random(1);
+        BitNodeMatrix m = new BitNodeMatrix(70);
+        boolean[][] ref = new boolean[300][300];
+        for (int k=0; k<2000; ++k) {
+            int i = rnd.nextInt(70);
+            int j = rnd.nextInt(70);
+            boolean b = rnd.nextBoolean();
+            m.set(n(i), n(j), b);
+            ref[i][j] = b;
+        }
+        m.set(n(3), n(69), Boolean.TRUE);
+        ref[3][69] = true;
+        m.orRow(n(5), n(3));
+        m.copyRow(n(6), n(5));
+        for (int j=0; j<70; ++j) {
+            ref[5][j] |= ref[3][j];
+            ref[6][j] = ref[5][j];
+        }
+        m.grow(257);
+        assertEquals(257, m.capacity());
+        m.set(n(256), n(200), true);
+        ref[256][200] = true;
+        for (int i=0; i<257; ++i)
+            for (int j=0; j<257; ++j)
+                assertEquals(ref[i][j], m.get(n(i), n(j)).booleanValue());
+        int[] perm = new int[257];
+        int top = 0;
+        for (int i=0; i<257; ++i)
+            perm[i] = i % 5 == 0 ? -1 : top++;
+        m.shrink(top, perm);
+        for (int i=0; i<257; ++i)
+            for (int j=0; j<257; ++j)
+                if (perm[i] >= 0 && perm[j] >= 0)
+                    assertEquals(ref[i][j], m.isSet(n(perm[i]), n(perm[j])));
+        m.clear();
+        assertEquals(0, m.count(n(3)));
+    }
+}
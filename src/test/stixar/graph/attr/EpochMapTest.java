@@ -0,0 +1,104 @@
+package stixar.graph.attr;
+
+import stixar.graph.BasicDigraph;
+import stixar.graph.Edge;
+import stixar.graph.Node;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class EpochMapTest extends TestCase
+{
+    private BasicDigraph g;
+
+    public EpochMapTest()
+    {
+        super("EpochMap");
+    }
+
+    protected void setUp()
+    {
+        g = new BasicDigraph();
+        g.genNodes(100);
+        for (int i=0; i<99; ++i)
+            g.genEdge(g.node(i), g.node(i + 1));
+    }
+
+    public void testNative()
+    {
+        Random rnd = new Random(1);
+        EpochIntNodeMap m = new EpochIntNodeMap(100, -1);
+        int[] ref = new int[100];
+        for (int round=0; round<5; ++round) {
+            Arrays.fill(ref, -1);
+            for (int k=0; k<30; ++k) {
+                int i = rnd.nextInt(100);
+                m.set(g.node(i), ref[i] = rnd.nextInt());
+            }
+            for (Node n : g.nodes()) {
+                assertEquals(ref[n.nodeId()], m.get(n));
+                assertEquals(ref[n.nodeId()] != -1, m.isSet(n));
+            }
+            m.clear();
+        }
+        m.set(3, 7);
+        m.clear(5);
+        assertEquals(5, m.defaultValue());
+        assertEquals(5, m.get(3));
+        assertFalse(m.isSet(3));
+
+        EpochDoubleEdgeMap d = new EpochDoubleEdgeMap(g.edgeAttrSize(), Double.POSITIVE_INFINITY);
+        Edge e = g.node(4).out();
+        d.set(e, 1.5);
+        assertEquals(1.5, d.get(e));
+        assertEquals(Double.POSITIVE_INFINITY, d.get(g.node(5).out()));
+        d.clear();
+        assertEquals(Double.POSITIVE_INFINITY, d.get(e));
+    }
+
+    public void testGeneric()
+    {
+        EpochNodeMap<String> m = new EpochNodeMap<String>(100);
+        assertNull(m.get(g.node(0)));
+        m.set(g.node(0), "a");
+        assertEquals("a", m.get(g.node(0)));
+        m.clear();
+        assertNull(m.get(g.node(0)));
+        m.set(g.node(1), "b");
+        m.clear("z");
+        assertEquals("z", m.get(g.node(1)));
+        assertEquals("z", m.defaultValue());
+
+        EpochEdgeMap<Integer> em = new EpochEdgeMap<Integer>(g.edgeAttrSize(), 0);
+        Edge e = g.node(0).out();
+        em.set(e, 4);
+        assertEquals(Integer.valueOf(4), em.get(e));
+        em.clear();
+        assertEquals(Integer.valueOf(0), em.get(e));
+    }
+
+    public void testGrowShrink()
+    {
+        EpochLongNodeMap m = new EpochLongNodeMap(10, -1L);
+        for (int i=0; i<10; ++i)
+            if (i % 2 == 0)
+                m.set(i, i * 10L);
+        m.grow(20);
+        m.set(15, 150L);
+        assertEquals(150L, m.get(15));
+        assertEquals(-1L, m.get(16));
+        assertEquals(40L, m.get(4));
+        // keep the even ids, in reverse
+        int[] perm = new int[20];
+        for (int i=0; i<20; ++i)
+            perm[i] = i % 2 == 0 && i < 10 ? 4 - i / 2 : -1;
+        m.shrink(5, perm);
+        for (int i=0; i<5; ++i)
+            assertEquals((4 - i) * 20L, m.get(i));
+        m.clear();
+        for (int i=0; i<5; ++i)
+            assertFalse(m.isSet(i));
+    }
+}
@@ -0,0 +1,205 @@
+package stixar.graph.attr;
+
+import stixar.graph.BasicDigraph;
+import stixar.graph.Node;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class FlatNodeMatrixTest extends TestCase
+{
+    private BasicDigraph g;
+
+    public FlatNodeMatrixTest()
+    {
+        super("FlatNodeMatrix");
+    }
+
+    protected void setUp()
+    {
+        g = new BasicDigraph();
+        g.genNodes(200);
+    }
+
+    private Node n(int i)
+    {
+        return g.node(i);
+    }
+
+    private MatrixLayout[] layouts()
+    {
+        return new MatrixLayout[] {
+            MatrixLayout.RowMajor, MatrixLayout.blocked(4), MatrixLayout.blocked(64)
+        };
+    }
+
+    private void check(int[][] ref, IntNodeMatrix m, int size)
+    {
+        for (int i=0; i<size; ++i)
+            for (int j=0; j<size; ++j)
+                assertEquals(ref[i][j], m.get(n(i), n(j)));
+    }
+
+    public void testGetSetGrow()
+    {
+        Random rnd = new Random(1);
+        for (MatrixLayout layout : layouts()) {
+            IntNodeMatrix m = IntNodeMatrix.flat(37, layout);
+            assertEquals(0, m.capacity() % layout.tile());
+            assertTrue(m.capacity() >= 37);
+            int[][] ref = new int[150][150];
+            for (int i=0; i<37; ++i)
+                for (int j=0; j<37; ++j)
+                    m.set(n(i), n(j), ref[i][j] = rnd.nextInt());
+            check(ref, m, 37);
+            m.grow(38);
+            int cap = m.capacity();
+            m.grow(cap);
+            assertEquals(cap, m.capacity());
+            m.grow(150);
+            assertTrue(m.capacity() >= 150);
+            check(ref, m, 150);
+            m.set(n(149), n(3), ref[149][3] = 7);
+            check(ref, m, 150);
+            m.clear();
+            check(new int[150][150], m, 150);
+        }
+    }
+
+    public void testRowsAndColumns()
+    {
+        Random rnd = new Random(2);
+        for (MatrixLayout layout : layouts()) {
+            DoubleNodeMatrix m = DoubleNodeMatrix.flat(130, layout);
+            DoubleNodeMatrix ref = new DoubleNodeMatrix(new double[130][130]);
+            double[] row = new double[130];
+            for (int i=0; i<130; ++i) {
+                for (int j=0; j<130; ++j)
+                    row[j] = rnd.nextDouble();
+                m.setRow(n(i), row);
+                ref.setRow(n(i), row);
+            }
+            double[] col = new double[130];
+            m.setColumn(n(17), ref.getColumn(n(5), col));
+            ref.setColumn(n(17), col);
+            double[] a = new double[130];
+            double[] b = new double[130];
+            for (int i=0; i<130; ++i) {
+                m.getRow(n(i), a);
+                ref.getRow(n(i), b);
+                for (int j=0; j<130; ++j) {
+                    assertEquals(b[j], a[j]);
+                    assertEquals(ref.get(n(i), n(j)), m.get(n(i), n(j)));
+                }
+                m.getColumn(n(i), a);
+                ref.getColumn(n(i), b);
+                for (int j=0; j<130; ++j)
+                    assertEquals(b[j], a[j]);
+            }
+            // a short row leaves the rest alone
+            m.setRow(n(0), new double[3]);
+            assertEquals(0.0, m.get(n(0), n(2)));
+            assertEquals(ref.get(n(0), n(3)), m.get(n(0), n(3)));
+        }
+    }
+
+    public void testShrink()
+    {
+        Random rnd = new Random(3);
+        for (MatrixLayout layout : layouts()) {
+            LongNodeMatrix m = LongNodeMatrix.flat(100, layout);
+            long[][] ref = new long[100][100];
+            for (int i=0; i<100; ++i)
+                for (int j=0; j<100; ++j)
+                    m.set(n(i), n(j), ref[i][j] = rnd.nextLong());
+            // compaction, dropping every third id
+            int[] perm = new int[100];
+            int top = 0;
+            for (int i=0; i<100; ++i)
+                perm[i] = i % 3 == 1 ? -1 : top++;
+            m.shrink(top, perm);
+            for (int i=0; i<100; ++i)
+                for (int j=0; j<100; ++j)
+                    if (perm[i] >= 0 && perm[j] >= 0)
+                        assertEquals(ref[i][j], m.get(n(perm[i]), n(perm[j])));
+            // renumbering in reverse
+            int[] rev = new int[top];
+            for (int i=0; i<top; ++i)
+                rev[i] = top - 1 - i;
+            m.shrink(m.capacity(), rev);
+            for (int i=0; i<100; ++i)
+                for (int j=0; j<100; ++j)
+                    if (perm[i] >= 0 && perm[j] >= 0)
+                        assertEquals(ref[i][j], m.get(n(rev[perm[i]]), n(rev[perm[j]])));
+        }
+    }
+
+    /*
+      The float and byte matrices, flat and by rows, agree.
+     */
+    public void testFloatAndByte()
+    {
+        Random rnd = new Random(4);
+        for (MatrixLayout layout : layouts()) {
+            FloatNodeMatrix f = FloatNodeMatrix.flat(20, layout);
+            FloatNodeMatrix fr = new FloatNodeMatrix(new float[60][60]);
+            ByteNodeMatrix b = ByteNodeMatrix.flat(20, layout);
+            ByteNodeMatrix br = new ByteNodeMatrix(new byte[60][60]);
+            for (int i=0; i<20; ++i) {
+                for (int j=0; j<20; ++j) {
+                    fr.set(n(i), n(j), f.set(n(i), n(j), rnd.nextFloat()));
+                    br.set(n(i), n(j), b.set(n(i), n(j), (byte) rnd.nextInt()));
+                }
+            }
+            f.grow(60);
+            b.grow(60);
+            byte[] row = new byte[60];
+            byte[] rowRef = new byte[60];
+            for (int i=0; i<60; ++i) {
+                for (int j=0; j<60; ++j)
+                    assertEquals(fr.get(n(i), n(j)), f.get(n(i), n(j)));
+                b.getRow(n(i), row);
+                br.getRow(n(i), rowRef);
+                for (int j=0; j<60; ++j)
+                    assertEquals(rowRef[j], row[j]);
+            }
+            b.clear();
+            f.clear();
+            assertEquals(0, b.get(n(3), n(4)));
+            assertEquals(0f, f.get(n(3), n(4)));
+        }
+    }
+
+    public void testArguments()
+    {
+        IntNodeMatrix rows = new IntNodeMatrix(new int[3][3]);
+        assertNull(rows.layout());
+        assertEquals(3, rows.capacity());
+        assertSame(MatrixLayout.RowMajor, IntNodeMatrix.flat(3).layout());
+        try {
+            MatrixLayout.blocked(12);
+            fail("tile not a power of two");
+        } catch (IllegalArgumentException e) {}
+        assertSame(MatrixLayout.RowMajor, MatrixLayout.blocked(1));
+        assertFalse(MatrixLayout.RowMajor.fits(50000));
+        assertTrue(MatrixLayout.RowMajor.fits(46340));
+        assertFalse(MatrixLayout.blocked(64).fits(46340));
+        try {
+            ByteNodeMatrix.flat(50000);
+            fail("too large");
+        } catch (IllegalArgumentException e) {}
+        // an entry beyond the capacity does not alias the next row
+        for (MatrixLayout layout : layouts()) {
+            IntNodeMatrix m = IntNodeMatrix.flat(16, layout);
+            try {
+                m.set(n(0), n(m.capacity()), 1);
+                fail("column outside capacity");
+            } catch (ArrayIndexOutOfBoundsException e) {}
+            try {
+                m.getRow(n(0), new int[m.capacity() + 1]);
+                fail("row longer than capacity");
+            } catch (ArrayIndexOutOfBoundsException e) {}
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package stixar.graph.conn;
+
+import stixar.graph.gen.BasicDGFactory;
+import stixar.graph.BasicDigraph;
+import stixar.graph.Edge;
+import stixar.graph.Node;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class IncrementalReachabilityTest extends TestCase
+{
+    public IncrementalReachabilityTest()
+    {
+        super("IncrementalReachability");
+    }
+
+    private void check(BasicDigraph g, IncrementalReachability r)
+    {
+        for (Node s : g.nodes()) {
+            boolean[] reached = new boolean[g.nodeAttrSize()];
+            ArrayDeque<Node> queue = new ArrayDeque<Node>();
+            reached[s.nodeId()] = true;
+            queue.add(s);
+            while (!queue.isEmpty()) {
+                Node u = queue.poll();
+                for (Edge e = u.out(); e != null; e = e.next()) {
+                    Node v = e.target();
+                    if (!reached[v.nodeId()]) {
+                        reached[v.nodeId()] = true;
+                        queue.add(v);
+                    }
+                }
+            }
+            for (Node t : g.nodes())
+                assertEquals(reached[t.nodeId()], r.reaches(s, t));
+        }
+    }
+
+    public void testInsertions()
+    {
+        Random rnd = new Random(5);
+        BasicDGFactory factory = new BasicDGFactory();
+        factory.genNodes(200);
+        factory.genEdges(150);
+        BasicDigraph g = factory.digraph();
+        IncrementalReachability r = new IncrementalReachability(g);
+        ArrayList<Node> nodes = new ArrayList<Node>();
+        for (Node u : g.nodes())
+            nodes.add(u);
+        for (int round=0; round<6; ++round) {
+            for (int i=0; i<40; ++i)
+                r.genEdge(nodes.get(rnd.nextInt(nodes.size())),
+                          nodes.get(rnd.nextInt(nodes.size())));
+            for (int i=0; i<15; ++i) {
+                Node n = r.genNode();
+                nodes.add(n);
+                r.genEdge(n, nodes.get(rnd.nextInt(nodes.size())));
+                r.genEdge(nodes.get(rnd.nextInt(nodes.size())), n);
+            }
+            assertFalse(r.isStale());
+            check(g, r);
+        }
+        assertEquals(0, r.rebuilds());
+    }
+
+    public void testRemovals()
+    {
+        Random rnd = new Random(6);
+        BasicDGFactory factory = new BasicDGFactory();
+        factory.genNodes(150);
+        factory.genEdges(300);
+        BasicDigraph g = factory.digraph();
+        IncrementalReachability r = new IncrementalReachability(g);
+        ArrayList<Edge> edges = new ArrayList<Edge>();
+        for (Node u : g.nodes())
+            for (Edge e = u.out(); e != null; e = e.next())
+                edges.add(e);
+        for (int i=0; i<30; ++i)
+            r.remove(edges.remove(rnd.nextInt(edges.size())));
+        r.remove(g.node(3));
+        assertTrue(r.isStale());
+        // insertions while stale are picked up by the rebuild
+        r.genEdge(g.node(4), g.node(5));
+        Node n = r.genNode();
+        r.genEdge(n, g.node(4));
+        check(g, r);
+        assertEquals(1, r.rebuilds());
+        assertFalse(r.isStale());
+        r.genEdge(g.node(7), n);
+        check(g, r);
+        assertEquals(1, r.rebuilds());
+    }
+}
@@ -0,0 +1,109 @@
+package stixar.graph.conn;
+
+import stixar.graph.gen.BasicDGFactory;
+import stixar.graph.BasicDigraph;
+import stixar.graph.Edge;
+import stixar.graph.Node;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+
+public class ReachabilityIndexTest extends TestCase
+{
+    private BasicDigraph digraph;
+
+    public ReachabilityIndexTest()
+    {
+        super("ReachabilityIndex");
+    }
+
+    protected void setUp()
+    {
+        BasicDGFactory factory = new BasicDGFactory();
+        factory.genNodes(1200);
+        factory.genEdges(1800);
+        digraph = factory.digraph();
+        digraph.remove(digraph.node(11));
+    }
+
+    private boolean[] bfs(Node s)
+    {
+        boolean[] reached = new boolean[digraph.nodeAttrSize()];
+        ArrayDeque<Node> queue = new ArrayDeque<Node>();
+        reached[s.nodeId()] = true;
+        queue.add(s);
+        while (!queue.isEmpty()) {
+            Node u = queue.poll();
+            for (Edge e = u.out(); e != null; e = e.next()) {
+                Node v = e.target();
+                if (!reached[v.nodeId()]) {
+                    reached[v.nodeId()] = true;
+                    queue.add(v);
+                }
+            }
+        }
+        return reached;
+    }
+
+    private void check(ReachabilityIndex index)
+    {
+        ArrayList<Node> all = new ArrayList<Node>();
+        for (Node u : digraph.nodes())
+            all.add(u);
+        Node[] targets = all.toArray(new Node[all.size()]);
+        boolean[] result = null;
+        for (Node s : targets) {
+            boolean[] reached = bfs(s);
+            result = index.reaches(s, targets, result);
+            int count = 0;
+            for (int i=0; i<targets.length; ++i) {
+                Node t = targets[i];
+                assertEquals(reached[t.nodeId()], index.reaches(s, t));
+                assertEquals(reached[t.nodeId()], result[i]);
+                if (reached[t.nodeId()]) count++;
+            }
+            assertEquals(count, index.count(s, all));
+        }
+    }
+
+    public void testBuild()
+    {
+        ReachabilityIndex index = ReachabilityIndex.build(digraph);
+        check(index);
+        ForkJoinPool pool = new ForkJoinPool(3);
+        ReachabilityIndex pindex = ReachabilityIndex.build(digraph, pool);
+        pool.shutdown();
+        check(pindex);
+        assertEquals(index.components(), pindex.components());
+        assertEquals(index.intervals(), pindex.intervals());
+    }
+
+    public void testReadWrite() throws IOException
+    {
+        ReachabilityIndex index = ReachabilityIndex.build(digraph);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.write(out);
+        byte[] bytes = out.toByteArray();
+        ReachabilityIndex read =
+            ReachabilityIndex.read(new ByteArrayInputStream(bytes), digraph);
+        assertEquals(index.intervals(), read.intervals());
+        check(read);
+
+        digraph.genNode();
+        try {
+            ReachabilityIndex.read(new ByteArrayInputStream(bytes), digraph);
+            fail("graph has grown");
+        } catch (IOException e) {}
+        bytes[3] ^= 1;
+        try {
+            ReachabilityIndex.read(new ByteArrayInputStream(bytes), digraph);
+            fail("bad magic");
+        } catch (IOException e) {}
+    }
+}
@@ -0,0 +1,82 @@
+package stixar.graph.conn;
+
+import stixar.graph.BasicUGraph;
+import stixar.graph.Edge;
+import stixar.graph.Node;
+
+import stixar.graph.attr.DoubleEdgeMap;
+import stixar.graph.attr.IntEdgeMap;
+import stixar.graph.attr.NodeMap;
+
+import stixar.util.NumAdaptor;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class SpanTreeTest extends TestCase
+{
+    public SpanTreeTest()
+    {
+        super("SpanTree");
+    }
+
+    /*
+      A random graph of two components with parallel edges.
+     */
+    private BasicUGraph graph(Random rnd)
+    {
+        BasicUGraph g = new BasicUGraph();
+        g.genNodes(200);
+        for (int i=0; i<1500; ++i) {
+            int half = rnd.nextInt(2) * 100;
+            int u = half + rnd.nextInt(100);
+            int v = half + rnd.nextInt(100);
+            if (u != v)
+                g.genEdge(g.node(u), g.node(v));
+        }
+        return g;
+    }
+
+    private long weight(NodeMap<Edge> tree, BasicUGraph g, IntEdgeMap w)
+    {
+        long sum = 0;
+        int roots = 0;
+        for (Node n : g.nodes()) {
+            Edge e = tree.get(n);
+            if (e == null) {
+                roots++;
+            } else {
+                assertTrue(e.source() == n || e.target() == n);
+                sum += w.get(e);
+            }
+        }
+        assertEquals(2, roots);
+        return sum;
+    }
+
+    public void testNativeMinTree()
+    {
+        Random rnd = new Random(12);
+        BasicUGraph g = graph(rnd);
+        IntEdgeMap w = g.createIntEdgeMap();
+        DoubleEdgeMap dw = g.createDoubleEdgeMap();
+        NodeMap<Edge> iw = g.createNodeMap((Edge) null);
+        for (Edge e : g.edges()) {
+            w.set(e, rnd.nextInt(1000));
+            dw.set(e, w.get(e) / 8.0);
+        }
+        // the reference: Kruskal's algorithm with boxed weights.
+        stixar.graph.attr.EdgeMap<Integer> bw = g.createEdgeMap(new Object());
+        for (Edge e : g.edges())
+            bw.set(e, w.get(e));
+        long expect = 0;
+        for (Edge e : SpanTree.minTree(g, bw, NumAdaptor.Int))
+            expect += w.get(e);
+
+        NodeMap<Edge> tree = SpanTree.minTree(g, w);
+        assertEquals(expect, weight(tree, g, w));
+        tree = SpanTree.minTree(g, dw);
+        assertEquals(expect, weight(tree, g, w));
+    }
+}
@@ -6,9 +6,13 @@ import stixar.graph.Digraph;
 import stixar.graph.BasicNode;
 import stixar.graph.BasicEdge;
 import stixar.graph.Node;
+import stixar.graph.Edge;
 import stixar.graph.attr.NodeMatrix;
+import stixar.graph.attr.BitNodeMatrix;
 import stixar.graph.attr.ByteNodeMatrix;
+import java.util.ArrayDeque;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import junit.framework.TestCase;
 
@@ -82,6 +86,47 @@ public class TransitivityTest extends TestCase
         NodeMatrix<Boolean> reachMat = Transitivity.compactClosure(digraph);
     }
 
+    // the bit closure agrees with a breadth first search from every node,
+    // sequential and in a pool, on a graph with cycles and a removed node.
+    public void testBitClosure()
+    {
+        BasicDGFactory factory = new BasicDGFactory();
+        factory.genNodes(1500);
+        factory.genEdges(2200);
+        BasicDigraph digraph = factory.digraph();
+        digraph.remove(digraph.node(7));
+        ForkJoinPool pool = new ForkJoinPool(3);
+        BitNodeMatrix[] bits = {
+            Transitivity.bitClosure(digraph),
+            Transitivity.bitClosure(digraph, pool)
+        };
+        pool.shutdown();
+        int n = digraph.nodeAttrSize();
+        for (Node s : digraph.nodes()) {
+            boolean[] reached = new boolean[n];
+            ArrayDeque<Node> queue = new ArrayDeque<Node>();
+            reached[s.nodeId()] = true;
+            queue.add(s);
+            int count = 0;
+            while (!queue.isEmpty()) {
+                Node u = queue.poll();
+                count++;
+                for (Edge e = u.out(); e != null; e = e.next()) {
+                    Node v = e.target();
+                    if (!reached[v.nodeId()]) {
+                        reached[v.nodeId()] = true;
+                        queue.add(v);
+                    }
+                }
+            }
+            for (BitNodeMatrix m : bits) {
+                for (Node t : digraph.nodes())
+                    assertEquals(reached[t.nodeId()], m.isSet(s, t));
+                assertEquals(count, m.count(s));
+            }
+        }
+    }
+
     public static void main(String[] args)
     {
         TransitivityTest t = new TransitivityTest();
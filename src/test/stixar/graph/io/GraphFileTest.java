@@ -0,0 +1,166 @@
+package stixar.graph.io;
+
+import stixar.graph.BasicDigraph;
+import stixar.graph.BasicNode;
+import stixar.graph.Edge;
+import stixar.graph.GraphFilter;
+import stixar.graph.Node;
+import stixar.graph.attr.DoubleNodeMap;
+import stixar.graph.attr.IntEdgeMap;
+import stixar.graph.attr.IntNodeMap;
+import stixar.graph.attr.NativeEdgeMap;
+import stixar.graph.attr.NativeMap;
+import stixar.graph.attr.NativeNodeMap;
+import stixar.graph.gen.BasicDGFactory;
+import stixar.graph.paths.SSSP;
+import stixar.graph.search.DFS;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class GraphFileTest extends TestCase
+{
+    public GraphFileTest()
+    {
+        super("GraphFile");
+    }
+
+    public void testRoundTrip() throws IOException
+    {
+        BasicDGFactory f = new BasicDGFactory(1000, 8000);
+        f.genNodes(1000);
+        f.genEdges(8000);
+        BasicNode source = f.genSource();
+        BasicDigraph g = f.digraph();
+        // leave a hole in the edge ids.
+        g.remove(g.node(5).out());
+
+        IntEdgeMap w = g.createIntEdgeMap();
+        DoubleNodeMap val = g.createDoubleNodeMap();
+        Random rnd = new Random(0);
+        for (Edge e : g.edges())
+            w.set(e, rnd.nextInt(100));
+        for (Node n : g.nodes())
+            val.set(n, rnd.nextDouble());
+        Map<String, NativeNodeMap> nCols = new LinkedHashMap<String, NativeNodeMap>();
+        nCols.put("value", val);
+        Map<String, NativeEdgeMap> eCols = new LinkedHashMap<String, NativeEdgeMap>();
+        eCols.put("weight", w);
+
+        File file = File.createTempFile("stixar", ".graph");
+        file.deleteOnExit();
+        GraphFile.write(g, file, nCols, eCols);
+        MappedDigraph mg = GraphFile.open(file);
+
+        assertEquals(g.nodeSize(), mg.nodeSize());
+        assertEquals(g.edgeSize(), mg.edgeSize());
+        assertEquals(g.edgeAttrSize(), mg.edgeAttrSize());
+        assertEquals(g.toString(), mg.toString());
+        for (Node n : g.nodes()) {
+            Node mn = mg.node(n.nodeId());
+            assertSame(mn, mg.node(n.nodeId()));
+            Edge me = mn.out();
+            for (Edge e = n.out(); e != null; e = e.next(), me = me.next()) {
+                assertEquals(e.edgeId(), me.edgeId());
+                assertEquals(e.target().nodeId(), me.target().nodeId());
+            }
+            assertNull(me);
+        }
+
+        assertEquals(NativeMap.Type.Int, mg.columnType("weight"));
+        IntEdgeMap mw = (IntEdgeMap) mg.edgeColumn("weight");
+        DoubleNodeMap mval = (DoubleNodeMap) mg.nodeColumn("value");
+        for (Edge e : g.edges())
+            assertEquals(w.get(e), mw.get(e.edgeId()));
+        for (Node n : g.nodes())
+            assertEquals(val.get(n), mval.get(n.nodeId()), 0.0);
+        assertEquals(w.get(g.node(0).out()),
+                     mg.columnBuffer("weight").getInt(4 * g.node(0).out().edgeId()));
+        assertNull(mg.edgeColumn("nothing"));
+
+        IntNodeMap dist = new IntNodeMap(new int[g.nodeAttrSize()]);
+        IntNodeMap mdist = new IntNodeMap(new int[mg.nodeAttrSize()]);
+        SSSP.dijkstra(g, source, dist, w);
+        SSSP.dijkstra(mg, mg.node(source.nodeId()), mdist, mw);
+        for (Node n : g.nodes())
+            assertEquals(dist.get(n), mdist.get(n.nodeId()));
+
+        DFS dfs = new DFS(mg, new DFS.Visitor());
+        dfs.run();
+    }
+
+    public void testBadFile() throws IOException
+    {
+        File file = File.createTempFile("stixar", ".graph");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[100]);
+        out.close();
+        try {
+            GraphFile.open(file);
+            fail();
+        } catch (IOException ok) {}
+    }
+
+    /*
+      Overwrite the int at index i of the section whose position is at
+      byte at of the header.
+     */
+    private static void patch(File file, int at, int i, int value) throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel ch = raf.getChannel();
+            ByteBuffer b = ByteBuffer.allocate(8).order(ByteOrder.nativeOrder());
+            ch.read(b, at);
+            long pos = b.getLong(0);
+            b.clear();
+            b.putInt(value).flip();
+            ch.write(b, pos + 4L * i);
+        } finally {
+            raf.close();
+        }
+    }
+
+    public void testCorrupt() throws IOException
+    {
+        BasicDGFactory f = new BasicDGFactory(50, 200);
+        f.genNodes(50);
+        f.genEdges(200);
+        BasicDigraph g = f.digraph();
+        int[][] patches = {
+            { 32, 10, 1000 },   // offsets beyond m
+            { 32, 10, -1 },     // decreasing offsets
+            { 40, 7, 50 },      // target out of range
+            { 48, 3, -2 },      // negative edge id
+        };
+        for (int[] p : patches) {
+            File file = File.createTempFile("stixar", ".graph");
+            file.deleteOnExit();
+            GraphFile.write(g, file);
+            MappedDigraph mg = GraphFile.open(file);
+            mg.addFilter(new GraphFilter() {
+                    public boolean filter(Edge e) { return true; }
+                    public boolean filter(Node n) { return false; }
+                });
+            assertNotNull(mg.getFilter());
+            mg.removeFilter();
+            assertNull(mg.getFilter());
+            patch(file, p[0], p[1], p[2]);
+            try {
+                GraphFile.open(file);
+                fail();
+            } catch (IOException ok) {}
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package stixar.graph.io;
+
+import stixar.graph.BasicDigraph;
+import stixar.graph.CompactDigraph;
+import stixar.graph.Edge;
+import stixar.graph.Node;
+import stixar.graph.attr.DoubleEdgeMap;
+import stixar.graph.attr.IntEdgeMap;
+import stixar.graph.attr.IntNodeMap;
+import stixar.graph.attr.NativeMap;
+import stixar.graph.paths.SSSP;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class GraphReaderTest extends TestCase
+{
+    public GraphReaderTest()
+    {
+        super("GraphReader");
+    }
+
+    private File write(String text) throws IOException
+    {
+        File file = File.createTempFile("stixar", ".txt");
+        file.deleteOnExit();
+        FileWriter out = new FileWriter(file);
+        out.write(text);
+        out.close();
+        return file;
+    }
+
+    public void testDimacsShortestPath() throws IOException
+    {
+        int n = 500, m = 4000;
+        Random rnd = new Random(1);
+        int[] src = new int[m], tgt = new int[m], w = new int[m];
+        File file = File.createTempFile("stixar", ".gr");
+        file.deleteOnExit();
+        PrintWriter out = new PrintWriter(new FileWriter(file));
+        out.println("c a random graph");
+        out.println("p sp " + n + " " + m);
+        for (int i=0; i<m; ++i) {
+            src[i] = rnd.nextInt(n);
+            tgt[i] = rnd.nextInt(n);
+            w[i] = rnd.nextInt(1000);
+            out.println("a " + (src[i] + 1) + " " + (tgt[i] + 1) + " " + w[i]);
+        }
+        out.close();
+
+        GraphReader reader = new GraphReader(GraphReader.Format.DimacsShortestPath);
+        // small chunks exercise the splitting and ordering of chunks.
+        reader.setChunkSize(256);
+        reader.setThreads(3);
+        BasicDigraph g = reader.read(file);
+        assertEquals(n, g.nodeSize());
+        assertEquals(m, g.edgeSize());
+        IntEdgeMap weights = (IntEdgeMap) reader.weights();
+        assertSame(weights, g.getNativeEdgeMap(GraphReader.WeightMapKey));
+        for (Edge e : g.edges()) {
+            int i = e.edgeId();
+            assertEquals(src[i], e.source().nodeId());
+            assertEquals(tgt[i], e.target().nodeId());
+            assertEquals(w[i], weights.get(e));
+        }
+
+        CompactDigraph c = reader.readCompact(file);
+        assertEquals(n, c.nodeSize());
+        assertEquals(m, c.edgeSize());
+        IntEdgeMap cw = (IntEdgeMap) reader.weights();
+        IntNodeMap dist = g.createIntNodeMap();
+        IntNodeMap cdist = c.createIntNodeMap();
+        SSSP.dijkstra(g, g.node(0), dist, weights);
+        SSSP.dijkstra(c, c.node(0), cdist, cw);
+        for (Node u : g.nodes())
+            assertEquals(dist.get(u), cdist.get(c.node(u.nodeId())));
+    }
+
+    public void testDimacsMaxFlow() throws IOException
+    {
+        File file = write("c tiny\np max 4 5\nn 1 s\nn 4 t\n"
+                          + "a 1 2 3\na 1 3 2\na 2 3 1\na 2 4 2\na 3 4 3\n");
+        GraphReader reader = new GraphReader(GraphReader.Format.DimacsMaxFlow);
+        BasicDigraph g = reader.read(file);
+        assertEquals(4, g.nodeSize());
+        assertEquals(5, g.edgeSize());
+        assertSame(g.node(0), reader.source());
+        assertSame(g.node(3), reader.sink());
+        IntEdgeMap cap = (IntEdgeMap) reader.weights();
+        assertEquals(3, cap.get(g.node(0).out()));
+
+        CompactDigraph c = reader.readCompact(file);
+        assertEquals(c.node(0), reader.source());
+        assertEquals(c.node(3), reader.sink());
+    }
+
+    public void testEdgeList() throws IOException
+    {
+        File file = write("# comment\n0 1 0.5\n1\t2  2.25\n\n% other\n2 0 1e-3\n5 5 -7\n");
+        GraphReader reader = new GraphReader(GraphReader.Format.EdgeList);
+        reader.setWeightType(NativeMap.Type.Double);
+        BasicDigraph g = reader.read(file);
+        assertEquals(6, g.nodeSize());
+        assertEquals(4, g.edgeSize());
+        DoubleEdgeMap w = (DoubleEdgeMap) reader.weights();
+        assertEquals(0.5, w.get(g.node(0).out()), 0.0);
+        assertEquals(2.25, w.get(g.node(1).out()), 0.0);
+        assertEquals(1e-3, w.get(g.node(2).out()), 0.0);
+        assertEquals(-7.0, w.get(g.node(5).out()), 0.0);
+
+        // without weights, extra columns are ignored.
+        reader = new GraphReader(GraphReader.Format.EdgeList);
+        g = reader.read(file);
+        assertEquals(4, g.edgeSize());
+        assertNull(reader.weights());
+    }
+
+    public void testMalformed() throws IOException
+    {
+        GraphReader reader = new GraphReader(GraphReader.Format.DimacsShortestPath);
+        String[] bad = {
+            "p sp 2 1\na 1 x 3\n",
+            "p sp 2 1\na 1 3 3\n",
+            "a 1 2 3\n",
+            "p sp 2 1\na 1 2\n",
+            "p max 2 1\na 1 2 3\n",
+            "p sp 2 1\nq\n"
+        };
+        for (String text : bad) {
+            try {
+                reader.read(write(text));
+                fail(text);
+            } catch (IOException ok) {}
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package stixar.graph.io;
+
+import stixar.graph.BasicDigraph;
+import stixar.graph.Edge;
+import stixar.graph.Node;
+import stixar.graph.attr.ByteNodeMap;
+import stixar.graph.attr.DoubleNodeMap;
+import stixar.graph.attr.IntEdgeMap;
+import stixar.graph.attr.LongEdgeMap;
+import stixar.graph.gen.BasicDGFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class GraphSnapshotTest extends TestCase
+{
+    static final Object CostKey = new Object();
+
+    public GraphSnapshotTest()
+    {
+        super("GraphSnapshot");
+    }
+
+    private BasicDigraph graph()
+    {
+        BasicDGFactory f = new BasicDGFactory(300, 2000);
+        f.genNodes(300);
+        f.genEdges(2000);
+        BasicDigraph g = f.digraph();
+        // leave holes in the node and edge ids.
+        g.remove(g.node(7));
+        g.remove(g.node(3).out());
+        Random rnd = new Random(2);
+        IntEdgeMap w = g.createIntEdgeMap("weight");
+        LongEdgeMap cost = g.createLongEdgeMap(CostKey);
+        for (Edge e : g.edges()) {
+            w.set(e, rnd.nextInt());
+            cost.set(e, rnd.nextLong());
+        }
+        DoubleNodeMap d = g.createDoubleNodeMap("dist");
+        ByteNodeMap b = g.createByteNodeMap("label");
+        for (Node n : g.nodes()) {
+            d.set(n, rnd.nextDouble());
+            b.set(n, (byte) rnd.nextInt());
+        }
+        // unmanaged and unnamed maps are not stored.
+        g.createIntNodeMap(new Object());
+        g.createNodeMap("objects");
+        return g;
+    }
+
+    private void check(BasicDigraph g, BasicDigraph r, Object costKey)
+    {
+        assertEquals(g.nodeSize(), r.nodeSize());
+        assertEquals(g.edgeSize(), r.edgeSize());
+        assertEquals(g.nodeAttrSize(), r.nodeAttrSize());
+        assertEquals(g.edgeAttrSize(), r.edgeAttrSize());
+        assertNull(r.node(7));
+        for (Node n : g.nodes()) {
+            Edge re = r.node(n.nodeId()).out();
+            for (Edge e = n.out(); e != null; e = e.next(), re = re.next()) {
+                assertEquals(e.edgeId(), re.edgeId());
+                assertEquals(e.target().nodeId(), re.target().nodeId());
+            }
+            assertNull(re);
+        }
+        IntEdgeMap w = (IntEdgeMap) g.getNativeEdgeMap("weight");
+        IntEdgeMap rw = (IntEdgeMap) r.getNativeEdgeMap("weight");
+        for (Edge e : r.edges())
+            assertEquals(w.get(e.edgeId()), rw.get(e));
+        DoubleNodeMap d = (DoubleNodeMap) g.getNativeNodeMap("dist");
+        DoubleNodeMap rd = (DoubleNodeMap) r.getNativeNodeMap("dist");
+        ByteNodeMap b = (ByteNodeMap) g.getNativeNodeMap("label");
+        ByteNodeMap rb = (ByteNodeMap) r.getNativeNodeMap("label");
+        for (Node n : r.nodes()) {
+            assertEquals(d.get(n.nodeId()), rd.get(n), 0.0);
+            assertEquals(b.get(n.nodeId()), rb.get(n));
+        }
+        LongEdgeMap rc = (LongEdgeMap) r.getNativeEdgeMap(costKey);
+        if (costKey == null) {
+            assertNull(rc);
+        } else {
+            LongEdgeMap c = (LongEdgeMap) g.getNativeEdgeMap(CostKey);
+            for (Edge e : r.edges())
+                assertEquals(c.get(e.edgeId()), rc.get(e));
+        }
+        assertNull(r.getNodeMap("objects"));
+        assertEquals(3, r.managedNodeAttrs().size() + r.managedEdgeAttrs().size()
+                     - (costKey == null ? 0 : 1));
+
+        // the restored graph is fully usable.
+        Node u = r.genNode();
+        Edge e = r.genEdge(u, r.node(0));
+        assertEquals(g.edgeAttrSize(), e.edgeId());
+        rw.set(e, 5);
+    }
+
+    public void testFile() throws IOException
+    {
+        BasicDigraph g = graph();
+        File file = File.createTempFile("stixar", ".snap");
+        file.deleteOnExit();
+        GraphSnapshot.write(g, file, false);
+        check(g, GraphSnapshot.read(file), null);
+        GraphSnapshot.write(g, file, true);
+        check(g, GraphSnapshot.read(file), null);
+    }
+
+    public void testKeys() throws IOException
+    {
+        BasicDigraph g = graph();
+        Map<Object, String> names = new HashMap<Object, String>();
+        names.put(CostKey, "cost");
+        Map<String, Object> keys = new HashMap<String, Object>();
+        keys.put("cost", CostKey);
+        for (boolean compress : new boolean[] { false, true }) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            GraphSnapshot.write(g, out, names, compress);
+            byte[] bytes = out.toByteArray();
+            check(g, GraphSnapshot.read(new ByteArrayInputStream(bytes), keys), CostKey);
+        }
+    }
+
+    public void testEmptyAndBad() throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GraphSnapshot.write(new BasicDigraph(), out, null, false);
+        BasicDigraph r = GraphSnapshot.read(new ByteArrayInputStream(out.toByteArray()), null);
+        assertEquals(0, r.nodeSize());
+        r.genEdge(r.genNode(), r.genNode());
+
+        byte[] bytes = out.toByteArray();
+        bytes[0] ^= 1;
+        try {
+            GraphSnapshot.read(new ByteArrayInputStream(bytes), null);
+            fail();
+        } catch (IOException ok) {}
+        try {
+            GraphSnapshot.read(new ByteArrayInputStream(new byte[10]), null);
+            fail();
+        } catch (IOException ok) {}
+    }
+}
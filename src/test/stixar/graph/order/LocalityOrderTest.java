@@ -0,0 +1,199 @@
+package stixar.graph.order;
+
+import stixar.graph.ArrayDigraph;
+import stixar.graph.BasicDigraph;
+import stixar.graph.Edge;
+import stixar.graph.Node;
+import stixar.graph.attr.IntEdgeMap;
+import stixar.graph.attr.IntNodeMap;
+import stixar.graph.gen.BasicDGFactory;
+import stixar.graph.paths.SSSP;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class LocalityOrderTest extends TestCase
+{
+    public LocalityOrderTest()
+    {
+        super("LocalityOrder");
+    }
+
+    /*
+      A side x side grid with both directions of each edge, numbered
+      randomly.
+     */
+    private BasicDigraph shuffledGrid(int side, Random rnd)
+    {
+        int n = side * side;
+        int[] perm = new int[n];
+        for (int i=0; i<n; ++i) perm[i] = i;
+        for (int i=n - 1; i>0; --i) {
+            int j = rnd.nextInt(i + 1);
+            int t = perm[i]; perm[i] = perm[j]; perm[j] = t;
+        }
+        BasicDigraph g = new BasicDigraph(n, 4 * n);
+        g.genNodes(n);
+        for (int r=0; r<side; ++r) {
+            for (int c=0; c<side; ++c) {
+                Node u = g.node(perm[r * side + c]);
+                if (c + 1 < side) {
+                    Node v = g.node(perm[r * side + c + 1]);
+                    g.genEdge(u, v);
+                    g.genEdge(v, u);
+                }
+                if (r + 1 < side) {
+                    Node v = g.node(perm[(r + 1) * side + c]);
+                    g.genEdge(u, v);
+                    g.genEdge(v, u);
+                }
+            }
+        }
+        return g;
+    }
+
+    private int bandwidth(BasicDigraph g)
+    {
+        int b = 0;
+        for (Edge e : g.edges())
+            b = Math.max(b, Math.abs(e.source().nodeId() - e.target().nodeId()));
+        return b;
+    }
+
+    private void checkRenumbering(int[] r, BasicDigraph g)
+    {
+        assertEquals(g.nodeAttrSize(), r.length);
+        boolean[] used = new boolean[g.nodeSize()];
+        for (int i=0; i<r.length; ++i) {
+            if (g.node(i) == null) {
+                assertEquals(-1, r[i]);
+            } else {
+                assertFalse(used[r[i]]);
+                used[r[i]] = true;
+            }
+        }
+    }
+
+    public void testOrders()
+    {
+        BasicDGFactory f = new BasicDGFactory(500, 3000);
+        f.genNodes(500);
+        f.genEdges(3000);
+        BasicDigraph g = f.digraph();
+        g.remove(g.node(17));
+        NodeOrder[] orders = {
+            LocalityOrder.bfs(g),
+            LocalityOrder.reverseCuthillMcKee(g),
+            LocalityOrder.degree(g),
+            LocalityOrder.gorder(g),
+            LocalityOrder.gorder(g, 1)
+        };
+        for (NodeOrder o : orders)
+            checkRenumbering(o.renumbering(), g);
+
+        int[] r = orders[2].renumbering();
+        int prev = Integer.MAX_VALUE;
+        int[] byPos = new int[g.nodeSize()];
+        for (int i=0; i<r.length; ++i)
+            if (r[i] >= 0) byPos[r[i]] = i;
+        for (int id : byPos) {
+            int d = 0;
+            for (Edge e : g.edges())
+                if (e.source().nodeId() == id || e.target().nodeId() == id) d++;
+            assertTrue(d <= prev);
+            prev = d;
+        }
+    }
+
+    /*
+      Reordering keeps the structure and the managed attributes, and
+      shortest paths are unchanged.
+     */
+    public void testReorder()
+    {
+        Random rnd = new Random(8);
+        BasicDigraph g = shuffledGrid(30, rnd);
+        g.remove(g.node(3));
+        g.remove(g.node(40).out());
+        IntEdgeMap w = g.createIntEdgeMap("w");
+        IntNodeMap tag = g.createIntNodeMap("tag");
+        for (Edge e : g.edges())
+            w.set(e, 1 + rnd.nextInt(100));
+        for (Node n : g.nodes())
+            tag.set(n, n.nodeId());
+        Node s = g.node(0);
+        IntNodeMap dist = g.createIntNodeMap();
+        SSSP.dijkstra(g, s, dist, w);
+        int[] before = new int[g.nodeAttrSize()];
+        for (Node n : g.nodes())
+            before[n.nodeId()] = dist.get(n);
+        String[] adj = new String[g.nodeAttrSize()];
+        for (Node n : g.nodes()) {
+            StringBuffer sb = new StringBuffer();
+            for (Edge e = n.out(); e != null; e = e.next())
+                sb.append(tag.get(e.target()) + "/" + w.get(e) + " ");
+            adj[n.nodeId()] = sb.toString();
+        }
+        int m = g.edgeSize();
+
+        NodeOrder order = LocalityOrder.reverseCuthillMcKee(g);
+        g.reorder(order);
+        assertEquals(g.nodeSize(), g.nodeAttrSize());
+        assertEquals(m, g.edgeAttrSize());
+        int expect = 0;
+        for (Node n : g.nodes()) {
+            assertEquals(expect++, n.nodeId());
+            StringBuffer sb = new StringBuffer();
+            int lastEdge = -1;
+            for (Edge e = n.out(); e != null; e = e.next()) {
+                sb.append(tag.get(e.target()) + "/" + w.get(e) + " ");
+                assertTrue(e.edgeId() > lastEdge);
+                lastEdge = e.edgeId();
+            }
+            assertEquals(adj[tag.get(n)], sb.toString());
+        }
+        IntNodeMap dist2 = g.createIntNodeMap();
+        SSSP.dijkstra(g, s, dist2, w);
+        for (Node n : g.nodes())
+            assertEquals(before[tag.get(n)], dist2.get(n));
+
+        // the reordered graph still grows.
+        Node u = g.genNode();
+        g.genEdge(u, g.node(0));
+    }
+
+    public void testBandwidth()
+    {
+        Random rnd = new Random(9);
+        BasicDigraph g = shuffledGrid(40, rnd);
+        int b0 = bandwidth(g);
+        g.reorder(LocalityOrder.reverseCuthillMcKee(g));
+        int b1 = bandwidth(g);
+        assertTrue(b0 + " -> " + b1, b1 <= 2 * 40);
+        assertTrue(b1 < b0);
+    }
+
+    public void testArrayDigraph()
+    {
+        Random rnd = new Random(10);
+        ArrayDigraph g = ArrayDigraph.copy(shuffledGrid(20, rnd));
+        IntNodeMap tag = g.createIntNodeMap("tag");
+        for (Node n : g.nodes())
+            tag.set(n, n.nodeId());
+        int[] outs = new int[g.nodeAttrSize()];
+        for (Node n : g.nodes())
+            outs[n.nodeId()] = g.outDegree(n.nodeId());
+        NodeOrder order = LocalityOrder.gorder(g);
+        int[] r = order.renumbering();
+        g.reorder(order);
+        for (Node n : g.nodes()) {
+            assertEquals(n.nodeId(), r[tag.get(n)]);
+            assertEquals(outs[tag.get(n)], g.outDegree(n.nodeId()));
+            for (int i=0; i<g.outDegree(n.nodeId()); ++i)
+                assertEquals(g.outEdge(n.nodeId(), i).target().nodeId(),
+                             g.outTarget(n.nodeId(), i));
+        }
+    }
+}
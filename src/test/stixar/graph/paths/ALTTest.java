@@ -0,0 +1,210 @@
+package stixar.graph.paths;
+
+import stixar.graph.BasicDigraph;
+import stixar.graph.BasicUGraph;
+import stixar.graph.Edge;
+import stixar.graph.Graph;
+import stixar.graph.GraphFilter;
+import stixar.graph.Node;
+import stixar.graph.gen.BasicDGFactory;
+import stixar.graph.search.AStar;
+
+import stixar.graph.attr.DoubleEdgeMap;
+import stixar.graph.attr.DoubleNodeMap;
+import stixar.graph.attr.IntEdgeMap;
+import stixar.graph.attr.IntNodeMap;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class ALTTest extends TestCase
+{
+    public ALTTest()
+    {
+        super("ALT");
+    }
+
+    /*
+      Random pairs against Dijkstra, checking paths, distances and bounds.
+     */
+    private void compare(Graph g, DoubleEdgeMap w, Landmarks lm, Random rnd)
+    {
+        ALT alt = new ALT(g, w, lm);
+        int nasz = g.nodeAttrSize();
+        for (int q=0; q<40; ++q) {
+            Node s = g.node(rnd.nextInt(nasz));
+            Node t = g.node(rnd.nextInt(nasz));
+            if (s == null || t == null) continue;
+            DoubleNodeMap dist = g.createDoubleNodeMap();
+            DijkstraNative d = new DijkstraNative(g, s, null, null, dist, w, null);
+            d.run();
+            Path p = alt.path(s, t);
+            if (s != t && d.parents().get(t) == null) {
+                assertNull(p);
+                assertFalse(alt.found());
+                continue;
+            }
+            double expect = dist.get(t);
+            assertEquals(expect, alt.distance(), 1e-9);
+            assertTrue(lm.lowerBound(s, t) <= expect + 1e-9);
+            assertSame(s, p.head());
+            assertSame(t, p.tail());
+            double sum = 0;
+            for (Edge e : p.edges())
+                sum += w.get(e);
+            assertEquals(expect, sum, 1e-9);
+        }
+    }
+
+    private DoubleEdgeMap weights(Graph g, Random rnd)
+    {
+        DoubleEdgeMap w = g.createDoubleEdgeMap();
+        for (Edge e : g.edges())
+            w.set(e, rnd.nextInt(20) + rnd.nextDouble());
+        return w;
+    }
+
+    private BasicDigraph random(int n, int m)
+    {
+        BasicDGFactory f = new BasicDGFactory(n, m);
+        f.genNodes(n);
+        f.genEdges(m);
+        BasicDigraph g = f.digraph();
+        g.remove(g.node(3));
+        return g;
+    }
+
+    public void testFarthest()
+    {
+        Random rnd = new Random(1);
+        BasicDigraph g = random(700, 1800);
+        DoubleEdgeMap w = weights(g, rnd);
+        Landmarks lm = Landmarks.select(g, w, 8, Landmarks.Strategy.Farthest, rnd);
+        assertEquals(8, lm.size());
+        for (int i=0; i<8; ++i) {
+            assertEquals(0.0, lm.distanceFrom(i, lm.landmark(i)));
+            assertEquals(0.0, lm.distanceTo(i, lm.landmark(i)));
+        }
+        compare(g, w, lm, rnd);
+    }
+
+    public void testAvoid()
+    {
+        Random rnd = new Random(2);
+        BasicDigraph g = random(700, 2500);
+        DoubleEdgeMap w = weights(g, rnd);
+        Landmarks lm = Landmarks.select(g, w, 6, Landmarks.Strategy.Avoid, rnd);
+        for (int i=0; i<6; ++i)
+            for (int j=0; j<i; ++j)
+                assertTrue(lm.landmark(i) != lm.landmark(j));
+        compare(g, w, lm, rnd);
+        ALT alt = new ALT(g, w, lm);
+        alt.setActive(6);
+        alt.path(g.node(0), g.node(1));
+        try {
+            alt.setActive(7);
+            fail("too many active landmarks");
+        } catch (IllegalArgumentException e) {}
+    }
+
+    public void testUGraph()
+    {
+        Random rnd = new Random(3);
+        BasicUGraph g = new BasicUGraph();
+        g.genNodes(500);
+        for (int i=0; i<900; ++i) {
+            int u = rnd.nextInt(500);
+            int v = rnd.nextInt(500);
+            if (u != v)
+                g.genEdge(g.node(u), g.node(v));
+        }
+        DoubleEdgeMap w = weights(g, rnd);
+        compare(g, w, Landmarks.select(g, w, 5, Landmarks.Strategy.Avoid, rnd), rnd);
+    }
+
+    /*
+      Landmarks computed without filter and with lighter weights bound a
+      filtered search with heavier weights.
+     */
+    public void testFilterAndHeavier()
+    {
+        Random rnd = new Random(4);
+        BasicDigraph g = random(600, 3000);
+        DoubleEdgeMap w = weights(g, rnd);
+        Landmarks lm = Landmarks.select(g, w, 4, Landmarks.Strategy.Farthest, rnd);
+        DoubleEdgeMap heavy = g.createDoubleEdgeMap();
+        for (Edge e : g.edges())
+            heavy.set(e, w.get(e) + rnd.nextInt(3));
+        g.addFilter(new GraphFilter() {
+            public boolean filter(Edge e) { return e.edgeId() % 4 == 0; }
+            public boolean filter(Node n) { return false; }
+        });
+        compare(g, heavy, lm, rnd);
+        g.removeFilter();
+    }
+
+    /*
+      On a grid, the search settles a small part of the nodes Dijkstra
+      settles, through the AStar facade with int weights.
+     */
+    public void testGrid()
+    {
+        Random rnd = new Random(5);
+        int side = 80;
+        BasicDigraph g = new BasicDigraph();
+        g.genNodes(side * side);
+        for (int r=0; r<side; ++r) {
+            for (int c=0; c<side; ++c) {
+                Node u = g.node(r * side + c);
+                if (c + 1 < side) {
+                    g.genEdge(u, g.node(r * side + c + 1));
+                    g.genEdge(g.node(r * side + c + 1), u);
+                }
+                if (r + 1 < side) {
+                    g.genEdge(u, g.node((r + 1) * side + c));
+                    g.genEdge(g.node((r + 1) * side + c), u);
+                }
+            }
+        }
+        IntEdgeMap w = g.createIntEdgeMap();
+        for (Edge e : g.edges())
+            w.set(e, 1 + rnd.nextInt(10));
+        Landmarks lm = Landmarks.select(g, w, 16, Landmarks.Strategy.Avoid, rnd);
+        ALT alt = new ALT(g, w, lm);
+        long altSettled = 0;
+        long ball = 0;
+        for (int q=0; q<20; ++q) {
+            Node s = g.node(rnd.nextInt(side * side));
+            Node t = g.node(rnd.nextInt(side * side));
+            IntNodeMap dist = g.createIntNodeMap();
+            SSSP.dijkstra(g, s, dist, w);
+            Path p = AStar.search(g, s, t, w, lm);
+            int len = 0;
+            for (Edge e : p.edges())
+                len += w.get(e);
+            assertEquals(dist.get(t), len);
+            alt.path(s, t);
+            assertEquals((double) dist.get(t), alt.distance());
+            altSettled += alt.settled();
+            for (Node n : g.nodes())
+                if (dist.get(n) <= dist.get(t)) ball++;
+        }
+        assertTrue(altSettled + " vs " + ball, 4 * altSettled < ball);
+    }
+
+    public void testArguments()
+    {
+        BasicDigraph g = random(50, 100);
+        IntEdgeMap w = g.createIntEdgeMap();
+        try {
+            Landmarks.select(g, w, 0, Landmarks.Strategy.Farthest);
+            fail("no landmarks");
+        } catch (IllegalArgumentException e) {}
+        w.set(g.edges().iterator().next(), -1);
+        try {
+            Landmarks.select(g, w, 2, Landmarks.Strategy.Farthest);
+            fail("negative weight");
+        } catch (IllegalArgumentException e) {}
+    }
+}
@@ -0,0 +1,330 @@
+package stixar.graph.paths;
+
+import stixar.graph.BasicDigraph;
+import stixar.graph.Edge;
+import stixar.graph.GraphFilter;
+import stixar.graph.Node;
+import stixar.graph.gen.BasicDGFactory;
+
+import stixar.graph.attr.DoubleEdgeMap;
+import stixar.graph.attr.DoubleNodeMatrix;
+import stixar.graph.attr.FloatEdgeMap;
+import stixar.graph.attr.FloatNodeMatrix;
+import stixar.graph.attr.IntEdgeMap;
+import stixar.graph.attr.IntNodeMatrix;
+import stixar.graph.attr.LongEdgeMap;
+import stixar.graph.attr.LongNodeMatrix;
+import stixar.graph.attr.MatrixLayout;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+
+public class APSPTest extends TestCase
+{
+    public APSPTest()
+    {
+        super("APSP");
+    }
+
+    private BasicDigraph random(int n, int m)
+    {
+        BasicDGFactory f = new BasicDGFactory(n, m);
+        f.genNodes(n);
+        f.genEdges(m);
+        BasicDigraph g = f.digraph();
+        g.remove(g.node(2));
+        return g;
+    }
+
+    /*
+      Reference distances by Floyd-Warshall, over the edges kept by the
+      filter.
+     */
+    private double[][] floyd(BasicDigraph g, Weight w)
+    {
+        int n = g.nodeAttrSize();
+        double[][] d = new double[n][n];
+        for (int i=0; i<n; ++i) {
+            for (int j=0; j<n; ++j)
+                d[i][j] = Double.POSITIVE_INFINITY;
+            d[i][i] = 0;
+        }
+        GraphFilter filter = g.getFilter();
+        for (Edge e : g.edges()) {
+            if (filter != null && filter.filter(e))
+                continue;
+            int u = e.source().nodeId();
+            int v = e.target().nodeId();
+            d[u][v] = Math.min(d[u][v], w.get(e));
+        }
+        for (int k=0; k<n; ++k)
+            for (int i=0; i<n; ++i)
+                if (d[i][k] != Double.POSITIVE_INFINITY)
+                    for (int j=0; j<n; ++j)
+                        if (d[i][k] + d[k][j] < d[i][j])
+                            d[i][j] = d[i][k] + d[k][j];
+        return d;
+    }
+
+    private interface Weight
+    {
+        double get(Edge e);
+    }
+
+    private Weight weight(final IntEdgeMap w)
+    {
+        return new Weight() {
+            public double get(Edge e) { return w.get(e); }
+        };
+    }
+
+    private Weight weight(final LongEdgeMap w)
+    {
+        return new Weight() {
+            public double get(Edge e) { return w.get(e); }
+        };
+    }
+
+    private Weight weight(final DoubleEdgeMap w)
+    {
+        return new Weight() {
+            public double get(Edge e) { return w.get(e); }
+        };
+    }
+
+    /*
+      Weights with negative values but no negative cycle: a non negative
+      weight adjusted by a random potential.
+     */
+    private int[] potential(BasicDigraph g, Random rnd)
+    {
+        int[] p = new int[g.nodeAttrSize()];
+        for (int i=0; i<p.length; ++i)
+            p[i] = rnd.nextInt(50);
+        return p;
+    }
+
+    public void testInt()
+    {
+        Random rnd = new Random(1);
+        BasicDigraph g = random(300, 1200);
+        int[] p = potential(g, rnd);
+        IntEdgeMap w = g.createIntEdgeMap();
+        for (Edge e : g.edges())
+            w.set(e, rnd.nextInt(20) + p[e.source().nodeId()] - p[e.target().nodeId()]);
+        IntNodeMatrix m = g.createIntNodeMatrix();
+        assertNull(APSP.apspSparse(g, w, m));
+        double[][] d = floyd(g, weight(w));
+        for (Node s : g.nodes()) {
+            for (Node t : g.nodes()) {
+                double x = d[s.nodeId()][t.nodeId()];
+                assertEquals(x == Double.POSITIVE_INFINITY ? Integer.MAX_VALUE : (int) x,
+                             m.get(s, t));
+            }
+        }
+    }
+
+    public void testLongOnExecutor()
+    {
+        Random rnd = new Random(2);
+        BasicDigraph g = random(250, 900);
+        int[] p = potential(g, rnd);
+        LongEdgeMap w = g.createLongEdgeMap();
+        for (Edge e : g.edges())
+            w.set(e, rnd.nextInt(5) + p[e.source().nodeId()] - p[e.target().nodeId()]);
+        LongNodeMatrix m = g.createLongNodeMatrix();
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            assertNull(APSP.apspSparse(g, w, m, pool, 3));
+        } finally {
+            pool.shutdown();
+        }
+        double[][] d = floyd(g, weight(w));
+        for (Node s : g.nodes()) {
+            for (Node t : g.nodes()) {
+                double x = d[s.nodeId()][t.nodeId()];
+                assertEquals(x == Double.POSITIVE_INFINITY ? Long.MAX_VALUE : (long) x,
+                             m.get(s, t));
+            }
+        }
+    }
+
+    public void testFloating()
+    {
+        Random rnd = new Random(3);
+        BasicDigraph g = random(200, 800);
+        int[] p = potential(g, rnd);
+        DoubleEdgeMap dw = g.createDoubleEdgeMap();
+        FloatEdgeMap fw = g.createFloatEdgeMap();
+        for (Edge e : g.edges()) {
+            double x = rnd.nextDouble() * 10 + p[e.source().nodeId()] - p[e.target().nodeId()];
+            dw.set(e, x);
+            fw.set(e, (float) x);
+        }
+        DoubleNodeMatrix dm = g.createDoubleNodeMatrix();
+        FloatNodeMatrix fm = g.createFloatNodeMatrix();
+        assertNull(APSP.apspSparse(g, dw, dm, null, 2));
+        assertNull(APSP.apspSparse(g, fw, fm, null, 1));
+        double[][] d = floyd(g, weight(dw));
+        for (Node s : g.nodes()) {
+            for (Node t : g.nodes()) {
+                double x = d[s.nodeId()][t.nodeId()];
+                if (x == Double.POSITIVE_INFINITY) {
+                    assertEquals(Double.POSITIVE_INFINITY, dm.get(s, t));
+                    assertEquals(Float.POSITIVE_INFINITY, fm.get(s, t));
+                } else {
+                    assertEquals(x, dm.get(s, t), 1e-9);
+                    assertEquals(x, fm.get(s, t), 1e-2);
+                }
+            }
+        }
+    }
+
+    public void testFilter()
+    {
+        Random rnd = new Random(4);
+        BasicDigraph g = random(200, 1000);
+        IntEdgeMap w = g.createIntEdgeMap();
+        for (Edge e : g.edges())
+            w.set(e, rnd.nextInt(30));
+        g.addFilter(new GraphFilter() {
+            public boolean filter(Edge e) { return e.edgeId() % 2 == 0; }
+            public boolean filter(Node n) { return false; }
+        });
+        IntNodeMatrix m = g.createIntNodeMatrix();
+        assertNull(APSP.apspSparse(g, w, m, null, 2));
+        double[][] d = floyd(g, weight(w));
+        g.removeFilter();
+        for (Node s : g.nodes()) {
+            for (Node t : g.nodes()) {
+                double x = d[s.nodeId()][t.nodeId()];
+                assertEquals(x == Double.POSITIVE_INFINITY ? Integer.MAX_VALUE : (int) x,
+                             m.get(s, t));
+            }
+        }
+    }
+
+    public void testNegativeCycle()
+    {
+        Random rnd = new Random(5);
+        BasicDigraph g = random(100, 400);
+        IntEdgeMap w = g.createIntEdgeMap();
+        for (Edge e : g.edges())
+            w.set(e, rnd.nextInt(10));
+        Node a = g.node(10);
+        Node b = g.node(20);
+        Node c = g.node(30);
+        w.set(g.genEdge(a, b), 1);
+        w.set(g.genEdge(b, c), 1);
+        w.set(g.genEdge(c, a), -3);
+        IntNodeMatrix m = g.createIntNodeMatrix();
+        Path cycle = APSP.apspSparse(g, w, m);
+        assertNotNull(cycle);
+        int sum = 0;
+        Edge first = null;
+        Edge last = null;
+        for (Edge e : cycle.edges()) {
+            if (first == null)
+                first = e;
+            else
+                assertSame(last.target(), e.source());
+            last = e;
+            sum += w.get(e);
+        }
+        assertSame(first.source(), last.target());
+        assertTrue(sum < 0);
+    }
+
+    /*
+      Blocked Floyd-Warshall over several tiles against the reference and
+      Johnson's algorithm.
+     */
+    public void testDense()
+    {
+        Random rnd = new Random(6);
+        BasicDigraph g = random(150, 4000);
+        int[] p = potential(g, rnd);
+        IntEdgeMap iw = g.createIntEdgeMap();
+        LongEdgeMap lw = g.createLongEdgeMap();
+        DoubleEdgeMap dw = g.createDoubleEdgeMap();
+        FloatEdgeMap fw = g.createFloatEdgeMap();
+        for (Edge e : g.edges()) {
+            int x = rnd.nextInt(100) + p[e.source().nodeId()] - p[e.target().nodeId()];
+            iw.set(e, x);
+            lw.set(e, x);
+            dw.set(e, x + 0.25);
+            fw.set(e, x + 0.25f);
+        }
+        g.addFilter(new GraphFilter() {
+            public boolean filter(Edge e) { return e.edgeId() % 7 == 0; }
+            public boolean filter(Node n) { return false; }
+        });
+        IntNodeMatrix im = g.createIntNodeMatrix();
+        LongNodeMatrix lm = g.createLongNodeMatrix();
+        DoubleNodeMatrix dm = g.createDoubleNodeMatrix();
+        FloatNodeMatrix fm = g.createFloatNodeMatrix();
+        IntNodeMatrix sparse = IntNodeMatrix.flat(g.nodeAttrSize(), MatrixLayout.blocked(16));
+        ForkJoinPool pool = new ForkJoinPool(3);
+        APSP.apspDense(g, iw, im, pool);
+        APSP.apspDense(g, lw, lm, pool);
+        APSP.apspDense(g, dw, dm);
+        APSP.apspDense(g, fw, fm);
+        pool.shutdown();
+        assertNull(APSP.apspSparse(g, iw, sparse));
+        double[][] d = floyd(g, weight(iw));
+        double[][] dd = floyd(g, weight(dw));
+        g.removeFilter();
+        for (Node s : g.nodes()) {
+            for (Node t : g.nodes()) {
+                double x = d[s.nodeId()][t.nodeId()];
+                if (x == Double.POSITIVE_INFINITY) {
+                    assertEquals(Integer.MAX_VALUE, im.get(s, t));
+                    assertEquals(Long.MAX_VALUE, lm.get(s, t));
+                    assertEquals(Double.POSITIVE_INFINITY, dm.get(s, t));
+                    assertEquals(Float.POSITIVE_INFINITY, fm.get(s, t));
+                } else {
+                    assertEquals((int) x, im.get(s, t));
+                    assertEquals((long) x, lm.get(s, t));
+                    assertEquals(dd[s.nodeId()][t.nodeId()], dm.get(s, t), 1e-9);
+                    assertEquals(dd[s.nodeId()][t.nodeId()], fm.get(s, t), 1e-2);
+                }
+                assertEquals(sparse.get(s, t), im.get(s, t));
+            }
+        }
+    }
+
+    public void testDenseNegativeCycle()
+    {
+        BasicDigraph g = random(80, 400);
+        IntEdgeMap w = g.createIntEdgeMap();
+        for (Edge e : g.edges())
+            w.set(e, 5);
+        w.set(g.genEdge(g.node(70), g.node(10)), -20);
+        w.set(g.genEdge(g.node(10), g.node(70)), 1);
+        IntNodeMatrix m = g.createIntNodeMatrix();
+        APSP.apspDense(g, w, m);
+        assertTrue(m.get(g.node(10), g.node(10)) < 0);
+    }
+
+    public void testArguments()
+    {
+        BasicDigraph g = random(20, 40);
+        IntEdgeMap w = g.createIntEdgeMap();
+        try {
+            APSP.apspSparse(g, w, g.createLongNodeMatrix());
+            fail("mismatched types");
+        } catch (IllegalArgumentException e) {}
+        try {
+            APSP.apspDense(g, w, g.createDoubleNodeMatrix());
+            fail("mismatched types");
+        } catch (IllegalArgumentException e) {}
+        try {
+            APSP.apspSparse(g, w, g.createIntNodeMatrix(), null, 0);
+            fail("no threads");
+        } catch (IllegalArgumentException e) {}
+    }
+}
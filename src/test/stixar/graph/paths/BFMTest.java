@@ -10,6 +10,7 @@ import stixar.graph.Edge;
 
 import stixar.graph.attr.IntEdgeMap;
 import stixar.graph.attr.IntNodeMap;
+import stixar.graph.attr.EpochIntNodeMap;
 
 import stixar.util.ListCell;
 import java.util.Random;
@@ -56,6 +57,35 @@ public class BFMTest extends TestCase
         reportCycle(bfm, weights);
     }
 
+    public void testReuse()
+    {
+        int[] weights = new int[numEdges];
+        for (int i=0; i<numEdges; ++i)
+            weights[i] = rnd.nextInt(500);
+        IntEdgeMap wMap = new IntEdgeMap(weights);
+        EpochIntNodeMap dist = new EpochIntNodeMap(digraph.nodeAttrSize(), 0);
+        BFMNative reused = new BFMNative(digraph, source, wMap, dist, null);
+        for (int k=0; k<10; ++k) {
+            Node s = digraph.node(rnd.nextInt(numNodes));
+            reused.source(s);
+            reused.run();
+            assertNull(reused.negCycleEdge());
+            IntNodeMap ref = new IntNodeMap(new int[digraph.nodeAttrSize()]);
+            BFMNative fresh = new BFMNative(digraph, s, wMap, ref, null);
+            fresh.run();
+            for (Node n : digraph.nodes()) {
+                assertEquals(ref.get(n), dist.get(n));
+                Edge p = reused.parents().get(n);
+                if (n == s || ref.get(n) == Integer.MAX_VALUE) {
+                    assertNull(p);
+                } else {
+                    assertSame(n, p.target());
+                    assertEquals(ref.get(n), ref.get(p.source()) + weights[p.edgeId()]);
+                }
+            }
+        }
+    }
+
     protected void reportCycle(BFMNative bfm, int[] weights)
     {
         Path p=null;
@@ -0,0 +1,220 @@
+package stixar.graph.paths;
+
+import stixar.graph.ArrayDigraph;
+import stixar.graph.BasicDigraph;
+import stixar.graph.BasicUGraph;
+import stixar.graph.Edge;
+import stixar.graph.Graph;
+import stixar.graph.GraphFilter;
+import stixar.graph.Node;
+import stixar.graph.gen.BasicDGFactory;
+
+import stixar.graph.attr.DoubleEdgeMap;
+import stixar.graph.attr.EdgeMap;
+import stixar.graph.attr.IntEdgeMap;
+import stixar.graph.attr.LongNodeMap;
+import stixar.graph.attr.LongEdgeMap;
+
+import stixar.util.NumAdaptor;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class BiDijkstraTest extends TestCase
+{
+    public BiDijkstraTest()
+    {
+        super("BiDijkstra");
+    }
+
+    /*
+      Check p is a path from s to t of the given length.
+     */
+    private void checkPath(Path p, Node s, Node t, long length, LongEdgeMap w)
+    {
+        assertSame(s, p.head());
+        assertSame(t, p.tail());
+        long sum = 0;
+        Node at = s;
+        for (Edge e : p.edges()) {
+            assertEquals(at.nodeId(), e.source().nodeId());
+            at = e.target();
+            sum += w.get(e);
+        }
+        assertEquals(t.nodeId(), at.nodeId());
+        assertEquals(length, sum);
+    }
+
+    /*
+      Random pairs against one way Dijkstra.
+     */
+    private void compare(Graph g, LongEdgeMap w, Random rnd)
+    {
+        BiDijkstraNative bi = new BiDijkstraNative(g, w);
+        EdgeMap<Long> gw = g.createEdgeMap(new Object());
+        DoubleEdgeMap dw = g.createDoubleEdgeMap();
+        for (Edge e : g.edges()) {
+            gw.set(e, w.get(e));
+            dw.set(e, w.get(e));
+        }
+        BiDijkstra<Long> gbi = new BiDijkstra<Long>(g, gw, NumAdaptor.Long);
+        BiDijkstraNative dbi = new BiDijkstraNative(g, dw);
+        int nasz = g.nodeAttrSize();
+        for (int q=0; q<30; ++q) {
+            Node s = g.node(rnd.nextInt(nasz));
+            Node t = g.node(rnd.nextInt(nasz));
+            if (s == null || t == null) continue;
+            LongNodeMap dist = g.createLongNodeMap();
+            DijkstraNative d = new DijkstraNative(g, s, null, null, dist, w, null);
+            d.run();
+            boolean reachable = s == t || d.parents().get(t) != null;
+            Path p = bi.path(s, t);
+            Path gp = gbi.path(s, t);
+            Path dp = dbi.path(s, t);
+            if (!reachable) {
+                assertNull(p);
+                assertNull(gp);
+                assertNull(dp);
+                continue;
+            }
+            assertEquals(dist.get(t), bi.longDistance());
+            assertEquals(dist.get(t), gbi.distance().longValue());
+            assertEquals((double) dist.get(t), dbi.doubleDistance());
+            checkPath(p, s, t, dist.get(t), w);
+            checkPath(gp, s, t, dist.get(t), w);
+            checkPath(dp, s, t, dist.get(t), w);
+        }
+    }
+
+    private LongEdgeMap weights(Graph g, Random rnd)
+    {
+        LongEdgeMap w = g.createLongEdgeMap();
+        for (Edge e : g.edges())
+            w.set(e, rnd.nextInt(50));
+        return w;
+    }
+
+    public void testBasicDigraph()
+    {
+        Random rnd = new Random(1);
+        BasicDGFactory f = new BasicDGFactory(600, 2000);
+        f.genNodes(600);
+        f.genEdges(2000);
+        BasicDigraph g = f.digraph();
+        g.remove(g.node(5));
+        compare(g, weights(g, rnd), rnd);
+    }
+
+    public void testArrayDigraph()
+    {
+        Random rnd = new Random(2);
+        BasicDGFactory f = new BasicDGFactory(600, 2000);
+        f.genNodes(600);
+        f.genEdges(2000);
+        ArrayDigraph g = ArrayDigraph.copy(f.digraph());
+        compare(g, weights(g, rnd), rnd);
+    }
+
+    public void testUGraph()
+    {
+        Random rnd = new Random(3);
+        BasicUGraph g = new BasicUGraph();
+        g.genNodes(400);
+        for (int i=0; i<800; ++i) {
+            int u = rnd.nextInt(400);
+            int v = rnd.nextInt(400);
+            if (u != v)
+                g.genEdge(g.node(u), g.node(v));
+        }
+        compare(g, weights(g, rnd), rnd);
+    }
+
+    public void testFilter()
+    {
+        Random rnd = new Random(4);
+        BasicDGFactory f = new BasicDGFactory(600, 3000);
+        f.genNodes(600);
+        f.genEdges(3000);
+        BasicDigraph g = f.digraph();
+        LongEdgeMap w = weights(g, rnd);
+        g.addFilter(new GraphFilter() {
+            public boolean filter(Edge e) { return e.edgeId() % 3 == 0; }
+            public boolean filter(Node n) { return false; }
+        });
+        compare(g, w, rnd);
+        g.removeFilter();
+    }
+
+    /*
+      The number of nodes settled by one way Dijkstra from s to t: every
+      node closer to s than t is.
+     */
+    private int ball(Graph g, Node s, Node t, LongEdgeMap w)
+    {
+        LongNodeMap dist = g.createLongNodeMap();
+        SSSP.dijkstra(g, s, dist, w);
+        int ball = 0;
+        for (Node n : g.nodes())
+            if (dist.get(n) < dist.get(t)) ball++;
+        return ball;
+    }
+
+    /*
+      The two searches settle about half as many nodes as the one way
+      search on a grid, and far fewer on a random graph.
+     */
+    public void testSettled()
+    {
+        Random rnd = new Random(5);
+        int side = 100;
+        BasicDigraph g = new BasicDigraph();
+        g.genNodes(side * side);
+        for (int r=0; r<side; ++r) {
+            for (int c=0; c<side; ++c) {
+                Node u = g.node(r * side + c);
+                if (c + 1 < side) {
+                    g.genEdge(u, g.node(r * side + c + 1));
+                    g.genEdge(g.node(r * side + c + 1), u);
+                }
+                if (r + 1 < side) {
+                    g.genEdge(u, g.node((r + 1) * side + c));
+                    g.genEdge(g.node((r + 1) * side + c), u);
+                }
+            }
+        }
+        IntEdgeMap w = g.createIntEdgeMap();
+        LongEdgeMap lw = g.createLongEdgeMap();
+        for (Edge e : g.edges()) {
+            w.set(e, 1 + rnd.nextInt(100));
+            lw.set(e, w.get(e));
+        }
+        Node s = g.node(50 * side + 35);
+        Node t = g.node(50 * side + 65);
+        BiDijkstraNative bi = new BiDijkstraNative(g, w);
+        Path p = bi.path(s, t);
+        int ball = ball(g, s, t, lw);
+        assertTrue(bi.settled() + " vs " + ball, 3 * bi.settled() < 2 * ball);
+        assertEquals(p.length(), SSSP.shortestPath(g, s, t, w).length());
+        assertEquals(0, bi.path(s, s).length());
+        assertEquals(0, bi.longDistance());
+
+        int n = 20000;
+        g = new BasicDigraph();
+        g.genNodes(n);
+        for (int i=0; i<4 * n; ++i)
+            g.genEdge(g.node(rnd.nextInt(n)), g.node(rnd.nextInt(n)));
+        lw = weights(g, rnd);
+        bi = new BiDijkstraNative(g, lw);
+        long biSettled = 0;
+        long oneWay = 0;
+        for (int q=0; q<10; ++q) {
+            s = g.node(rnd.nextInt(n));
+            t = g.node(rnd.nextInt(n));
+            if (bi.path(s, t) == null) continue;
+            biSettled += bi.settled();
+            oneWay += ball(g, s, t, lw);
+        }
+        assertTrue(biSettled + " vs " + oneWay, 5 * biSettled < oneWay);
+    }
+}
@@ -0,0 +1,237 @@
+package stixar.graph.paths;
+
+import stixar.graph.BasicDigraph;
+import stixar.graph.BasicUGraph;
+import stixar.graph.Edge;
+import stixar.graph.Graph;
+import stixar.graph.Node;
+import stixar.graph.gen.BasicDGFactory;
+
+import stixar.graph.attr.DoubleEdgeMap;
+import stixar.graph.attr.DoubleNodeMap;
+import stixar.graph.attr.IntEdgeMap;
+import stixar.graph.attr.IntNodeMap;
+import stixar.graph.attr.NativeEdgeMap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class ContractionHierarchyTest extends TestCase
+{
+    public ContractionHierarchyTest()
+    {
+        super("ContractionHierarchy");
+    }
+
+    private static double weight(NativeEdgeMap w, Edge e)
+    {
+        if (w instanceof IntEdgeMap)
+            return ((IntEdgeMap) w).get(e);
+        return ((DoubleEdgeMap) w).get(e);
+    }
+
+    /*
+      Check p is a path of edges of the graph from s to t of the given
+      length.
+     */
+    private void checkPath(Path p, Node s, Node t, double length, NativeEdgeMap w)
+    {
+        assertSame(s, p.head());
+        assertSame(t, p.tail());
+        double sum = 0;
+        Node at = s;
+        for (Edge e : p.edges()) {
+            assertEquals(at.nodeId(), e.source().nodeId());
+            at = e.target();
+            sum += weight(w, e);
+        }
+        assertEquals(t.nodeId(), at.nodeId());
+        assertEquals(length, sum, 1e-9 * Math.max(1, length));
+    }
+
+    /*
+      Random pairs against Dijkstra.
+     */
+    private void compare(Graph g, ContractionHierarchy ch, NativeEdgeMap w, Random rnd)
+    {
+        CHQuery q = ch.query();
+        int nasz = g.nodeAttrSize();
+        for (int i=0; i<40; ++i) {
+            Node s = g.node(rnd.nextInt(nasz));
+            Node t = g.node(rnd.nextInt(nasz));
+            if (s == null || t == null) continue;
+            double expect;
+            DijkstraNative d;
+            if (w instanceof IntEdgeMap) {
+                IntNodeMap dist = g.createIntNodeMap();
+                d = new DijkstraNative(g, s, null, null, dist, w, null);
+                d.run();
+                expect = dist.get(t);
+            } else {
+                DoubleNodeMap dist = g.createDoubleNodeMap();
+                d = new DijkstraNative(g, s, null, null, dist, w, null);
+                d.run();
+                expect = dist.get(t);
+            }
+            Path p = q.path(s, t);
+            if (s != t && d.parents().get(t) == null) {
+                assertNull(p);
+                assertEquals(Double.POSITIVE_INFINITY, q.distance(s, t));
+                continue;
+            }
+            assertEquals(expect, q.distance(s, t), 1e-9 * Math.max(1, expect));
+            checkPath(p, s, t, expect, w);
+        }
+    }
+
+    private BasicDigraph random(Random rnd, int n, int m)
+    {
+        BasicDGFactory f = new BasicDGFactory(n, m);
+        f.genNodes(n);
+        f.genEdges(m);
+        BasicDigraph g = f.digraph();
+        // parallel edges and self loops
+        for (int i=0; i<n / 10; ++i) {
+            Node u = g.node(rnd.nextInt(n));
+            g.genEdge(u, u);
+            Edge e = u.out();
+            if (e != null)
+                g.genEdge(u, e.target());
+        }
+        g.remove(g.node(7));
+        return g;
+    }
+
+    private IntEdgeMap intWeights(Graph g, Random rnd, int max)
+    {
+        IntEdgeMap w = g.createIntEdgeMap();
+        for (Edge e : g.edges())
+            w.set(e, rnd.nextInt(max));
+        return w;
+    }
+
+    private BasicDigraph grid(int side)
+    {
+        BasicDigraph g = new BasicDigraph();
+        g.genNodes(side * side);
+        for (int r=0; r<side; ++r) {
+            for (int c=0; c<side; ++c) {
+                Node u = g.node(r * side + c);
+                if (c + 1 < side) {
+                    g.genEdge(u, g.node(r * side + c + 1));
+                    g.genEdge(g.node(r * side + c + 1), u);
+                }
+                if (r + 1 < side) {
+                    g.genEdge(u, g.node((r + 1) * side + c));
+                    g.genEdge(g.node((r + 1) * side + c), u);
+                }
+            }
+        }
+        return g;
+    }
+
+    public void testRandomInt()
+    {
+        Random rnd = new Random(1);
+        BasicDigraph g = random(rnd, 800, 3000);
+        IntEdgeMap w = intWeights(g, rnd, 5);
+        compare(g, ContractionHierarchy.build(g, w, 1), w, rnd);
+        compare(g, ContractionHierarchy.build(g, w, 4), w, rnd);
+    }
+
+    public void testRandomDouble()
+    {
+        Random rnd = new Random(2);
+        BasicDigraph g = random(rnd, 800, 2400);
+        DoubleEdgeMap w = g.createDoubleEdgeMap();
+        for (Edge e : g.edges())
+            w.set(e, rnd.nextDouble());
+        compare(g, ContractionHierarchy.build(g, w, 1), w, rnd);
+        compare(g, ContractionHierarchy.build(g, w, 3), w, rnd);
+    }
+
+    public void testUGraph()
+    {
+        Random rnd = new Random(3);
+        BasicUGraph g = new BasicUGraph();
+        g.genNodes(500);
+        for (int i=0; i<1000; ++i) {
+            int u = rnd.nextInt(500);
+            int v = rnd.nextInt(500);
+            if (u != v)
+                g.genEdge(g.node(u), g.node(v));
+        }
+        IntEdgeMap w = intWeights(g, rnd, 20);
+        compare(g, ContractionHierarchy.build(g, w, 2), w, rnd);
+    }
+
+    /*
+      Queries on a grid agree with Dijkstra and settle far fewer nodes
+      than bidirectional Dijkstra.
+     */
+    public void testGrid()
+    {
+        Random rnd = new Random(4);
+        BasicDigraph g = grid(60);
+        IntEdgeMap w = intWeights(g, rnd, 100);
+        for (Edge e : g.edges())
+            w.set(e, w.get(e) + 1);
+        ContractionHierarchy ch = ContractionHierarchy.build(g, w, 4);
+        compare(g, ch, w, rnd);
+        CHQuery q = ch.query();
+        BiDijkstraNative bi = new BiDijkstraNative(g, w);
+        long chSettled = 0;
+        long biSettled = 0;
+        for (int i=0; i<20; ++i) {
+            Node s = g.node(rnd.nextInt(3600));
+            Node t = g.node(rnd.nextInt(3600));
+            q.distance(s, t);
+            bi.path(s, t);
+            chSettled += q.settled();
+            biSettled += bi.settled();
+        }
+        assertTrue(chSettled + " vs " + biSettled, 4 * chSettled < biSettled);
+    }
+
+    public void testReadWrite() throws IOException
+    {
+        Random rnd = new Random(5);
+        BasicDigraph g = random(rnd, 300, 1200);
+        IntEdgeMap w = intWeights(g, rnd, 10);
+        ContractionHierarchy ch = ContractionHierarchy.build(g, w, 2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ch.write(out);
+        byte[] bytes = out.toByteArray();
+        ContractionHierarchy read = ContractionHierarchy.read(new ByteArrayInputStream(bytes), g);
+        assertEquals(ch.shortcuts(), read.shortcuts());
+        for (Node n : g.nodes())
+            assertEquals(ch.rank(n), read.rank(n));
+        compare(g, read, w, rnd);
+
+        BasicDigraph other = random(new Random(6), 300, 1200);
+        try {
+            ContractionHierarchy.read(new ByteArrayInputStream(bytes), other);
+            fail("read for another graph");
+        } catch (IOException e) {}
+        bytes[0] ^= 1;
+        try {
+            ContractionHierarchy.read(new ByteArrayInputStream(bytes), g);
+            fail("read bad magic");
+        } catch (IOException e) {}
+    }
+
+    public void testNegative()
+    {
+        BasicDigraph g = grid(3);
+        IntEdgeMap w = g.createIntEdgeMap();
+        w.set(g.node(4).out(), -1);
+        try {
+            ContractionHierarchy.build(g, w);
+            fail("negative weight");
+        } catch (IllegalArgumentException e) {}
+    }
+}
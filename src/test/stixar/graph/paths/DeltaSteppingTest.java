@@ -0,0 +1,286 @@
+package stixar.graph.paths;
+
+import stixar.graph.BasicDigraph;
+import stixar.graph.Edge;
+import stixar.graph.GraphFilter;
+import stixar.graph.Node;
+import stixar.graph.gen.BasicDGFactory;
+
+import stixar.graph.attr.DoubleEdgeMap;
+import stixar.graph.attr.DoubleNodeMap;
+import stixar.graph.attr.FloatEdgeMap;
+import stixar.graph.attr.FloatNodeMap;
+import stixar.graph.attr.IntEdgeMap;
+import stixar.graph.attr.IntNodeMap;
+import stixar.graph.attr.LongEdgeMap;
+import stixar.graph.attr.LongNodeMap;
+import stixar.graph.attr.NodeMap;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+
+public class DeltaSteppingTest extends TestCase
+{
+    private ForkJoinPool pool = new ForkJoinPool(4);
+
+    public DeltaSteppingTest()
+    {
+        super("DeltaStepping");
+    }
+
+    private BasicDigraph random(int n, int m)
+    {
+        BasicDGFactory f = new BasicDGFactory(n, m);
+        f.genNodes(n);
+        f.genEdges(m);
+        BasicDigraph g = f.digraph();
+        g.remove(g.node(1));
+        return g;
+    }
+
+    /*
+      Parents form a tree of tight edges to the source.
+     */
+    private void checkTree(BasicDigraph g, Node s, NodeMap<Edge> parents, LongNodeMap dist,
+                           LongEdgeMap w)
+    {
+        for (Node v : g.nodes()) {
+            Edge e = parents.get(v);
+            if (v == s || e == null)
+                continue;
+            assertSame(v, e.target());
+            assertEquals(dist.get(v), dist.get(e.source()) + w.get(e));
+            int hops = 0;
+            for (Node u = v; u != s; u = parents.get(u).source())
+                assertTrue("parent cycle", ++hops <= g.nodeSize());
+        }
+    }
+
+    public void testLong()
+    {
+        Random rnd = new Random(1);
+        BasicDigraph g = random(3000, 12000);
+        LongEdgeMap w = g.createLongEdgeMap();
+        for (Edge e : g.edges())
+            w.set(e, rnd.nextInt(4) == 0 ? 0 : rnd.nextInt(1000));
+        for (double delta : new double[] {0, 1, 50, 1e6}) {
+            for (int q=0; q<3; ++q) {
+                Node s = g.node(2 + rnd.nextInt(2998));
+                LongNodeMap expect = g.createLongNodeMap();
+                DijkstraNative d = new DijkstraNative(g, s, null, null, expect, w, null);
+                d.run();
+                LongNodeMap dist = g.createLongNodeMap();
+                DeltaStepping ds = new DeltaStepping(g, s, null, dist, w);
+                ds.setPool(pool);
+                ds.setDelta(delta);
+                ds.run();
+                for (Node v : g.nodes()) {
+                    assertEquals(expect.get(v), dist.get(v));
+                    assertEquals(d.parents().get(v) == null, ds.parents().get(v) == null);
+                }
+                checkTree(g, s, ds.parents(), dist, w);
+            }
+        }
+    }
+
+    public void testInt()
+    {
+        Random rnd = new Random(2);
+        BasicDigraph g = random(2000, 9000);
+        IntEdgeMap w = g.createIntEdgeMap();
+        for (Edge e : g.edges())
+            w.set(e, rnd.nextInt(100));
+        Node s = g.node(0);
+        IntNodeMap expect = g.createIntNodeMap();
+        SSSP.dijkstra(g, s, expect, w);
+        IntNodeMap dist = g.createIntNodeMap();
+        // unreached nodes keep their distances, the source starts at its own
+        for (Node v : g.nodes())
+            dist.set(v, -7);
+        dist.set(s, 0);
+        SSSP.deltaStepping(g, s, dist, w, null);
+        for (Node v : g.nodes()) {
+            if (v == s || expect.get(v) != 0)
+                assertEquals(expect.get(v), dist.get(v));
+            else
+                assertEquals(-7, dist.get(v));
+        }
+    }
+
+    /*
+      A negative distance of the source shifts every distance.
+     */
+    public void testNegativeStart()
+    {
+        Random rnd = new Random(5);
+        BasicDigraph g = random(1500, 6000);
+        LongEdgeMap w = g.createLongEdgeMap();
+        DoubleEdgeMap dw = g.createDoubleEdgeMap();
+        for (Edge e : g.edges()) {
+            w.set(e, rnd.nextInt(50));
+            dw.set(e, w.get(e) / 8.0);
+        }
+        Node s = g.node(0);
+        LongNodeMap expect = g.createLongNodeMap();
+        SSSP.dijkstra(g, s, expect, w);
+        LongNodeMap dist = g.createLongNodeMap();
+        dist.set(s, -1001);
+        DeltaStepping ds = new DeltaStepping(g, s, null, dist, w);
+        ds.setPool(pool);
+        ds.setDelta(7);
+        ds.run();
+        DoubleNodeMap ddist = g.createDoubleNodeMap();
+        ddist.set(s, -100.3);
+        ds = new DeltaStepping(g, s, null, ddist, dw);
+        ds.setPool(pool);
+        ds.setDelta(0.9);
+        ds.run();
+        for (Node v : g.nodes()) {
+            if (v != s && expect.get(v) == 0)
+                continue;
+            assertEquals(expect.get(v) - 1001, dist.get(v));
+            assertEquals(expect.get(v) / 8.0 - 100.3, ddist.get(v), 1e-9);
+        }
+    }
+
+    /*
+      Distances beyond 2^53, which doubles do not hold exactly, fall in
+      the right buckets.
+     */
+    public void testLargeDistances()
+    {
+        Random rnd = new Random(7);
+        BasicDigraph g = new BasicDigraph();
+        g.genNodes(400);
+        for (int i=0; i+1<400; ++i)
+            g.genEdge(g.node(i), g.node(i + 1));
+        for (int i=0; i+2<400; i+=3)
+            g.genEdge(g.node(i), g.node(i + 2));
+        LongEdgeMap w = g.createLongEdgeMap();
+        for (Edge e : g.edges())
+            w.set(e, 1 + rnd.nextInt(10));
+        Node s = g.node(0);
+        LongNodeMap expect = g.createLongNodeMap();
+        SSSP.dijkstra(g, s, expect, w);
+        long base = 1L << 60;
+        for (long start : new long[] {base + 3, -base - 5}) {
+            LongNodeMap dist = g.createLongNodeMap();
+            dist.set(s, start);
+            DeltaStepping ds = new DeltaStepping(g, s, null, dist, w);
+            ds.setPool(pool);
+            ds.setDelta(3);
+            ds.run();
+            for (Node v : g.nodes())
+                assertEquals(expect.get(v) + start, dist.get(v));
+        }
+    }
+
+    public void testFloating()
+    {
+        Random rnd = new Random(3);
+        BasicDigraph g = random(2000, 8000);
+        DoubleEdgeMap dw = g.createDoubleEdgeMap();
+        FloatEdgeMap fw = g.createFloatEdgeMap();
+        for (Edge e : g.edges()) {
+            dw.set(e, rnd.nextDouble());
+            fw.set(e, rnd.nextFloat() * 10);
+        }
+        Node s = g.node(5);
+        DoubleNodeMap dExpect = g.createDoubleNodeMap();
+        SSSP.dijkstra(g, s, dExpect, dw);
+        DoubleNodeMap dDist = g.createDoubleNodeMap();
+        DeltaStepping ds = new DeltaStepping(g, s, null, dDist, dw);
+        ds.setPool(pool);
+        ds.setDelta(0.05);
+        ds.run();
+        assertEquals(0.05, ds.delta());
+        FloatNodeMap fExpect = g.createFloatNodeMap();
+        SSSP.dijkstra(g, s, fExpect, fw);
+        FloatNodeMap fDist = g.createFloatNodeMap();
+        ds = new DeltaStepping(g, s, null, fDist, fw);
+        ds.setPool(pool);
+        ds.run();
+        for (Node v : g.nodes()) {
+            assertEquals(dExpect.get(v), dDist.get(v), 1e-9);
+            assertEquals(fExpect.get(v), fDist.get(v), 1e-3f);
+        }
+    }
+
+    public void testFilter()
+    {
+        Random rnd = new Random(4);
+        BasicDigraph g = random(1500, 7000);
+        LongEdgeMap w = g.createLongEdgeMap();
+        for (Edge e : g.edges())
+            w.set(e, e.edgeId() % 3 == 0 ? -1 : rnd.nextInt(30));
+        // the negative weights are on the edges filtered out
+        g.addFilter(new GraphFilter() {
+            public boolean filter(Edge e) { return e.edgeId() % 3 == 0; }
+            public boolean filter(Node n) { return false; }
+        });
+        Node s = g.node(0);
+        LongNodeMap expect = g.createLongNodeMap();
+        SSSP.dijkstra(g, s, expect, w);
+        LongNodeMap dist = g.createLongNodeMap();
+        DeltaStepping ds = new DeltaStepping(g, s, null, dist, w);
+        ds.setPool(pool);
+        ds.run();
+        g.removeFilter();
+        for (Node v : g.nodes())
+            assertEquals(expect.get(v), dist.get(v));
+    }
+
+    /*
+      A reused instance resets the nodes its last run reached.
+     */
+    public void testReuse()
+    {
+        Random rnd = new Random(6);
+        BasicDigraph g = random(2000, 6000);
+        LongEdgeMap w = g.createLongEdgeMap();
+        for (Edge e : g.edges())
+            w.set(e, rnd.nextInt(40));
+        LongNodeMap dist = g.createLongNodeMap();
+        DeltaStepping ds = new DeltaStepping(g, g.node(0), null, dist, w);
+        ds.setPool(pool);
+        for (int q=0; q<4; ++q) {
+            Node s = g.node(2 + rnd.nextInt(1998));
+            LongNodeMap expect = g.createLongNodeMap();
+            DijkstraNative d = new DijkstraNative(g, s, null, null, expect, w, null);
+            d.run();
+            for (Node v : g.nodes()) {
+                dist.set(v, 0);
+                ds.parents().set(v, null);
+            }
+            ds.source(s);
+            ds.run();
+            for (Node v : g.nodes()) {
+                assertEquals(expect.get(v), dist.get(v));
+                assertEquals(d.parents().get(v) == null, ds.parents().get(v) == null);
+            }
+            checkTree(g, s, ds.parents(), dist, w);
+        }
+    }
+
+    public void testArguments()
+    {
+        BasicDigraph g = random(20, 40);
+        IntEdgeMap w = g.createIntEdgeMap();
+        try {
+            new DeltaStepping(g, g.node(0), null, g.createLongNodeMap(), w);
+            fail("mismatched types");
+        } catch (IllegalArgumentException e) {}
+        DeltaStepping ds = new DeltaStepping(g, g.node(0), null, g.createIntNodeMap(), w);
+        try {
+            ds.setDelta(-1);
+            fail("negative delta");
+        } catch (IllegalArgumentException e) {}
+        w.set(g.edges().iterator().next(), -1);
+        try {
+            ds.run();
+            fail("negative weight");
+        } catch (IllegalArgumentException e) {}
+    }
+}
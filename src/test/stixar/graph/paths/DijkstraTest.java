@@ -8,14 +8,26 @@ import stixar.graph.BasicEdge;
 import stixar.graph.Node;
 import stixar.graph.Edge;
 
+import stixar.graph.GraphFilter;
+
+import stixar.graph.attr.DoubleEdgeMap;
+import stixar.graph.attr.DoubleNodeMap;
 import stixar.graph.attr.IntEdgeMap;
 import stixar.graph.attr.IntNodeMap;
+import stixar.graph.attr.LongEdgeMap;
+import stixar.graph.attr.LongNodeMap;
 import stixar.graph.attr.EdgeMap;
 import stixar.graph.attr.NodeMap;
 
+import stixar.util.BinaryPQ;
+import stixar.util.BucketQueue;
+import stixar.util.IntDHeap;
 import stixar.util.NumAdaptor;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Random;
+import java.util.Set;
 
 import junit.framework.TestCase;
 
@@ -52,6 +64,292 @@ public class DijkstraTest extends TestCase
     }
 
 
+    /*
+      The primitive heap, with and without a filter, against a BinaryPQ
+      set with setPQueue.
+     */
+    public void testQueues()
+    {
+        BasicDGFactory f = new BasicDGFactory(2000, 20000);
+        f.genNodes(2000);
+        f.genEdges(20000);
+        BasicDigraph g = f.digraph();
+        Node source = g.node(0);
+        IntEdgeMap w = g.createIntEdgeMap();
+        DoubleEdgeMap dw = g.createDoubleEdgeMap();
+        Random rnd = new Random(1);
+        for (Edge e : g.edges()) {
+            w.set(e, rnd.nextInt(100));
+            dw.set(e, w.get(e) / 4.0);
+        }
+        IntNodeMap ref = g.createIntNodeMap();
+        DijkstraNative d = new DijkstraNative(g, source, null, null, ref, w, null);
+        d.setPQueue(new BinaryPQ<Node>(d.getComparator(ref, ref.type())));
+        d.run();
+
+        IntNodeMap dist = g.createIntNodeMap();
+        NodeMap<Edge> parents = g.createNodeMap((Edge) null);
+        SSSP.dijkstra(g, source, dist, w, parents);
+        for (Node n : g.nodes()) {
+            assertEquals(ref.get(n), dist.get(n));
+            Edge p = parents.get(n);
+            if (p != null)
+                assertEquals(dist.get(n), dist.get(p.source()) + w.get(p));
+        }
+
+        DoubleNodeMap ddist = g.createDoubleNodeMap();
+        d = new DijkstraNative(g, source, null, null, ddist, dw, null);
+        d.setIntPQueue(new IntDHeap(1, 2));
+        d.run();
+        for (Node n : g.nodes())
+            assertEquals(ref.get(n) / 4.0, ddist.get(n));
+
+        // a filter which keeps everything.
+        g.addFilter(new GraphFilter() {
+            public boolean filter(Edge e) { return false; }
+            public boolean filter(Node n) { return false; }
+        });
+        dist = g.createIntNodeMap();
+        SSSP.dijkstra(g, source, dist, w);
+        for (Node n : g.nodes())
+            assertEquals(ref.get(n), dist.get(n));
+        g.removeFilter();
+    }
+
+    /*
+      All queue kinds agree as the largest weight grows.
+     */
+    public void testQueueKinds()
+    {
+        BasicDigraph g = new BasicDigraph();
+        int side = 150;
+        g.genNodes(side * side);
+        for (int r=0; r<side; ++r) {
+            for (int c=0; c<side; ++c) {
+                Node u = g.node(r * side + c);
+                if (c + 1 < side) {
+                    g.genEdge(u, g.node(r * side + c + 1));
+                    g.genEdge(g.node(r * side + c + 1), u);
+                }
+                if (r + 1 < side) {
+                    g.genEdge(u, g.node((r + 1) * side + c));
+                    g.genEdge(g.node((r + 1) * side + c), u);
+                }
+            }
+        }
+        LongEdgeMap w = g.createLongEdgeMap();
+        Random rnd = new Random(2);
+        DijkstraNative.QueueKind[] kinds = DijkstraNative.QueueKind.values();
+        for (int c=1; c<=100000; c*=10) {
+            for (Edge e : g.edges())
+                w.set(e, rnd.nextInt(c + 1));
+            LongNodeMap ref = null;
+            for (DijkstraNative.QueueKind k : kinds) {
+                LongNodeMap dist = g.createLongNodeMap();
+                DijkstraNative d = new DijkstraNative(g, g.node(0), null, null, dist, w, null);
+                d.setQueueKind(k);
+                d.run();
+                if (ref == null) {
+                    ref = dist;
+                } else {
+                    for (Node n : g.nodes())
+                        assertEquals(ref.get(n), dist.get(n));
+                }
+            }
+        }
+        DoubleNodeMap ddist = g.createDoubleNodeMap();
+        DijkstraNative d = new DijkstraNative(g, g.node(0), null, null, ddist,
+                                              g.createDoubleEdgeMap(), null);
+        d.setQueueKind(DijkstraNative.QueueKind.Buckets);
+        try {
+            d.run();
+            fail();
+        } catch (IllegalArgumentException ok) {}
+    }
+
+    /*
+      A reused instance whose buckets were sized for small weights moves
+      its queue to a heap when a run meets a weight beyond their span.
+     */
+    public void testGrowingWeights()
+    {
+        BasicDGFactory f = new BasicDGFactory();
+        f.genNodes(2000);
+        f.genEdges(8000);
+        BasicDigraph g = f.digraph();
+        LongEdgeMap w = g.createLongEdgeMap();
+        Random rnd = new Random(8);
+        for (Edge e : g.edges())
+            w.set(e, rnd.nextInt(10));
+        Node s = withOutEdge(g);
+        LongNodeMap dist = g.createLongNodeMap();
+        DijkstraNative d = new DijkstraNative(g, s, null, null, dist, w, null);
+        d.run();
+        assertTrue(d.heap instanceof BucketQueue);
+        for (Edge e : g.edges())
+            w.set(e, rnd.nextInt(1000000));
+        w.set(s.out(), 999999);
+        for (Node n : g.nodes())
+            dist.set(n, 0);
+        d.run();
+        assertTrue(d.heap instanceof IntDHeap);
+        LongNodeMap ref = g.createLongNodeMap();
+        DijkstraNative h = new DijkstraNative(g, s, null, null, ref, w, null);
+        h.setQueueKind(DijkstraNative.QueueKind.DHeap);
+        h.run();
+        for (Node n : g.nodes())
+            if (h.parents().get(n) != null)
+                assertEquals(ref.get(n), dist.get(n));
+    }
+
+    /*
+      Negative weights are rejected by every queue, and a run which may
+      stop early does not choose buckets.
+     */
+    public void testNegativeWeights()
+    {
+        BasicDGFactory f = new BasicDGFactory();
+        f.genNodes(200);
+        f.genEdges(800);
+        BasicDigraph g = f.digraph();
+        LongEdgeMap w = g.createLongEdgeMap();
+        for (Edge e : g.edges())
+            w.set(e, 1);
+        Node s = withOutEdge(g);
+        Edge first = s.out();
+        w.set(first, -1);
+        for (DijkstraNative.QueueKind k : DijkstraNative.QueueKind.values()) {
+            if (k == DijkstraNative.QueueKind.Buckets)
+                continue;
+            DijkstraNative d = new DijkstraNative(g, s, null, null,
+                                                  g.createLongNodeMap(), w, null);
+            d.setQueueKind(k);
+            try {
+                d.run();
+                fail(k.toString());
+            } catch (IllegalArgumentException ok) {
+                assertTrue(ok.getMessage().startsWith("negative weight"));
+            }
+        }
+        w.set(first, 1);
+        DijkstraNative d = new DijkstraNative(g, s, g.node(1), null,
+                                              g.createLongNodeMap(), w, null);
+        d.run();
+        assertTrue(d.heap instanceof IntDHeap);
+        d = new DijkstraNative(g, s, null, null, g.createLongNodeMap(), w, null);
+        d.run();
+        assertTrue(d.heap instanceof BucketQueue);
+        // the buckets meet the negative weight
+        w.set(first, -1);
+        try {
+            d.run();
+            fail();
+        } catch (IllegalArgumentException ok) {
+            assertTrue(ok.getMessage().startsWith("negative weight"));
+        }
+    }
+
+    /*
+      A node of a random graph with an edge out of it.
+     */
+    private static Node withOutEdge(BasicDigraph g)
+    {
+        for (Node n : g.nodes())
+            if (n.out() != null)
+                return n;
+        throw new IllegalStateException("no edges");
+    }
+
+    /*
+      Check the settled nodes of a run are a prefix of the nodes ordered
+      by distance, with final distances.
+     */
+    private void checkSettled(DijkstraBase d, LongNodeMap ref, LongNodeMap dist)
+    {
+        long last = 0;
+        for (int i=0; i<d.settledCount(); ++i) {
+            Node n = d.settledNode(i);
+            assertEquals(ref.get(n), dist.get(n));
+            assertTrue(ref.get(n) >= last);
+            last = ref.get(n);
+        }
+    }
+
+    public void testStopping()
+    {
+        BasicDGFactory f = new BasicDGFactory(2000, 8000);
+        f.genNodes(2000);
+        f.genEdges(8000);
+        BasicDigraph g = f.digraph();
+        LongEdgeMap w = g.createLongEdgeMap();
+        Random rnd = new Random(3);
+        for (Edge e : g.edges())
+            w.set(e, rnd.nextInt(100));
+        Node s = g.node(0);
+        LongNodeMap ref = g.createLongNodeMap();
+        DijkstraNative full = new DijkstraNative(g, s, null, null, ref, w, null);
+        full.run();
+        int[] all = full.settledIds();
+        assertTrue(all.length > 100);
+        checkSettled(full, ref, ref);
+        long median = ref.get(g.node(all[all.length / 2]));
+        int within = 0;
+        for (int id : all)
+            if (ref.get(g.node(id)) <= median)
+                within++;
+
+        // one instance, reused under each criterion
+        LongNodeMap dist = g.createLongNodeMap();
+        DijkstraNative d = new DijkstraNative(g, s, null, null, dist, w, null);
+        d.setRadius(median);
+        d.run();
+        assertEquals(within, d.settledCount());
+        checkSettled(d, ref, dist);
+
+        // the 5 nearest of 40 targets
+        Node[] targets = new Node[40];
+        for (int i=0; i<targets.length; ++i)
+            targets[i] = g.node(all[rnd.nextInt(all.length)]);
+        Set<Node> tset = new HashSet<Node>(Arrays.asList(targets));
+        d.setRadius(Double.POSITIVE_INFINITY);
+        d.setTargets(targets, 5);
+        d.run();
+        checkSettled(d, ref, dist);
+        int found = 0;
+        for (int i=0; i<d.settledCount(); ++i)
+            if (tset.contains(d.settledNode(i)))
+                found++;
+        assertEquals(5, found);
+        assertTrue(tset.contains(d.settledNode(d.settledCount() - 1)));
+
+        d.setTargets(null);
+        d.setBudget(100);
+        d.run();
+        assertEquals(100, d.settledCount());
+        checkSettled(d, ref, dist);
+
+        EdgeMap<Long> gw = g.createEdgeMap(new Object());
+        for (Edge e : g.edges())
+            gw.set(e, w.get(e));
+        NodeMap<Long> gdist = g.createNodeMap(new Object());
+        gdist.set(s, 0L);
+        Dijkstra<Long> gd = new Dijkstra<Long>(g, s, null, null, gdist, gw, NumAdaptor.Long, null);
+        gd.setRadius(median);
+        gd.run();
+        assertEquals(within, gd.settledCount());
+        for (int i=0; i<gd.settledCount(); ++i)
+            assertEquals(ref.get(gd.settledNode(i)), gdist.get(gd.settledNode(i)).longValue());
+        gd.setRadius(null);
+        gd.setTargets(targets);
+        gd.run();
+        int left = tset.size();
+        for (int i=0; i<gd.settledCount(); ++i)
+            if (tset.contains(gd.settledNode(i)))
+                left--;
+        assertEquals(0, left);
+        assertTrue(tset.contains(gd.settledNode(gd.settledCount() - 1)));
+    }
+
     public void testGeneric()
     {
         int nSize = 5000;
@@ -0,0 +1,141 @@
+package stixar.graph.paths;
+
+import stixar.graph.BasicDigraph;
+import stixar.graph.Edge;
+import stixar.graph.Node;
+import stixar.graph.gen.BasicDGFactory;
+
+import stixar.graph.attr.DoubleEdgeMap;
+import stixar.graph.attr.DoubleNodeMap;
+import stixar.graph.attr.LongEdgeMap;
+import stixar.graph.attr.LongNodeMap;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+public class DistanceTableTest extends TestCase
+{
+    private BasicDigraph g;
+    private Random rnd;
+    private Node[] sources;
+    private Node[] targets;
+
+    public DistanceTableTest()
+    {
+        super("DistanceTable");
+    }
+
+    protected void setUp()
+    {
+        BasicDGFactory f = new BasicDGFactory();
+        f.genNodes(400);
+        f.genEdges(1400);
+        g = f.digraph();
+        rnd = new Random(6);
+        sources = pick(37);
+        targets = pick(23);
+        // a duplicate target and a source among the targets
+        targets[5] = targets[2];
+        targets[7] = sources[0];
+    }
+
+    private Node[] pick(int k)
+    {
+        Node[] ns = new Node[k];
+        for (int i=0; i<k; ++i)
+            ns[i] = g.node(rnd.nextInt(g.nodeSize()));
+        return ns;
+    }
+
+    private void checkLong(DistanceTable t, LongEdgeMap w)
+    {
+        assertTrue(t.isIntegral());
+        assertEquals(sources.length, t.rows());
+        assertEquals(targets.length, t.columns());
+        for (int i=0; i<sources.length; ++i) {
+            LongNodeMap dist = g.createLongNodeMap();
+            DijkstraNative d = new DijkstraNative(g, sources[i], null, null, dist, w, null);
+            d.run();
+            for (int j=0; j<targets.length; ++j) {
+                Node tn = targets[j];
+                boolean reached = tn == sources[i] || d.parents().get(tn) != null;
+                assertEquals(reached, t.reaches(i, j));
+                if (!reached) {
+                    assertEquals(Long.MAX_VALUE, t.longDistance(i, j));
+                    assertEquals(Double.POSITIVE_INFINITY, t.distance(i, j));
+                    continue;
+                }
+                assertEquals(dist.get(tn), t.longDistance(i, j));
+                assertEquals(dist.get(tn), t.longArray()[i * t.columns() + j]);
+                if (t.hasPredecessors()) {
+                    Edge e = t.predecessor(i, j);
+                    if (tn == sources[i]) {
+                        assertNull(e);
+                    } else {
+                        assertSame(tn, e.target());
+                        assertEquals(dist.get(tn), dist.get(e.source()) + w.get(e));
+                    }
+                }
+            }
+        }
+    }
+
+    public void testLong()
+    {
+        LongEdgeMap w = g.createLongEdgeMap();
+        for (Edge e : g.edges())
+            w.set(e, rnd.nextInt(1000));
+        checkLong(DistanceTable.compute(g, w, sources, targets), w);
+        checkLong(DistanceTable.compute(g, w, sources, targets, true, null, 1), w);
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            checkLong(DistanceTable.compute(g, w, sources, targets, true, pool, 3), w);
+        } finally {
+            pool.shutdown();
+        }
+        DistanceTable t = DistanceTable.compute(g, w, sources, new Node[0]);
+        assertEquals(0, t.longArray().length);
+        try {
+            t.doubleArray();
+            fail("integral table");
+        } catch (IllegalStateException e) {}
+    }
+
+    public void testDoubleAndHierarchy()
+    {
+        DoubleEdgeMap w = g.createDoubleEdgeMap();
+        for (Edge e : g.edges())
+            w.set(e, rnd.nextDouble() * 10);
+        DistanceTable dt = DistanceTable.compute(g, w, sources, targets, false, null, 2);
+        ContractionHierarchy ch = ContractionHierarchy.build(g, w, 2);
+        DistanceTable bt = DistanceTable.compute(ch, sources, targets, null, 2);
+        assertFalse(dt.isIntegral());
+        assertFalse(bt.hasPredecessors());
+        for (int i=0; i<sources.length; ++i) {
+            DoubleNodeMap dist = g.createDoubleNodeMap();
+            DijkstraNative d = new DijkstraNative(g, sources[i], null, null, dist, w, null);
+            d.run();
+            for (int j=0; j<targets.length; ++j) {
+                Node tn = targets[j];
+                boolean reached = tn == sources[i] || d.parents().get(tn) != null;
+                double expect = reached ? dist.get(tn) : Double.POSITIVE_INFINITY;
+                assertEquals(expect, dt.distance(i, j), 1e-9 * Math.max(1, expect));
+                assertEquals(expect, bt.distance(i, j), 1e-9 * Math.max(1, expect));
+                assertEquals(reached, bt.reaches(i, j));
+            }
+        }
+    }
+
+    public void testNegative()
+    {
+        LongEdgeMap w = g.createLongEdgeMap();
+        w.set(g.edges().iterator().next(), -2);
+        try {
+            DistanceTable.compute(g, w, sources, targets);
+            fail("negative weight");
+        } catch (IllegalArgumentException e) {}
+    }
+}
@@ -0,0 +1,237 @@
+package stixar.graph.paths;
+
+import stixar.graph.BasicDigraph;
+import stixar.graph.Edge;
+import stixar.graph.GraphFilter;
+import stixar.graph.Node;
+import stixar.graph.gen.BasicDGFactory;
+
+import stixar.graph.attr.DoubleEdgeMap;
+import stixar.graph.attr.IntEdgeMap;
+import stixar.graph.attr.NativeEdgeMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+public class KShortestPathsTest extends TestCase
+{
+    public KShortestPathsTest()
+    {
+        super("KShortestPaths");
+    }
+
+    private static BasicDigraph random(int n, int m)
+    {
+        BasicDGFactory f = new BasicDGFactory();
+        f.genNodes(n);
+        f.genEdges(m);
+        return f.digraph();
+    }
+
+    private static double weight(NativeEdgeMap w, Edge e)
+    {
+        return Weights.get(w, e);
+    }
+
+    private static boolean skip(BasicDigraph g, Edge e)
+    {
+        return g.getFilter() != null && g.getFilter().filter(e);
+    }
+
+    /*
+      The lengths of all simple paths from u to t, by depth first search.
+     */
+    private static void simple(BasicDigraph g, NativeEdgeMap w, Node u, Node t,
+                               boolean[] on, double len, List<Double> out)
+    {
+        if (u == t) {
+            out.add(len);
+            return;
+        }
+        on[u.nodeId()] = true;
+        for (Edge e = u.out(); e != null; e = e.next())
+            if (!skip(g, e) && !on[e.target().nodeId()])
+                simple(g, w, e.target(), t, on, len + weight(w, e), out);
+        on[u.nodeId()] = false;
+    }
+
+    /*
+      The lengths of all paths from u to t of length at most bound.
+     */
+    private static void walks(BasicDigraph g, NativeEdgeMap w, Node u, Node t,
+                              double len, double bound, List<Double> out)
+    {
+        if (u == t)
+            out.add(len);
+        for (Edge e = u.out(); e != null; e = e.next()) {
+            double l = len + weight(w, e);
+            if (!skip(g, e) && l <= bound)
+                walks(g, w, e.target(), t, l, bound, out);
+        }
+    }
+
+    private static double check(BasicDigraph g, NativeEdgeMap w, Path p,
+                                Node s, Node t, boolean simple)
+    {
+        Set<Node> seen = new HashSet<Node>();
+        seen.add(s);
+        Node u = s;
+        double len = 0;
+        for (Edge e : p.edges()) {
+            assertSame(u, e.source());
+            assertFalse(skip(g, e));
+            u = e.target();
+            if (simple)
+                assertTrue(seen.add(u));
+            len += weight(w, e);
+        }
+        assertSame(t, u);
+        return len;
+    }
+
+    private static List<Integer> ids(Path p)
+    {
+        List<Integer> l = new ArrayList<Integer>();
+        for (Edge e : p.edges())
+            l.add(e.edgeId());
+        return l;
+    }
+
+    private void compareSimple(BasicDigraph g, NativeEdgeMap w, Random rnd)
+    {
+        for (int k=0; k<20; ++k) {
+            Node s = g.node(rnd.nextInt(g.nodeSize()));
+            Node t = g.node(rnd.nextInt(g.nodeSize()));
+            List<Double> ref = new ArrayList<Double>();
+            simple(g, w, s, t, new boolean[g.nodeAttrSize()], 0, ref);
+            Collections.sort(ref);
+            KShortestPaths ksp = new KShortestPaths(g, w, s, t);
+            Set<List<Integer>> distinct = new HashSet<List<Integer>>();
+            int i = 0;
+            while (ksp.hasNext()) {
+                Path p = ksp.next();
+                double len = check(g, w, p, s, t, true);
+                assertEquals(len, ksp.length(), 1e-9);
+                assertTrue(i < ref.size());
+                assertEquals(ref.get(i), len, 1e-9);
+                assertTrue(distinct.add(ids(p)));
+                i++;
+            }
+            assertEquals(ref.size(), i);
+        }
+    }
+
+    public void testSimple()
+    {
+        Random rnd = new Random(3);
+        BasicDigraph g = random(14, 40);
+        DoubleEdgeMap w = g.createDoubleEdgeMap();
+        for (Edge e : g.edges())
+            w.set(e, 1 + rnd.nextInt(9));
+        compareSimple(g, w, rnd);
+    }
+
+    /*
+      Zero weights and ties, through int weights.
+     */
+    public void testTies()
+    {
+        Random rnd = new Random(5);
+        BasicDigraph g = random(12, 36);
+        IntEdgeMap w = g.createIntEdgeMap();
+        for (Edge e : g.edges())
+            w.set(e, rnd.nextInt(3));
+        compareSimple(g, w, rnd);
+    }
+
+    public void testFilter()
+    {
+        Random rnd = new Random(7);
+        BasicDigraph g = random(14, 48);
+        DoubleEdgeMap w = g.createDoubleEdgeMap();
+        for (Edge e : g.edges())
+            w.set(e, 1 + rnd.nextInt(9));
+        g.addFilter(new GraphFilter() {
+            public boolean filter(Edge e) { return e.edgeId() % 4 == 0; }
+            public boolean filter(Node n) { return false; }
+        });
+        compareSimple(g, w, rnd);
+        g.removeFilter();
+    }
+
+    public void testWalks()
+    {
+        Random rnd = new Random(9);
+        BasicDigraph g = random(10, 30);
+        DoubleEdgeMap w = g.createDoubleEdgeMap();
+        for (Edge e : g.edges())
+            w.set(e, 1 + rnd.nextInt(9));
+        double bound = 30;
+        for (int k=0; k<20; ++k) {
+            Node s = g.node(rnd.nextInt(g.nodeSize()));
+            Node t = g.node(rnd.nextInt(g.nodeSize()));
+            List<Double> ref = new ArrayList<Double>();
+            walks(g, w, s, t, 0, bound, ref);
+            Collections.sort(ref);
+            KShortestWalks ksw = new KShortestWalks(g, w, s, t);
+            Set<List<Integer>> distinct = new HashSet<List<Integer>>();
+            int i = 0;
+            double last = 0;
+            while (ksw.hasNext()) {
+                Path p = ksw.next();
+                double len = check(g, w, p, s, t, false);
+                assertEquals(len, ksw.length(), 1e-9);
+                assertTrue(len >= last);
+                last = len;
+                if (len > bound)
+                    break;
+                assertTrue(i < ref.size());
+                assertEquals(ref.get(i), len, 1e-9);
+                assertTrue(distinct.add(ids(p)));
+                i++;
+            }
+            assertEquals(ref.size(), i);
+        }
+    }
+
+    /*
+      The first walks which are simple are the first simple paths.
+     */
+    public void testWalksAgreeWithPaths()
+    {
+        Random rnd = new Random(11);
+        BasicDigraph g = random(40, 160);
+        DoubleEdgeMap w = g.createDoubleEdgeMap();
+        for (Edge e : g.edges())
+            w.set(e, rnd.nextDouble());
+        Node s = g.node(0);
+        Node t = g.node(1);
+        KShortestPaths ksp = new KShortestPaths(g, w, s, t);
+        KShortestWalks ksw = new KShortestWalks(g, w, s, t);
+        for (int k=0; k<10 && ksp.hasNext(); ++k) {
+            Path p = ksp.next();
+            Path q;
+            do {
+                assertTrue(ksw.hasNext());
+                q = ksw.next();
+            } while (!isSimple(q, s));
+            assertEquals(ksp.length(), ksw.length(), 1e-9);
+        }
+    }
+
+    private static boolean isSimple(Path p, Node s)
+    {
+        Set<Node> seen = new HashSet<Node>();
+        seen.add(s);
+        for (Edge e : p.edges())
+            if (!seen.add(e.target()))
+                return false;
+        return true;
+    }
+}
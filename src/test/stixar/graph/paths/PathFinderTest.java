@@ -0,0 +1,73 @@
+package stixar.graph.paths;
+
+import stixar.graph.BasicDigraph;
+import stixar.graph.Edge;
+import stixar.graph.Node;
+import stixar.graph.gen.BasicDGFactory;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class PathFinderTest extends TestCase
+{
+    public PathFinderTest()
+    {
+        super("PathFinder");
+    }
+
+    private static boolean[] bfs(BasicDigraph g, Node s)
+    {
+        boolean[] seen = new boolean[g.nodeAttrSize()];
+        ArrayDeque<Node> queue = new ArrayDeque<Node>();
+        seen[s.nodeId()] = true;
+        queue.add(s);
+        while (!queue.isEmpty()) {
+            Node u = queue.remove();
+            for (Edge e = u.out(); e != null; e = e.next()) {
+                Node v = e.target();
+                if (!seen[v.nodeId()]) {
+                    seen[v.nodeId()] = true;
+                    queue.add(v);
+                }
+            }
+        }
+        return seen;
+    }
+
+    public void testQueries()
+    {
+        BasicDGFactory f = new BasicDGFactory();
+        f.genNodes(200);
+        f.genEdges(260);
+        BasicDigraph g = f.digraph();
+        PathFinder pf = new PathFinder(g);
+        Random rnd = new Random(4);
+        for (int k=0; k<40; ++k) {
+            Node s = g.node(rnd.nextInt(200));
+            boolean[] ref = bfs(g, s);
+            for (Node t : g.nodes()) {
+                assertEquals(ref[t.nodeId()], pf.reaches(s, t));
+                Path p = pf.path(s, t);
+                if (!ref[t.nodeId()]) {
+                    assertNull(p);
+                } else if (s == t) {
+                    assertTrue(p.edges().isEmpty());
+                } else {
+                    assertSame(s, p.head());
+                    assertSame(t, p.tail());
+                    boolean[] onPath = new boolean[g.nodeAttrSize()];
+                    onPath[s.nodeId()] = true;
+                    Node u = s;
+                    for (Edge e : p.edges()) {
+                        assertSame(u, e.source());
+                        u = e.target();
+                        assertFalse(onPath[u.nodeId()]);
+                        onPath[u.nodeId()] = true;
+                    }
+                }
+            }
+        }
+    }
+}
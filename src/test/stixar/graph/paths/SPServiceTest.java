@@ -0,0 +1,133 @@
+package stixar.graph.paths;
+
+import stixar.graph.BasicDigraph;
+import stixar.graph.Edge;
+import stixar.graph.Node;
+import stixar.graph.gen.BasicDGFactory;
+
+import stixar.graph.attr.LongEdgeMap;
+import stixar.graph.attr.LongNodeMap;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class SPServiceTest extends TestCase
+{
+    private BasicDigraph g;
+    private LongEdgeMap w;
+    private long[][] ref;
+
+    public SPServiceTest()
+    {
+        super("SPService");
+    }
+
+    protected void setUp()
+    {
+        BasicDGFactory f = new BasicDGFactory();
+        f.genNodes(300);
+        f.genEdges(1200);
+        g = f.digraph();
+        w = g.createLongEdgeMap();
+        Random rnd = new Random(5);
+        for (Edge e : g.edges())
+            w.set(e, rnd.nextInt(100));
+        ref = new long[40][];
+        for (int i=0; i<ref.length; ++i) {
+            LongNodeMap d = g.createLongNodeMap();
+            Node src = g.node(i);
+            DijkstraNative dn = new DijkstraNative(g, src, null, null, d, w, null);
+            dn.run();
+            ref[i] = new long[g.nodeAttrSize()];
+            for (Node n : g.nodes())
+                ref[i][n.nodeId()] = n == src || dn.parents().get(n) != null ? d.get(n) : -1;
+        }
+    }
+
+    private void check(SPService sp, int s, Node t)
+    {
+        long r = ref[s][t.nodeId()];
+        double d = sp.distance(g.node(s), t);
+        Path p = sp.path(g.node(s), t);
+        if (r == -1) {
+            assertEquals(Double.POSITIVE_INFINITY, d);
+            assertNull(p);
+            return;
+        }
+        assertEquals((double) r, d);
+        assertSame(g.node(s), p.head());
+        assertSame(t, p.tail());
+        long sum = 0;
+        Node at = g.node(s);
+        for (Edge e : p.edges()) {
+            assertSame(at, e.source());
+            at = e.target();
+            sum += w.get(e);
+        }
+        assertEquals(r, sum);
+    }
+
+    public void testQueries()
+    {
+        SPService sp = new SPService(g, w);
+        for (int s=0; s<ref.length; ++s)
+            for (Node t : g.nodes())
+                check(sp, s, t);
+        Node[] targets = new Node[] { g.node(7), g.node(299), g.node(7), g.node(0) };
+        for (int s=0; s<ref.length; ++s) {
+            double[] ds = sp.distances(g.node(s), targets);
+            for (int i=0; i<targets.length; ++i) {
+                long r = ref[s][targets[i].nodeId()];
+                assertEquals(r == -1 ? Double.POSITIVE_INFINITY : r, ds[i]);
+            }
+        }
+        assertEquals(1, sp.workspaces());
+        SPService.Stats st = sp.stats();
+        assertEquals(2 * ref.length * g.nodeSize() + ref.length, st.queries());
+        assertTrue(st.latency(0.5) <= st.latency(0.99));
+        assertTrue(st.latency(1) <= st.maxLatency());
+        sp.resetStats();
+        assertEquals(0, sp.stats().queries());
+    }
+
+    public void testConcurrent() throws InterruptedException
+    {
+        final SPService sp = new SPService(g, w, 3);
+        final AtomicInteger errors = new AtomicInteger();
+        Thread[] threads = new Thread[8];
+        for (int k=0; k<threads.length; ++k) {
+            final int seed = k;
+            threads[k] = new Thread() {
+                    public void run()
+                    {
+                        Random rnd = new Random(seed);
+                        for (int i=0; i<2000; ++i) {
+                            int s = rnd.nextInt(ref.length);
+                            Node t = g.node(rnd.nextInt(g.nodeSize()));
+                            long r = ref[s][t.nodeId()];
+                            double d = sp.distance(g.node(s), t);
+                            if (d != (r == -1 ? Double.POSITIVE_INFINITY : r))
+                                errors.incrementAndGet();
+                        }
+                    }
+                };
+            threads[k].start();
+        }
+        for (Thread t : threads)
+            t.join();
+        assertEquals(0, errors.get());
+        assertTrue(sp.workspaces() <= 3);
+        assertEquals(8 * 2000, sp.stats().queries());
+    }
+
+    public void testNegative()
+    {
+        w.set(g.edges().iterator().next(), -1);
+        try {
+            new SPService(g, w);
+            fail("negative weight");
+        } catch (IllegalArgumentException e) {}
+    }
+}
@@ -58,6 +58,58 @@ public class DFSTest extends TestCase
         assertTrue(vnr.toString().equals(vr.toString()));
     }
 
+    // a reset search runs again identically, visiting from one node
+    // touches only what it reaches, and the arrays follow a growing graph.
+    public void testReset()
+    {
+        BasicDGFactory factory = new BasicDGFactory();
+        factory.genNodes(500);
+        factory.genEdges(900);
+        BasicDigraph g = factory.digraph();
+        for (boolean recursive : new boolean[] { true, false }) {
+            MyDFSVisitor v1 = new MyDFSVisitor();
+            DFS dfs = new DFS(g, v1, recursive);
+            dfs.run();
+            int[] finish = new int[g.nodeAttrSize()];
+            for (Node n : g.nodes()) {
+                assertEquals(DFS.Color.black, dfs.color(n));
+                assertEquals(dfs.status(n).finishNum, dfs.dfsFinish(n));
+                finish[n.nodeId()] = dfs.dfsFinish(n);
+            }
+            dfs.reset();
+            MyDFSVisitor v2 = new MyDFSVisitor();
+            dfs.visitor = v2;
+            dfs.run();
+            assertEquals(v1.toString(), v2.toString());
+            for (Node n : g.nodes())
+                assertEquals(finish[n.nodeId()], dfs.dfsFinish(n));
+
+            dfs.reset();
+            Node s = g.node(0);
+            dfs.visit(s);
+            int visited = 0;
+            for (Node n : g.nodes()) {
+                if (dfs.color(n) == DFS.Color.white) {
+                    assertEquals(-1, dfs.dfsStart(n));
+                } else {
+                    visited++;
+                }
+            }
+            assertEquals(0, dfs.dfsStart(s));
+            assertEquals(visited - 1, dfs.dfsFinish(s));
+
+            Node a = g.genNode();
+            Node b = g.genNode();
+            g.genEdge(a, b);
+            dfs.reset();
+            dfs.visit(a);
+            assertEquals(DFS.Color.black, dfs.color(b));
+            assertEquals(1, dfs.dfsStart(b));
+            g.remove(b);
+            g.remove(a);
+        }
+    }
+
     public static void main(String[] args)
     {
         DFSTest t = new DFSTest();
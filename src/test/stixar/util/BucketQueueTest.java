@@ -0,0 +1,106 @@
+package stixar.util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class BucketQueueTest extends TestCase
+{
+    public BucketQueueTest()
+    {
+        super("BucketQueue");
+    }
+
+    /*
+      Monotone random operations, with keys inserted within span of the
+      key last extracted, checked against a scan of an array of keys, and
+      clears of a part full queue.
+     */
+    private void check(long base, int span, Random rnd)
+    {
+        int n = 200;
+        IntPQueue q = new BucketQueue(10, span);
+        long[] keys = new long[n];
+        boolean[] in = new boolean[n];
+        long last = base;
+        boolean fresh = false;
+        for (int step=0; step<20000; ++step) {
+            int item = rnd.nextInt(n);
+            int op = rnd.nextInt(10);
+            if (op < 4) {
+                if (q.queued(item)) continue;
+                keys[item] = last + rnd.nextInt(span + 1);
+                q.insert(item, keys[item]);
+                in[item] = true;
+                if (fresh) {
+                    // a cleared queue starts from the first key inserted
+                    last = keys[item];
+                    fresh = false;
+                }
+            } else if (op < 6) {
+                if (!in[item]) continue;
+                keys[item] = last + rnd.nextInt((int) (keys[item] - last) + 1);
+                q.decreaseKey(item, keys[item]);
+            } else {
+                int m = q.extractMin();
+                if (m == -1) {
+                    for (boolean b : in) assertFalse(b);
+                    continue;
+                }
+                assertTrue(in[m]);
+                for (int i=0; i<n; ++i)
+                    assertTrue(!in[i] || keys[i] >= keys[m]);
+                assertTrue(keys[m] >= last);
+                last = keys[m];
+                in[m] = false;
+            }
+            if (step % 5000 == 4999) {
+                q.clear();
+                Arrays.fill(in, false);
+                fresh = true;
+                for (int i=0; i<n; ++i)
+                    assertFalse(q.queued(i));
+            }
+            int size = 0;
+            for (int i=0; i<n; ++i) {
+                assertEquals(in[i], q.contains(i));
+                if (in[i]) {
+                    assertEquals(keys[i], q.key(i));
+                    size++;
+                }
+            }
+            assertEquals(size, q.size());
+            if (size > 0)
+                assertEquals(keys[q.min()], q.minKey());
+        }
+    }
+
+    public void testMonotone()
+    {
+        Random rnd = new Random(4);
+        check(0, 0, rnd);
+        check(0, 1, rnd);
+        check(-1000, 7, rnd);
+        check(1L << 40, 1000, rnd);
+    }
+
+    public void testWindow()
+    {
+        BucketQueue q = new BucketQueue(4, 10);
+        q.insert(0, 100);
+        try {
+            q.insert(1, 111);
+            fail();
+        } catch (IllegalArgumentException ok) {}
+        q.insert(1, 110);
+        assertEquals(0, q.extractMin());
+        try {
+            q.insert(2, 99);
+            fail();
+        } catch (IllegalArgumentException ok) {}
+        q.clear();
+        q.insert(2, 5);
+        assertEquals(2, q.extractMin());
+    }
+}
@@ -0,0 +1,124 @@
+package stixar.util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class IntDHeapTest extends TestCase
+{
+    public IntDHeapTest()
+    {
+        super("IntDHeap");
+    }
+
+    /*
+      Random operations checked against a scan of an array of keys.
+     */
+    private void check(int arity)
+    {
+        Random rnd = new Random(arity);
+        int n = 300;
+        IntDHeap heap = new IntDHeap(10, arity);
+        long[] keys = new long[n];
+        boolean[] in = new boolean[n];
+        boolean[] queued = new boolean[n];
+        for (int step=0; step<20000; ++step) {
+            int item = rnd.nextInt(n);
+            int op = rnd.nextInt(10);
+            if (op < 4) {
+                if (in[item]) continue;
+                keys[item] = rnd.nextInt(1000) - 500;
+                heap.insert(item, keys[item]);
+                in[item] = queued[item] = true;
+            } else if (op < 6) {
+                if (!in[item]) continue;
+                keys[item] -= rnd.nextInt(100);
+                heap.decreaseKey(item, keys[item]);
+            } else if (op < 7) {
+                if (!in[item]) continue;
+                keys[item] += rnd.nextInt(200) - 100;
+                heap.changeKey(item, keys[item]);
+            } else if (op < 8) {
+                if (!in[item]) continue;
+                heap.remove(item);
+                in[item] = false;
+            } else if (op < 10) {
+                int m = heap.extractMin();
+                if (m == -1) {
+                    for (boolean b : in) assertFalse(b);
+                    continue;
+                }
+                assertTrue(in[m]);
+                for (int i=0; i<n; ++i)
+                    assertTrue(!in[i] || keys[i] >= keys[m]);
+                in[m] = false;
+            }
+            if (step % 5000 == 4999) {
+                heap.clear();
+                Arrays.fill(in, false);
+                Arrays.fill(queued, false);
+            }
+            int size = 0;
+            for (int i=0; i<n; ++i) {
+                assertEquals(in[i], heap.contains(i));
+                assertEquals(queued[i], heap.queued(i));
+                if (in[i]) {
+                    assertEquals(keys[i], heap.key(i));
+                    size++;
+                }
+            }
+            assertEquals(size, heap.size());
+        }
+    }
+
+    public void testArities()
+    {
+        check(2);
+        check(3);
+        check(4);
+        check(8);
+    }
+
+    public void testErrors()
+    {
+        IntDHeap heap = new IntDHeap(4);
+        heap.insert(2, 5);
+        try {
+            heap.insert(2, 1);
+            fail();
+        } catch (IllegalArgumentException ok) {}
+        try {
+            heap.decreaseKey(2, 6);
+            fail();
+        } catch (IllegalArgumentException ok) {}
+        try {
+            heap.decreaseKey(3, 1);
+            fail();
+        } catch (IllegalArgumentException ok) {}
+        assertEquals(2, heap.extractMin());
+        assertEquals(-1, heap.extractMin());
+        try {
+            heap.minKey();
+            fail();
+        } catch (IllegalStateException ok) {}
+        try {
+            new IntDHeap(4, 1);
+            fail();
+        } catch (IllegalArgumentException ok) {}
+    }
+
+    public void testDoubleKeys()
+    {
+        double[] ds = { Double.NEGATIVE_INFINITY, -1e300, -2.5, -1e-300, -0.0,
+                        0.0, Double.MIN_VALUE, 1.0, 2.5, 1e300,
+                        Double.POSITIVE_INFINITY, Double.NaN };
+        for (int i=0; i<ds.length; ++i) {
+            long k = IntDHeap.doubleKey(ds[i]);
+            assertEquals(Double.doubleToLongBits(ds[i]),
+                         Double.doubleToLongBits(IntDHeap.keyDouble(k)));
+            if (i > 0)
+                assertTrue(IntDHeap.doubleKey(ds[i - 1]) < k);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package stixar.util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class IntRadixHeapTest extends TestCase
+{
+    public IntRadixHeapTest()
+    {
+        super("IntRadixHeap");
+    }
+
+    /*
+      Monotone random operations, with keys inserted within span of the
+      key last extracted, checked against a scan of an array of keys, and
+      clears of a part full queue.
+     */
+    private void check(long base, int span, Random rnd)
+    {
+        int n = 200;
+        IntPQueue q = new IntRadixHeap(10);
+        long[] keys = new long[n];
+        boolean[] in = new boolean[n];
+        long last = base;
+        for (int step=0; step<20000; ++step) {
+            int item = rnd.nextInt(n);
+            int op = rnd.nextInt(10);
+            if (op < 4) {
+                if (q.queued(item)) continue;
+                keys[item] = last + rnd.nextInt(span + 1);
+                q.insert(item, keys[item]);
+                in[item] = true;
+            } else if (op < 6) {
+                if (!in[item]) continue;
+                keys[item] = last + rnd.nextInt((int) (keys[item] - last) + 1);
+                q.decreaseKey(item, keys[item]);
+            } else {
+                int m = q.extractMin();
+                if (m == -1) {
+                    for (boolean b : in) assertFalse(b);
+                    continue;
+                }
+                assertTrue(in[m]);
+                for (int i=0; i<n; ++i)
+                    assertTrue(!in[i] || keys[i] >= keys[m]);
+                assertTrue(keys[m] >= last);
+                last = keys[m];
+                in[m] = false;
+            }
+            if (step % 5000 == 4999) {
+                q.clear();
+                Arrays.fill(in, false);
+                for (int i=0; i<n; ++i)
+                    assertFalse(q.queued(i));
+            }
+            int size = 0;
+            for (int i=0; i<n; ++i) {
+                assertEquals(in[i], q.contains(i));
+                if (in[i]) {
+                    assertEquals(keys[i], q.key(i));
+                    size++;
+                }
+            }
+            assertEquals(size, q.size());
+            if (size > 0)
+                assertEquals(keys[q.min()], q.minKey());
+        }
+    }
+
+    public void testMonotone()
+    {
+        Random rnd = new Random(4);
+        check(0, 0, rnd);
+        check(0, 1, rnd);
+        check(-1000, 7, rnd);
+        check(1L << 40, 1000, rnd);
+    }
+
+    public void testDoubleKeys()
+    {
+        IntRadixHeap q = new IntRadixHeap(4);
+        double[] ds = { 3.5, 0.25, 1e10, 0.0, 7.0 };
+        for (int i=0; i<ds.length; ++i)
+            q.insert(i, IntDHeap.doubleKey(ds[i]));
+        int[] expect = { 3, 1, 0, 4, 2 };
+        for (int e : expect)
+            assertEquals(e, q.extractMin());
+        try {
+            q.insert(0, IntDHeap.doubleKey(1.0));
+            fail();
+        } catch (IllegalArgumentException ok) {}
+    }
+}